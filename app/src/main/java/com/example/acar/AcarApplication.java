@@ -0,0 +1,28 @@
+package com.example.acar;
+
+import android.app.Application;
+
+import com.example.acar.metrics.StartupTrace;
+import com.example.acar.rules.AlertMonitor;
+import com.example.acar.track.TrackRecorder;
+import com.example.acar.transport.Heartbeat;
+import com.example.acar.transport.RoverLink;
+
+// AcarApplication sets up process-wide state before any screen is shown
+public class AcarApplication extends Application {
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+
+        // Choose how the app talks to the rover (direct LAN link or Firebase)
+        RoverLink.init(this);
+        Heartbeat.getInstance().setDeadlineMillis(getResources().getInteger(R.integer.heartbeat_deadline_ms));
+
+        // Watch the telemetry for the user's alert rules on every screen
+        AlertMonitor.start(this);
+        // Keep the rover's track whichever screen receives the fixes
+        TrackRecorder.getInstance().start();
+        StartupTrace.getInstance().mark(StartupTrace.Phase.APP_CREATED);
+    }
+}
@@ -5,33 +5,95 @@ import android.os.Bundle;
 import android.util.Log;
 import android.view.View;
 import android.widget.Button;
+import android.widget.EditText;
 import android.widget.TextView;
 import android.widget.Toast;
 
-import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
 
-import com.google.firebase.database.DataSnapshot;
-import com.google.firebase.database.DatabaseError;
-import com.google.firebase.database.DatabaseReference;
-import com.google.firebase.database.FirebaseDatabase;
-import com.google.firebase.database.ValueEventListener;
+import com.example.acar.chart.HistoryChartView;
+import com.example.acar.drive.DriveChannel;
+import com.example.acar.map.RoverMapView;
+import com.example.acar.metrics.DebugOverlay;
+import com.example.acar.metrics.LinkMetrics;
+import com.example.acar.metrics.StartupTrace;
+import com.example.acar.navigation.FenceGuard;
+import com.example.acar.navigation.MissionPlan;
+import com.example.acar.navigation.MissionPlanSource;
+import com.example.acar.navigation.NavigationEngine;
+import com.example.acar.navigation.Navigator;
+import com.example.acar.navigation.PoseFusion;
+import com.example.acar.readout.ReadoutRenderer;
+import com.example.acar.readout.SensorReadouts;
+import com.example.acar.readout.TextBuffer;
+import com.example.acar.telemetry.SensorChannel;
+import com.example.acar.telemetry.TelemetryHub;
+import com.example.acar.telemetry.TelemetryListener;
+import com.example.acar.transport.Heartbeat;
+import com.example.acar.transport.RoverLink;
+import com.example.acar.transport.RoverTransport;
+import com.example.acar.video.MjpegView;
+import com.example.acar.vision.VisionStage;
+
+import java.io.File;
+import java.util.EnumSet;
 
 public class AutonomousControlActivity extends AppCompatActivity {
 
+    // Path of a recorded mission to replay instead of showing the live rover
+    public static final String EXTRA_REPLAY_FILE = "com.example.acar.REPLAY_FILE";
+
     // TextViews to display sensor data
     private TextView textViewTempHumidity, textViewGPS, textViewRaindrop, textViewMoisture;
 
+    // Renders sensor samples into the TextViews once per frame
+    private SensorReadouts sensorReadouts;
+
     // Button to return to Manual Control mode
     private Button returnToManualButton;
 
-    // Firebase Database reference
-    private DatabaseReference databaseReference;
+    // Whether this screen is showing a recorded mission
+    private boolean replaying;
+
+    // Link diagnostics panel
+    private DebugOverlay debugOverlay;
+
+    // Link to the rover (direct LAN with Firebase fallback, or Firebase only)
+    private RoverTransport transport;
+
+    // Smoothed pose from GPS, drive commands and IMU, shown in the GPS card and used for navigation
+    private PoseFusion poseFusion;
+    private final PoseFusion.Pose pose = new PoseFusion.Pose();
+
+    // On-phone path planning and the drive stream it feeds
+    private NavigationEngine navigationEngine;
+    private DriveChannel driveChannel;
+    private EditText navigationGoal;
+    private Button navigateButton;
+    private final ReadoutRenderer navigationRenderer = new ReadoutRenderer();
+    private ReadoutRenderer.Readout navigationReadout;
+    private int navigationState = Navigator.IDLE;
+    private boolean navigating;
+
+    // Camera feed and the optional obstacle hints navigation takes from it
+    private MjpegView cameraView;
+    private VisionStage visionStage;
+    private Button visionButton;
+    private boolean visionEnabled;
+
+    // Waypoint mission and the fences every fix is checked against
+    private final MissionPlanSource missionSource = new MissionPlanSource();
+    private MissionPlan missionPlan = MissionPlan.EMPTY;
+    private FenceGuard fenceGuard;
+    private Button missionButton;
+    // Waypoint being driven to, or -1 when not running a mission
+    private int waypointIndex = -1;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_autonomous_control);
+        StartupTrace.getInstance().mark(StartupTrace.Phase.CONTROL_SCREEN);
 
         // Initialize UI components
         textViewTempHumidity = findViewById(R.id.textView_temp_humidity);
@@ -40,8 +102,20 @@ public class AutonomousControlActivity extends AppCompatActivity {
         textViewMoisture = findViewById(R.id.textView_moisture);
         returnToManualButton = findViewById(R.id.returnToManualButton);
 
-        // Initialize Firebase Database reference
-        databaseReference = FirebaseDatabase.getInstance().getReference();
+        // Switch to the recorded mission before anything subscribes, if one was requested
+        String replayFile = getIntent().getStringExtra(EXTRA_REPLAY_FILE);
+        if (replayFile != null) {
+            RoverLink.startReplay(new File(replayFile));
+            replaying = true;
+        }
+
+        // Obtain the shared rover transport
+        transport = RoverLink.getTransport();
+
+        // A replay has no rover to hand over to
+        if (replaying) {
+            returnToManualButton.setVisibility(View.GONE);
+        }
 
         // Set listener for returning to Manual Control mode
         returnToManualButton.setOnClickListener(v -> {
@@ -49,87 +123,278 @@ public class AutonomousControlActivity extends AppCompatActivity {
             finish(); // Finish current activity to avoid stacking
         });
 
+        // Chart of recent sensor history
+        HistoryChartView historyChart = findViewById(R.id.historyChart);
+        historyChart.bind(this);
+        RoverMapView roverMap = findViewById(R.id.roverMap);
+        roverMap.bind(this);
+
+        // Camera stream, played while this screen is visible
+        cameraView = findViewById(R.id.cameraView);
+        cameraView.bind(this);
+
+        // Long-press the title to show link diagnostics
+        debugOverlay = new DebugOverlay(this, findViewById(R.id.debugOverlay));
+        findViewById(R.id.titleText).setOnLongClickListener(v -> {
+            debugOverlay.toggle();
+            return true;
+        });
+
         // Fetch and update real-time sensor data
         fetchSensorData();
 
-        // Activate autonomous behavior
-        startAutonomousBehavior();
+        // Fuse fixes and commands into a pose between fixes
+        setupPoseFusion();
+
+        // Goal entry and start/stop for on-phone navigation
+        setupNavigation();
+
+        // Activate autonomous behavior (nothing to drive while replaying)
+        if (replaying) {
+            Toast.makeText(this, "Replaying recorded mission", Toast.LENGTH_SHORT).show();
+        } else {
+            startAutonomousBehavior();
+        }
     }
 
     private void fetchSensorData() {
-        // Listener for Temperature & Humidity data
-        databaseReference.child("sensors/dht22").addValueEventListener(new ValueEventListener() {
-            @Override
-            public void onDataChange(@NonNull DataSnapshot dataSnapshot) {
-                if (dataSnapshot.exists()) {
-                    Double temperature = dataSnapshot.child("temperature").getValue(Double.class);
-                    Double humidity = dataSnapshot.child("humidity").getValue(Double.class);
-                    String tempHumidityData = "Temperature: " + temperature + "\u00B0C\nHumidity: " + humidity + "%";
-                    textViewTempHumidity.setText(tempHumidityData);
-                } else {
-                    textViewTempHumidity.setText("Data not available");
-                }
-            }
+        // Subscribe to the shared telemetry hub; delivery follows this activity's lifecycle
+        sensorReadouts = new SensorReadouts(textViewTempHumidity, textViewGPS, textViewRaindrop, textViewMoisture);
+        TelemetryHub.getInstance().subscribe(this, sensorReadouts);
+        // Navigation uses every channel; the rover drops to a trickle while this screen is paused
+        TelemetryHub.getInstance().need(this, EnumSet.allOf(SensorChannel.class));
+    }
+
+    private void setupPoseFusion() {
+        poseFusion = new PoseFusion(() -> {
+            poseFusion.read(pose);
+            sensorReadouts.onPose(pose.latitude, pose.longitude, pose.heading, pose.headingKnown);
+        });
+        TelemetryHub.getInstance().subscribe(this, poseFusion);
+    }
+
+    private void setupNavigation() {
+        navigationGoal = findViewById(R.id.navigationGoal);
+        navigateButton = findViewById(R.id.navigateButton);
+        missionButton = findViewById(R.id.missionButton);
+        visionButton = findViewById(R.id.visionButton);
+        if (replaying) {
+            navigationGoal.setVisibility(View.GONE);
+            navigateButton.setVisibility(View.GONE);
+            missionButton.setVisibility(View.GONE);
+            visionButton.setVisibility(View.GONE);
+            findViewById(R.id.navigationStatus).setVisibility(View.GONE);
+            return;
+        }
 
+        // The rover stops by itself once this screen stops sending heartbeats
+        Heartbeat.getInstance().hold(this);
+        int maxRateHz = getResources().getInteger(R.integer.drive_max_rate_hz);
+        driveChannel = new DriveChannel(this::sendDrive, maxRateHz);
+        navigationEngine = new NavigationEngine(poseFusion, this::onNavigationUpdate);
+        TelemetryHub.getInstance().subscribe(this, navigationEngine);
+        fenceGuard = new FenceGuard(this::onFenceBreach);
+        TelemetryHub.getInstance().subscribe(this, fenceGuard);
+        navigationReadout = navigationRenderer.add(findViewById(R.id.navigationStatus), this::formatNavigationStatus);
+        navigationReadout.invalidate();
+        // Keep the fence line current between navigation updates
+        TelemetryHub.getInstance().subscribe(this, new TelemetryListener() {
             @Override
-            public void onCancelled(@NonNull DatabaseError databaseError) {
-                Log.e("Firebase", "Failed to read DHT11 data", databaseError.toException());
+            public void onGps(double latitude, double longitude) {
+                navigationReadout.invalidate();
             }
         });
+        missionSource.start(this::onMissionPlan);
 
-        // Listener for GPS Data
-        databaseReference.child("sensors/gps").addValueEventListener(new ValueEventListener() {
-            @Override
-            public void onDataChange(@NonNull DataSnapshot dataSnapshot) {
-                if (dataSnapshot.exists()) {
-                    Double latitude = dataSnapshot.child("latitude").getValue(Double.class);
-                    Double longitude = dataSnapshot.child("longitude").getValue(Double.class);
-                    String gpsData = "Latitude: " + latitude + "\nLongitude: " + longitude;
-                    textViewGPS.setText(gpsData);
-                } else {
-                    textViewGPS.setText("GPS data not available");
-                }
+        navigateButton.setOnClickListener(v -> {
+            if (navigating) {
+                stopNavigation();
+            } else {
+                startNavigation();
+            }
+        });
+        missionButton.setOnClickListener(v -> {
+            if (navigating) {
+                stopNavigation();
+            } else {
+                startMission();
             }
+        });
+        setupVision();
+    }
 
-            @Override
-            public void onCancelled(@NonNull DatabaseError databaseError) {
-                Log.e("Firebase", "Failed to read GPS data", databaseError.toException());
+    private void setupVision() {
+        if (!cameraView.hasStream()) {
+            visionButton.setVisibility(View.GONE);
+            return;
+        }
+        visionStage = new VisionStage(navigationEngine::onVision);
+        visionButton.setOnClickListener(v -> {
+            visionEnabled = !visionEnabled;
+            if (visionEnabled) {
+                visionStage.start();
+                cameraView.setFrameListener(visionStage);
+            } else {
+                cameraView.setFrameListener(null);
+                visionStage.stop();
             }
+            visionButton.setText(visionEnabled ? R.string.button_vision_off : R.string.button_vision_on);
+            navigationReadout.invalidate();
         });
+    }
 
-        // Listener for Raindrop Sensor Data
-        databaseReference.child("sensors/raindrop").addValueEventListener(new ValueEventListener() {
-            @Override
-            public void onDataChange(@NonNull DataSnapshot dataSnapshot) {
-                if (dataSnapshot.exists()) {
-                    Boolean raindropData = dataSnapshot.getValue(Boolean.class);
-                    textViewRaindrop.setText(raindropData != null && raindropData ? "Rain detected" : "No rain detected");
-                } else {
-                    textViewRaindrop.setText("Data not available");
-                }
+    private void formatNavigationStatus(TextBuffer out) {
+        navigationEngine.appendStatus(out);
+        if (waypointIndex >= 0) {
+            out.append("\nWaypoint ").append(waypointIndex + 1).append(" of ").append(missionPlan.waypointCount());
+        }
+        out.append('\n');
+        fenceGuard.appendStatus(out);
+        if (visionEnabled) {
+            out.append('\n');
+            visionStage.appendStatus(out);
+        }
+    }
+
+    private void onMissionPlan(MissionPlan plan) {
+        missionPlan = plan;
+        fenceGuard.setPlan(plan);
+        // The waypoints may have moved under a running mission
+        if (waypointIndex >= 0) {
+            stopNavigation();
+            Toast.makeText(this, "Mission changed, stopped", Toast.LENGTH_SHORT).show();
+        }
+        navigationReadout.invalidate();
+    }
+
+    private void startMission() {
+        if (missionPlan.waypointCount() == 0) {
+            Toast.makeText(this, "The mission has no waypoints", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        waypointIndex = 0;
+        if (!startGoal(missionPlan.waypointLatitude(0), missionPlan.waypointLongitude(0))) {
+            waypointIndex = -1;
+        }
+    }
+
+    private void startNavigation() {
+        // Expects "latitude, longitude" in decimal degrees
+        String[] parts = navigationGoal.getText().toString().split(",");
+        double latitude, longitude;
+        try {
+            latitude = Double.parseDouble(parts[0].trim());
+            longitude = Double.parseDouble(parts[1].trim());
+        } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+            Toast.makeText(this, "Enter the goal as latitude, longitude", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        startGoal(latitude, longitude);
+    }
+
+    private boolean startGoal(double latitude, double longitude) {
+        // Breaches are only reported on the way out, so never set off from outside the allowed area
+        if (fenceGuard.getStatus() != FenceGuard.INSIDE) {
+            Toast.makeText(this, "The rover is outside the allowed area", Toast.LENGTH_SHORT).show();
+            return false;
+        }
+        // The firmware follows drive commands in manual mode; the phone does the deciding
+        setControlMode("manual");
+        navigating = true;
+        navigationEngine.start(latitude, longitude);
+        updateNavigationButtons();
+        return true;
+    }
+
+    private void stopNavigation() {
+        haltNavigation();
+        // Leave the rover stopped where it is; its own autonomy only takes over again
+        // when the operator switches to autonomous control from the manual screen
+        setControlMode("manual");
+    }
+
+    private void haltNavigation() {
+        navigating = false;
+        waypointIndex = -1;
+        navigationEngine.stop();
+        driveChannel.stop();
+        updateNavigationButtons();
+        navigationReadout.invalidate();
+    }
+
+    private void updateNavigationButtons() {
+        navigateButton.setText(navigating ? R.string.button_stop_navigation : R.string.button_navigate);
+        missionButton.setText(navigating ? R.string.button_stop_navigation : R.string.button_run_mission);
+    }
+
+    private void onFenceBreach(int kind, String zone) {
+        // Stop first, whoever is driving: the phone's navigation or the rover's own autonomy.
+        // Manual mode keeps the firmware from driving off again on its own.
+        if (navigating) {
+            haltNavigation();
+        }
+        setControlMode("manual");
+        emergencyStop();
+        navigationReadout.invalidate();
+        String message = kind == FenceGuard.IN_NO_GO_ZONE
+                ? "Entered no-go zone " + zone + ", rover stopped"
+                : "Left the geofence, rover stopped";
+        Toast.makeText(this, message, Toast.LENGTH_LONG).show();
+    }
+
+    private void onNavigationUpdate(int state, float throttle, float steer) {
+        int previous = navigationState;
+        navigationState = state;
+        navigationReadout.invalidate();
+        // A decision already in flight when navigation was stopped must not move the rover
+        if (!navigating) {
+            return;
+        }
+        if (state == Navigator.DRIVING || state == Navigator.FINDING_HEADING) {
+            driveChannel.submit(throttle, steer);
+        } else if (previous == Navigator.DRIVING || previous == Navigator.FINDING_HEADING) {
+            driveChannel.stop();
+        }
+        if (state == Navigator.ARRIVED && previous != Navigator.ARRIVED) {
+            if (waypointIndex >= 0 && waypointIndex + 1 < missionPlan.waypointCount()) {
+                waypointIndex++;
+                Toast.makeText(this, "Waypoint " + waypointIndex + " reached", Toast.LENGTH_SHORT).show();
+                navigationEngine.start(missionPlan.waypointLatitude(waypointIndex),
+                        missionPlan.waypointLongitude(waypointIndex));
+                return;
             }
+            Toast.makeText(this, waypointIndex >= 0 ? "Mission complete" : "Goal reached", Toast.LENGTH_SHORT).show();
+            stopNavigation();
+        }
+    }
 
-            @Override
-            public void onCancelled(@NonNull DatabaseError databaseError) {
-                Log.e("Firebase", "Failed to read raindrop data", databaseError.toException());
+    private void sendDrive(int sequence, float throttle, float steer, Runnable onSent) {
+        poseFusion.onDrive(throttle, steer);
+        transport.sendDrive(sequence, throttle, steer, e -> {
+            if (e != null) {
+                Log.e("Rover", "Failed to send drive command", e);
             }
+            onSent.run();
         });
+    }
 
-        // Listener for Moisture Sensor Data
-        databaseReference.child("sensors/moisture").addValueEventListener(new ValueEventListener() {
-            @Override
-            public void onDataChange(@NonNull DataSnapshot dataSnapshot) {
-                if (dataSnapshot.exists()) {
-                    Integer moistureData = dataSnapshot.getValue(Integer.class);
-                    textViewMoisture.setText("Soil Moisture: " + moistureData + "%");
-                } else {
-                    textViewMoisture.setText("Data not available");
-                }
+    private void emergencyStop() {
+        poseFusion.onCommand("stop");
+        int sequence = LinkMetrics.getInstance().onStopSent();
+        transport.emergencyStop(sequence, e -> {
+            if (e != null) {
+                Log.e("Rover", "Failed to send emergency stop", e);
             }
+        });
+    }
 
-            @Override
-            public void onCancelled(@NonNull DatabaseError databaseError) {
-                Log.e("Firebase", "Failed to read moisture data", databaseError.toException());
+    private void setControlMode(String mode) {
+        poseFusion.onControlMode(mode);
+        transport.setControlMode(mode, e -> {
+            if (e == null) {
+                Log.d("Rover", "Control mode set to: " + mode);
+            } else {
+                Log.e("Rover", "Failed to set control mode", e);
             }
         });
     }
@@ -140,12 +405,42 @@ public class AutonomousControlActivity extends AppCompatActivity {
     }
 
     @Override
-    protected void onResume() {
-        super.onResume();
+    protected void onStart() {
+        super.onStart();
+        poseFusion.start();
     }
 
     @Override
-    protected void onPause() {
-        super.onPause();
+    protected void onStop() {
+        // Telemetry, and with it the fence guard, stops with the screen: navigating on would be
+        // driving blind, and the rover's own autonomy would roam with no geofence checked
+        if (fenceGuard != null) {
+            if (navigating) {
+                haltNavigation();
+            }
+            setControlMode("manual");
+            emergencyStop();
+        }
+        poseFusion.stop();
+        super.onStop();
+    }
+
+    @Override
+    protected void onDestroy() {
+        sensorReadouts.release();
+        poseFusion.quit();
+        if (navigationEngine != null) {
+            missionSource.stop();
+            navigationEngine.quit();
+            if (visionStage != null) {
+                cameraView.setFrameListener(null);
+                visionStage.quit();
+            }
+            navigationRenderer.cancel();
+        }
+        if (replaying) {
+            RoverLink.stopReplay();
+        }
+        super.onDestroy();
     }
 }
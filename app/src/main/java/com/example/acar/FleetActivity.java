@@ -0,0 +1,70 @@
+package com.example.acar;
+
+import android.content.Intent;
+import android.os.Bundle;
+import android.widget.Button;
+import android.widget.TextView;
+
+import androidx.appcompat.app.AppCompatActivity;
+
+import com.example.acar.fleet.FleetDirectory;
+import com.example.acar.fleet.FleetView;
+import com.example.acar.telemetry.SensorChannel;
+import com.example.acar.telemetry.TelemetryHub;
+import com.example.acar.transport.RoverLink;
+
+import java.util.EnumSet;
+
+/**
+ * Dashboard of every rover sharing the database. Each rover shows its
+ * once-a-second summary; tapping one puts it in focus, which moves the
+ * transport (and so the full-rate telemetry and the control screens) to it.
+ */
+public class FleetActivity extends AppCompatActivity {
+
+    private final FleetDirectory directory = new FleetDirectory();
+    private FleetView fleetView;
+    private TextView focusText;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_fleet);
+
+        fleetView = findViewById(R.id.fleetView);
+        focusText = findViewById(R.id.focusText);
+        Button driveButton = findViewById(R.id.driveButton);
+
+        fleetView.bind(this, directory);
+        // What the focused rover's row shows
+        TelemetryHub.getInstance().need(this, EnumSet.of(SensorChannel.CLIMATE, SensorChannel.GPS,
+                SensorChannel.RAIN, SensorChannel.MOISTURE));
+        fleetView.setOnRoverClickListener(this::focusRover);
+        driveButton.setOnClickListener(v ->
+                startActivity(new Intent(FleetActivity.this, ManualControlActivity.class)));
+        updateFocusText();
+    }
+
+    @Override
+    protected void onStart() {
+        super.onStart();
+        directory.start(fleetView::onFleetChanged);
+    }
+
+    @Override
+    protected void onStop() {
+        directory.stop();
+        super.onStop();
+    }
+
+    private void focusRover(String roverId) {
+        RoverLink.focus(this, roverId);
+        updateFocusText();
+        fleetView.invalidate();
+    }
+
+    private void updateFocusText() {
+        String roverId = RoverLink.getRoverId();
+        focusText.setText(roverId.isEmpty() ? "No rover in focus: tap one below" : "In focus: " + roverId);
+    }
+}
@@ -2,8 +2,11 @@
 package com.example.acar;
 
 // Import necessary Android and Firebase libraries for UI handling and user authentication
+import android.Manifest;
 import android.annotation.SuppressLint;
 import android.content.Intent;
+import android.content.pm.PackageManager;
+import android.os.Build;
 import android.os.Bundle;
 import android.text.TextUtils;
 import android.view.View;
@@ -15,13 +18,23 @@ import android.widget.Toast;
 
 import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.core.app.ActivityCompat;
+import androidx.core.content.ContextCompat;
 
+import com.example.acar.metrics.StartupTrace;
+import com.example.acar.mission.MissionFiles;
+import com.example.acar.transport.DatabaseWarmup;
+import com.example.acar.transport.RoverLink;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
 
+import java.io.File;
+
 // MainActivity class handles login, registration, and mode selection for the app
 public class MainActivity extends AppCompatActivity {
 
+    private static final int REQUEST_NOTIFICATIONS = 1;
+
     // Firebase Authentication instance to manage user sign-in and sign-up
     private FirebaseAuth mAuth;
 
@@ -29,7 +42,7 @@ public class MainActivity extends AppCompatActivity {
     private LinearLayout loginSection, registerSection, modeSelectionSection;
     private EditText emailLogin, passwordLogin, emailRegister, passwordRegister, confirmPasswordRegister;
     private Button loginButton, switchToRegisterButton, registerButton, switchToLoginButton;
-    private Button manualControlButton, autonomousControlButton, aboutButton;
+    private Button manualControlButton, autonomousControlButton, replayMissionButton, fleetButton, aboutButton;
     private TextView titleText, welcomeMessage;
 
     // onCreate() method initializes the app's UI and Firebase authentication when the activity is created
@@ -63,6 +76,8 @@ public class MainActivity extends AppCompatActivity {
 
         manualControlButton = findViewById(R.id.manualControlButton);
         autonomousControlButton = findViewById(R.id.autonomousControlButton);
+        replayMissionButton = findViewById(R.id.replayMissionButton);
+        fleetButton = findViewById(R.id.fleetButton);
         aboutButton = findViewById(R.id.aboutButton); // About Button
 
         // Set click listeners for login and registration actions
@@ -75,7 +90,35 @@ public class MainActivity extends AppCompatActivity {
         // Mode selection button listeners for manual and autonomous control
         manualControlButton.setOnClickListener(v -> switchToManualControl());
         autonomousControlButton.setOnClickListener(v -> switchToAutonomousControl());
+        replayMissionButton.setOnClickListener(v -> replayLastMission());
+        fleetButton.setOnClickListener(v -> openFleetDashboard());
         aboutButton.setOnClickListener(v -> openAboutPage()); // Opens About page
+
+        // Open the database connection while the user logs in or picks a mode
+        DatabaseWarmup.connect();
+
+        // A saved session skips the login form
+        if (mAuth.getCurrentUser() != null) {
+            showModeSelection();
+        } else {
+            StartupTrace.getInstance().mark(StartupTrace.Phase.LOGIN_SHOWN);
+        }
+    }
+
+    // Warm the rover's sensors again when coming back to mode selection
+    @Override
+    protected void onStart() {
+        super.onStart();
+        if (modeSelectionSection.getVisibility() == View.VISIBLE && mAuth.getCurrentUser() != null) {
+            DatabaseWarmup.syncSensors();
+        }
+    }
+
+    // Control screens subscribe for themselves, and in the background the rover should slow down
+    @Override
+    protected void onStop() {
+        super.onStop();
+        DatabaseWarmup.release();
     }
 
     // Method to handle user login
@@ -96,9 +139,7 @@ public class MainActivity extends AppCompatActivity {
                         FirebaseUser user = mAuth.getCurrentUser();
                         if (user != null) {
                             Toast.makeText(this, "Login successful!", Toast.LENGTH_SHORT).show();
-                            switchToModeSelection(); // Redirect to mode selection screen
-                            welcomeMessage.setVisibility(View.VISIBLE);
-                            titleText.setText("Android Controlled Autonomous Rover");
+                            showModeSelection(); // Redirect to mode selection screen
                         }
                     } else {
                         Toast.makeText(this, "Login failed: " + task.getException().getMessage(), Toast.LENGTH_SHORT).show();
@@ -148,10 +189,27 @@ public class MainActivity extends AppCompatActivity {
         loginSection.setVisibility(View.VISIBLE);
     }
 
-    // Switch to mode selection screen after login
-    private void switchToModeSelection() {
+    // Switch to mode selection screen after login or with a restored session
+    private void showModeSelection() {
         loginSection.setVisibility(View.GONE);
+        registerSection.setVisibility(View.GONE);
         modeSelectionSection.setVisibility(View.VISIBLE);
+        welcomeMessage.setVisibility(View.VISIBLE);
+        titleText.setText("Android Controlled Autonomous Rover");
+        StartupTrace.getInstance().mark(StartupTrace.Phase.MODES_SHOWN);
+        // Signed in now, so the rover's sensors may be read ahead of the control screens
+        DatabaseWarmup.syncSensors();
+        requestAlertPermission();
+    }
+
+    // Alert rules post notifications, which need the user's consent from Android 13 on
+    private void requestAlertPermission() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU
+                && ContextCompat.checkSelfPermission(this, Manifest.permission.POST_NOTIFICATIONS)
+                != PackageManager.PERMISSION_GRANTED) {
+            ActivityCompat.requestPermissions(this, new String[]{Manifest.permission.POST_NOTIFICATIONS},
+                    REQUEST_NOTIFICATIONS);
+        }
     }
 
     // Open Manual Control Activity
@@ -166,6 +224,24 @@ public class MainActivity extends AppCompatActivity {
         startActivity(intent);
     }
 
+    // Open Autonomous Control Activity fed by the most recent recorded mission
+    private void replayLastMission() {
+        File mission = MissionFiles.latest(this, RoverLink.getMissionLogFile());
+        if (mission == null) {
+            Toast.makeText(this, "No recorded mission yet", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        Intent intent = new Intent(MainActivity.this, AutonomousControlActivity.class);
+        intent.putExtra(AutonomousControlActivity.EXTRA_REPLAY_FILE, mission.getAbsolutePath());
+        startActivity(intent);
+    }
+
+    // Open the dashboard of all rovers in the fleet
+    private void openFleetDashboard() {
+        Intent intent = new Intent(MainActivity.this, FleetActivity.class);
+        startActivity(intent);
+    }
+
     // Open About Activity to display app information
     private void openAboutPage() {
         Intent intent = new Intent(MainActivity.this, AboutActivity.class);
@@ -7,32 +7,62 @@ package com.example.acar;
 import android.content.Intent;
 import android.os.Bundle;
 import android.util.Log;
+import android.view.View;
 import android.widget.Button;
+import android.widget.LinearLayout;
 import android.widget.TextView;
 import android.widget.Toast;
-import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
-import com.google.firebase.database.DataSnapshot;
-import com.google.firebase.database.DatabaseError;
-import com.google.firebase.database.DatabaseReference;
-import com.google.firebase.database.FirebaseDatabase;
-import com.google.firebase.database.ValueEventListener;
+import com.example.acar.chart.HistoryChartView;
+import com.example.acar.drive.DriveChannel;
+import com.example.acar.drive.JoystickView;
+import com.example.acar.metrics.DebugOverlay;
+import com.example.acar.metrics.LinkMetrics;
+import com.example.acar.metrics.StartupTrace;
+import com.example.acar.navigation.PoseFusion;
+import com.example.acar.readout.SensorReadouts;
+import com.example.acar.telemetry.SensorChannel;
+import com.example.acar.telemetry.TelemetryHub;
+import com.example.acar.track.TrackView;
+import com.example.acar.transport.Heartbeat;
+import com.example.acar.transport.RoverLink;
+import com.example.acar.transport.RoverTransport;
+import com.example.acar.video.MjpegView;
+
+import java.util.EnumSet;
 
 public class ManualControlActivity extends AppCompatActivity {
 
     // TextViews to display sensor data
     private TextView textViewTempHumidity, textViewGPS, textViewRaindrop, textViewMoisture;
 
+    // Renders sensor samples into the TextViews once per frame
+    private SensorReadouts sensorReadouts;
+
     // Buttons for manual control commands
     private Button buttonForward, buttonBackward, buttonLeft, buttonRight, buttonStop, autonomousControlButton;
 
-    // Reference to the Firebase Realtime Database
-    private DatabaseReference databaseReference;
+    // Continuous drive: joystick, the panel it replaces, and the rate-limited channel behind it
+    private Button buttonDriveMode;
+    private LinearLayout buttonControls;
+    private JoystickView joystick;
+    private DriveChannel driveChannel;
+
+    // Smoothed pose from GPS, drive commands and IMU, shown in the GPS card
+    private PoseFusion poseFusion;
+    private final PoseFusion.Pose pose = new PoseFusion.Pose();
+
+    // Link diagnostics panel
+    private DebugOverlay debugOverlay;
+
+    // Link to the rover (direct LAN with Firebase fallback, or Firebase only)
+    private RoverTransport transport;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_manual_control);
+        StartupTrace.getInstance().mark(StartupTrace.Phase.CONTROL_SCREEN);
 
         // Initialize UI components
         textViewTempHumidity = findViewById(R.id.textView_temp_humidity);
@@ -46,32 +76,67 @@ public class ManualControlActivity extends AppCompatActivity {
         buttonRight = findViewById(R.id.button_right);
         buttonStop = findViewById(R.id.button_stop);
         autonomousControlButton = findViewById(R.id.AutonomousControlButton);
+        buttonDriveMode = findViewById(R.id.button_drive_mode);
+        buttonControls = findViewById(R.id.buttonControls);
+        joystick = findViewById(R.id.joystick);
 
         // Initialize Firebase Database
         initializeFirebase();
 
+        // Created before anything is sent so it sees every command
+        poseFusion = new PoseFusion(() -> {
+            poseFusion.read(pose);
+            sensorReadouts.onPose(pose.latitude, pose.longitude, pose.heading, pose.headingKnown);
+        });
+
         // Set the control mode to manual in Firebase
         setControlMode("manual");
 
         // Configure button click listeners for manual commands
         setupButtonListeners();
 
+        // Configure the joystick and its drive channel
+        setupJoystick();
+
+        // The rover stops by itself once this screen stops sending heartbeats
+        Heartbeat.getInstance().hold(this);
+
+        // Chart of recent sensor history
+        HistoryChartView historyChart = findViewById(R.id.historyChart);
+        historyChart.bind(this);
+        TrackView trackView = findViewById(R.id.trackView);
+        trackView.bind(this);
+
+        // Camera stream, played while this screen is visible
+        MjpegView cameraView = findViewById(R.id.cameraView);
+        cameraView.bind(this);
+
+        // Long-press the title to show link diagnostics
+        debugOverlay = new DebugOverlay(this, findViewById(R.id.debugOverlay));
+        findViewById(R.id.titleText).setOnLongClickListener(v -> {
+            debugOverlay.toggle();
+            return true;
+        });
+
         // Load real-time sensor data from Firebase
         updateSensorData();
     }
 
     private void initializeFirebase() {
-        databaseReference = FirebaseDatabase.getInstance().getReference();
-        Log.d("Firebase", "Firebase initialized and database reference obtained.");
+        transport = RoverLink.getTransport();
+        Log.d("Rover", "Rover transport obtained: " + transport.getClass().getSimpleName());
     }
 
     private void setControlMode(String mode) {
-        databaseReference.child("controlMode").setValue(mode)
-                .addOnSuccessListener(aVoid -> Log.d("Firebase", "Control mode set to: " + mode))
-                .addOnFailureListener(e -> {
-                    Log.e("Firebase", "Failed to set control mode", e);
-                    Toast.makeText(ManualControlActivity.this, "Failed to update control mode", Toast.LENGTH_SHORT).show();
-                });
+        poseFusion.onControlMode(mode);
+        transport.setControlMode(mode, e -> {
+            if (e == null) {
+                Log.d("Rover", "Control mode set to: " + mode);
+            } else {
+                Log.e("Rover", "Failed to set control mode", e);
+                Toast.makeText(ManualControlActivity.this, "Failed to update control mode", Toast.LENGTH_SHORT).show();
+            }
+        });
     }
 
     private void setupButtonListeners() {
@@ -79,7 +144,11 @@ public class ManualControlActivity extends AppCompatActivity {
         buttonBackward.setOnClickListener(v -> sendCommand("backward"));
         buttonLeft.setOnClickListener(v -> sendCommand("left"));
         buttonRight.setOnClickListener(v -> sendCommand("right"));
-        buttonStop.setOnClickListener(v -> sendCommand("stop"));
+        buttonStop.setOnClickListener(v -> {
+            // Stop must never wait behind a coalesced joystick position
+            driveChannel.stop();
+            emergencyStop();
+        });
 
         // Switch to autonomous mode
         autonomousControlButton.setOnClickListener(v -> {
@@ -90,88 +159,92 @@ public class ManualControlActivity extends AppCompatActivity {
         });
     }
 
-    private void sendCommand(String command) {
-        databaseReference.child("commands").setValue(command)
-                .addOnSuccessListener(aVoid -> Log.d("Firebase", "Command sent: " + command))
-                .addOnFailureListener(e -> {
-                    Log.e("Firebase", "Failed to send command", e);
-                    Toast.makeText(ManualControlActivity.this, "Failed to send command", Toast.LENGTH_SHORT).show();
-                });
-    }
+    private void setupJoystick() {
+        int maxRateHz = getResources().getInteger(R.integer.drive_max_rate_hz);
+        driveChannel = new DriveChannel(this::sendDrive, maxRateHz);
 
-    private void updateSensorData() {
-        // Temperature and Humidity Data (DHT11)
-        databaseReference.child("sensors/dht22").addValueEventListener(new ValueEventListener() {
+        joystick.setListener(new JoystickView.Listener() {
             @Override
-            public void onDataChange(@NonNull DataSnapshot dataSnapshot) {
-                if (dataSnapshot.exists()) {
-                    Double temperature = dataSnapshot.child("temperature").getValue(Double.class);
-                    Double humidity = dataSnapshot.child("humidity").getValue(Double.class);
-                    textViewTempHumidity.setText("Temperature: " + temperature + "°C\nHumidity: " + humidity + "%");
-                } else {
-                    textViewTempHumidity.setText("Data not available");
-                }
+            public void onMove(float throttle, float steer) {
+                driveChannel.submit(throttle, steer);
             }
 
             @Override
-            public void onCancelled(@NonNull DatabaseError error) {
-                Log.e("Firebase", "Failed to read DHT22 data", error.toException());
+            public void onRelease() {
+                driveChannel.stop();
             }
         });
 
-        // Soil Moisture Data
-        databaseReference.child("sensors/moisture").addValueEventListener(new ValueEventListener() {
-            @Override
-            public void onDataChange(@NonNull DataSnapshot snapshot) {
-                if (snapshot.exists()) {
-                    Integer moisture = snapshot.getValue(Integer.class);
-                    textViewMoisture.setText("Soil Moisture: " + moisture + "%");
-                } else {
-                    textViewMoisture.setText("Data not available");
-                }
-            }
+        buttonDriveMode.setOnClickListener(v -> {
+            boolean joystickShown = joystick.getVisibility() == View.VISIBLE;
+            joystick.setVisibility(joystickShown ? View.GONE : View.VISIBLE);
+            buttonControls.setVisibility(joystickShown ? View.VISIBLE : View.GONE);
+            buttonDriveMode.setText(joystickShown ? R.string.button_joystick_mode : R.string.button_button_mode);
+            driveChannel.stop();
+        });
+    }
 
-            @Override
-            public void onCancelled(@NonNull DatabaseError error) {
-                Log.e("Firebase", "Failed to read moisture data", error.toException());
+    private void sendDrive(int sequence, float throttle, float steer, Runnable onSent) {
+        poseFusion.onDrive(throttle, steer);
+        transport.sendDrive(sequence, throttle, steer, e -> {
+            if (e != null) {
+                Log.e("Rover", "Failed to send drive command", e);
             }
+            onSent.run();
         });
+    }
 
-        // Raindrop Sensor Data
-        databaseReference.child("sensors/raindrop").addValueEventListener(new ValueEventListener() {
-            @Override
-            public void onDataChange(@NonNull DataSnapshot snapshot) {
-                if (snapshot.exists()) {
-                    Boolean raindrop = snapshot.getValue(Boolean.class);
-                    textViewRaindrop.setText(raindrop != null && raindrop ? "Rain detected" : "No rain detected");
-                } else {
-                    textViewRaindrop.setText("Data not available");
-                }
+    private void sendCommand(String command) {
+        poseFusion.onCommand(command);
+        int sequence = LinkMetrics.getInstance().onCommandSent();
+        transport.sendCommand(sequence, command, e -> {
+            if (e == null) {
+                Log.d("Rover", "Command sent: " + command);
+            } else {
+                Log.e("Rover", "Failed to send command", e);
+                Toast.makeText(ManualControlActivity.this, "Failed to send command", Toast.LENGTH_SHORT).show();
             }
+        });
+    }
 
-            @Override
-            public void onCancelled(@NonNull DatabaseError error) {
-                Log.e("Firebase", "Failed to read raindrop data", error.toException());
+    private void emergencyStop() {
+        poseFusion.onCommand("stop");
+        int sequence = LinkMetrics.getInstance().onStopSent();
+        transport.emergencyStop(sequence, e -> {
+            if (e != null) {
+                Log.e("Rover", "Failed to send emergency stop", e);
+                Toast.makeText(ManualControlActivity.this, "Failed to send stop", Toast.LENGTH_SHORT).show();
             }
         });
+    }
 
-        // GPS Data
-        databaseReference.child("sensors/gps").addValueEventListener(new ValueEventListener() {
-            @Override
-            public void onDataChange(@NonNull DataSnapshot snapshot) {
-                if (snapshot.exists()) {
-                    Double latitude = snapshot.child("latitude").getValue(Double.class);
-                    Double longitude = snapshot.child("longitude").getValue(Double.class);
-                    textViewGPS.setText("Latitude: " + latitude + "\nLongitude: " + longitude);
-                } else {
-                    textViewGPS.setText("GPS data not available");
-                }
-            }
+    private void updateSensorData() {
+        // Sensor data is shared through the telemetry hub, which stops delivering
+        // once this activity is stopped and forgets it when it is destroyed
+        sensorReadouts = new SensorReadouts(textViewTempHumidity, textViewGPS, textViewRaindrop, textViewMoisture);
+        TelemetryHub.getInstance().subscribe(this, sensorReadouts);
+        TelemetryHub.getInstance().subscribe(this, poseFusion);
+        // Readouts and pose; obstacles only trickle since the rover avoids them itself
+        TelemetryHub.getInstance().need(this, EnumSet.of(SensorChannel.CLIMATE, SensorChannel.GPS,
+                SensorChannel.RAIN, SensorChannel.MOISTURE, SensorChannel.IMU));
+    }
 
-            @Override
-            public void onCancelled(@NonNull DatabaseError error) {
-                Log.e("Firebase", "Failed to read GPS data", error.toException());
-            }
-        });
+    @Override
+    protected void onStart() {
+        super.onStart();
+        poseFusion.start();
+    }
+
+    @Override
+    protected void onStop() {
+        poseFusion.stop();
+        super.onStop();
+    }
+
+    @Override
+    protected void onDestroy() {
+        sensorReadouts.release();
+        poseFusion.quit();
+        super.onDestroy();
     }
-}
\ No newline at end of file
+}
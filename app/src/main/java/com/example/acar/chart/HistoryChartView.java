@@ -0,0 +1,156 @@
+package com.example.acar.chart;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.os.SystemClock;
+import android.util.AttributeSet;
+import android.view.View;
+
+import androidx.lifecycle.LifecycleOwner;
+
+import com.example.acar.readout.TextBuffer;
+import com.example.acar.telemetry.HistorySeries;
+import com.example.acar.telemetry.SampleRing;
+import com.example.acar.telemetry.SensorChannel;
+import com.example.acar.telemetry.TelemetryHistory;
+import com.example.acar.telemetry.TelemetryHub;
+import com.example.acar.telemetry.TelemetryListener;
+
+/**
+ * Line chart of the last {@link #WINDOW_MS} of one {@link HistorySeries}.
+ * Tapping the chart cycles through the series.
+ *
+ * <p>The window is reduced to one min/max bucket per pixel column before
+ * drawing, and redraws are requested with {@code postInvalidateOnAnimation}
+ * so a burst of samples costs one draw per frame.</p>
+ */
+public class HistoryChartView extends View {
+
+    private static final long WINDOW_MS = 10 * 60 * 1000L;
+    private static final HistorySeries[] SERIES = HistorySeries.values();
+
+    private final MinMaxDownsampler downsampler = new MinMaxDownsampler();
+    private final Paint linePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint labelPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final TextBuffer label = new TextBuffer();
+    // Two segments (connector and min/max span) of four floats per column
+    private float[] lines = new float[0];
+
+    private HistorySeries series = HistorySeries.TEMPERATURE;
+
+    private final TelemetryListener redrawOnSample = new TelemetryListener() {
+        @Override
+        public void onClimate(double temperature, double humidity) {
+            if (series == HistorySeries.TEMPERATURE || series == HistorySeries.HUMIDITY) {
+                postInvalidateOnAnimation();
+            }
+        }
+
+        @Override
+        public void onRain(boolean raining) {
+            if (series == HistorySeries.RAIN) {
+                postInvalidateOnAnimation();
+            }
+        }
+
+        @Override
+        public void onMoisture(int moisture) {
+            if (series == HistorySeries.MOISTURE) {
+                postInvalidateOnAnimation();
+            }
+        }
+
+        @Override
+        public void onChannelUnavailable(SensorChannel channel) {
+            postInvalidateOnAnimation();
+        }
+    };
+
+    public HistoryChartView(Context context) {
+        this(context, null);
+    }
+
+    public HistoryChartView(Context context, AttributeSet attrs) {
+        super(context, attrs);
+        float density = context.getResources().getDisplayMetrics().density;
+        linePaint.setColor(Color.parseColor("#2196F3"));
+        linePaint.setStrokeWidth(1.5f * density);
+        labelPaint.setColor(Color.parseColor("#333333"));
+        labelPaint.setTextSize(12 * density);
+        setOnClickListener(v -> {
+            series = SERIES[(series.ordinal() + 1) % SERIES.length];
+            invalidate();
+        });
+    }
+
+    /** Redraws whenever the hub delivers a sample while {@code owner} is started. */
+    public void bind(LifecycleOwner owner) {
+        TelemetryHub.getInstance().subscribe(owner, redrawOnSample);
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        super.onDraw(canvas);
+        int left = getPaddingLeft();
+        int top = getPaddingTop();
+        int width = getWidth() - left - getPaddingRight();
+        int height = getHeight() - top - getPaddingBottom();
+        if (width <= 0 || height <= 0) {
+            return;
+        }
+
+        SampleRing ring = TelemetryHistory.getInstance().get(series);
+        long now = SystemClock.elapsedRealtime();
+        downsampler.downsample(ring, now - WINDOW_MS, now + 1, width);
+
+        label.clear().append(series.label());
+        if (ring.size() > 0) {
+            label.append(": ").append(ring.valueAt(ring.size() - 1), 1).append(series.unit());
+        }
+        canvas.drawText(label.chars(), 0, label.length(), left, top + labelPaint.getTextSize(), labelPaint);
+
+        double low = downsampler.lowest();
+        double high = downsampler.highest();
+        if (low > high) {
+            return;
+        }
+        if (high - low < 1e-6) {
+            // Flat line: give it some room instead of dividing by zero
+            low -= 1;
+            high += 1;
+        }
+        float chartTop = top + labelPaint.getTextSize() * 1.5f;
+        float chartHeight = top + height - chartTop;
+        float scale = (float) (chartHeight / (high - low));
+
+        if (lines.length < width * 8) {
+            lines = new float[width * 8];
+        }
+        int count = 0;
+        float previousX = 0, previousY = 0;
+        boolean hasPrevious = false;
+        for (int c = 0; c < width; c++) {
+            if (!downsampler.hasData(c)) {
+                continue;
+            }
+            float x = left + c;
+            float yFirst = chartTop + chartHeight - (float) (downsampler.first(c) - low) * scale;
+            if (hasPrevious) {
+                lines[count++] = previousX;
+                lines[count++] = previousY;
+                lines[count++] = x;
+                lines[count++] = yFirst;
+            }
+            lines[count++] = x;
+            lines[count++] = chartTop + chartHeight - (float) (downsampler.min(c) - low) * scale;
+            lines[count++] = x;
+            lines[count++] = chartTop + chartHeight - (float) (downsampler.max(c) - low) * scale;
+            previousX = x;
+            previousY = chartTop + chartHeight - (float) (downsampler.last(c) - low) * scale;
+            hasPrevious = true;
+        }
+        canvas.drawLines(lines, 0, count, linePaint);
+    }
+}
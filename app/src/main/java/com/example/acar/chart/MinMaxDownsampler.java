@@ -0,0 +1,112 @@
+package com.example.acar.chart;
+
+import com.example.acar.telemetry.SampleRing;
+
+/**
+ * Reduces a time window of a {@link SampleRing} to one bucket per pixel
+ * column, keeping the first, last, minimum and maximum value of each bucket.
+ * Drawing those four values per column shows every spike in the raw data
+ * while the cost of drawing depends only on the chart width.
+ *
+ * <p>All buffers are allocated once per width; {@link #downsample} itself
+ * does not allocate. Not thread-safe.</p>
+ */
+public final class MinMaxDownsampler {
+
+    private int columns;
+    private boolean[] filled = new boolean[0];
+    private double[] first = new double[0];
+    private double[] last = new double[0];
+    private double[] min = new double[0];
+    private double[] max = new double[0];
+    private double lowest, highest;
+
+    /** Buckets all samples with {@code start <= time < end} into {@code columns} columns. */
+    public void downsample(SampleRing ring, long start, long end, int columns) {
+        ensureColumns(columns);
+        this.columns = columns;
+        for (int c = 0; c < columns; c++) {
+            filled[c] = false;
+        }
+        lowest = Double.POSITIVE_INFINITY;
+        highest = Double.NEGATIVE_INFINITY;
+        if (columns == 0 || end <= start) {
+            return;
+        }
+
+        double columnsPerMilli = (double) columns / (end - start);
+        int size = ring.size();
+        for (int i = ring.firstIndexAtOrAfter(start); i < size; i++) {
+            long time = ring.timeAt(i);
+            if (time >= end) {
+                break;
+            }
+            double value = ring.valueAt(i);
+            int c = Math.min(columns - 1, (int) ((time - start) * columnsPerMilli));
+            if (!filled[c]) {
+                filled[c] = true;
+                first[c] = value;
+                min[c] = value;
+                max[c] = value;
+            } else {
+                if (value < min[c]) {
+                    min[c] = value;
+                }
+                if (value > max[c]) {
+                    max[c] = value;
+                }
+            }
+            last[c] = value;
+            if (value < lowest) {
+                lowest = value;
+            }
+            if (value > highest) {
+                highest = value;
+            }
+        }
+    }
+
+    public int columns() {
+        return columns;
+    }
+
+    public boolean hasData(int column) {
+        return filled[column];
+    }
+
+    public double first(int column) {
+        return first[column];
+    }
+
+    public double last(int column) {
+        return last[column];
+    }
+
+    public double min(int column) {
+        return min[column];
+    }
+
+    public double max(int column) {
+        return max[column];
+    }
+
+    /** Smallest value in the window, or +infinity if it was empty. */
+    public double lowest() {
+        return lowest;
+    }
+
+    /** Largest value in the window, or -infinity if it was empty. */
+    public double highest() {
+        return highest;
+    }
+
+    private void ensureColumns(int columns) {
+        if (filled.length < columns) {
+            filled = new boolean[columns];
+            first = new double[columns];
+            last = new double[columns];
+            min = new double[columns];
+            max = new double[columns];
+        }
+    }
+}
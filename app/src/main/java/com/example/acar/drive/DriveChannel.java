@@ -0,0 +1,149 @@
+package com.example.acar.drive;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+/**
+ * Rate-limited, coalescing channel for continuous (throttle, steer) commands.
+ *
+ * <p>At most one drive write is in flight and writes are spaced at least
+ * {@code 1000 / maxRateHz} ms apart. Positions submitted in between replace
+ * each other, so only the newest one is sent when the channel frees up.
+ * {@link #stop()} discards anything pending and goes out immediately.</p>
+ *
+ * <p>Must only be used from the thread that owns the {@link Scheduler}.</p>
+ */
+public final class DriveChannel {
+
+    /** Timing source, abstracted so the channel can be driven by tests. */
+    public interface Scheduler {
+        long now();
+
+        void schedule(Runnable task, long delayMillis);
+
+        void cancel(Runnable task);
+    }
+
+    // Positions closer together than this are treated as identical
+    private static final float QUANTUM = 0.01f;
+
+    private final DriveSink sink;
+    private final Scheduler scheduler;
+    private final long minIntervalMillis;
+
+    private int sequence;
+    private boolean inFlight;
+    private long lastSentAt = Long.MIN_VALUE / 2;
+    private float sentThrottle, sentSteer;
+
+    private boolean hasPending;
+    private float pendingThrottle, pendingSteer;
+    private boolean pumpScheduled;
+
+    private final Runnable pumpTask = () -> {
+        pumpScheduled = false;
+        pump();
+    };
+
+    public DriveChannel(DriveSink sink, int maxRateHz) {
+        this(sink, maxRateHz, mainThreadScheduler());
+    }
+
+    public DriveChannel(DriveSink sink, int maxRateHz, Scheduler scheduler) {
+        if (maxRateHz <= 0) {
+            throw new IllegalArgumentException("maxRateHz must be positive");
+        }
+        this.sink = sink;
+        this.scheduler = scheduler;
+        this.minIntervalMillis = 1000L / maxRateHz;
+    }
+
+    /**
+     * Queues a new position, replacing any position that has not been sent yet.
+     * Values are clamped to [-1, 1].
+     */
+    public void submit(float throttle, float steer) {
+        pendingThrottle = quantize(throttle);
+        pendingSteer = quantize(steer);
+        hasPending = true;
+        pump();
+    }
+
+    /** Drops any pending position and sends a zero tuple right away. */
+    public void stop() {
+        hasPending = false;
+        if (pumpScheduled) {
+            scheduler.cancel(pumpTask);
+            pumpScheduled = false;
+        }
+        send(0f, 0f);
+    }
+
+    /** Sequence number of the most recent tuple handed to the sink. */
+    public int getSequence() {
+        return sequence;
+    }
+
+    private void pump() {
+        if (!hasPending || inFlight || pumpScheduled) {
+            return;
+        }
+        if (pendingThrottle == sentThrottle && pendingSteer == sentSteer) {
+            // Nothing new to say; the rover already has this position
+            hasPending = false;
+            return;
+        }
+        long wait = lastSentAt + minIntervalMillis - scheduler.now();
+        if (wait > 0) {
+            pumpScheduled = true;
+            scheduler.schedule(pumpTask, wait);
+            return;
+        }
+        hasPending = false;
+        send(pendingThrottle, pendingSteer);
+    }
+
+    private void send(float throttle, float steer) {
+        int sent = ++sequence;
+        inFlight = true;
+        lastSentAt = scheduler.now();
+        sentThrottle = throttle;
+        sentSteer = steer;
+        sink.sendDrive(sent, throttle, steer, () -> onSent(sent));
+    }
+
+    private void onSent(int sent) {
+        // A write overtaken by a stop finishing late must not free the channel early
+        if (sent != sequence) {
+            return;
+        }
+        inFlight = false;
+        pump();
+    }
+
+    private static float quantize(float value) {
+        float clamped = Math.max(-1f, Math.min(1f, value));
+        return Math.round(clamped / QUANTUM) * QUANTUM;
+    }
+
+    private static Scheduler mainThreadScheduler() {
+        Handler handler = new Handler(Looper.getMainLooper());
+        return new Scheduler() {
+            @Override
+            public long now() {
+                return SystemClock.uptimeMillis();
+            }
+
+            @Override
+            public void schedule(Runnable task, long delayMillis) {
+                handler.postDelayed(task, delayMillis);
+            }
+
+            @Override
+            public void cancel(Runnable task) {
+                handler.removeCallbacks(task);
+            }
+        };
+    }
+}
@@ -0,0 +1,13 @@
+package com.example.acar.drive;
+
+/**
+ * Destination for continuous drive commands.
+ */
+public interface DriveSink {
+
+    /**
+     * Sends one drive tuple and calls {@code onSent} once the write has been
+     * acknowledged (successfully or not) so the next tuple may go out.
+     */
+    void sendDrive(int sequence, float throttle, float steer, Runnable onSent);
+}
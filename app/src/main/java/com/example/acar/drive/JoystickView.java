@@ -0,0 +1,120 @@
+package com.example.acar.drive;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.util.AttributeSet;
+import android.view.MotionEvent;
+import android.view.View;
+
+/**
+ * On-screen joystick reporting throttle (up is positive) and steer (right is
+ * positive), both in [-1, 1]. The knob springs back to the centre on release.
+ */
+public class JoystickView extends View {
+
+    /** Receives joystick positions on the main thread. */
+    public interface Listener {
+        void onMove(float throttle, float steer);
+
+        void onRelease();
+    }
+
+    // Fraction of the radius around the centre that reads as zero
+    private static final float DEAD_ZONE = 0.08f;
+
+    private final Paint basePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint knobPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+
+    private float centerX, centerY, radius;
+    private float knobX, knobY;
+    private Listener listener;
+
+    public JoystickView(Context context) {
+        this(context, null);
+    }
+
+    public JoystickView(Context context, AttributeSet attrs) {
+        super(context, attrs);
+        basePaint.setColor(Color.parseColor("#DDDDDD"));
+        knobPaint.setColor(Color.parseColor("#4CAF50"));
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        centerX = w / 2f;
+        centerY = h / 2f;
+        radius = Math.min(w, h) / 2f * 0.8f;
+        knobX = centerX;
+        knobY = centerY;
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        super.onDraw(canvas);
+        canvas.drawCircle(centerX, centerY, radius, basePaint);
+        canvas.drawCircle(knobX, knobY, radius * 0.35f, knobPaint);
+    }
+
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+        switch (event.getActionMasked()) {
+            case MotionEvent.ACTION_DOWN:
+                // The control screens scroll; the drag belongs to the knob
+                getParent().requestDisallowInterceptTouchEvent(true);
+                // Fall through: the touch point is the first knob position
+            case MotionEvent.ACTION_MOVE:
+                moveKnob(event.getX(), event.getY());
+                return true;
+            case MotionEvent.ACTION_UP:
+                performClick();
+                // Fall through: releasing always recentres the knob
+            case MotionEvent.ACTION_CANCEL:
+                knobX = centerX;
+                knobY = centerY;
+                invalidate();
+                if (listener != null) {
+                    listener.onRelease();
+                }
+                return true;
+            default:
+                return super.onTouchEvent(event);
+        }
+    }
+
+    @Override
+    public boolean performClick() {
+        return super.performClick();
+    }
+
+    private void moveKnob(float x, float y) {
+        float dx = x - centerX;
+        float dy = y - centerY;
+        float distance = (float) Math.sqrt(dx * dx + dy * dy);
+        if (distance > radius) {
+            dx *= radius / distance;
+            dy *= radius / distance;
+        }
+        knobX = centerX + dx;
+        knobY = centerY + dy;
+        invalidate();
+
+        float steer = dx / radius;
+        float throttle = -dy / radius;
+        if (Math.abs(steer) < DEAD_ZONE) {
+            steer = 0f;
+        }
+        if (Math.abs(throttle) < DEAD_ZONE) {
+            throttle = 0f;
+        }
+        if (listener != null) {
+            listener.onMove(throttle, steer);
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.acar.fleet;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+
+import com.example.acar.transport.FirebaseTransport;
+import com.google.firebase.database.ChildEventListener;
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseError;
+import com.google.firebase.database.DatabaseReference;
+import com.google.firebase.database.FirebaseDatabase;
+
+/**
+ * Follows the low-rate summaries under {@code fleet/} that every rover of
+ * the fleet writes about once a second (see {@link FirebaseTransport#FLEET}).
+ *
+ * <p>The whole fleet costs one child listener and one {@link FleetTable},
+ * however many rovers there are; the full-rate channels of a rover are only
+ * subscribed to while it is in focus, through the regular transport.</p>
+ */
+public final class FleetDirectory {
+
+    private static final String TAG = "FleetDirectory";
+
+    /** Called on the main thread after the table changed. */
+    public interface Listener {
+        /** @param rowsChanged true if a rover joined or left, so the row count changed */
+        void onFleetChanged(boolean rowsChanged);
+    }
+
+    private final DatabaseReference fleet = FirebaseDatabase.getInstance().getReference(FirebaseTransport.FLEET);
+    private final FleetTable table = new FleetTable();
+    private Listener listener;
+
+    private final ChildEventListener summaryListener = new ChildEventListener() {
+        @Override
+        public void onChildAdded(@NonNull DataSnapshot snapshot, String previousChildName) {
+            update(snapshot);
+        }
+
+        @Override
+        public void onChildChanged(@NonNull DataSnapshot snapshot, String previousChildName) {
+            update(snapshot);
+        }
+
+        @Override
+        public void onChildRemoved(@NonNull DataSnapshot snapshot) {
+            if (table.remove(snapshot.getKey()) && listener != null) {
+                listener.onFleetChanged(true);
+            }
+        }
+
+        @Override
+        public void onChildMoved(@NonNull DataSnapshot snapshot, String previousChildName) {
+            // Rows are kept in id order
+        }
+
+        @Override
+        public void onCancelled(@NonNull DatabaseError error) {
+            Log.e(TAG, "Failed to read fleet summaries", error.toException());
+        }
+    };
+
+    @MainThread
+    public void start(Listener listener) {
+        if (this.listener != null) {
+            return;
+        }
+        this.listener = listener;
+        fleet.addChildEventListener(summaryListener);
+    }
+
+    @MainThread
+    public void stop() {
+        if (listener == null) {
+            return;
+        }
+        fleet.removeEventListener(summaryListener);
+        listener = null;
+    }
+
+    /** The rovers seen so far; read it on the main thread. */
+    FleetTable getTable() {
+        return table;
+    }
+
+    private void update(DataSnapshot snapshot) {
+        Object value = snapshot.getValue();
+        if (!(value instanceof String)) {
+            Log.w(TAG, "Ignoring summary of " + snapshot.getKey() + " that is not a packed frame");
+            return;
+        }
+        int before = table.size();
+        table.update(snapshot.getKey(), (String) value, SystemClock.elapsedRealtime());
+        if (listener != null) {
+            listener.onFleetChanged(table.size() != before);
+        }
+    }
+}
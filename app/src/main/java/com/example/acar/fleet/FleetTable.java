@@ -0,0 +1,181 @@
+package com.example.acar.fleet;
+
+import com.example.acar.telemetry.TelemetryListener;
+import com.example.acar.transport.PackedTelemetry;
+
+import java.util.Arrays;
+
+/**
+ * Latest summary of every rover in the fleet, one row per rover sorted by
+ * id. Rows live in parallel arrays that only grow, and summaries are
+ * decoded with one reused {@link PackedTelemetry.Decoder}, so an update
+ * costs a binary search and a decode whatever the fleet size. Not
+ * thread-safe.
+ */
+final class FleetTable {
+
+    /** Value of {@link #moisture} before the rover has reported one. */
+    static final int UNKNOWN = -1;
+
+    private String[] ids = new String[8];
+    private double[] latitude = new double[8];
+    private double[] longitude = new double[8];
+    private double[] temperature = new double[8];
+    private double[] humidity = new double[8];
+    private int[] moisture = new int[8];
+    // -1 before the rover has reported rain, otherwise 0 or 1
+    private byte[] raining = new byte[8];
+    private long[] updatedMillis = new long[8];
+    private int size;
+
+    private final PackedTelemetry.Decoder decoder = new PackedTelemetry.Decoder();
+    // Row the decoder is currently filling
+    private int current;
+    private final TelemetryListener rowSink = new TelemetryListener() {
+        @Override
+        public void onClimate(double temperature, double humidity) {
+            FleetTable.this.temperature[current] = temperature;
+            FleetTable.this.humidity[current] = humidity;
+        }
+
+        @Override
+        public void onGps(double latitude, double longitude) {
+            FleetTable.this.latitude[current] = latitude;
+            FleetTable.this.longitude[current] = longitude;
+        }
+
+        @Override
+        public void onRain(boolean raining) {
+            FleetTable.this.raining[current] = (byte) (raining ? 1 : 0);
+        }
+
+        @Override
+        public void onMoisture(int moisture) {
+            FleetTable.this.moisture[current] = moisture;
+        }
+    };
+
+    int size() {
+        return size;
+    }
+
+    /** Row of rover {@code id}, or a negative number if it is not in the table. */
+    int indexOf(String id) {
+        return Arrays.binarySearch(ids, 0, size, id);
+    }
+
+    /**
+     * Stores the summary frame of rover {@code id}, adding a row for a rover
+     * not seen before. Malformed frames leave the table untouched.
+     *
+     * @return true if a row was added
+     */
+    boolean update(String id, CharSequence frame, long nowMillis) {
+        int row = indexOf(id);
+        boolean added = row < 0;
+        if (added) {
+            row = -row - 1;
+            insert(row, id);
+        }
+        current = row;
+        if (decoder.decode(frame, rowSink) < 0) {
+            if (added) {
+                remove(row);
+            }
+            return false;
+        }
+        updatedMillis[row] = nowMillis;
+        return added;
+    }
+
+    /** @return true if rover {@code id} had a row */
+    boolean remove(String id) {
+        int row = indexOf(id);
+        if (row < 0) {
+            return false;
+        }
+        remove(row);
+        return true;
+    }
+
+    String id(int row) {
+        return ids[row];
+    }
+
+    /** NaN until the rover reports a fix. */
+    double latitude(int row) {
+        return latitude[row];
+    }
+
+    double longitude(int row) {
+        return longitude[row];
+    }
+
+    /** NaN until the rover reports a climate reading. */
+    double temperature(int row) {
+        return temperature[row];
+    }
+
+    double humidity(int row) {
+        return humidity[row];
+    }
+
+    /** Soil moisture in percent, {@link #UNKNOWN} until reported. */
+    int moisture(int row) {
+        return moisture[row];
+    }
+
+    boolean hasRain(int row) {
+        return raining[row] >= 0;
+    }
+
+    boolean isRaining(int row) {
+        return raining[row] == 1;
+    }
+
+    /** Clock reading passed to the last {@link #update} of the row. */
+    long updatedMillis(int row) {
+        return updatedMillis[row];
+    }
+
+    private void insert(int row, String id) {
+        if (size == ids.length) {
+            int capacity = size * 2;
+            ids = Arrays.copyOf(ids, capacity);
+            latitude = Arrays.copyOf(latitude, capacity);
+            longitude = Arrays.copyOf(longitude, capacity);
+            temperature = Arrays.copyOf(temperature, capacity);
+            humidity = Arrays.copyOf(humidity, capacity);
+            moisture = Arrays.copyOf(moisture, capacity);
+            raining = Arrays.copyOf(raining, capacity);
+            updatedMillis = Arrays.copyOf(updatedMillis, capacity);
+        }
+        shift(row, row + 1, size - row);
+        size++;
+        ids[row] = id;
+        latitude[row] = Double.NaN;
+        longitude[row] = Double.NaN;
+        temperature[row] = Double.NaN;
+        humidity[row] = Double.NaN;
+        moisture[row] = UNKNOWN;
+        raining[row] = -1;
+        updatedMillis[row] = 0;
+    }
+
+    private void remove(int row) {
+        shift(row + 1, row, size - row - 1);
+        size--;
+        ids[size] = null;
+    }
+
+    private void shift(int from, int to, int count) {
+        System.arraycopy(ids, from, ids, to, count);
+        System.arraycopy(latitude, from, latitude, to, count);
+        System.arraycopy(longitude, from, longitude, to, count);
+        System.arraycopy(temperature, from, temperature, to, count);
+        System.arraycopy(humidity, from, humidity, to, count);
+        System.arraycopy(moisture, from, moisture, to, count);
+        System.arraycopy(raining, from, raining, to, count);
+        System.arraycopy(updatedMillis, from, updatedMillis, to, count);
+    }
+}
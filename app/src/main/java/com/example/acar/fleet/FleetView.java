@@ -0,0 +1,246 @@
+package com.example.acar.fleet;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.os.SystemClock;
+import android.util.AttributeSet;
+import android.view.MotionEvent;
+import android.view.View;
+
+import androidx.lifecycle.LifecycleOwner;
+
+import com.example.acar.readout.TextBuffer;
+import com.example.acar.telemetry.SensorChannel;
+import com.example.acar.telemetry.TelemetryHub;
+import com.example.acar.telemetry.TelemetryListener;
+import com.example.acar.transport.RoverLink;
+
+/**
+ * One line per rover of a {@link FleetDirectory}. Rovers show their
+ * once-a-second summary; the rover in focus is highlighted and shows the
+ * full-rate readings the {@link TelemetryHub} delivers for it instead.
+ * Tapping a row reports its rover to the {@link OnRoverClickListener}.
+ *
+ * <p>All rows are drawn by this one view from the shared table, so twenty
+ * rovers cost twenty lines of text per frame and no views or listeners of
+ * their own. Put it in a {@code ScrollView}; it is as tall as its rows.</p>
+ */
+public class FleetView extends View {
+
+    /** Summaries older than this are drawn greyed out. */
+    private static final long STALE_MS = 5000;
+    // Keeps the ages current while no summaries arrive to trigger a draw
+    private static final long AGE_REFRESH_MS = 1000;
+    private static final int TEXT_COLOR = Color.parseColor("#333333");
+    private static final int FOCUS_TEXT_COLOR = Color.parseColor("#0D47A1");
+
+    public interface OnRoverClickListener {
+        void onRoverClick(String roverId);
+    }
+
+    private final Paint textPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint focusBackground = new Paint();
+    private final TextBuffer line = new TextBuffer();
+    private final float rowHeight;
+
+    private FleetDirectory directory;
+    private OnRoverClickListener clickListener;
+    private int pressedRow = -1;
+
+    // Full-rate readings of the rover in focus, NaN or UNKNOWN when unavailable
+    private double liveTemperature = Double.NaN, liveHumidity = Double.NaN;
+    private double liveLatitude = Double.NaN, liveLongitude = Double.NaN;
+    private int liveMoisture = FleetTable.UNKNOWN;
+    private int liveRain = -1;
+
+    private final Runnable redraw = this::postInvalidateOnAnimation;
+
+    private final TelemetryListener focusedReadings = new TelemetryListener() {
+        @Override
+        public void onClimate(double temperature, double humidity) {
+            liveTemperature = temperature;
+            liveHumidity = humidity;
+            postInvalidateOnAnimation();
+        }
+
+        @Override
+        public void onGps(double latitude, double longitude) {
+            liveLatitude = latitude;
+            liveLongitude = longitude;
+            postInvalidateOnAnimation();
+        }
+
+        @Override
+        public void onRain(boolean raining) {
+            liveRain = raining ? 1 : 0;
+            postInvalidateOnAnimation();
+        }
+
+        @Override
+        public void onMoisture(int moisture) {
+            liveMoisture = moisture;
+            postInvalidateOnAnimation();
+        }
+
+        @Override
+        public void onChannelUnavailable(SensorChannel channel) {
+            switch (channel) {
+                case CLIMATE:
+                    liveTemperature = Double.NaN;
+                    liveHumidity = Double.NaN;
+                    break;
+                case GPS:
+                    liveLatitude = Double.NaN;
+                    liveLongitude = Double.NaN;
+                    break;
+                case RAIN:
+                    liveRain = -1;
+                    break;
+                case MOISTURE:
+                    liveMoisture = FleetTable.UNKNOWN;
+                    break;
+                default:
+                    return;
+            }
+            postInvalidateOnAnimation();
+        }
+    };
+
+    public FleetView(Context context) {
+        this(context, null);
+    }
+
+    public FleetView(Context context, AttributeSet attrs) {
+        super(context, attrs);
+        float density = context.getResources().getDisplayMetrics().density;
+        textPaint.setTextSize(14 * density);
+        focusBackground.setColor(Color.parseColor("#E3F2FD"));
+        rowHeight = textPaint.getTextSize() * 2.2f;
+    }
+
+    /**
+     * Shows the rovers of {@code directory} and the full-rate readings of
+     * the one in focus while {@code owner} is started.
+     */
+    public void bind(LifecycleOwner owner, FleetDirectory directory) {
+        this.directory = directory;
+        TelemetryHub.getInstance().subscribe(owner, focusedReadings);
+        requestLayout();
+    }
+
+    public void setOnRoverClickListener(OnRoverClickListener listener) {
+        clickListener = listener;
+    }
+
+    /** Redraws after the directory changed, and resizes if rovers joined or left. */
+    public void onFleetChanged(boolean rowsChanged) {
+        if (rowsChanged) {
+            requestLayout();
+        }
+        postInvalidateOnAnimation();
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        int rows = directory != null ? Math.max(1, directory.getTable().size()) : 1;
+        int height = (int) Math.ceil(rows * rowHeight) + getPaddingTop() + getPaddingBottom();
+        setMeasuredDimension(getDefaultSize(getSuggestedMinimumWidth(), widthMeasureSpec),
+                resolveSize(height, heightMeasureSpec));
+    }
+
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+        switch (event.getActionMasked()) {
+            case MotionEvent.ACTION_DOWN:
+                pressedRow = rowAt(event.getY());
+                return true;
+            case MotionEvent.ACTION_UP:
+                if (pressedRow >= 0 && pressedRow == rowAt(event.getY())) {
+                    performClick();
+                }
+                pressedRow = -1;
+                return true;
+            case MotionEvent.ACTION_CANCEL:
+                pressedRow = -1;
+                return true;
+            default:
+                return true;
+        }
+    }
+
+    @Override
+    public boolean performClick() {
+        super.performClick();
+        if (pressedRow >= 0 && clickListener != null && directory != null) {
+            clickListener.onRoverClick(directory.getTable().id(pressedRow));
+        }
+        return true;
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        super.onDraw(canvas);
+        float left = getPaddingLeft();
+        float top = getPaddingTop();
+        FleetTable table = directory != null ? directory.getTable() : null;
+        if (table == null || table.size() == 0) {
+            textPaint.setColor(Color.GRAY);
+            line.clear().append("Waiting for rovers to report...");
+            drawLine(canvas, left, top);
+            return;
+        }
+        long now = SystemClock.elapsedRealtime();
+        String focused = RoverLink.getRoverId();
+        for (int row = 0; row < table.size(); row++) {
+            float y = top + row * rowHeight;
+            line.clear().append(table.id(row)).append("  ");
+            if (table.id(row).equals(focused)) {
+                canvas.drawRect(0, y, getWidth(), y + rowHeight, focusBackground);
+                textPaint.setColor(FOCUS_TEXT_COLOR);
+                appendReadings(liveTemperature, liveHumidity, liveMoisture, liveRain, liveLatitude, liveLongitude);
+                line.append("  live");
+            } else {
+                long age = now - table.updatedMillis(row);
+                textPaint.setColor(age > STALE_MS ? Color.GRAY : TEXT_COLOR);
+                appendReadings(table.temperature(row), table.humidity(row), table.moisture(row),
+                        table.hasRain(row) ? (table.isRaining(row) ? 1 : 0) : -1,
+                        table.latitude(row), table.longitude(row));
+                line.append("  ").append(age / 1000).append("s ago");
+            }
+            drawLine(canvas, left, y);
+        }
+        removeCallbacks(redraw);
+        postDelayed(redraw, AGE_REFRESH_MS);
+    }
+
+    private void appendReadings(double temperature, double humidity, int moisture, int rain,
+                                double latitude, double longitude) {
+        if (!Double.isNaN(temperature)) {
+            line.append(temperature, 1).append("°C ").append(humidity, 0).append("%  ");
+        }
+        if (moisture != FleetTable.UNKNOWN) {
+            line.append("soil ").append(moisture).append("%  ");
+        }
+        if (rain >= 0) {
+            line.append(rain == 1 ? "rain  " : "dry  ");
+        }
+        if (!Double.isNaN(latitude)) {
+            line.append(latitude, 5).append(", ").append(longitude, 5);
+        }
+    }
+
+    private void drawLine(Canvas canvas, float left, float rowTop) {
+        float baseline = rowTop + (rowHeight + textPaint.getTextSize()) / 2 - textPaint.descent();
+        canvas.drawText(line.chars(), 0, line.length(), left, baseline, textPaint);
+    }
+
+    private int rowAt(float y) {
+        if (directory == null) {
+            return -1;
+        }
+        int row = (int) ((y - getPaddingTop()) / rowHeight);
+        return row >= 0 && row < directory.getTable().size() ? row : -1;
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.acar.map;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Tiles stored as {@code <root>/<zoom>/<x>/<y>.<extension>}, the layout
+ * most tile downloaders export. Used for the tile pack seeded onto the
+ * phone before going to the field.
+ */
+public final class DirectoryTileSource implements TileSource {
+
+    private final File root;
+    private final String extension;
+
+    public DirectoryTileSource(File root, String extension) {
+        this.root = root;
+        this.extension = extension;
+    }
+
+    @Override
+    public byte[] fetch(int zoom, int x, int y) throws IOException {
+        File file = new File(root, zoom + File.separator + x + File.separator + y + '.' + extension);
+        return file.isFile() ? Streams.read(file) : null;
+    }
+}
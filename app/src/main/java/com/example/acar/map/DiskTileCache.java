@@ -0,0 +1,173 @@
+package com.example.acar.map;
+
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Encoded tiles kept on disk, one file per tile, within a byte budget.
+ * The least recently used tiles go first when a new one does not fit.
+ *
+ * <p>Use order lives in memory and survives restarts through the files'
+ * modification times, which are touched on every hit. The index is built
+ * from the directory on first use, off the main thread. Tiles are written
+ * to a temporary file and renamed, so a crash never leaves half a tile
+ * behind.</p>
+ *
+ * <p>Thread safe; in the app only the tile loader threads use it.</p>
+ */
+public final class DiskTileCache {
+
+    private static final String TAG = "DiskTileCache";
+    private static final String SUFFIX = ".tile";
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private final File directory;
+    private final long budgetBytes;
+    // Tile key to file size, least recently used first; null until first use
+    private LinkedHashMap<Long, Long> index;
+    private long totalBytes;
+
+    public DiskTileCache(File directory, long budgetBytes) {
+        this.directory = directory;
+        this.budgetBytes = budgetBytes;
+    }
+
+    /** The tile's bytes, or null if it is not cached. */
+    public synchronized byte[] get(long key) {
+        ensureIndex();
+        if (index.get(key) == null) {
+            return null;
+        }
+        File file = file(key);
+        try {
+            byte[] data = Streams.read(file);
+            //noinspection ResultOfMethodCallIgnored
+            file.setLastModified(System.currentTimeMillis());
+            return data;
+        } catch (IOException e) {
+            Log.w(TAG, "Dropping unreadable tile " + TileMath.toString(key), e);
+            remove(key);
+            return null;
+        }
+    }
+
+    /** Stores a tile, evicting the least recently used ones past the budget. */
+    public synchronized void put(long key, byte[] data) {
+        ensureIndex();
+        if (data.length > budgetBytes) {
+            return;
+        }
+        File file = file(key);
+        File temp = new File(directory, file.getName() + TEMP_SUFFIX);
+        try (OutputStream out = new FileOutputStream(temp)) {
+            out.write(data);
+        } catch (IOException e) {
+            Log.w(TAG, "Could not cache tile " + TileMath.toString(key), e);
+            //noinspection ResultOfMethodCallIgnored
+            temp.delete();
+            return;
+        }
+        if (!temp.renameTo(file)) {
+            Log.w(TAG, "Could not cache tile " + TileMath.toString(key));
+            //noinspection ResultOfMethodCallIgnored
+            temp.delete();
+            return;
+        }
+        Long previous = index.put(key, (long) data.length);
+        totalBytes += data.length - (previous != null ? previous : 0);
+        trim();
+    }
+
+    public synchronized boolean contains(long key) {
+        ensureIndex();
+        return index.containsKey(key);
+    }
+
+    public synchronized long getSizeBytes() {
+        ensureIndex();
+        return totalBytes;
+    }
+
+    private void trim() {
+        Iterator<Map.Entry<Long, Long>> eldest = index.entrySet().iterator();
+        while (totalBytes > budgetBytes && eldest.hasNext()) {
+            Map.Entry<Long, Long> entry = eldest.next();
+            //noinspection ResultOfMethodCallIgnored
+            file(entry.getKey()).delete();
+            totalBytes -= entry.getValue();
+            eldest.remove();
+        }
+    }
+
+    private void remove(long key) {
+        Long size = index.remove(key);
+        if (size != null) {
+            totalBytes -= size;
+        }
+        //noinspection ResultOfMethodCallIgnored
+        file(key).delete();
+    }
+
+    private void ensureIndex() {
+        if (index != null) {
+            return;
+        }
+        index = new LinkedHashMap<>(256, 0.75f, true);
+        totalBytes = 0;
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            Log.w(TAG, "Cannot create " + directory);
+            return;
+        }
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+        Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+        for (File file : files) {
+            String name = file.getName();
+            long key = name.endsWith(SUFFIX) ? parseKey(name) : -1;
+            if (key < 0) {
+                // Leftover temporary file or something that is not ours
+                //noinspection ResultOfMethodCallIgnored
+                file.delete();
+                continue;
+            }
+            index.put(key, file.length());
+            totalBytes += file.length();
+        }
+        trim();
+    }
+
+    private File file(long key) {
+        return new File(directory, TileMath.zoom(key) + "-" + TileMath.x(key) + "-" + TileMath.y(key) + SUFFIX);
+    }
+
+    // "z-x-y.tile" back to its key, -1 if the name is not one
+    private static long parseKey(String name) {
+        String[] parts = name.substring(0, name.length() - SUFFIX.length()).split("-");
+        if (parts.length != 3) {
+            return -1;
+        }
+        try {
+            int zoom = Integer.parseInt(parts[0]);
+            int x = Integer.parseInt(parts[1]);
+            int y = Integer.parseInt(parts[2]);
+            if (zoom < 0 || zoom > TileMath.MAX_ZOOM || x < 0 || y < 0
+                    || x >= TileMath.tileCount(zoom) || y >= TileMath.tileCount(zoom)) {
+                return -1;
+            }
+            return TileMath.key(zoom, x, y);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.acar.map;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+
+/**
+ * Tiles fetched from a server whose address template contains
+ * {@code {z}}, {@code {x}} and {@code {y}}, for example
+ * {@code https://tiles.example.org/{z}/{x}/{y}.png}. A 404 means the
+ * server has no such tile.
+ */
+public final class HttpTileSource implements TileSource {
+
+    private static final int CONNECT_TIMEOUT_MS = 5000;
+    private static final int READ_TIMEOUT_MS = 10_000;
+
+    private final String template;
+    private final String userAgent;
+
+    public HttpTileSource(String template, String userAgent) {
+        this.template = template;
+        this.userAgent = userAgent;
+    }
+
+    @Override
+    public byte[] fetch(int zoom, int x, int y) throws IOException {
+        URL url = new URL(template.replace("{z}", Integer.toString(zoom))
+                .replace("{x}", Integer.toString(x))
+                .replace("{y}", Integer.toString(y)));
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        try {
+            connection.setConnectTimeout(CONNECT_TIMEOUT_MS);
+            connection.setReadTimeout(READ_TIMEOUT_MS);
+            // Public tile servers refuse clients that do not say who they are
+            connection.setRequestProperty("User-Agent", userAgent);
+            int status = connection.getResponseCode();
+            if (status == HttpURLConnection.HTTP_NOT_FOUND) {
+                return null;
+            }
+            if (status != HttpURLConnection.HTTP_OK) {
+                throw new IOException("HTTP " + status + " for tile " + zoom + "/" + x + "/" + y);
+            }
+            try (InputStream in = connection.getInputStream()) {
+                return Streams.read(in);
+            }
+        } finally {
+            connection.disconnect();
+        }
+    }
+}
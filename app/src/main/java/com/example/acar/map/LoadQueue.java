@@ -0,0 +1,78 @@
+package com.example.acar.map;
+
+import java.util.ArrayDeque;
+
+/**
+ * Bounded queue of tiles to load, in two classes: tiles the screen is
+ * waiting for, taken newest first so the view catches up with panning,
+ * and prefetched tiles, taken in order after them. When a class is full
+ * its stalest entry is dropped and handed back to the caller.
+ *
+ * <p>Taken entries carry their class in bit {@link #URGENT_BIT}; use
+ * {@link #key} and {@link #isUrgent} to read them.</p>
+ */
+final class LoadQueue {
+
+    static final long NONE = -1;
+    private static final long URGENT_BIT = 1L << 62;
+
+    private final int capacity;
+    private final ArrayDeque<Long> urgent = new ArrayDeque<>();
+    private final ArrayDeque<Long> ahead = new ArrayDeque<>();
+
+    LoadQueue(int capacity) {
+        this.capacity = capacity;
+    }
+
+    /**
+     * Queues {@code key} unless it is queued already. Returns the key dropped
+     * to make room, or {@link #NONE}.
+     */
+    synchronized long offer(long key, boolean isUrgent) {
+        if (urgent.contains(key) || ahead.contains(key)) {
+            return NONE;
+        }
+        long dropped = NONE;
+        if (isUrgent) {
+            urgent.addFirst(key);
+            if (urgent.size() > capacity) {
+                dropped = urgent.removeLast();
+            }
+        } else {
+            ahead.addLast(key);
+            if (ahead.size() > capacity) {
+                dropped = ahead.removeFirst();
+            }
+        }
+        notifyAll();
+        return dropped;
+    }
+
+    /**
+     * Moves {@code key} to the front of the urgent class if it is queued.
+     * Returns the key dropped to make room, or {@link #NONE}.
+     */
+    synchronized long promote(long key) {
+        if (!urgent.remove(key) && !ahead.remove(key)) {
+            return NONE;
+        }
+        urgent.addFirst(key);
+        return urgent.size() > capacity ? urgent.removeLast() : NONE;
+    }
+
+    /** Waits for the next entry, urgent ones first. */
+    synchronized long take() throws InterruptedException {
+        while (urgent.isEmpty() && ahead.isEmpty()) {
+            wait();
+        }
+        return urgent.isEmpty() ? ahead.removeFirst() : urgent.removeFirst() | URGENT_BIT;
+    }
+
+    static long key(long taken) {
+        return taken & ~URGENT_BIT;
+    }
+
+    static boolean isUrgent(long taken) {
+        return (taken & URGENT_BIT) != 0;
+    }
+}
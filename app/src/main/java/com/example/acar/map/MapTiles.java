@@ -0,0 +1,73 @@
+package com.example.acar.map;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.os.Handler;
+import android.os.Looper;
+import android.text.TextUtils;
+
+import com.example.acar.R;
+import com.example.acar.transport.RoverLink;
+
+import java.io.File;
+
+/**
+ * The app's single {@link TileCache}, built on first use from configuration:
+ * <ul>
+ *   <li>the tile pack is whatever {@code z/x/y.png} tree has been copied to
+ *       {@code Android/data/<package>/files/tilepack/};</li>
+ *   <li>downloaded tiles are cached under the app's cache directory within
+ *       {@code map_disk_cache_mb};</li>
+ *   <li>decoded tiles get an eighth of the heap;</li>
+ *   <li>the {@code map_tile_url} preference names the tile server; when it
+ *       is empty the map only shows the pack and what is cached.</li>
+ * </ul>
+ */
+public final class MapTiles {
+
+    private static final String PACK_DIRECTORY = "tilepack";
+    private static final String PACK_EXTENSION = "png";
+    private static final String CACHE_DIRECTORY = "tiles";
+    private static final String USER_AGENT = "ACar rover app";
+
+    private static TileCache<Bitmap> cache;
+
+    private MapTiles() {
+    }
+
+    public static synchronized TileCache<Bitmap> get(Context context) {
+        if (cache == null) {
+            cache = create(context.getApplicationContext());
+        }
+        return cache;
+    }
+
+    private static TileCache<Bitmap> create(Context context) {
+        File external = context.getExternalFilesDir(null);
+        TileSource pack = external != null
+                ? new DirectoryTileSource(new File(external, PACK_DIRECTORY), PACK_EXTENSION) : null;
+
+        long diskBudget = context.getResources().getInteger(R.integer.map_disk_cache_mb) * 1024L * 1024L;
+        DiskTileCache disk = new DiskTileCache(new File(context.getCacheDir(), CACHE_DIRECTORY), diskBudget);
+
+        SharedPreferences preferences = context.getSharedPreferences(RoverLink.PREFERENCES, Context.MODE_PRIVATE);
+        String url = preferences.getString(RoverLink.KEY_MAP_TILE_URL, context.getString(R.string.map_tile_url));
+        TileSource remote = TextUtils.isEmpty(url) ? null : new HttpTileSource(url, USER_AGENT);
+
+        TileCache.Decoder<Bitmap> decoder = new TileCache.Decoder<Bitmap>() {
+            @Override
+            public Bitmap decode(byte[] data) {
+                return BitmapFactory.decodeByteArray(data, 0, data.length);
+            }
+
+            @Override
+            public int sizeOf(Bitmap tile) {
+                return tile.getAllocationByteCount();
+            }
+        };
+        Handler main = new Handler(Looper.getMainLooper());
+        return new TileCache<>(pack, disk, remote, decoder, Runtime.getRuntime().maxMemory() / 8, main::post);
+    }
+}
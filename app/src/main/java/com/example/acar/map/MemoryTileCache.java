@@ -0,0 +1,67 @@
+package com.example.acar.map;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Decoded tiles held in memory within a byte budget, evicting the least
+ * recently used first. Not thread safe; the app uses it from the main
+ * thread only, so drawing never waits on a lock held by a loader.
+ */
+public final class MemoryTileCache<T> {
+
+    /** Memory held by a decoded tile. */
+    public interface Sizer<T> {
+        int sizeOf(T tile);
+    }
+
+    private final long budgetBytes;
+    private final Sizer<T> sizer;
+    // Least recently used first
+    private final LinkedHashMap<Long, T> tiles = new LinkedHashMap<>(64, 0.75f, true);
+    private long sizeBytes;
+    private long evictions;
+
+    public MemoryTileCache(long budgetBytes, Sizer<T> sizer) {
+        this.budgetBytes = budgetBytes;
+        this.sizer = sizer;
+    }
+
+    /** The tile, marked as just used, or null. */
+    public T get(long key) {
+        return tiles.get(key);
+    }
+
+    public boolean contains(long key) {
+        return tiles.containsKey(key);
+    }
+
+    public void put(long key, T tile) {
+        T previous = tiles.put(key, tile);
+        if (previous != null) {
+            sizeBytes -= sizer.sizeOf(previous);
+        }
+        sizeBytes += sizer.sizeOf(tile);
+        Iterator<Map.Entry<Long, T>> eldest = tiles.entrySet().iterator();
+        // Never evict the tile just added, even if it alone is over budget
+        while (sizeBytes > budgetBytes && tiles.size() > 1) {
+            Map.Entry<Long, T> entry = eldest.next();
+            sizeBytes -= sizer.sizeOf(entry.getValue());
+            eldest.remove();
+            evictions++;
+        }
+    }
+
+    public int count() {
+        return tiles.size();
+    }
+
+    public long getSizeBytes() {
+        return sizeBytes;
+    }
+
+    public long getEvictions() {
+        return evictions;
+    }
+}
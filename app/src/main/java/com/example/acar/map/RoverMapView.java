@@ -0,0 +1,302 @@
+package com.example.acar.map;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.util.AttributeSet;
+import android.view.MotionEvent;
+import android.view.View;
+
+import androidx.lifecycle.LifecycleOwner;
+
+import com.example.acar.readout.TextBuffer;
+import com.example.acar.telemetry.TelemetryHub;
+import com.example.acar.telemetry.TelemetryListener;
+import com.example.acar.track.Track;
+import com.example.acar.track.TrackLevel;
+import com.example.acar.track.TrackRecorder;
+
+/**
+ * Map of the rover's position and track over tiles from {@link MapTiles}.
+ * The map follows the rover until it is dragged; tapping it steps through
+ * the zoom levels and follows the rover again.
+ *
+ * <p>Drawing only takes tiles that are already in memory. A tile still
+ * loading is stood in for by the matching quarter of its parent, when that
+ * is in memory, or left blank, and the view redraws as tiles arrive. Tiles
+ * ahead of the rover's heading are prefetched with every fix.</p>
+ */
+public class RoverMapView extends View {
+
+    private static final int[] ZOOMS = {18, 16, 14};
+    /** How many tiles ahead of the rover are prefetched. */
+    private static final int PREFETCH_TILES = 3;
+    private static final int HALF_TILE = TileMath.TILE_SIZE / 2;
+
+    private final TileCache<Bitmap> tiles;
+    private final Track track = TrackRecorder.getInstance().getTrack();
+    private final Paint tilePaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+    private final Paint blankPaint = new Paint();
+    private final Paint linePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint roverPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint labelPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final TextBuffer label = new TextBuffer();
+    private final Rect source = new Rect();
+    private final RectF target = new RectF();
+    private final float touchSlop;
+    private float[] lines = new float[0];
+
+    private int zoomIndex;
+    // View centre in world pixels at the current zoom
+    private double centerX, centerY;
+    private boolean following = true;
+    private double roverLatitude = Double.NaN, roverLongitude;
+    // Compass heading from the IMU, NaN without a magnetometer
+    private double compassHeading = Double.NaN;
+    // Heading from the last two distinct fixes, the fallback for prefetching
+    private double trackHeading = Double.NaN;
+
+    private float downX, downY, lastX, lastY;
+    private boolean dragging;
+
+    private final TelemetryListener onTelemetry = new TelemetryListener() {
+        @Override
+        public void onGps(double latitude, double longitude) {
+            if (!Double.isNaN(roverLatitude) && (latitude != roverLatitude || longitude != roverLongitude)) {
+                trackHeading = bearing(roverLatitude, roverLongitude, latitude, longitude);
+            }
+            roverLatitude = latitude;
+            roverLongitude = longitude;
+            int zoom = zoom();
+            double x = TileMath.worldX(longitude, zoom);
+            double y = TileMath.worldY(latitude, zoom);
+            if (following) {
+                centerX = x;
+                centerY = y;
+            }
+            double heading = Double.isNaN(compassHeading) ? trackHeading : compassHeading;
+            if (!Double.isNaN(heading)) {
+                tiles.prefetchAhead(zoom, x, y, heading, PREFETCH_TILES);
+            }
+            postInvalidateOnAnimation();
+        }
+
+        @Override
+        public void onImu(double yawRate, double heading) {
+            compassHeading = heading;
+        }
+    };
+
+    public RoverMapView(Context context) {
+        this(context, null);
+    }
+
+    public RoverMapView(Context context, AttributeSet attrs) {
+        super(context, attrs);
+        tiles = MapTiles.get(context);
+        float density = context.getResources().getDisplayMetrics().density;
+        touchSlop = 8 * density;
+        blankPaint.setColor(Color.parseColor("#E0E0E0"));
+        linePaint.setColor(Color.parseColor("#2196F3"));
+        linePaint.setStrokeWidth(3 * density);
+        roverPaint.setColor(Color.parseColor("#F44336"));
+        labelPaint.setColor(Color.parseColor("#333333"));
+        labelPaint.setTextSize(12 * density);
+        setOnClickListener(v -> {
+            setZoomIndex((zoomIndex + 1) % ZOOMS.length);
+            following = true;
+            if (!Double.isNaN(roverLatitude)) {
+                centerX = TileMath.worldX(roverLongitude, zoom());
+                centerY = TileMath.worldY(roverLatitude, zoom());
+            }
+            invalidate();
+        });
+    }
+
+    /** Follows the rover while {@code owner} is started. */
+    public void bind(LifecycleOwner owner) {
+        TelemetryHub.getInstance().subscribe(owner, onTelemetry);
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        tiles.setOnTileLoaded(this::postInvalidateOnAnimation);
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        tiles.setOnTileLoaded(null);
+        super.onDetachedFromWindow();
+    }
+
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+        switch (event.getActionMasked()) {
+            case MotionEvent.ACTION_DOWN:
+                downX = lastX = event.getX();
+                downY = lastY = event.getY();
+                dragging = false;
+                // Pan the map rather than scroll the screen around it
+                getParent().requestDisallowInterceptTouchEvent(true);
+                return true;
+            case MotionEvent.ACTION_MOVE:
+                if (!dragging && Math.hypot(event.getX() - downX, event.getY() - downY) > touchSlop) {
+                    dragging = true;
+                    following = false;
+                }
+                if (dragging) {
+                    centerX -= event.getX() - lastX;
+                    centerY -= event.getY() - lastY;
+                    invalidate();
+                }
+                lastX = event.getX();
+                lastY = event.getY();
+                return true;
+            case MotionEvent.ACTION_UP:
+                if (!dragging) {
+                    performClick();
+                }
+                return true;
+            default:
+                return true;
+        }
+    }
+
+    @Override
+    public boolean performClick() {
+        return super.performClick();
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        super.onDraw(canvas);
+        int width = getWidth();
+        int height = getHeight();
+        if (width <= 0 || height <= 0) {
+            return;
+        }
+        if (Double.isNaN(roverLatitude) && following) {
+            canvas.drawColor(blankPaint.getColor());
+            label.clear().append("Map: waiting for a GPS fix");
+            canvas.drawText(label.chars(), 0, label.length(), 8, labelPaint.getTextSize() * 1.5f, labelPaint);
+            return;
+        }
+        int zoom = zoom();
+        // World position of the top-left corner
+        double left = centerX - width / 2.0;
+        double top = centerY - height / 2.0;
+        drawTiles(canvas, zoom, left, top, width, height);
+        drawTrack(canvas, zoom, left, top);
+
+        label.clear().append("z").append(zoom);
+        if (!following) {
+            label.append(" · tap to follow");
+        }
+        canvas.drawText(label.chars(), 0, label.length(), 8, labelPaint.getTextSize() * 1.5f, labelPaint);
+    }
+
+    private void drawTiles(Canvas canvas, int zoom, double left, double top, int width, int height) {
+        int count = TileMath.tileCount(zoom);
+        int firstX = (int) Math.floor(left / TileMath.TILE_SIZE);
+        int firstY = (int) Math.floor(top / TileMath.TILE_SIZE);
+        int lastX = (int) Math.floor((left + width) / TileMath.TILE_SIZE);
+        int lastY = (int) Math.floor((top + height) / TileMath.TILE_SIZE);
+        for (int tileY = firstY; tileY <= lastY; tileY++) {
+            for (int tileX = firstX; tileX <= lastX; tileX++) {
+                float screenX = (float) (tileX * (double) TileMath.TILE_SIZE - left);
+                float screenY = (float) (tileY * (double) TileMath.TILE_SIZE - top);
+                target.set(screenX, screenY, screenX + TileMath.TILE_SIZE, screenY + TileMath.TILE_SIZE);
+                if (tileX < 0 || tileY < 0 || tileX >= count || tileY >= count) {
+                    canvas.drawRect(target, blankPaint);
+                    continue;
+                }
+                Bitmap tile = tiles.get(zoom, tileX, tileY);
+                if (tile != null) {
+                    canvas.drawBitmap(tile, null, target, tilePaint);
+                    continue;
+                }
+                Bitmap parent = zoom > 0 ? tiles.peek(zoom - 1, tileX >> 1, tileY >> 1) : null;
+                if (parent != null) {
+                    int quarterX = (tileX & 1) * HALF_TILE;
+                    int quarterY = (tileY & 1) * HALF_TILE;
+                    source.set(quarterX, quarterY, quarterX + HALF_TILE, quarterY + HALF_TILE);
+                    canvas.drawBitmap(parent, source, target, tilePaint);
+                } else {
+                    canvas.drawRect(target, blankPaint);
+                }
+            }
+        }
+    }
+
+    private void drawTrack(Canvas canvas, int zoom, double left, double top) {
+        int fixCount = track.getFixes().size();
+        if (fixCount == 0) {
+            return;
+        }
+        int latest = fixCount - 1;
+        TrackLevel level = track.levelFor(TileMath.metersPerPixel(track.getFixes().latitudeAt(latest), zoom));
+        int needed = (level.size() + 1) * 4;
+        if (lines.length < needed) {
+            lines = new float[Math.max(needed, lines.length * 2)];
+        }
+        int count = 0;
+        for (int s = 0; s < level.segmentCount(); s++) {
+            int start = level.segmentStart(s);
+            int end = level.segmentEnd(s);
+            float previousX = 0, previousY = 0;
+            for (int k = start; k < end; k++) {
+                int index = level.indexAt(k);
+                float x = (float) (TileMath.worldX(track.getFixes().longitudeAt(index), zoom) - left);
+                float y = (float) (TileMath.worldY(track.getFixes().latitudeAt(index), zoom) - top);
+                if (k > start) {
+                    lines[count++] = previousX;
+                    lines[count++] = previousY;
+                    lines[count++] = x;
+                    lines[count++] = y;
+                }
+                previousX = x;
+                previousY = y;
+            }
+            if (s == level.segmentCount() - 1) {
+                // Fixes after the last kept one are still pending in the level
+                lines[count++] = previousX;
+                lines[count++] = previousY;
+                lines[count++] = (float) (TileMath.worldX(track.getFixes().longitudeAt(latest), zoom) - left);
+                lines[count++] = (float) (TileMath.worldY(track.getFixes().latitudeAt(latest), zoom) - top);
+            }
+        }
+        canvas.drawLines(lines, 0, count, linePaint);
+        if (Double.isNaN(roverLatitude)) {
+            return;
+        }
+        float roverX = (float) (TileMath.worldX(roverLongitude, zoom) - left);
+        float roverY = (float) (TileMath.worldY(roverLatitude, zoom) - top);
+        canvas.drawCircle(roverX, roverY, linePaint.getStrokeWidth() * 2, roverPaint);
+    }
+
+    private int zoom() {
+        return ZOOMS[zoomIndex];
+    }
+
+    private void setZoomIndex(int index) {
+        double scale = Math.pow(2, ZOOMS[index] - ZOOMS[zoomIndex]);
+        centerX *= scale;
+        centerY *= scale;
+        zoomIndex = index;
+    }
+
+    // Initial bearing in degrees clockwise from north
+    private static double bearing(double fromLatitude, double fromLongitude, double toLatitude, double toLongitude) {
+        double dLon = Math.toRadians(toLongitude - fromLongitude);
+        double from = Math.toRadians(fromLatitude);
+        double to = Math.toRadians(toLatitude);
+        double y = Math.sin(dLon) * Math.cos(to);
+        double x = Math.cos(from) * Math.sin(to) - Math.sin(from) * Math.cos(to) * Math.cos(dLon);
+        return (Math.toDegrees(Math.atan2(y, x)) + 360) % 360;
+    }
+}
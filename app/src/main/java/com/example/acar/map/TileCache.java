@@ -0,0 +1,294 @@
+package com.example.acar.map;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+/**
+ * Two-tier tile cache behind the map. Drawing asks for tiles on the main
+ * thread with {@link #get}, which only ever looks in memory: a miss
+ * returns null at once and queues the tile, and the view is told to redraw
+ * when it arrives. Panning therefore never waits on a disk or the network.
+ *
+ * <p>Tiles are looked up in this order:</p>
+ * <ol>
+ *   <li>the {@link MemoryTileCache} of decoded tiles;</li>
+ *   <li>the tile pack seeded on the device, so the map works with no
+ *       connection at all;</li>
+ *   <li>the {@link DiskTileCache} of tiles downloaded before;</li>
+ *   <li>the remote server, if one is configured; what it returns is kept
+ *       on disk.</li>
+ * </ol>
+ * <p>Local reads and downloads run on separate threads, so a slow or
+ * absent network never holds up tiles already on the phone. Each thread
+ * serves tiles the screen waits for before {@link #prefetch}ed ones, such
+ * as those ahead of the rover. A tile found nowhere is not asked for again
+ * for {@link #MISSING_RETRY_MS}.</p>
+ *
+ * <p>Call {@link #get}, {@link #prefetch} and the getters from the main
+ * thread; results are delivered through the executor given for it.</p>
+ *
+ * @param <T> decoded tile type, a {@code Bitmap} in the app
+ */
+public final class TileCache<T> {
+
+    /** Turns encoded tiles into drawable ones, on the loader threads. */
+    public interface Decoder<T> extends MemoryTileCache.Sizer<T> {
+        /** The decoded tile, or null if {@code data} is not an image. */
+        T decode(byte[] data);
+    }
+
+    private static final String TAG = "TileCache";
+    /** How long a tile found nowhere is left alone. */
+    public static final long MISSING_RETRY_MS = 30_000;
+    private static final int QUEUE_CAPACITY = 64;
+    private static final int MAX_MISSING = 4096;
+
+    private final TileSource pack;
+    private final DiskTileCache disk;
+    private final TileSource remote;
+    private final Decoder<T> decoder;
+    private final Executor mainThread;
+    private final MemoryTileCache<T> memory;
+
+    private final LoadQueue localQueue = new LoadQueue(QUEUE_CAPACITY);
+    private final LoadQueue remoteQueue = new LoadQueue(QUEUE_CAPACITY);
+    private final Thread localThread;
+    private final Thread remoteThread;
+
+    // Main thread only: tiles queued or loading, and tiles found nowhere until when
+    private final Set<Long> requested = new HashSet<>();
+    private final HashMap<Long, Long> missingUntil = new HashMap<>();
+    private Runnable onTileLoaded;
+    private long hits, misses;
+
+    // Where loaded tiles came from, written by the loader threads
+    private volatile long fromPack, fromDisk, fromRemote;
+
+    /**
+     * @param pack   tiles seeded on the device, or null
+     * @param remote tile server, or null to stay offline
+     */
+    public TileCache(TileSource pack, DiskTileCache disk, TileSource remote, Decoder<T> decoder,
+                     long memoryBudgetBytes, Executor mainThread) {
+        this.pack = pack;
+        this.disk = disk;
+        this.remote = remote;
+        this.decoder = decoder;
+        this.mainThread = mainThread;
+        memory = new MemoryTileCache<>(memoryBudgetBytes, decoder);
+        localThread = new Thread(this::localLoop, "map-tiles");
+        localThread.setDaemon(true);
+        localThread.start();
+        if (remote != null) {
+            remoteThread = new Thread(this::remoteLoop, "map-tiles-download");
+            remoteThread.setDaemon(true);
+            remoteThread.start();
+        } else {
+            remoteThread = null;
+        }
+    }
+
+    /** Runs on the main thread whenever a tile arrives in memory; null for none. */
+    public void setOnTileLoaded(Runnable onTileLoaded) {
+        this.onTileLoaded = onTileLoaded;
+    }
+
+    /** The decoded tile if it is in memory; otherwise null, and the tile is queued. */
+    public T get(int zoom, int x, int y) {
+        long key = TileMath.key(zoom, x, y);
+        T tile = memory.get(key);
+        if (tile != null) {
+            hits++;
+            return tile;
+        }
+        misses++;
+        request(key, true);
+        return null;
+    }
+
+    /** The decoded tile if it is in memory, without queueing anything. */
+    public T peek(int zoom, int x, int y) {
+        return memory.get(TileMath.key(zoom, x, y));
+    }
+
+    /** Loads a tile into memory ahead of need, after any tile the screen waits for. */
+    public void prefetch(int zoom, int x, int y) {
+        long key = TileMath.key(zoom, x, y);
+        if (!memory.contains(key)) {
+            request(key, false);
+        }
+    }
+
+    /**
+     * Prefetches the tiles along a line from world position ({@code worldX},
+     * {@code worldY}) at {@code zoom} towards {@code headingDegrees}
+     * (clockwise from north), {@code tiles} tiles deep and three wide.
+     */
+    public void prefetchAhead(int zoom, double worldX, double worldY, double headingDegrees, int tiles) {
+        double dx = Math.sin(Math.toRadians(headingDegrees)) * TileMath.TILE_SIZE;
+        // World y grows southwards
+        double dy = -Math.cos(Math.toRadians(headingDegrees)) * TileMath.TILE_SIZE;
+        int count = TileMath.tileCount(zoom);
+        for (int step = 1; step <= tiles; step++) {
+            double x = worldX + dx * step;
+            double y = worldY + dy * step;
+            for (int side = -1; side <= 1; side++) {
+                // Neighbours across the direction of travel
+                int tileX = (int) Math.floor((x - dy * side) / TileMath.TILE_SIZE);
+                int tileY = (int) Math.floor((y + dx * side) / TileMath.TILE_SIZE);
+                if (tileX >= 0 && tileY >= 0 && tileX < count && tileY < count) {
+                    prefetch(zoom, tileX, tileY);
+                }
+            }
+        }
+    }
+
+    public MemoryTileCache<T> getMemory() {
+        return memory;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    public long getLoadedFromPack() {
+        return fromPack;
+    }
+
+    public long getLoadedFromDisk() {
+        return fromDisk;
+    }
+
+    public long getLoadedFromRemote() {
+        return fromRemote;
+    }
+
+    /** Stops the loader threads; tiles still queued are never delivered. */
+    public void close() {
+        localThread.interrupt();
+        if (remoteThread != null) {
+            remoteThread.interrupt();
+        }
+    }
+
+    private void request(long key, boolean urgent) {
+        Long until = missingUntil.get(key);
+        if (until != null) {
+            if (SystemClock.elapsedRealtime() < until) {
+                return;
+            }
+            missingUntil.remove(key);
+        }
+        if (!requested.add(key)) {
+            if (urgent) {
+                // Already waiting, perhaps as a prefetch: move it up wherever it is
+                forget(localQueue.promote(key));
+                forget(remoteQueue.promote(key));
+            }
+            return;
+        }
+        forget(localQueue.offer(key, urgent));
+    }
+
+    private void forget(long dropped) {
+        if (dropped != LoadQueue.NONE) {
+            requested.remove(dropped);
+        }
+    }
+
+    private void localLoop() {
+        try {
+            while (true) {
+                long taken = localQueue.take();
+                long key = LoadQueue.key(taken);
+                byte[] data = fetch(pack, key);
+                if (data != null) {
+                    fromPack++;
+                } else {
+                    data = disk.get(key);
+                    if (data != null) {
+                        fromDisk++;
+                    }
+                }
+                if (data != null) {
+                    deliver(key, data);
+                } else if (remote != null) {
+                    long dropped = remoteQueue.offer(key, LoadQueue.isUrgent(taken));
+                    if (dropped != LoadQueue.NONE) {
+                        mainThread.execute(() -> forget(dropped));
+                    }
+                } else {
+                    deliverMissing(key);
+                }
+            }
+        } catch (InterruptedException e) {
+            // Closed
+        }
+    }
+
+    private void remoteLoop() {
+        try {
+            while (true) {
+                long key = LoadQueue.key(remoteQueue.take());
+                byte[] data = fetch(remote, key);
+                if (data == null) {
+                    deliverMissing(key);
+                    continue;
+                }
+                fromRemote++;
+                disk.put(key, data);
+                deliver(key, data);
+            }
+        } catch (InterruptedException e) {
+            // Closed
+        }
+    }
+
+    private static byte[] fetch(TileSource source, long key) {
+        if (source == null) {
+            return null;
+        }
+        try {
+            return source.fetch(TileMath.zoom(key), TileMath.x(key), TileMath.y(key));
+        } catch (IOException e) {
+            Log.w(TAG, "Could not load tile " + TileMath.toString(key) + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    private void deliver(long key, byte[] data) {
+        T tile = decoder.decode(data);
+        if (tile == null) {
+            Log.w(TAG, "Tile " + TileMath.toString(key) + " is not an image");
+            deliverMissing(key);
+            return;
+        }
+        mainThread.execute(() -> {
+            requested.remove(key);
+            memory.put(key, tile);
+            if (onTileLoaded != null) {
+                onTileLoaded.run();
+            }
+        });
+    }
+
+    private void deliverMissing(long key) {
+        mainThread.execute(() -> {
+            requested.remove(key);
+            if (missingUntil.size() >= MAX_MISSING) {
+                missingUntil.clear();
+            }
+            missingUntil.put(key, SystemClock.elapsedRealtime() + MISSING_RETRY_MS);
+        });
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.acar.map;
+
+/**
+ * Web Mercator tile arithmetic, as used by the common {@code z/x/y} tile
+ * servers. "World" coordinates are pixels across the whole map at a zoom
+ * level, with the origin at the north-west corner.
+ *
+ * <p>A tile is named by a single {@code long} key holding its zoom, column
+ * and row, so caches and queues can hold tiles without objects.</p>
+ */
+public final class TileMath {
+
+    public static final int TILE_SIZE = 256;
+    public static final int MAX_ZOOM = 22;
+    // Web Mercator stops short of the poles
+    private static final double MAX_LATITUDE = 85.05112878;
+    private static final double EQUATOR_METERS_PER_PIXEL = 2 * Math.PI * 6_378_137 / TILE_SIZE;
+
+    private TileMath() {
+    }
+
+    public static double worldX(double longitude, int zoom) {
+        return (longitude + 180) / 360 * worldSize(zoom);
+    }
+
+    public static double worldY(double latitude, int zoom) {
+        double sin = Math.sin(Math.toRadians(Math.max(-MAX_LATITUDE, Math.min(MAX_LATITUDE, latitude))));
+        return (0.5 - Math.log((1 + sin) / (1 - sin)) / (4 * Math.PI)) * worldSize(zoom);
+    }
+
+    public static double longitude(double worldX, int zoom) {
+        return worldX / worldSize(zoom) * 360 - 180;
+    }
+
+    public static double latitude(double worldY, int zoom) {
+        double n = Math.PI * (1 - 2 * worldY / worldSize(zoom));
+        return Math.toDegrees(Math.atan(Math.sinh(n)));
+    }
+
+    /** Ground distance covered by one pixel at {@code latitude}. */
+    public static double metersPerPixel(double latitude, int zoom) {
+        return EQUATOR_METERS_PER_PIXEL * Math.cos(Math.toRadians(latitude)) / (1 << zoom);
+    }
+
+    /** Number of tiles along each side of the world at {@code zoom}. */
+    public static int tileCount(int zoom) {
+        return 1 << zoom;
+    }
+
+    public static long key(int zoom, int x, int y) {
+        return (long) zoom << 48 | (long) x << 24 | y;
+    }
+
+    public static int zoom(long key) {
+        return (int) (key >>> 48);
+    }
+
+    public static int x(long key) {
+        return (int) (key >>> 24) & 0xFFFFFF;
+    }
+
+    public static int y(long key) {
+        return (int) key & 0xFFFFFF;
+    }
+
+    public static String toString(long key) {
+        return zoom(key) + "/" + x(key) + "/" + y(key);
+    }
+
+    private static double worldSize(int zoom) {
+        return (double) TILE_SIZE * (1 << zoom);
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.acar.map;
+
+import java.io.IOException;
+
+/**
+ * Where encoded tile images come from: a tile pack on the device, a tile
+ * server, or a stand-in in tests. Called on the tile loader threads only.
+ */
+public interface TileSource {
+
+    /**
+     * The encoded image of tile {@code zoom/x/y}, or null if the source has
+     * no such tile.
+     *
+     * @throws IOException if the source could not be read; the tile is tried again later
+     */
+    byte[] fetch(int zoom, int x, int y) throws IOException;
+}
@@ -0,0 +1,109 @@
+package com.example.acar.metrics;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hands out command sequence numbers and turns rover acknowledgements into
+ * round-trip times.
+ *
+ * <p>Send times are kept in a fixed ring indexed by sequence number, so a
+ * command that is never acknowledged is simply counted as lost once its slot
+ * is reused. Emergency stops share the sequence numbers but their round
+ * trips are also kept apart, since how fast the rover stops is a safety
+ * figure of its own. Not thread-safe.</p>
+ *
+ * <p>Only the sequence number goes on the wire. The send time stays here
+ * because it is read from the phone's monotonic clock, which means nothing
+ * to the rover; echoing it back would only repeat what the ring already
+ * holds, at the cost of a longer command datagram and database write.</p>
+ */
+public final class CommandLatencyTracker {
+
+    private static final int WINDOW = 64;
+    // First sequence numbers are drawn below this, leaving room for a long session
+    private static final int FIRST_SEQUENCE_RANGE = 1 << 30;
+    private static final long MAX_TRACKABLE_MICROS = TimeUnit.SECONDS.toMicros(60);
+
+    private final int[] pendingSequence = new int[WINDOW];
+    private final long[] pendingSentAt = new long[WINDOW];
+    private final boolean[] pendingOpen = new boolean[WINDOW];
+    private final boolean[] pendingStop = new boolean[WINDOW];
+    private final LatencyHistogram roundTrips = new LatencyHistogram(MAX_TRACKABLE_MICROS);
+    private final LatencyHistogram stopRoundTrips = new LatencyHistogram(MAX_TRACKABLE_MICROS);
+
+    private int nextSequence;
+    private long sent, acknowledged, lost;
+
+    /**
+     * Starts numbering at a random point, so a new process neither repeats
+     * the number the rover last saw and acknowledged (the database only
+     * reports changes, so an ack equal to the stored one would never
+     * arrive) nor takes a stale ack for one of its own commands.
+     */
+    public CommandLatencyTracker() {
+        this(new Random().nextInt(FIRST_SEQUENCE_RANGE) + 1);
+    }
+
+    /** Starts numbering at {@code firstSequence}, which must be positive. */
+    CommandLatencyTracker(int firstSequence) {
+        nextSequence = firstSequence;
+    }
+
+    /** Registers a command about to be sent at {@code nowNanos} and returns its sequence number. */
+    public int begin(long nowNanos) {
+        return begin(nowNanos, false);
+    }
+
+    /** Like {@link #begin(long)}, for an emergency stop when {@code stop} is set. */
+    public int begin(long nowNanos, boolean stop) {
+        int sequence = nextSequence++;
+        int slot = sequence & (WINDOW - 1);
+        if (pendingOpen[slot]) {
+            lost++;
+        }
+        pendingSequence[slot] = sequence;
+        pendingSentAt[slot] = nowNanos;
+        pendingOpen[slot] = true;
+        pendingStop[slot] = stop;
+        sent++;
+        return sequence;
+    }
+
+    /** Records the round trip of {@code sequence}; stale or duplicate acks are ignored. */
+    public void acknowledge(int sequence, long nowNanos) {
+        int slot = sequence & (WINDOW - 1);
+        if (!pendingOpen[slot] || pendingSequence[slot] != sequence) {
+            return;
+        }
+        pendingOpen[slot] = false;
+        acknowledged++;
+        long micros = TimeUnit.NANOSECONDS.toMicros(nowNanos - pendingSentAt[slot]);
+        roundTrips.record(micros);
+        if (pendingStop[slot]) {
+            stopRoundTrips.record(micros);
+        }
+    }
+
+    /** Round-trip times in microseconds. */
+    public LatencyHistogram getRoundTrips() {
+        return roundTrips;
+    }
+
+    /** Round-trip times of emergency stops in microseconds. */
+    public LatencyHistogram getStopRoundTrips() {
+        return stopRoundTrips;
+    }
+
+    public long getSent() {
+        return sent;
+    }
+
+    public long getAcknowledged() {
+        return acknowledged;
+    }
+
+    public long getLost() {
+        return lost;
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.acar.metrics;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import android.view.View;
+import android.widget.TextView;
+import android.widget.Toast;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleEventObserver;
+import androidx.lifecycle.LifecycleOwner;
+
+import com.example.acar.readout.ReadoutRenderer;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Small text panel showing {@link LinkMetrics}, refreshed twice a second
+ * while visible and the owning screen is started. Tapping it exports the
+ * metrics as JSON to the app's external files directory.
+ */
+public final class DebugOverlay implements LifecycleEventObserver {
+
+    private static final String TAG = "DebugOverlay";
+    private static final long REFRESH_INTERVAL_MS = 500;
+
+    private final TextView view;
+    private final ReadoutRenderer renderer = new ReadoutRenderer();
+    private final ReadoutRenderer.Readout readout;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private boolean started;
+
+    private final Runnable refresh = new Runnable() {
+        @Override
+        public void run() {
+            readout.invalidate();
+            handler.postDelayed(this, REFRESH_INTERVAL_MS);
+        }
+    };
+
+    public DebugOverlay(LifecycleOwner owner, TextView view) {
+        this.view = view;
+        this.readout = renderer.add(view, LinkMetrics.getInstance()::appendSummary);
+        view.setOnClickListener(v -> export());
+        owner.getLifecycle().addObserver(this);
+    }
+
+    /** Shows or hides the overlay. */
+    public void toggle() {
+        view.setVisibility(view.getVisibility() == View.VISIBLE ? View.GONE : View.VISIBLE);
+        updateRefresh();
+    }
+
+    @Override
+    public void onStateChanged(@NonNull LifecycleOwner source, @NonNull Lifecycle.Event event) {
+        if (event == Lifecycle.Event.ON_START) {
+            started = true;
+        } else if (event == Lifecycle.Event.ON_STOP) {
+            started = false;
+        } else if (event == Lifecycle.Event.ON_DESTROY) {
+            started = false;
+            renderer.cancel();
+            source.getLifecycle().removeObserver(this);
+        }
+        updateRefresh();
+    }
+
+    private void updateRefresh() {
+        handler.removeCallbacks(refresh);
+        if (started && view.getVisibility() == View.VISIBLE) {
+            refresh.run();
+        }
+    }
+
+    private void export() {
+        Context context = view.getContext();
+        String json = LinkMetrics.getInstance().toJson();
+        File file = new File(context.getExternalFilesDir(null), "link-metrics-" + System.currentTimeMillis() + ".json");
+        // Tiny file, but keep disk I/O off the main thread all the same
+        new Thread(() -> {
+            try (OutputStream out = new FileOutputStream(file)) {
+                out.write(json.getBytes(StandardCharsets.UTF_8));
+                handler.post(() -> Toast.makeText(context, "Metrics saved to " + file.getName(), Toast.LENGTH_SHORT).show());
+            } catch (IOException e) {
+                Log.e(TAG, "Failed to export metrics", e);
+                handler.post(() -> Toast.makeText(context, "Failed to export metrics", Toast.LENGTH_SHORT).show());
+            }
+        }, "metrics-export").start();
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.acar.metrics;
+
+/**
+ * Fixed-memory histogram of non-negative latencies.
+ *
+ * <p>Values below 64 get their own bucket; above that every power of two is
+ * split into 32 buckets, so any recorded value is reported within about 3%.
+ * Values above the trackable maximum land in the last bucket. Recording never
+ * allocates. Not thread-safe.</p>
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int LINEAR_LIMIT = SUB_BUCKETS * 2;
+
+    private final long[] counts;
+    private long totalCount;
+    private long maxValue;
+
+    /** @param highestTrackable largest value that keeps full precision */
+    public LatencyHistogram(long highestTrackable) {
+        counts = new long[indexOf(Math.max(highestTrackable, LINEAR_LIMIT)) + 1];
+    }
+
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        int index = Math.min(indexOf(value), counts.length - 1);
+        counts[index]++;
+        totalCount++;
+        if (value > maxValue) {
+            maxValue = value;
+        }
+    }
+
+    public long getTotalCount() {
+        return totalCount;
+    }
+
+    public long getMax() {
+        return maxValue;
+    }
+
+    /**
+     * Value at or below which {@code percentile} percent of recordings fall,
+     * reported as the upper edge of its bucket. Returns 0 when empty.
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (totalCount == 0) {
+            return 0;
+        }
+        long target = (long) Math.ceil(percentile / 100.0 * totalCount);
+        if (target < 1) {
+            target = 1;
+        }
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= target) {
+                return Math.min(upperBound(i), maxValue);
+            }
+        }
+        return maxValue;
+    }
+
+    public void reset() {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = 0;
+        }
+        totalCount = 0;
+        maxValue = 0;
+    }
+
+    static int indexOf(long value) {
+        if (value < LINEAR_LIMIT) {
+            return (int) value;
+        }
+        int shift = (63 - Long.numberOfLeadingZeros(value)) - SUB_BUCKET_BITS;
+        int sub = (int) (value >>> shift);
+        return LINEAR_LIMIT + (shift - 1) * SUB_BUCKETS + (sub - SUB_BUCKETS);
+    }
+
+    static long upperBound(int index) {
+        if (index < LINEAR_LIMIT) {
+            return index;
+        }
+        int shift = (index - LINEAR_LIMIT) / SUB_BUCKETS + 1;
+        long sub = (index - LINEAR_LIMIT) % SUB_BUCKETS + SUB_BUCKETS;
+        return ((sub + 1) << shift) - 1;
+    }
+}
@@ -0,0 +1,151 @@
+package com.example.acar.metrics;
+
+import android.os.SystemClock;
+
+import androidx.annotation.MainThread;
+
+import com.example.acar.readout.TextBuffer;
+import com.example.acar.telemetry.SensorChannel;
+import com.example.acar.telemetry.TelemetryHub;
+import com.example.acar.transport.RoverLink;
+
+/**
+ * Process-wide link health figures: command round trips from the rover's
+ * acks, how fast emergency stops are acknowledged, how evenly dead-man
+ * heartbeats go out, and the age of each sensor stream. Used by the
+ * {@link DebugOverlay} and exported as JSON.
+ *
+ * <p>Stop round trips and heartbeat jitter have budgets the field setup is
+ * expected to stay within; the overlay flags a p99 above budget with
+ * {@code !}.</p>
+ */
+@MainThread
+public final class LinkMetrics {
+
+    private static final SensorChannel[] CHANNELS = SensorChannel.values();
+
+    /** Acked emergency stops should come back within this, at the 99th percentile. */
+    public static final long STOP_BUDGET_MS = 300;
+    /** Heartbeats should leave within this of their schedule, at the 99th percentile. */
+    public static final long JITTER_BUDGET_MS = 50;
+    private static final long MAX_JITTER_MICROS = 10_000_000;
+
+    private static LinkMetrics instance;
+
+    private final CommandLatencyTracker commands = new CommandLatencyTracker();
+    // How far each heartbeat left from its schedule, in microseconds
+    private final LatencyHistogram heartbeatJitter = new LatencyHistogram(MAX_JITTER_MICROS);
+    private long heartbeatsLate;
+
+    private LinkMetrics() {
+    }
+
+    public static synchronized LinkMetrics getInstance() {
+        if (instance == null) {
+            instance = new LinkMetrics();
+        }
+        return instance;
+    }
+
+    /** Allocates the sequence number for a command that is about to be sent. */
+    public int onCommandSent() {
+        return commands.begin(SystemClock.elapsedRealtimeNanos());
+    }
+
+    /** Allocates the sequence number for an emergency stop that is about to be sent. */
+    public int onStopSent() {
+        return commands.begin(SystemClock.elapsedRealtimeNanos(), true);
+    }
+
+    /**
+     * Records a heartbeat that left {@code jitterMicros} away from its
+     * schedule; {@code late} if the gap was long enough for the rover to stop.
+     */
+    public void onHeartbeat(long jitterMicros, boolean late) {
+        heartbeatJitter.record(jitterMicros);
+        if (late) {
+            heartbeatsLate++;
+        }
+    }
+
+    /** Records the rover's ack for {@code sequence}. */
+    public void onCommandAck(int sequence) {
+        commands.acknowledge(sequence, SystemClock.elapsedRealtimeNanos());
+    }
+
+    public CommandLatencyTracker getCommands() {
+        return commands;
+    }
+
+    public LatencyHistogram getHeartbeatJitter() {
+        return heartbeatJitter;
+    }
+
+    /** Writes a short multi-line summary for the debug overlay. */
+    public void appendSummary(TextBuffer out) {
+        LatencyHistogram rtt = commands.getRoundTrips();
+        out.append("Link: ").append(RoverLink.describe())
+                .append("\nCmd RTT ms p50 ").append(rtt.getValueAtPercentile(50) / 1000.0, 1)
+                .append(" p99 ").append(rtt.getValueAtPercentile(99) / 1000.0, 1)
+                .append(" max ").append(rtt.getMax() / 1000.0, 1)
+                .append("\nCmd sent ").append(commands.getSent())
+                .append(" acked ").append(commands.getAcknowledged())
+                .append(" lost ").append(commands.getLost());
+        appendBudgeted(out.append("\nStop ms p99 "), commands.getStopRoundTrips(), STOP_BUDGET_MS);
+        appendBudgeted(out.append(" HB jitter ms p99 "), heartbeatJitter, JITTER_BUDGET_MS);
+        out.append(" late ").append(heartbeatsLate)
+                .append("\nAge s");
+        TelemetryHub hub = TelemetryHub.getInstance();
+        for (SensorChannel channel : CHANNELS) {
+            long age = hub.getSampleAgeMillis(channel);
+            out.append(' ').append(channel.key()).append(' ');
+            if (age < 0) {
+                out.append('-');
+            } else {
+                out.append(age / 1000.0, 1);
+            }
+        }
+        StartupTrace.getInstance().appendSummary(out.append('\n'));
+    }
+
+    /** Full snapshot of the current figures as a JSON object. */
+    public String toJson() {
+        StringBuilder json = new StringBuilder(256);
+        json.append("{\"transport\":\"").append(RoverLink.describe()).append('"')
+                .append(",\"commands\":{\"sent\":").append(commands.getSent())
+                .append(",\"acknowledged\":").append(commands.getAcknowledged())
+                .append(",\"lost\":").append(commands.getLost());
+        appendJson(json.append(",\"rttMicros\":"), commands.getRoundTrips());
+        json.append('}');
+        appendJson(json.append(",\"stopRttMicros\":"), commands.getStopRoundTrips());
+        appendJson(json.append(",\"heartbeatJitterMicros\":"), heartbeatJitter);
+        json.append(",\"heartbeatsLate\":").append(heartbeatsLate)
+                .append(",\"telemetryAgeMillis\":{");
+        TelemetryHub hub = TelemetryHub.getInstance();
+        for (int i = 0; i < CHANNELS.length; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            long age = hub.getSampleAgeMillis(CHANNELS[i]);
+            json.append('"').append(CHANNELS[i].key()).append("\":").append(age < 0 ? "null" : Long.toString(age));
+        }
+        StartupTrace.getInstance().appendJson(json.append("},\"startupMillis\":"));
+        return json.append('}').toString();
+    }
+
+    private static void appendBudgeted(TextBuffer out, LatencyHistogram micros, long budgetMillis) {
+        long p99 = micros.getValueAtPercentile(99);
+        out.append(p99 / 1000.0, 1);
+        if (p99 > budgetMillis * 1000) {
+            out.append('!');
+        }
+    }
+
+    private static void appendJson(StringBuilder json, LatencyHistogram micros) {
+        json.append("{\"count\":").append(micros.getTotalCount())
+                .append(",\"p50\":").append(micros.getValueAtPercentile(50))
+                .append(",\"p99\":").append(micros.getValueAtPercentile(99))
+                .append(",\"max\":").append(micros.getMax())
+                .append('}');
+    }
+}
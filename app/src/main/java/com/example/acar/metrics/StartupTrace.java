@@ -0,0 +1,107 @@
+package com.example.acar.metrics;
+
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.MainThread;
+
+import com.example.acar.readout.TextBuffer;
+
+/**
+ * Milestones of a cold start, in milliseconds since the process started,
+ * from launch to the first live telemetry on a control screen. Each phase
+ * is recorded once, the first time it is reached, and logged under the
+ * {@code StartupTrace} tag so a launch can be timed from logcat alone.
+ * The debug overlay and its JSON export show them too.
+ */
+@MainThread
+public final class StartupTrace {
+
+    private static final String TAG = "StartupTrace";
+
+    public enum Phase {
+        /** Process-wide state set up in the Application. */
+        APP_CREATED("app"),
+        /** Login form shown: no session to restore. */
+        LOGIN_SHOWN("login"),
+        /** Mode selection shown, straight away or after signing in. */
+        MODES_SHOWN("modes"),
+        /** Realtime Database connection open. */
+        DATABASE_CONNECTED("db"),
+        /** First copy of the rover's sensors in the local cache. */
+        SENSORS_SYNCED("sensors"),
+        /** A control screen created. */
+        CONTROL_SCREEN("screen"),
+        /** First sample delivered to a screen. */
+        FIRST_TELEMETRY("live");
+
+        private final String key;
+
+        Phase(String key) {
+            this.key = key;
+        }
+    }
+
+    private static final Phase[] PHASES = Phase.values();
+    private static StartupTrace instance;
+
+    // Milliseconds since process start per phase, -1 until reached
+    private final long[] reached = new long[PHASES.length];
+
+    private StartupTrace() {
+        for (int i = 0; i < reached.length; i++) {
+            reached[i] = -1;
+        }
+    }
+
+    public static synchronized StartupTrace getInstance() {
+        if (instance == null) {
+            instance = new StartupTrace();
+        }
+        return instance;
+    }
+
+    /** Records {@code phase} as reached now, unless it was reached before. */
+    public void mark(Phase phase) {
+        if (reached[phase.ordinal()] >= 0) {
+            return;
+        }
+        long millis = SystemClock.elapsedRealtime() - Process.getStartElapsedRealtime();
+        reached[phase.ordinal()] = millis;
+        Log.i(TAG, phase.key + " at " + millis + " ms");
+    }
+
+    /** Milliseconds from process start to {@code phase}, or -1 if not reached. */
+    public long get(Phase phase) {
+        return reached[phase.ordinal()];
+    }
+
+    /** One line of the phases reached so far. */
+    public void appendSummary(TextBuffer out) {
+        out.append("Start ms");
+        for (Phase phase : PHASES) {
+            long millis = reached[phase.ordinal()];
+            if (millis >= 0) {
+                out.append(' ').append(phase.key).append(' ').append(millis);
+            }
+        }
+    }
+
+    /** The phases reached so far as a JSON object. */
+    public void appendJson(StringBuilder json) {
+        json.append('{');
+        boolean first = true;
+        for (Phase phase : PHASES) {
+            long millis = reached[phase.ordinal()];
+            if (millis >= 0) {
+                if (!first) {
+                    json.append(',');
+                }
+                json.append('"').append(phase.key).append("\":").append(millis);
+                first = false;
+            }
+        }
+        json.append('}');
+    }
+}
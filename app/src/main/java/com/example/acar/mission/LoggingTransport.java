@@ -0,0 +1,143 @@
+package com.example.acar.mission;
+
+import android.os.SystemClock;
+
+import com.example.acar.telemetry.SensorChannel;
+import com.example.acar.telemetry.TelemetryListener;
+import com.example.acar.telemetry.TelemetryRates;
+import com.example.acar.transport.RoverTransport;
+
+/**
+ * Passes everything through to another transport while appending every
+ * command and every decoded sample to a {@link MissionLogWriter}.
+ */
+public class LoggingTransport implements RoverTransport {
+
+    private final RoverTransport delegate;
+    private final MissionLogWriter writer;
+    // Age of the batched sample being delivered, and the latest time a sample was logged at
+    private long sampleAge;
+    private long lastSampleTime;
+
+    public LoggingTransport(RoverTransport delegate, MissionLogWriter writer) {
+        this.delegate = delegate;
+        this.writer = writer;
+    }
+
+    public RoverTransport getDelegate() {
+        return delegate;
+    }
+
+    @Override
+    public void sendCommand(int sequence, String command, Completion completion) {
+        writer.append(MissionRecord.TYPE_COMMAND, MissionRecord.commandCode(command), sequence, 0, 0);
+        delegate.sendCommand(sequence, command, completion);
+    }
+
+    @Override
+    public void setAckListener(AckListener listener) {
+        delegate.setAckListener(listener);
+    }
+
+    @Override
+    public void setControlMode(String mode, Completion completion) {
+        writer.append(MissionRecord.TYPE_MODE, MissionRecord.modeCode(mode), 0, 0, 0);
+        delegate.setControlMode(mode, completion);
+    }
+
+    @Override
+    public void sendDrive(int sequence, float throttle, float steer, Completion completion) {
+        writer.append(MissionRecord.TYPE_DRIVE, (byte) 0, sequence, throttle, steer);
+        delegate.sendDrive(sequence, throttle, steer, completion);
+    }
+
+    @Override
+    public void sendHeartbeat(int beat, long deadlineMillis, Completion completion) {
+        delegate.sendHeartbeat(beat, deadlineMillis, completion);
+    }
+
+    @Override
+    public void endHeartbeat() {
+        delegate.endHeartbeat();
+    }
+
+    @Override
+    public void emergencyStop(int sequence, Completion completion) {
+        writer.append(MissionRecord.TYPE_COMMAND, MissionRecord.commandCode("stop"), sequence, 0, 0);
+        delegate.emergencyStop(sequence, completion);
+    }
+
+    @Override
+    public void setTelemetryRates(TelemetryRates rates, Completion completion) {
+        delegate.setTelemetryRates(rates, completion);
+    }
+
+    @Override
+    public void startTelemetry(TelemetryListener sink) {
+        delegate.startTelemetry(new TelemetryListener() {
+            @Override
+            public void onClimate(double temperature, double humidity) {
+                sample(SensorChannel.CLIMATE, temperature, humidity);
+                sink.onClimate(temperature, humidity);
+            }
+
+            @Override
+            public void onGps(double latitude, double longitude) {
+                sample(SensorChannel.GPS, latitude, longitude);
+                sink.onGps(latitude, longitude);
+            }
+
+            @Override
+            public void onRain(boolean raining) {
+                sample(SensorChannel.RAIN, raining ? 1 : 0, 0);
+                sink.onRain(raining);
+            }
+
+            @Override
+            public void onMoisture(int moisture) {
+                sample(SensorChannel.MOISTURE, moisture, 0);
+                sink.onMoisture(moisture);
+            }
+
+            @Override
+            public void onObstacle(double distanceCm, boolean leftBlocked, boolean rightBlocked) {
+                sample(SensorChannel.OBSTACLE, distanceCm, MissionRecord.obstacleFlags(leftBlocked, rightBlocked));
+                sink.onObstacle(distanceCm, leftBlocked, rightBlocked);
+            }
+
+            @Override
+            public void onImu(double yawRate, double heading) {
+                sample(SensorChannel.IMU, yawRate, heading);
+                sink.onImu(yawRate, heading);
+            }
+
+            @Override
+            public void onSampleAge(long millis) {
+                sampleAge = millis;
+                sink.onSampleAge(millis);
+            }
+
+            @Override
+            public void onChannelUnavailable(SensorChannel channel) {
+                writer.append(MissionRecord.TYPE_UNAVAILABLE, (byte) channel.ordinal(), 0, 0, 0);
+                sink.onChannelUnavailable(channel);
+            }
+        });
+    }
+
+    @Override
+    public void stopTelemetry() {
+        delegate.stopTelemetry();
+    }
+
+    @Override
+    public boolean isConnected() {
+        return delegate.isConnected();
+    }
+
+    private void sample(SensorChannel channel, double a, double b) {
+        // Batched samples are logged at the time they were taken, so a replay keeps their spacing
+        lastSampleTime = Math.max(lastSampleTime, SystemClock.elapsedRealtime() - sampleAge);
+        writer.append(lastSampleTime, MissionRecord.TYPE_SAMPLE, (byte) channel.ordinal(), 0, a, b);
+    }
+}
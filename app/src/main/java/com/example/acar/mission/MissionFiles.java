@@ -0,0 +1,67 @@
+package com.example.acar.mission;
+
+import android.content.Context;
+
+import java.io.File;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Locale;
+
+/**
+ * Where mission logs live and how many are kept.
+ */
+public final class MissionFiles {
+
+    private static final String DIRECTORY = "missions";
+    private static final String SUFFIX = ".acl";
+    private static final int MAX_LOGS = 20;
+
+    private MissionFiles() {
+    }
+
+    /** A fresh log file named after the current time. */
+    public static File newLog(Context context) {
+        String stamp = new SimpleDateFormat("yyyyMMdd-HHmmss", Locale.US).format(new Date());
+        return new File(directory(context), "mission-" + stamp + SUFFIX);
+    }
+
+    /** The most recent log other than {@code exclude}, or null if there is none. */
+    public static File latest(Context context, File exclude) {
+        File[] logs = list(context);
+        for (int i = logs.length - 1; i >= 0; i--) {
+            if (!logs[i].equals(exclude) && logs[i].length() > MissionRecord.HEADER_SIZE) {
+                return logs[i];
+            }
+        }
+        return null;
+    }
+
+    /** Deletes the oldest logs so at most {@code MAX_LOGS - 1} remain before a new one starts. */
+    public static void prune(Context context) {
+        File[] logs = list(context);
+        for (int i = 0; i < logs.length - (MAX_LOGS - 1); i++) {
+            //noinspection ResultOfMethodCallIgnored
+            logs[i].delete();
+        }
+    }
+
+    private static File directory(Context context) {
+        File dir = new File(context.getFilesDir(), DIRECTORY);
+        if (!dir.isDirectory()) {
+            //noinspection ResultOfMethodCallIgnored
+            dir.mkdirs();
+        }
+        return dir;
+    }
+
+    // Names sort chronologically thanks to the timestamp format
+    private static File[] list(Context context) {
+        File[] logs = directory(context).listFiles((dir, name) -> name.endsWith(SUFFIX));
+        if (logs == null) {
+            return new File[0];
+        }
+        Arrays.sort(logs);
+        return logs;
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.acar.mission;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * Reads a mission log through a read-only memory mapping. Records are
+ * addressed by index and located by time with a binary search, so opening
+ * and seeking cost the same whatever the log size.
+ */
+public final class MissionLogReader implements Closeable {
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final long startTime;
+    private final long startElapsed;
+    private final int count;
+
+    public MissionLogReader(File file) throws IOException {
+        channel = new RandomAccessFile(file, "r").getChannel();
+        long size = channel.size();
+        if (size < MissionRecord.HEADER_SIZE) {
+            channel.close();
+            throw new IOException("Not a mission log: " + file);
+        }
+        buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        byte[] magic = new byte[MissionRecord.MAGIC.length];
+        for (int i = 0; i < magic.length; i++) {
+            magic[i] = buffer.get(i);
+        }
+        if (!Arrays.equals(magic, MissionRecord.MAGIC)
+                || (buffer.getInt(8) != MissionRecord.VERSION && buffer.getInt(8) != MissionRecord.VERSION_WALL_CLOCK)
+                || buffer.getInt(12) != MissionRecord.RECORD_SIZE) {
+            channel.close();
+            throw new IOException("Unsupported mission log: " + file);
+        }
+        startTime = buffer.getLong(16);
+        // Older logs are stamped with the wall clock itself
+        startElapsed = buffer.getInt(8) == MissionRecord.VERSION_WALL_CLOCK ? startTime : buffer.getLong(24);
+        // A partially written trailing record is ignored
+        count = (int) ((size - MissionRecord.HEADER_SIZE) / MissionRecord.RECORD_SIZE);
+    }
+
+    /** Wall-clock time the log was started. */
+    public long getStartTime() {
+        return startTime;
+    }
+
+    /** Added to a record time, gives the wall-clock time it was recorded at. */
+    public long getWallClockOffset() {
+        return startTime - startElapsed;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    /** Timestamp of record {@code index} without decoding the rest of it. */
+    public long timeAt(int index) {
+        return buffer.getLong(offset(index));
+    }
+
+    /** Decodes record {@code index} into {@code out} and returns it. */
+    public MissionRecord read(int index, MissionRecord out) {
+        int offset = offset(index);
+        ByteBuffer b = buffer;
+        out.time = b.getLong(offset);
+        out.type = b.get(offset + 8);
+        out.code = b.get(offset + 9);
+        out.extra = b.getInt(offset + 12);
+        out.a = b.getDouble(offset + 16);
+        out.b = b.getDouble(offset + 24);
+        return out;
+    }
+
+    /** Index of the first record at or after {@code time}, or {@link #size()} if none. */
+    public int indexAtOrAfter(long time) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (timeAt(mid) < time) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private int offset(int index) {
+        if (index < 0 || index >= count) {
+            throw new IndexOutOfBoundsException("Record " + index + " of " + count);
+        }
+        return MissionRecord.HEADER_SIZE + index * MissionRecord.RECORD_SIZE;
+    }
+}
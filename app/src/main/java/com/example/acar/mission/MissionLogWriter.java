@@ -0,0 +1,235 @@
+package com.example.acar.mission;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Append-only writer for the mission log format described in
+ * {@link MissionRecord}.
+ *
+ * <p>Callers on any thread copy records into an in-memory buffer, which is
+ * cheap and never touches the disk. A background thread swaps buffers and
+ * writes the full one out every {@link #FLUSH_INTERVAL_MS}, or sooner once it
+ * fills up. If both buffers are full the record is dropped and counted rather
+ * than blocking the caller.</p>
+ */
+public final class MissionLogWriter {
+
+    private static final String TAG = "MissionLogWriter";
+
+    static final long FLUSH_INTERVAL_MS = 1000;
+    private static final int BUFFER_RECORDS = 2048;
+
+    private volatile File file;
+    // Only used on the flusher thread, and by close once it has stopped
+    private FileChannel channel;
+    private final ScheduledExecutorService flusher;
+
+    private final Object lock = new Object();
+    private ByteBuffer filling = ByteBuffer.allocate(BUFFER_RECORDS * MissionRecord.RECORD_SIZE);
+    private ByteBuffer draining = ByteBuffer.allocate(BUFFER_RECORDS * MissionRecord.RECORD_SIZE);
+    private boolean drainBusy;
+    private boolean closed;
+    private long written;
+    private long dropped;
+
+    private final Runnable drainTask = this::drain;
+
+    /** Creates {@code file} (replacing any previous content) and writes the header. */
+    public MissionLogWriter(File file) throws IOException {
+        channel = create(file);
+        this.file = file;
+        flusher = startFlusher();
+    }
+
+    /**
+     * Like {@link #MissionLogWriter(File)}, but {@code prepare} picks the
+     * file and it is created on the writer's own thread, so the writer can
+     * be set up from the main thread. Records appended meanwhile wait in
+     * the buffer. If preparing or creating fails, appends are ignored.
+     */
+    public MissionLogWriter(Callable<File> prepare) {
+        flusher = startFlusher();
+        flusher.execute(() -> {
+            try {
+                File prepared = prepare.call();
+                channel = create(prepared);
+                file = prepared;
+            } catch (Exception e) {
+                Log.e(TAG, "Could not open mission log, continuing without recording", e);
+                synchronized (lock) {
+                    closed = true;
+                }
+            }
+        });
+    }
+
+    /** The file written to, or null while it is still being created. */
+    public File getFile() {
+        return file;
+    }
+
+    /** Appends one record stamped with the current {@link SystemClock#elapsedRealtime()}. */
+    public void append(byte type, byte code, int extra, double a, double b) {
+        append(SystemClock.elapsedRealtime(), type, code, extra, a, b);
+    }
+
+    /** Appends one record with an explicit elapsed-realtime timestamp, in milliseconds. */
+    public void append(long time, byte type, byte code, int extra, double a, double b) {
+        synchronized (lock) {
+            if (closed) {
+                return;
+            }
+            if (filling.remaining() < MissionRecord.RECORD_SIZE) {
+                if (!swapLocked()) {
+                    dropped++;
+                    return;
+                }
+                flusher.execute(drainTask);
+            }
+            filling.putLong(time)
+                    .put(type)
+                    .put(code)
+                    .putShort((short) 0)
+                    .putInt(extra)
+                    .putDouble(a)
+                    .putDouble(b);
+        }
+    }
+
+    /** Records written to disk so far. */
+    public long getWrittenCount() {
+        synchronized (lock) {
+            return written;
+        }
+    }
+
+    /** Records dropped because the disk could not keep up. */
+    public long getDroppedCount() {
+        synchronized (lock) {
+            return dropped;
+        }
+    }
+
+    /** Writes everything buffered so far and waits for it to reach the file. */
+    public void flush() {
+        try {
+            flusher.submit(this::flushPeriodically).get();
+        } catch (Exception e) {
+            Log.w(TAG, "Flush failed", e);
+        }
+    }
+
+    /** Flushes pending records and closes the file. */
+    public void close() {
+        synchronized (lock) {
+            if (closed) {
+                return;
+            }
+        }
+        flush();
+        synchronized (lock) {
+            closed = true;
+        }
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(FLUSH_INTERVAL_MS, TimeUnit.MILLISECONDS);
+            if (channel != null) {
+                channel.close();
+            }
+        } catch (IOException | InterruptedException e) {
+            Log.w(TAG, "Failed to close mission log", e);
+        }
+    }
+
+    private static FileChannel create(File file) throws IOException {
+        // Streams rather than FileChannel.open, which needs API 26; this truncates the same way
+        FileChannel channel = new FileOutputStream(file).getChannel();
+        ByteBuffer header = ByteBuffer.allocate(MissionRecord.HEADER_SIZE);
+        header.put(MissionRecord.MAGIC)
+                .putInt(MissionRecord.VERSION)
+                .putInt(MissionRecord.RECORD_SIZE)
+                .putLong(System.currentTimeMillis())
+                .putLong(SystemClock.elapsedRealtime());
+        header.position(0);
+        try {
+            channel.write(header);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        return channel;
+    }
+
+    private ScheduledExecutorService startFlusher() {
+        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "mission-log");
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::flushPeriodically, FLUSH_INTERVAL_MS, FLUSH_INTERVAL_MS,
+                TimeUnit.MILLISECONDS);
+        return executor;
+    }
+
+    private void flushPeriodically() {
+        synchronized (lock) {
+            if (!swapLocked()) {
+                return;
+            }
+        }
+        drain();
+    }
+
+    // Hands the filling buffer to the flusher; only possible while it is idle
+    private boolean swapLocked() {
+        if (drainBusy || filling.position() == 0) {
+            return false;
+        }
+        ByteBuffer full = filling;
+        filling = draining;
+        draining = full;
+        drainBusy = true;
+        return true;
+    }
+
+    private void drain() {
+        ByteBuffer buffer;
+        synchronized (lock) {
+            if (!drainBusy) {
+                return;
+            }
+            buffer = draining;
+        }
+        int records = buffer.position() / MissionRecord.RECORD_SIZE;
+        buffer.flip();
+        if (channel == null) {
+            // The file could not be created
+            records = 0;
+        } else {
+            try {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            } catch (IOException e) {
+                Log.e(TAG, "Failed to write mission log", e);
+                records = 0;
+            }
+        }
+        buffer.clear();
+        synchronized (lock) {
+            written += records;
+            drainBusy = false;
+        }
+    }
+}
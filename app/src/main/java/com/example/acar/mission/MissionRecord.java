@@ -0,0 +1,108 @@
+package com.example.acar.mission;
+
+/**
+ * One fixed-size entry of a mission log, and the on-disk layout shared by
+ * {@link MissionLogWriter} and {@link MissionLogReader}.
+ *
+ * <pre>
+ * header (32 bytes):  magic "ACARLOG1" | int version | int record size | long start time (epoch ms) | long start elapsed (ms)
+ * record (32 bytes):  long time (elapsed ms) | byte type | byte code | short reserved | int extra | double a | double b
+ * </pre>
+ *
+ * Record times come from {@link android.os.SystemClock#elapsedRealtime()},
+ * which never steps backwards, so they stay sorted for the reader's binary
+ * search; the header pairs it with the wall clock at the start. Version 1
+ * logs stamped records with the wall clock and left the last header field
+ * unused. All values are big-endian. For samples {@code code} is the
+ * {@link com.example.acar.telemetry.SensorChannel} ordinal; for commands it is
+ * one of the {@code COMMAND_*} codes.
+ */
+public final class MissionRecord {
+
+    static final byte[] MAGIC = {'A', 'C', 'A', 'R', 'L', 'O', 'G', '1'};
+    static final int VERSION = 2;
+    static final int VERSION_WALL_CLOCK = 1;
+    public static final int HEADER_SIZE = 32;
+    public static final int RECORD_SIZE = 32;
+
+    /**
+     * Sensor sample: a/b carry the values (temperature/humidity, lat/lon, rain 0/1, moisture,
+     * obstacle distance and {@code OBSTACLE_*} flags, yaw rate/heading).
+     */
+    public static final byte TYPE_SAMPLE = 1;
+    /** Sensor channel went away. */
+    public static final byte TYPE_UNAVAILABLE = 2;
+    /** Discrete command; extra is the command sequence number. */
+    public static final byte TYPE_COMMAND = 3;
+    /** Continuous drive tuple; extra is the sequence, a/b throttle and steer. */
+    public static final byte TYPE_DRIVE = 4;
+    /** Control mode change; code is one of the MODE_* codes. */
+    public static final byte TYPE_MODE = 5;
+
+    /** Flags stored in b of an obstacle sample. */
+    public static final int OBSTACLE_LEFT = 1, OBSTACLE_RIGHT = 2;
+
+    private static final String[] COMMANDS = {"unknown", "forward", "backward", "left", "right", "stop"};
+    private static final String[] MODES = {"unknown", "manual", "autonomous"};
+
+    long time;
+    byte type;
+    byte code;
+    int extra;
+    double a;
+    double b;
+
+    public long getTime() {
+        return time;
+    }
+
+    public byte getType() {
+        return type;
+    }
+
+    public byte getCode() {
+        return code;
+    }
+
+    public int getExtra() {
+        return extra;
+    }
+
+    public double getA() {
+        return a;
+    }
+
+    public double getB() {
+        return b;
+    }
+
+    public static int obstacleFlags(boolean leftBlocked, boolean rightBlocked) {
+        return (leftBlocked ? OBSTACLE_LEFT : 0) | (rightBlocked ? OBSTACLE_RIGHT : 0);
+    }
+
+    /** Code stored for a command word; unknown words map to 0. */
+    public static byte commandCode(String command) {
+        return (byte) indexOf(COMMANDS, command);
+    }
+
+    public static String commandName(byte code) {
+        return code >= 0 && code < COMMANDS.length ? COMMANDS[code] : COMMANDS[0];
+    }
+
+    public static byte modeCode(String mode) {
+        return (byte) indexOf(MODES, mode);
+    }
+
+    public static String modeName(byte code) {
+        return code >= 0 && code < MODES.length ? MODES[code] : MODES[0];
+    }
+
+    private static int indexOf(String[] names, String name) {
+        for (int i = 1; i < names.length; i++) {
+            if (names[i].equals(name)) {
+                return i;
+            }
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,173 @@
+package com.example.acar.mission;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.example.acar.telemetry.SensorChannel;
+import com.example.acar.telemetry.TelemetryListener;
+import com.example.acar.telemetry.TelemetryRates;
+import com.example.acar.transport.RoverTransport;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Plays a recorded mission back as if it were a live rover: samples are
+ * delivered to the telemetry sink with their original spacing. Commands are
+ * not sent anywhere while replaying.
+ */
+public class ReplayTransport implements RoverTransport {
+
+    private static final String TAG = "ReplayTransport";
+    private static final SensorChannel[] CHANNELS = SensorChannel.values();
+
+    private final File file;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final MissionRecord record = new MissionRecord();
+
+    private MissionLogReader reader;
+    private TelemetryListener sink;
+    private int nextIndex;
+    private long logStart;
+    private long playbackStart;
+
+    private final Runnable step = this::step;
+
+    public ReplayTransport(File file) {
+        this.file = file;
+    }
+
+    @Override
+    public void sendCommand(int sequence, String command, Completion completion) {
+        rejected(completion);
+    }
+
+    @Override
+    public void setAckListener(AckListener listener) {
+        // Replays never produce acks
+    }
+
+    @Override
+    public void setControlMode(String mode, Completion completion) {
+        rejected(completion);
+    }
+
+    @Override
+    public void sendDrive(int sequence, float throttle, float steer, Completion completion) {
+        rejected(completion);
+    }
+
+    @Override
+    public void sendHeartbeat(int beat, long deadlineMillis, Completion completion) {
+        rejected(completion);
+    }
+
+    @Override
+    public void emergencyStop(int sequence, Completion completion) {
+        rejected(completion);
+    }
+
+    @Override
+    public void setTelemetryRates(TelemetryRates rates, Completion completion) {
+        // A recording plays back as it was recorded
+        if (completion != null) {
+            handler.post(() -> completion.onComplete(null));
+        }
+    }
+
+    @Override
+    public void startTelemetry(TelemetryListener sink) {
+        this.sink = sink;
+        try {
+            reader = new MissionLogReader(file);
+        } catch (IOException e) {
+            Log.e(TAG, "Cannot open mission log " + file, e);
+            return;
+        }
+        nextIndex = 0;
+        logStart = reader.size() > 0 ? reader.timeAt(0) : 0;
+        playbackStart = SystemClock.uptimeMillis();
+        step();
+    }
+
+    @Override
+    public void stopTelemetry() {
+        handler.removeCallbacks(step);
+        sink = null;
+        if (reader != null) {
+            try {
+                reader.close();
+            } catch (IOException e) {
+                Log.w(TAG, "Failed to close mission log", e);
+            }
+            reader = null;
+        }
+    }
+
+    @Override
+    public boolean isConnected() {
+        return false;
+    }
+
+    private void step() {
+        if (reader == null || sink == null) {
+            return;
+        }
+        long due = logStart + (SystemClock.uptimeMillis() - playbackStart);
+        int size = reader.size();
+        while (nextIndex < size && reader.timeAt(nextIndex) <= due) {
+            deliver(reader.read(nextIndex++, record));
+        }
+        if (nextIndex < size) {
+            handler.postDelayed(step, reader.timeAt(nextIndex) - due);
+        } else {
+            Log.d(TAG, "Replay of " + file.getName() + " finished");
+        }
+    }
+
+    private void deliver(MissionRecord record) {
+        int code = record.getCode();
+        if (code < 0 || code >= CHANNELS.length) {
+            return;
+        }
+        SensorChannel channel = CHANNELS[code];
+        if (record.getType() == MissionRecord.TYPE_UNAVAILABLE) {
+            sink.onChannelUnavailable(channel);
+            return;
+        }
+        if (record.getType() != MissionRecord.TYPE_SAMPLE) {
+            return;
+        }
+        switch (channel) {
+            case CLIMATE:
+                sink.onClimate(record.getA(), record.getB());
+                break;
+            case GPS:
+                sink.onGps(record.getA(), record.getB());
+                break;
+            case RAIN:
+                sink.onRain(record.getA() != 0);
+                break;
+            case MOISTURE:
+                sink.onMoisture((int) record.getA());
+                break;
+            case OBSTACLE: {
+                int flags = (int) record.getB();
+                sink.onObstacle(record.getA(), (flags & MissionRecord.OBSTACLE_LEFT) != 0,
+                        (flags & MissionRecord.OBSTACLE_RIGHT) != 0);
+                break;
+            }
+            case IMU:
+                sink.onImu(record.getA(), record.getB());
+                break;
+        }
+    }
+
+    private void rejected(Completion completion) {
+        if (completion != null) {
+            handler.post(() -> completion.onComplete(new IllegalStateException("Replaying a recorded mission")));
+        }
+    }
+}
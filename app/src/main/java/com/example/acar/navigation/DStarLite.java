@@ -0,0 +1,332 @@
+package com.example.acar.navigation;
+
+import java.util.Arrays;
+
+/**
+ * D* Lite (Koenig and Likhachev) over an {@link OccupancyGrid} with
+ * 8-connected moves. The search runs backwards from the goal, so when the
+ * rover moves or cells change only the affected part of the cost field is
+ * repaired instead of planning again from scratch. State lives in
+ * per-cell primitive arrays and an indexed binary heap, allocated once.
+ *
+ * <p>Diagonal moves may not cut past a blocked corner. Costs are in cells:
+ * 1 straight, sqrt(2) diagonally, plus a penalty for entering a cell next to
+ * an obstacle so paths keep clear of walls where there is room.</p>
+ */
+public final class DStarLite {
+
+    private static final float INF = Float.POSITIVE_INFINITY;
+    private static final float SQRT2 = (float) Math.sqrt(2);
+    private static final int[] DX = {1, 1, 0, -1, -1, -1, 0, 1};
+    private static final int[] DY = {0, 1, 1, 1, 0, -1, -1, -1};
+    private static final float NEAR_OBSTACLE_PENALTY = 3;
+
+    private final OccupancyGrid grid;
+    private final int size;
+    private final float[] g;
+    private final float[] rhs;
+    private final float[] key1;
+    private final float[] key2;
+    private final int[] heap;
+    private final int[] heapIndex;
+    private int heapSize;
+
+    private int start = -1;
+    private int goal = -1;
+    private float km;
+    private int expansions;
+
+    public DStarLite(OccupancyGrid grid) {
+        this.grid = grid;
+        this.size = grid.size();
+        int cells = grid.cellCount();
+        g = new float[cells];
+        rhs = new float[cells];
+        key1 = new float[cells];
+        key2 = new float[cells];
+        heap = new int[cells];
+        heapIndex = new int[cells];
+    }
+
+    public int getStart() {
+        return start;
+    }
+
+    public int getGoal() {
+        return goal;
+    }
+
+    /** Cells expanded by the last {@link #computeShortestPath()}. */
+    public int getExpansions() {
+        return expansions;
+    }
+
+    /** Forgets all search state and plans from {@code start} to {@code goal} anew. */
+    public void reset(int start, int goal) {
+        Arrays.fill(g, INF);
+        Arrays.fill(rhs, INF);
+        Arrays.fill(heapIndex, -1);
+        heapSize = 0;
+        km = 0;
+        this.start = start;
+        this.goal = goal;
+        rhs[goal] = 0;
+        insert(goal, h(start, goal), 0);
+    }
+
+    /** The rover is now in {@code cell}. */
+    public void moveStart(int cell) {
+        if (cell == start) {
+            return;
+        }
+        // Keys already queued were computed from the old start; km keeps them lower bounds
+        km += h(start, cell);
+        start = cell;
+    }
+
+    /** The blocked state of these cells changed since the last call. */
+    public void cellsChanged(int[] cells, int count) {
+        for (int i = 0; i < count; i++) {
+            int cx = cells[i] % size;
+            int cy = cells[i] / size;
+            // The change also moved the near-obstacle ring around the cell, so every
+            // cell with an edge into that ring needs its rhs recomputed
+            for (int ny = Math.max(0, cy - 2); ny <= Math.min(size - 1, cy + 2); ny++) {
+                for (int nx = Math.max(0, cx - 2); nx <= Math.min(size - 1, cx + 2); nx++) {
+                    updateVertex(ny * size + nx);
+                }
+            }
+        }
+    }
+
+    /** Repairs the cost field until the start cell's cost is final. */
+    public void computeShortestPath() {
+        computeShortestPath(Integer.MAX_VALUE);
+    }
+
+    /**
+     * Like {@link #computeShortestPath()}, but gives up after expanding
+     * {@code maxExpansions} cells. The work done is kept; calling again
+     * carries on where it stopped.
+     *
+     * @return true if the start cell's cost is final, false if the budget ran out
+     */
+    public boolean computeShortestPath(int maxExpansions) {
+        expansions = 0;
+        while (heapSize > 0) {
+            int u = heap[0];
+            float startKey1 = Math.min(g[start], rhs[start]) + km;
+            float startKey2 = Math.min(g[start], rhs[start]);
+            if (!less(key1[u], key2[u], startKey1, startKey2) && rhs[start] == g[start]) {
+                break;
+            }
+            if (expansions == maxExpansions) {
+                return false;
+            }
+            expansions++;
+            float new1 = Math.min(g[u], rhs[u]) + h(start, u) + km;
+            float new2 = Math.min(g[u], rhs[u]);
+            if (less(key1[u], key2[u], new1, new2)) {
+                key1[u] = new1;
+                key2[u] = new2;
+                siftDown(0);
+            } else if (g[u] > rhs[u]) {
+                g[u] = rhs[u];
+                remove(u);
+                updateNeighbours(u);
+            } else {
+                g[u] = INF;
+                updateVertex(u);
+                updateNeighbours(u);
+            }
+        }
+        return true;
+    }
+
+    /** Cost from {@code cell} to the goal in cells, infinite if unreachable. */
+    public float costToGoal(int cell) {
+        return Math.min(g[cell], rhs[cell]);
+    }
+
+    /** Best neighbour to move to from {@code cell}, or -1 if there is none. */
+    public int nextStep(int cell) {
+        if (cell == goal) {
+            return -1;
+        }
+        int cx = cell % size;
+        int cy = cell / size;
+        int best = -1;
+        float bestCost = INF;
+        for (int d = 0; d < 8; d++) {
+            int nx = cx + DX[d];
+            int ny = cy + DY[d];
+            if (!grid.inside(nx, ny)) {
+                continue;
+            }
+            float cost = cost(cx, cy, d) + g[ny * size + nx];
+            if (cost < bestCost) {
+                bestCost = cost;
+                best = ny * size + nx;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Writes the path from the start cell into {@code out}, start excluded,
+     * stopping at the goal or when {@code out} is full.
+     *
+     * @return the number of cells written
+     */
+    public int path(int[] out) {
+        int count = 0;
+        int cell = start;
+        while (count < out.length && cell != goal) {
+            cell = nextStep(cell);
+            if (cell < 0) {
+                break;
+            }
+            out[count++] = cell;
+        }
+        return count;
+    }
+
+    private void updateNeighbours(int u) {
+        int cx = u % size;
+        int cy = u / size;
+        for (int d = 0; d < 8; d++) {
+            int nx = cx + DX[d];
+            int ny = cy + DY[d];
+            if (grid.inside(nx, ny)) {
+                updateVertex(ny * size + nx);
+            }
+        }
+    }
+
+    private void updateVertex(int u) {
+        if (u != goal) {
+            int cx = u % size;
+            int cy = u / size;
+            float best = INF;
+            for (int d = 0; d < 8; d++) {
+                int nx = cx + DX[d];
+                int ny = cy + DY[d];
+                if (grid.inside(nx, ny)) {
+                    best = Math.min(best, cost(cx, cy, d) + g[ny * size + nx]);
+                }
+            }
+            rhs[u] = best;
+        }
+        boolean queued = heapIndex[u] >= 0;
+        if (g[u] != rhs[u]) {
+            float k2 = Math.min(g[u], rhs[u]);
+            float k1 = k2 + h(start, u) + km;
+            if (queued) {
+                update(u, k1, k2);
+            } else {
+                insert(u, k1, k2);
+            }
+        } else if (queued) {
+            remove(u);
+        }
+    }
+
+    private float cost(int cx, int cy, int direction) {
+        int nx = cx + DX[direction];
+        int ny = cy + DY[direction];
+        if (grid.isBlocked(cx, cy) || grid.isBlocked(nx, ny)) {
+            return INF;
+        }
+        float penalty = grid.isNearObstacle(nx, ny) ? NEAR_OBSTACLE_PENALTY : 0;
+        if ((direction & 1) == 0) {
+            return 1 + penalty;
+        }
+        // No squeezing diagonally between two blocked cells or past one
+        if (grid.isBlocked(nx, cy) || grid.isBlocked(cx, ny)) {
+            return INF;
+        }
+        return SQRT2 + penalty;
+    }
+
+    /** Octile distance, admissible for 8-connected moves. */
+    private float h(int a, int b) {
+        int dx = Math.abs(a % size - b % size);
+        int dy = Math.abs(a / size - b / size);
+        return Math.max(dx, dy) + (SQRT2 - 1) * Math.min(dx, dy);
+    }
+
+    private static boolean less(float a1, float a2, float b1, float b2) {
+        return a1 < b1 || (a1 == b1 && a2 < b2);
+    }
+
+    // Indexed binary heap ordered by (key1, key2)
+
+    private void insert(int cell, float k1, float k2) {
+        key1[cell] = k1;
+        key2[cell] = k2;
+        heap[heapSize] = cell;
+        heapIndex[cell] = heapSize;
+        siftUp(heapSize++);
+    }
+
+    private void update(int cell, float k1, float k2) {
+        boolean decreased = less(k1, k2, key1[cell], key2[cell]);
+        key1[cell] = k1;
+        key2[cell] = k2;
+        if (decreased) {
+            siftUp(heapIndex[cell]);
+        } else {
+            siftDown(heapIndex[cell]);
+        }
+    }
+
+    private void remove(int cell) {
+        int index = heapIndex[cell];
+        heapIndex[cell] = -1;
+        int last = heap[--heapSize];
+        if (index == heapSize) {
+            return;
+        }
+        heap[index] = last;
+        heapIndex[last] = index;
+        siftDown(index);
+        siftUp(heapIndex[last]);
+    }
+
+    private void siftUp(int index) {
+        int cell = heap[index];
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            int other = heap[parent];
+            if (!less(key1[cell], key2[cell], key1[other], key2[other])) {
+                break;
+            }
+            heap[index] = other;
+            heapIndex[other] = index;
+            index = parent;
+        }
+        heap[index] = cell;
+        heapIndex[cell] = index;
+    }
+
+    private void siftDown(int index) {
+        int cell = heap[index];
+        int half = heapSize >>> 1;
+        while (index < half) {
+            int child = 2 * index + 1;
+            int right = child + 1;
+            if (right < heapSize && less(key1[heap[right]], key2[heap[right]], key1[heap[child]], key2[heap[child]])) {
+                child = right;
+            }
+            int other = heap[child];
+            if (!less(key1[other], key2[other], key1[cell], key2[cell])) {
+                break;
+            }
+            heap[index] = other;
+            heapIndex[other] = index;
+            index = child;
+        }
+        heap[index] = cell;
+        heapIndex[cell] = index;
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.acar.navigation;
+
+import com.example.acar.readout.TextBuffer;
+import com.example.acar.telemetry.TelemetryListener;
+
+/**
+ * Checks every GPS fix against the mission's geofences and no-go zones and
+ * reports the moment the rover breaches one. Lookups go through the
+ * {@link FenceIndex} R-trees with a reused scratch stack, so a fix costs a
+ * few box tests however many polygons the survey field has. A breach is
+ * reported once; the next is reported after a fix back inside the allowed area.
+ */
+public final class FenceGuard implements TelemetryListener {
+
+    public static final int INSIDE = 0;
+    /** Outside every geofence. */
+    public static final int OUTSIDE_GEOFENCE = 1;
+    /** Inside a no-go zone. */
+    public static final int IN_NO_GO_ZONE = 2;
+
+    /** Receives breaches on the thread that delivered the fix. */
+    public interface Listener {
+        /**
+         * @param kind {@link #OUTSIDE_GEOFENCE} or {@link #IN_NO_GO_ZONE}
+         * @param zone name of the no-go zone, or null when outside the geofences
+         */
+        void onFenceBreach(int kind, String zone);
+    }
+
+    private final Listener listener;
+    private MissionPlan plan = MissionPlan.EMPTY;
+    private int[] stack = new int[1];
+    private int status = INSIDE;
+    private String zone;
+    private long lastCheckNanos;
+
+    public FenceGuard(Listener listener) {
+        this.listener = listener;
+    }
+
+    /** Switches to a new mission; the next fix is checked against it. */
+    public void setPlan(MissionPlan plan) {
+        this.plan = plan;
+        int needed = Math.max(plan.geofences().stackSize(), plan.noGoZones().stackSize());
+        if (stack.length < needed) {
+            stack = new int[needed];
+        }
+        status = INSIDE;
+        zone = null;
+    }
+
+    @Override
+    public void onGps(double latitude, double longitude) {
+        if (Double.isNaN(latitude) || Double.isNaN(longitude)) {
+            return;
+        }
+        long start = System.nanoTime();
+        int previous = status;
+        check(latitude, longitude);
+        lastCheckNanos = System.nanoTime() - start;
+        if (status != INSIDE && previous == INSIDE) {
+            listener.onFenceBreach(status, zone);
+        }
+    }
+
+    private void check(double latitude, double longitude) {
+        FenceIndex noGo = plan.noGoZones();
+        int hit = noGo.find(latitude, longitude, stack);
+        if (hit >= 0) {
+            status = IN_NO_GO_ZONE;
+            zone = noGo.name(hit);
+            return;
+        }
+        zone = null;
+        FenceIndex geofences = plan.geofences();
+        // With no geofence drawn the whole field is allowed
+        status = geofences.size() > 0 && geofences.find(latitude, longitude, stack) < 0
+                ? OUTSIDE_GEOFENCE : INSIDE;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    /** Duration of the last fix check, in nanoseconds. */
+    public long getLastCheckNanos() {
+        return lastCheckNanos;
+    }
+
+    /** One line about the fences for the screen. */
+    public void appendStatus(TextBuffer out) {
+        FenceIndex geofences = plan.geofences();
+        FenceIndex noGo = plan.noGoZones();
+        if (geofences.size() == 0 && noGo.size() == 0) {
+            out.append("No fences");
+            return;
+        }
+        out.append("Fences: ").append(geofences.size()).append(" geofence, ")
+                .append(noGo.size()).append(" no-go");
+        switch (status) {
+            case OUTSIDE_GEOFENCE:
+                out.append(" · OUTSIDE GEOFENCE");
+                break;
+            case IN_NO_GO_ZONE:
+                out.append(" · IN NO-GO ZONE ").append(zone);
+                break;
+            default:
+                out.append(" · clear");
+                break;
+        }
+        if (lastCheckNanos > 0) {
+            out.append(" (").append(lastCheckNanos / 1000.0, 1).append(" µs)");
+        }
+    }
+}
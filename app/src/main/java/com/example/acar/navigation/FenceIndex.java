@@ -0,0 +1,324 @@
+package com.example.acar.navigation;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Polygons in latitude/longitude with a packed R-tree over their bounding
+ * boxes, answering "which polygon contains this fix" without testing every
+ * polygon. The tree is bulk-loaded once with Sort-Tile-Recursive packing and
+ * kept in flat arrays, so a lookup allocates nothing and touches only the
+ * few boxes around the point before running the exact point-in-polygon test.
+ * Immutable once built, so it can be shared between threads.
+ */
+public final class FenceIndex {
+
+    /** Children per tree node. */
+    private static final int NODE_CAPACITY = 8;
+
+    public static final FenceIndex EMPTY = new Builder().build();
+
+    private final String[] names;
+    // Vertices of all polygons as lat, lon pairs; polygon i spans pairs vertexStart[i]..vertexStart[i + 1]
+    private final double[] vertices;
+    private final int[] vertexStart;
+    // Bounding boxes, 4 values per polygon then per node: min lat, min lon, max lat, max lon
+    private final double[] polygonBoxes;
+    private final double[] nodeBoxes;
+    // Node n covers entries first[n] .. first[n] + count[n] - 1 of the level below:
+    // polygon ids through entryOrder for leaves (n < leafCount), node ids otherwise
+    private final int[] first;
+    private final int[] count;
+    private final int[] entryOrder;
+    private final int leafCount;
+    private final int root;
+    private final int height;
+
+    private FenceIndex(Builder builder) {
+        int polygons = builder.polygonCount;
+        names = Arrays.copyOf(builder.names, polygons);
+        vertices = Arrays.copyOf(builder.vertices, builder.vertexCount * 2);
+        vertexStart = Arrays.copyOf(builder.vertexStart, polygons + 1);
+        vertexStart[polygons] = builder.vertexCount;
+
+        polygonBoxes = new double[polygons * 4];
+        for (int i = 0; i < polygons; i++) {
+            boundPolygon(i);
+        }
+
+        // Node counts per level shrink by NODE_CAPACITY each time; size the arrays for all of them
+        int nodes = 0;
+        int levelSize = polygons;
+        int levels = 0;
+        do {
+            levelSize = (levelSize + NODE_CAPACITY - 1) / NODE_CAPACITY;
+            nodes += Math.max(1, levelSize);
+            levels++;
+        } while (levelSize > 1);
+        nodeBoxes = new double[nodes * 4];
+        first = new int[nodes];
+        count = new int[nodes];
+        height = levels;
+
+        entryOrder = new int[polygons];
+        for (int i = 0; i < polygons; i++) {
+            entryOrder[i] = i;
+        }
+        pack(entryOrder, polygonBoxes);
+        leafCount = Math.max(1, (polygons + NODE_CAPACITY - 1) / NODE_CAPACITY);
+        int built = groupLeaves();
+
+        // Upper levels: pack the nodes just built, then group them under new parents
+        int levelFirst = 0;
+        int levelCount = built;
+        while (levelCount > 1) {
+            int[] order = new int[levelCount];
+            for (int i = 0; i < levelCount; i++) {
+                order[i] = levelFirst + i;
+            }
+            pack(order, nodeBoxes);
+            // Packing reorders the level; renumber it so each parent's children stay contiguous
+            renumber(order, levelFirst);
+            int next = groupNodes(levelFirst, levelCount);
+            levelFirst += levelCount;
+            levelCount = next - levelFirst;
+        }
+        root = levelFirst;
+    }
+
+    /** Number of polygons. */
+    public int size() {
+        return names.length;
+    }
+
+    public String name(int polygon) {
+        return names[polygon];
+    }
+
+    /** Depth of the tree, for diagnostics. */
+    public int height() {
+        return height;
+    }
+
+    /** Id of a polygon containing the point, or -1 when there is none. */
+    public int find(double latitude, double longitude) {
+        if (names.length == 0) {
+            return -1;
+        }
+        return find(latitude, longitude, new int[stackSize()]);
+    }
+
+    /**
+     * As {@link #find(double, double)}, using {@code stack} as scratch space;
+     * it must hold at least {@link #stackSize()} entries.
+     */
+    public int find(double latitude, double longitude, int[] stack) {
+        if (names.length == 0) {
+            return -1;
+        }
+        int top = 0;
+        stack[top++] = root;
+        while (top > 0) {
+            int node = stack[--top];
+            if (!boxContains(nodeBoxes, node, latitude, longitude)) {
+                continue;
+            }
+            int end = first[node] + count[node];
+            if (node < leafCount) {
+                for (int i = first[node]; i < end; i++) {
+                    int polygon = entryOrder[i];
+                    if (boxContains(polygonBoxes, polygon, latitude, longitude)
+                            && contains(polygon, latitude, longitude)) {
+                        return polygon;
+                    }
+                }
+            } else {
+                for (int child = first[node]; child < end; child++) {
+                    stack[top++] = child;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /** Scratch space {@link #find(double, double, int[])} needs; each level pushes at most one node's children. */
+    public int stackSize() {
+        return height * NODE_CAPACITY + 1;
+    }
+
+    /** Exact even-odd test of one polygon, ignoring the index. */
+    public boolean contains(int polygon, double latitude, double longitude) {
+        boolean inside = false;
+        int start = vertexStart[polygon];
+        int end = vertexStart[polygon + 1];
+        double previousLat = vertices[(end - 1) * 2];
+        double previousLon = vertices[(end - 1) * 2 + 1];
+        for (int v = start; v < end; v++) {
+            double lat = vertices[v * 2];
+            double lon = vertices[v * 2 + 1];
+            if ((lat > latitude) != (previousLat > latitude)
+                    && longitude < (previousLon - lon) * (latitude - lat) / (previousLat - lat) + lon) {
+                inside = !inside;
+            }
+            previousLat = lat;
+            previousLon = lon;
+        }
+        return inside;
+    }
+
+    private void boundPolygon(int polygon) {
+        double minLat = Double.POSITIVE_INFINITY, minLon = Double.POSITIVE_INFINITY;
+        double maxLat = Double.NEGATIVE_INFINITY, maxLon = Double.NEGATIVE_INFINITY;
+        for (int v = vertexStart[polygon]; v < vertexStart[polygon + 1]; v++) {
+            double lat = vertices[v * 2];
+            double lon = vertices[v * 2 + 1];
+            minLat = Math.min(minLat, lat);
+            minLon = Math.min(minLon, lon);
+            maxLat = Math.max(maxLat, lat);
+            maxLon = Math.max(maxLon, lon);
+        }
+        int b = polygon * 4;
+        polygonBoxes[b] = minLat;
+        polygonBoxes[b + 1] = minLon;
+        polygonBoxes[b + 2] = maxLat;
+        polygonBoxes[b + 3] = maxLon;
+    }
+
+    private static boolean boxContains(double[] boxes, int index, double latitude, double longitude) {
+        int b = index * 4;
+        return latitude >= boxes[b] && longitude >= boxes[b + 1]
+                && latitude <= boxes[b + 2] && longitude <= boxes[b + 3];
+    }
+
+    /**
+     * Sort-Tile-Recursive ordering: sort by longitude, cut into vertical
+     * slices of roughly sqrt(nodes) nodes each, and sort every slice by
+     * latitude, so consecutive runs of NODE_CAPACITY entries are compact tiles.
+     */
+    private static void pack(int[] order, double[] boxes) {
+        int entries = order.length;
+        int nodes = (entries + NODE_CAPACITY - 1) / NODE_CAPACITY;
+        int slices = (int) Math.ceil(Math.sqrt(nodes));
+        int sliceSize = Math.max(1, slices) * NODE_CAPACITY;
+        Integer[] boxed = new Integer[entries];
+        for (int i = 0; i < entries; i++) {
+            boxed[i] = order[i];
+        }
+        Arrays.sort(boxed, Comparator.comparingDouble(i -> boxes[i * 4 + 1] + boxes[i * 4 + 3]));
+        for (int from = 0; from < entries; from += sliceSize) {
+            Arrays.sort(boxed, from, Math.min(entries, from + sliceSize),
+                    Comparator.comparingDouble(i -> boxes[i * 4] + boxes[i * 4 + 2]));
+        }
+        for (int i = 0; i < entries; i++) {
+            order[i] = boxed[i];
+        }
+    }
+
+    /** Groups the packed polygons into the leaf nodes; returns the number of leaves. */
+    private int groupLeaves() {
+        for (int node = 0; node < leafCount; node++) {
+            int from = node * NODE_CAPACITY;
+            int to = Math.min(entryOrder.length, from + NODE_CAPACITY);
+            first[node] = from;
+            count[node] = to - from;
+            emptyBox(node);
+            for (int i = from; i < to; i++) {
+                extend(node, polygonBoxes, entryOrder[i]);
+            }
+        }
+        return leafCount;
+    }
+
+    /**
+     * Groups the {@code levelCount} nodes starting at {@code levelFirst} under
+     * new parents placed right after them; returns the next free node.
+     */
+    private int groupNodes(int levelFirst, int levelCount) {
+        int firstNode = levelFirst + levelCount;
+        int nodes = (levelCount + NODE_CAPACITY - 1) / NODE_CAPACITY;
+        for (int n = 0; n < nodes; n++) {
+            int node = firstNode + n;
+            int from = levelFirst + n * NODE_CAPACITY;
+            int to = Math.min(levelFirst + levelCount, from + NODE_CAPACITY);
+            first[node] = from;
+            count[node] = to - from;
+            emptyBox(node);
+            for (int child = from; child < to; child++) {
+                extend(node, nodeBoxes, child);
+            }
+        }
+        return firstNode + nodes;
+    }
+
+    /** Moves the nodes of one level into the packed {@code order}, fixing up their fields. */
+    private void renumber(int[] order, int levelFirst) {
+        int levelCount = order.length;
+        double[] movedBoxes = new double[levelCount * 4];
+        int[] movedFirst = new int[levelCount];
+        int[] movedCount = new int[levelCount];
+        for (int i = 0; i < levelCount; i++) {
+            int node = order[i];
+            System.arraycopy(nodeBoxes, node * 4, movedBoxes, i * 4, 4);
+            movedFirst[i] = first[node];
+            movedCount[i] = count[node];
+        }
+        System.arraycopy(movedBoxes, 0, nodeBoxes, levelFirst * 4, levelCount * 4);
+        System.arraycopy(movedFirst, 0, first, levelFirst, levelCount);
+        System.arraycopy(movedCount, 0, count, levelFirst, levelCount);
+    }
+
+    private void emptyBox(int node) {
+        int b = node * 4;
+        nodeBoxes[b] = Double.POSITIVE_INFINITY;
+        nodeBoxes[b + 1] = Double.POSITIVE_INFINITY;
+        nodeBoxes[b + 2] = Double.NEGATIVE_INFINITY;
+        nodeBoxes[b + 3] = Double.NEGATIVE_INFINITY;
+    }
+
+    private void extend(int node, double[] boxes, int entry) {
+        int b = node * 4;
+        int e = entry * 4;
+        nodeBoxes[b] = Math.min(nodeBoxes[b], boxes[e]);
+        nodeBoxes[b + 1] = Math.min(nodeBoxes[b + 1], boxes[e + 1]);
+        nodeBoxes[b + 2] = Math.max(nodeBoxes[b + 2], boxes[e + 2]);
+        nodeBoxes[b + 3] = Math.max(nodeBoxes[b + 3], boxes[e + 3]);
+    }
+
+    /** Collects polygons and builds the index. */
+    public static final class Builder {
+        private String[] names = new String[16];
+        private int[] vertexStart = new int[17];
+        private double[] vertices = new double[128];
+        private int polygonCount;
+        private int vertexCount;
+
+        /**
+         * Adds a polygon given as latitude, longitude pairs; the ring closes
+         * implicitly. Polygons with fewer than three vertices are rejected.
+         *
+         * @return the polygon's id in the built index
+         */
+        public int add(String name, double[] latLon) {
+            if (latLon.length < 6 || latLon.length % 2 != 0) {
+                throw new IllegalArgumentException("Polygon " + name + " needs at least three lat, lon pairs");
+            }
+            if (polygonCount == names.length) {
+                names = Arrays.copyOf(names, polygonCount * 2);
+                vertexStart = Arrays.copyOf(vertexStart, polygonCount * 2 + 1);
+            }
+            int pairs = latLon.length / 2;
+            if ((vertexCount + pairs) * 2 > vertices.length) {
+                vertices = Arrays.copyOf(vertices, Math.max(vertices.length * 2, (vertexCount + pairs) * 2));
+            }
+            names[polygonCount] = name;
+            vertexStart[polygonCount] = vertexCount;
+            System.arraycopy(latLon, 0, vertices, vertexCount * 2, latLon.length);
+            vertexCount += pairs;
+            return polygonCount++;
+        }
+
+        public FenceIndex build() {
+            return new FenceIndex(this);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.acar.navigation;
+
+/**
+ * Flat metric frame around an origin fix: x metres east, y metres north.
+ * An equirectangular projection, accurate to well under a centimetre over
+ * the few hundred metres a rover covers.
+ */
+public final class LocalFrame {
+
+    private static final double METERS_PER_DEGREE = 111_320.0;
+
+    private double originLatitude = Double.NaN;
+    private double originLongitude;
+    private double metersPerDegreeLongitude;
+
+    public boolean hasOrigin() {
+        return !Double.isNaN(originLatitude);
+    }
+
+    public void setOrigin(double latitude, double longitude) {
+        originLatitude = latitude;
+        originLongitude = longitude;
+        metersPerDegreeLongitude = METERS_PER_DEGREE * Math.cos(Math.toRadians(latitude));
+    }
+
+    public double toX(double longitude) {
+        return (longitude - originLongitude) * metersPerDegreeLongitude;
+    }
+
+    public double toY(double latitude) {
+        return (latitude - originLatitude) * METERS_PER_DEGREE;
+    }
+
+    public double toLatitude(double y) {
+        return originLatitude + y / METERS_PER_DEGREE;
+    }
+
+    public double toLongitude(double x) {
+        return originLongitude + x / metersPerDegreeLongitude;
+    }
+}
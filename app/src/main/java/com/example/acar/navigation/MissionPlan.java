@@ -0,0 +1,49 @@
+package com.example.acar.navigation;
+
+/**
+ * A waypoint mission: GPS targets to drive through in order, the geofences
+ * the rover must stay inside and the no-go zones it must stay out of.
+ * Immutable; a changed mission replaces the whole plan.
+ */
+public final class MissionPlan {
+
+    public static final MissionPlan EMPTY = new MissionPlan(new double[0], new double[0],
+            FenceIndex.EMPTY, FenceIndex.EMPTY);
+
+    private final double[] waypointLatitudes;
+    private final double[] waypointLongitudes;
+    private final FenceIndex geofences;
+    private final FenceIndex noGoZones;
+
+    public MissionPlan(double[] waypointLatitudes, double[] waypointLongitudes,
+                       FenceIndex geofences, FenceIndex noGoZones) {
+        if (waypointLatitudes.length != waypointLongitudes.length) {
+            throw new IllegalArgumentException("Waypoint latitudes and longitudes differ in length");
+        }
+        this.waypointLatitudes = waypointLatitudes.clone();
+        this.waypointLongitudes = waypointLongitudes.clone();
+        this.geofences = geofences;
+        this.noGoZones = noGoZones;
+    }
+
+    public int waypointCount() {
+        return waypointLatitudes.length;
+    }
+
+    public double waypointLatitude(int index) {
+        return waypointLatitudes[index];
+    }
+
+    public double waypointLongitude(int index) {
+        return waypointLongitudes[index];
+    }
+
+    /** Areas the rover must stay inside; with none, it may go anywhere not excluded. */
+    public FenceIndex geofences() {
+        return geofences;
+    }
+
+    public FenceIndex noGoZones() {
+        return noGoZones;
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.acar.navigation;
+
+import android.util.Log;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+
+import com.example.acar.transport.RoverLink;
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseError;
+import com.google.firebase.database.DatabaseReference;
+import com.google.firebase.database.ValueEventListener;
+
+import java.util.Arrays;
+
+/**
+ * Follows the mission stored under {@code mission} in the Realtime Database,
+ * beside the data of the rover in focus (see {@link RoverLink#roverRoot}),
+ * and rebuilds the {@link MissionPlan} whenever it changes:
+ * <pre>
+ * mission/waypoints/&lt;n&gt;            {latitude, longitude}, driven in key order
+ * mission/geofences/&lt;name&gt;/&lt;n&gt;     {latitude, longitude}, polygon vertices
+ * mission/noGoZones/&lt;name&gt;/&lt;n&gt;     {latitude, longitude}, polygon vertices
+ * </pre>
+ * Malformed entries are skipped with a warning so one bad polygon does not
+ * lose the rest of the mission.
+ */
+public final class MissionPlanSource {
+
+    private static final String TAG = "MissionPlan";
+
+    /** Receives each new plan on the main thread. */
+    public interface Listener {
+        void onMissionPlan(MissionPlan plan);
+    }
+
+    private DatabaseReference mission;
+    private Listener listener;
+
+    private final ValueEventListener missionListener = new ValueEventListener() {
+        @Override
+        public void onDataChange(@NonNull DataSnapshot snapshot) {
+            if (listener != null) {
+                listener.onMissionPlan(parse(snapshot));
+            }
+        }
+
+        @Override
+        public void onCancelled(@NonNull DatabaseError error) {
+            Log.e(TAG, "Failed to read mission", error.toException());
+        }
+    };
+
+    @MainThread
+    public void start(Listener listener) {
+        if (this.listener != null) {
+            return;
+        }
+        this.listener = listener;
+        mission = RoverLink.roverRoot().child("mission");
+        mission.addValueEventListener(missionListener);
+    }
+
+    @MainThread
+    public void stop() {
+        if (listener == null) {
+            return;
+        }
+        mission.removeEventListener(missionListener);
+        listener = null;
+    }
+
+    private static MissionPlan parse(DataSnapshot snapshot) {
+        if (!snapshot.exists()) {
+            return MissionPlan.EMPTY;
+        }
+        DataSnapshot waypoints = snapshot.child("waypoints");
+        int count = (int) waypoints.getChildrenCount();
+        double[] latitudes = new double[count];
+        double[] longitudes = new double[count];
+        int valid = 0;
+        for (DataSnapshot waypoint : waypoints.getChildren()) {
+            double latitude = asDouble(waypoint.child("latitude").getValue());
+            double longitude = asDouble(waypoint.child("longitude").getValue());
+            if (Double.isNaN(latitude) || Double.isNaN(longitude)) {
+                Log.w(TAG, "Skipping waypoint " + waypoint.getKey() + " without a position");
+                continue;
+            }
+            latitudes[valid] = latitude;
+            longitudes[valid] = longitude;
+            valid++;
+        }
+        if (valid < count) {
+            latitudes = Arrays.copyOf(latitudes, valid);
+            longitudes = Arrays.copyOf(longitudes, valid);
+        }
+        return new MissionPlan(latitudes, longitudes,
+                parsePolygons(snapshot.child("geofences")), parsePolygons(snapshot.child("noGoZones")));
+    }
+
+    private static FenceIndex parsePolygons(DataSnapshot polygons) {
+        if (!polygons.exists()) {
+            return FenceIndex.EMPTY;
+        }
+        FenceIndex.Builder builder = new FenceIndex.Builder();
+        for (DataSnapshot polygon : polygons.getChildren()) {
+            double[] latLon = new double[(int) polygon.getChildrenCount() * 2];
+            int i = 0;
+            for (DataSnapshot vertex : polygon.getChildren()) {
+                latLon[i++] = asDouble(vertex.child("latitude").getValue());
+                latLon[i++] = asDouble(vertex.child("longitude").getValue());
+            }
+            if (latLon.length < 6 || hasNaN(latLon)) {
+                Log.w(TAG, "Skipping polygon " + polygon.getKey() + ": needs three or more vertices with positions");
+                continue;
+            }
+            builder.add(polygon.getKey(), latLon);
+        }
+        return builder.build();
+    }
+
+    private static boolean hasNaN(double[] values) {
+        for (double value : values) {
+            if (Double.isNaN(value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static double asDouble(Object value) {
+        // The database hands back Long for whole numbers and Double otherwise
+        return value instanceof Number ? ((Number) value).doubleValue() : Double.NaN;
+    }
+}
@@ -0,0 +1,175 @@
+package com.example.acar.navigation;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.SystemClock;
+
+import androidx.annotation.MainThread;
+
+import com.example.acar.readout.TextBuffer;
+import com.example.acar.telemetry.TelemetryListener;
+
+/**
+ * Runs a {@link Navigator} ten times a second on a background thread so
+ * planning never competes with the UI. Each tick reads the latest pose from
+ * the {@link PoseFusion}; obstacle readings arrive on the main thread, and
+ * camera hints on the vision thread, and are handed over through a small
+ * locked inbox. Each decision is posted
+ * back to the main thread for the {@link Listener} to send to the rover.
+ * The thread idles while there is no goal.
+ */
+public final class NavigationEngine implements TelemetryListener {
+
+    /** Receives every decision on the main thread. */
+    public interface Listener {
+        void onNavigationUpdate(int state, float throttle, float steer);
+    }
+
+    private static final long TICK_INTERVAL_MS = 100;
+
+    private final Navigator navigator = new Navigator();
+    private final PoseFusion poseFusion;
+    private final PoseFusion.Pose pose = new PoseFusion.Pose();
+    private final HandlerThread thread;
+    private final Handler worker;
+    private final Handler main = new Handler(Looper.getMainLooper());
+    private final Listener listener;
+
+    // Inbox, guarded by this; written on the main thread, drained by the worker
+    private boolean ticking;
+    private boolean goalPending;
+    private boolean stopPending;
+    private double goalLatitude, goalLongitude;
+    private boolean obstaclePending;
+    private double obstacleDistance;
+    private boolean obstacleLeft, obstacleRight;
+    private boolean visionPending;
+    private double visionLeft, visionCenter, visionRight;
+
+    // Latest decision, published by the worker
+    private volatile int state = Navigator.IDLE;
+    private volatile float throttle, steer;
+    private volatile long lastPlanNanos, maxPlanNanos;
+    private volatile int expansions;
+    private volatile double distanceToGoal = Double.NaN;
+
+    private final Runnable tick = this::tick;
+    private final Runnable deliver = this::deliver;
+
+    public NavigationEngine(PoseFusion poseFusion, Listener listener) {
+        this.poseFusion = poseFusion;
+        this.listener = listener;
+        thread = new HandlerThread("navigation");
+        thread.start();
+        worker = new Handler(thread.getLooper());
+    }
+
+    /** Starts driving to the goal, replacing any previous one. */
+    @MainThread
+    public void start(double latitude, double longitude) {
+        synchronized (this) {
+            goalPending = true;
+            stopPending = false;
+            goalLatitude = latitude;
+            goalLongitude = longitude;
+            if (!ticking) {
+                ticking = true;
+                worker.post(tick);
+            }
+        }
+    }
+
+    /** Gives up the current goal; one last idle update follows. */
+    @MainThread
+    public void stop() {
+        synchronized (this) {
+            goalPending = false;
+            stopPending = true;
+        }
+    }
+
+    /** Stops the thread for good. */
+    @MainThread
+    public void quit() {
+        worker.removeCallbacks(tick);
+        main.removeCallbacks(deliver);
+        thread.quitSafely();
+    }
+
+    @Override
+    public synchronized void onObstacle(double distanceCm, boolean leftBlocked, boolean rightBlocked) {
+        obstaclePending = true;
+        obstacleDistance = distanceCm;
+        obstacleLeft = leftBlocked;
+        obstacleRight = rightBlocked;
+    }
+
+    /** Clear distances the camera sees to the left, ahead and to the right, in metres. */
+    public synchronized void onVision(double leftM, double centerM, double rightM) {
+        visionPending = true;
+        visionLeft = leftM;
+        visionCenter = centerM;
+        visionRight = rightM;
+    }
+
+    /** One line of status for the screen. */
+    public void appendStatus(TextBuffer out) {
+        out.append(Navigator.stateName(state));
+        double distance = distanceToGoal;
+        int current = state;
+        if (!Double.isNaN(distance) && current != Navigator.IDLE && current != Navigator.ARRIVED) {
+            out.append(" · ").append(distance, 1).append(" m to goal");
+        }
+        if (maxPlanNanos > 0) {
+            out.append("\nReplan ").append(lastPlanNanos / 1e6, 2).append(" ms, ")
+                    .append(expansions).append(" cells (max ").append(maxPlanNanos / 1e6, 2).append(" ms)");
+        }
+    }
+
+    private void tick() {
+        long now = SystemClock.uptimeMillis();
+        poseFusion.read(pose);
+        if (pose.hasFix) {
+            navigator.onPose(pose.latitude, pose.longitude, pose.heading, pose.headingKnown);
+        }
+        synchronized (this) {
+            if (goalPending) {
+                navigator.setGoal(goalLatitude, goalLongitude);
+                goalPending = false;
+            }
+            if (stopPending) {
+                navigator.clearGoal();
+                stopPending = false;
+            }
+            if (obstaclePending) {
+                navigator.onObstacle(obstacleDistance, obstacleLeft, obstacleRight);
+                obstaclePending = false;
+            }
+            if (visionPending) {
+                navigator.onVision(visionLeft, visionCenter, visionRight);
+                visionPending = false;
+            }
+        }
+        int current = navigator.tick();
+        throttle = navigator.getThrottle();
+        steer = navigator.getSteer();
+        lastPlanNanos = navigator.getLastPlanNanos();
+        maxPlanNanos = navigator.getMaxPlanNanos();
+        expansions = navigator.getLastExpansions();
+        distanceToGoal = navigator.getDistanceToGoal();
+        state = current;
+        main.post(deliver);
+        synchronized (this) {
+            if ((current == Navigator.IDLE || current == Navigator.ARRIVED) && !goalPending) {
+                ticking = false;
+            } else {
+                worker.postAtTime(tick, now + TICK_INTERVAL_MS);
+            }
+        }
+    }
+
+    private void deliver() {
+        listener.onNavigationUpdate(state, throttle, steer);
+    }
+}
@@ -0,0 +1,320 @@
+package com.example.acar.navigation;
+
+/**
+ * Drives the rover to a GPS goal around obstacles it discovers on the way.
+ * Every {@link #tick} folds the latest obstacle reading and camera hint into an
+ * {@link OccupancyGrid}, lets {@link DStarLite} repair the plan, and turns
+ * the next stretch of path into a throttle and steer command. Not
+ * thread-safe; {@link NavigationEngine} runs it on its own thread.
+ */
+public final class Navigator {
+
+    public static final int IDLE = 0;
+    public static final int WAITING_FOR_FIX = 1;
+    /** Creeping forward until the fused pose shows which way the rover faces. */
+    public static final int FINDING_HEADING = 2;
+    public static final int DRIVING = 3;
+    /** No known way to the goal; waits for the map to change. */
+    public static final int BLOCKED = 4;
+    public static final int ARRIVED = 5;
+    /** A big detour is still being worked out; holds still meanwhile. */
+    public static final int REPLANNING = 6;
+
+    static final int GRID_SIZE = 256;
+    static final double GRID_RESOLUTION_M = 0.25;
+    /** The grid is moved when the rover gets this close to its edge. */
+    private static final double RECENTER_MARGIN_M = GRID_SIZE * GRID_RESOLUTION_M / 4;
+    private static final double ARRIVAL_RADIUS_M = 1.0;
+
+    private static final double ULTRASONIC_RANGE_M = 4.0;
+    /** The HC-SR04 echo comes from anywhere in a cone of roughly this half angle. */
+    private static final double ULTRASONIC_HALF_ANGLE_RAD = Math.toRadians(12);
+    private static final double IR_RANGE_M = 0.3;
+    private static final double IR_ANGLE_RAD = Math.toRadians(45);
+    private static final double STOP_DISTANCE_CM = 30;
+    /** Camera hints are centred this far either side of straight ahead, a third of the way into the view. */
+    private static final double VISION_SECTOR_RAD = Math.toRadians(18);
+    /** Beyond this the flat-ground assumption turns a few pixels into metres of error. */
+    private static final double VISION_RANGE_M = 2.0;
+    /** A hint older than this many ticks no longer stops the rover. */
+    private static final int VISION_STALE_TICKS = 5;
+
+    private static final float MAX_THROTTLE = 0.6f;
+    private static final float CREEP_THROTTLE = 0.35f;
+    /**
+     * Cells one tick may expand, which keeps a tick to a few milliseconds.
+     * Most repairs need a few hundred; a detour around a long wall can need
+     * tens of thousands and is then spread over several ticks.
+     */
+    private static final int PLAN_BUDGET = 1500;
+    /** Aim this many cells down the path, which smooths out the grid's zigzags. */
+    private static final int LOOKAHEAD_CELLS = 4;
+
+    private final OccupancyGrid grid = new OccupancyGrid(GRID_SIZE, GRID_RESOLUTION_M);
+    private final DStarLite planner = new DStarLite(grid);
+    private final LocalFrame frame = new LocalFrame();
+    // Latest fused pose in the local frame
+    private boolean hasPose;
+    private double poseX;
+    private double poseY;
+    private double heading;
+    private boolean headingKnown;
+    private final int[] changed = new int[1024];
+    private final int[] path = new int[LOOKAHEAD_CELLS];
+
+    private boolean gridPlaced;
+    private boolean needsReset;
+
+    private boolean goalSet;
+    private double goalLatitude;
+    private double goalLongitude;
+
+    private boolean obstacleFresh;
+    private double obstacleDistanceCm = Double.NaN;
+    private boolean obstacleLeft;
+    private boolean obstacleRight;
+
+    private boolean visionFresh;
+    private final double[] visionRange = new double[3];
+    private int ticksSinceVision = VISION_STALE_TICKS;
+
+    private int state = IDLE;
+    private float throttle;
+    private float steer;
+    private long lastPlanNanos;
+    private long maxPlanNanos;
+    private int lastExpansions;
+    private double distanceToGoal = Double.NaN;
+    // Direction of an on-the-spot turn away from something right ahead, 0 when not turning
+    private int turnDirection;
+
+    public void setGoal(double latitude, double longitude) {
+        goalSet = true;
+        goalLatitude = latitude;
+        goalLongitude = longitude;
+        needsReset = true;
+    }
+
+    public void clearGoal() {
+        goalSet = false;
+    }
+
+    /**
+     * Latest fused pose: position in decimal degrees and heading in radians
+     * clockwise from north, which is ignored unless {@code headingKnown}.
+     */
+    public void onPose(double latitude, double longitude, double heading, boolean headingKnown) {
+        if (!frame.hasOrigin()) {
+            frame.setOrigin(latitude, longitude);
+        }
+        poseX = frame.toX(longitude);
+        poseY = frame.toY(latitude);
+        this.heading = heading;
+        this.headingKnown = headingKnown;
+        hasPose = true;
+    }
+
+    public void onObstacle(double distanceCm, boolean leftBlocked, boolean rightBlocked) {
+        obstacleDistanceCm = distanceCm;
+        obstacleLeft = leftBlocked;
+        obstacleRight = rightBlocked;
+        obstacleFresh = true;
+    }
+
+    /**
+     * Latest camera hint: how far the ground is clear to the left, straight
+     * ahead and to the right, in metres, infinite when nothing was seen.
+     */
+    public void onVision(double leftM, double centerM, double rightM) {
+        visionRange[0] = leftM;
+        visionRange[1] = centerM;
+        visionRange[2] = rightM;
+        visionFresh = true;
+        ticksSinceVision = 0;
+    }
+
+    /**
+     * Decides the next command from the latest pose, obstacle reading and camera hint.
+     *
+     * @return the new state
+     */
+    public int tick() {
+        if (ticksSinceVision < VISION_STALE_TICKS) {
+            ticksSinceVision++;
+        }
+        if (!goalSet) {
+            return output(state == ARRIVED ? ARRIVED : IDLE, 0, 0);
+        }
+        if (!hasPose) {
+            return output(WAITING_FOR_FIX, 0, 0);
+        }
+        double x = poseX;
+        double y = poseY;
+        if (!gridPlaced) {
+            grid.reset(x, y);
+            gridPlaced = true;
+            needsReset = true;
+        } else if (grid.marginAt(x, y) < RECENTER_MARGIN_M) {
+            grid.recenter(x, y);
+            needsReset = true;
+        }
+
+        int changedCount = obstacleFresh && headingKnown ? integrateObstacle(x, y) : 0;
+        obstacleFresh = false;
+        if (visionFresh && headingKnown) {
+            changedCount = integrateVision(x, y, changedCount);
+        }
+        visionFresh = false;
+        int start = grid.cellAt(x, y);
+        // GPS noise can put the rover inside a cell it has marked; it is evidently not blocked
+        if (grid.clear(start) && changedCount < changed.length) {
+            changed[changedCount++] = start;
+        }
+
+        double goalX = frame.toX(goalLongitude);
+        double goalY = frame.toY(goalLatitude);
+        distanceToGoal = Math.hypot(goalX - x, goalY - y);
+        if (distanceToGoal < ARRIVAL_RADIUS_M) {
+            goalSet = false;
+            return output(ARRIVED, 0, 0);
+        }
+
+        long planStart = System.nanoTime();
+        int goal = grid.clampedCellAt(goalX, goalY);
+        if (needsReset || goal != planner.getGoal()) {
+            planner.reset(start, goal);
+            needsReset = false;
+        } else {
+            planner.moveStart(start);
+            planner.cellsChanged(changed, changedCount);
+        }
+        boolean planned = planner.computeShortestPath(PLAN_BUDGET);
+        lastPlanNanos = System.nanoTime() - planStart;
+        maxPlanNanos = Math.max(maxPlanNanos, lastPlanNanos);
+        lastExpansions = planner.getExpansions();
+        if (!planned) {
+            return output(REPLANNING, 0, 0);
+        }
+
+        if (Float.isInfinite(planner.costToGoal(start))) {
+            return output(BLOCKED, 0, 0);
+        }
+        boolean frontClear = !(obstacleDistanceCm < STOP_DISTANCE_CM)
+                && !(ticksSinceVision < VISION_STALE_TICKS && visionRange[1] * 100 < STOP_DISTANCE_CM);
+        if (!headingKnown) {
+            // Turn in place when something is right ahead, which also resets the baseline
+            return frontClear ? output(FINDING_HEADING, CREEP_THROTTLE, 0) : output(FINDING_HEADING, 0, 1);
+        }
+
+        int steps = planner.path(path);
+        int target = steps > 0 ? path[steps - 1] : planner.getGoal();
+        double bearing = Math.atan2(grid.centerX(target) - x, grid.centerY(target) - y);
+        double error = PoseFilter.wrap(bearing - heading);
+        if (!frontClear) {
+            // Turn on the spot, towards the path and without changing its mind halfway;
+            // the sensor sweeps the obstacle into the grid as the rover turns
+            if (turnDirection == 0) {
+                turnDirection = error < 0 ? -1 : 1;
+            }
+            return output(DRIVING, 0, turnDirection);
+        }
+        turnDirection = 0;
+        float steer = (float) Math.max(-1, Math.min(1, error / (Math.PI / 4)));
+        float throttle = Math.abs(error) > Math.PI / 3 ? 0 : (float) (MAX_THROTTLE * Math.cos(error));
+        return output(DRIVING, throttle, steer);
+    }
+
+    private int integrateObstacle(double x, double y) {
+        int count = 0;
+        double range = obstacleDistanceCm / 100;
+        boolean hit = range <= ULTRASONIC_RANGE_M;
+        if (!hit) {
+            range = ULTRASONIC_RANGE_M;
+        }
+        for (int ray = -1; ray <= 1; ray++) {
+            double bearing = heading + ray * ULTRASONIC_HALF_ANGLE_RAD;
+            count = grid.traceRay(x, y, x + Math.sin(bearing) * range, y + Math.cos(bearing) * range, hit, changed, count);
+        }
+        double left = heading - IR_ANGLE_RAD;
+        count = grid.traceRay(x, y, x + Math.sin(left) * IR_RANGE_M, y + Math.cos(left) * IR_RANGE_M,
+                obstacleLeft, changed, count);
+        double right = heading + IR_ANGLE_RAD;
+        count = grid.traceRay(x, y, x + Math.sin(right) * IR_RANGE_M, y + Math.cos(right) * IR_RANGE_M,
+                obstacleRight, changed, count);
+        return count;
+    }
+
+    private int integrateVision(double x, double y, int count) {
+        // Only sightings count: the camera misses too much for open ground to clear the grid
+        for (int sector = 0; sector < 3; sector++) {
+            double range = visionRange[sector];
+            if (range < VISION_RANGE_M) {
+                double bearing = heading + (sector - 1) * VISION_SECTOR_RAD;
+                count = grid.traceRay(x, y, x + Math.sin(bearing) * range, y + Math.cos(bearing) * range,
+                        true, changed, count);
+            }
+        }
+        return count;
+    }
+
+    private int output(int state, float throttle, float steer) {
+        this.state = state;
+        this.throttle = throttle;
+        this.steer = steer;
+        return state;
+    }
+
+    public int getState() {
+        return state;
+    }
+
+    public float getThrottle() {
+        return throttle;
+    }
+
+    public float getSteer() {
+        return steer;
+    }
+
+    /** Time the last replan took, in nanoseconds. */
+    public long getLastPlanNanos() {
+        return lastPlanNanos;
+    }
+
+    public long getMaxPlanNanos() {
+        return maxPlanNanos;
+    }
+
+    /** Cells the last replan had to expand. */
+    public int getLastExpansions() {
+        return lastExpansions;
+    }
+
+    /** Straight-line distance to the goal in metres, NaN before the first plan. */
+    public double getDistanceToGoal() {
+        return distanceToGoal;
+    }
+
+    OccupancyGrid grid() {
+        return grid;
+    }
+
+    public static String stateName(int state) {
+        switch (state) {
+            case WAITING_FOR_FIX:
+                return "Waiting for GPS";
+            case FINDING_HEADING:
+                return "Finding heading";
+            case DRIVING:
+                return "Driving";
+            case BLOCKED:
+                return "No path to goal";
+            case ARRIVED:
+                return "Arrived";
+            case REPLANNING:
+                return "Replanning";
+            default:
+                return "Idle";
+        }
+    }
+}
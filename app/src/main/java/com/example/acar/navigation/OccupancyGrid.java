@@ -0,0 +1,226 @@
+package com.example.acar.navigation;
+
+import java.util.Arrays;
+
+/**
+ * Square grid of evidence counters around the rover, in a local metric
+ * frame (x east, y north). Each cell holds 0..{@link #MAX_EVIDENCE}: an
+ * obstacle hit adds {@link #HIT}, a ray passing through takes one away, and
+ * the cell counts as blocked from {@link #BLOCKED} up. Unobserved cells are
+ * free, so the planner is optimistic about space it has not seen. Free cells
+ * touching a blocked one are reported as near an obstacle, which the planner
+ * uses to keep some clearance from walls.
+ */
+public final class OccupancyGrid {
+
+    public static final int BLOCKED = 3;
+    static final int HIT = 3;
+    static final int MAX_EVIDENCE = 12;
+
+    private final int size;
+    private final double resolution;
+    private final byte[] cells;
+    private final byte[] scratch;
+    // Blocked cells in the 3x3 neighbourhood of each cell, itself included
+    private final byte[] nearby;
+
+    // World position of the outer corner of cell (0, 0)
+    private double originX;
+    private double originY;
+
+    public OccupancyGrid(int size, double resolution) {
+        this.size = size;
+        this.resolution = resolution;
+        this.cells = new byte[size * size];
+        this.scratch = new byte[size * size];
+        this.nearby = new byte[size * size];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int cellCount() {
+        return cells.length;
+    }
+
+    public double resolution() {
+        return resolution;
+    }
+
+    /** Cell containing the world point, or -1 outside the grid. */
+    public int cellAt(double x, double y) {
+        int cx = (int) Math.floor((x - originX) / resolution);
+        int cy = (int) Math.floor((y - originY) / resolution);
+        return inside(cx, cy) ? cy * size + cx : -1;
+    }
+
+    /** Cell containing the world point after moving it inside the grid along each axis. */
+    public int clampedCellAt(double x, double y) {
+        int cx = Math.max(0, Math.min(size - 1, (int) Math.floor((x - originX) / resolution)));
+        int cy = Math.max(0, Math.min(size - 1, (int) Math.floor((y - originY) / resolution)));
+        return cy * size + cx;
+    }
+
+    /** Distance in metres from the world point to the nearest grid edge, negative outside. */
+    public double marginAt(double x, double y) {
+        double extent = size * resolution;
+        return Math.min(Math.min(x - originX, originX + extent - x), Math.min(y - originY, originY + extent - y));
+    }
+
+    public boolean inside(int cx, int cy) {
+        return cx >= 0 && cy >= 0 && cx < size && cy < size;
+    }
+
+    public double centerX(int cell) {
+        return originX + (cell % size + 0.5) * resolution;
+    }
+
+    public double centerY(int cell) {
+        return originY + (cell / size + 0.5) * resolution;
+    }
+
+    public boolean isBlocked(int cell) {
+        return cells[cell] >= BLOCKED;
+    }
+
+    public boolean isBlocked(int cx, int cy) {
+        return cells[cy * size + cx] >= BLOCKED;
+    }
+
+    /** Whether the cell is free but next to a blocked one. */
+    public boolean isNearObstacle(int cx, int cy) {
+        int cell = cy * size + cx;
+        return nearby[cell] > 0 && cells[cell] < BLOCKED;
+    }
+
+    /** Adds obstacle evidence; returns true if the cell just became blocked. */
+    public boolean markHit(int cell) {
+        int before = cells[cell];
+        cells[cell] = (byte) Math.min(MAX_EVIDENCE, before + HIT);
+        if (before < BLOCKED && cells[cell] >= BLOCKED) {
+            countNearby(cell, 1);
+            return true;
+        }
+        return false;
+    }
+
+    /** Removes obstacle evidence; returns true if the cell just became free. */
+    public boolean markFree(int cell) {
+        int before = cells[cell];
+        if (before == 0) {
+            return false;
+        }
+        cells[cell] = (byte) (before - 1);
+        if (before >= BLOCKED && cells[cell] < BLOCKED) {
+            countNearby(cell, -1);
+            return true;
+        }
+        return false;
+    }
+
+    /** Forgets everything about the cell; returns true if it was blocked. */
+    public boolean clear(int cell) {
+        boolean wasBlocked = isBlocked(cell);
+        cells[cell] = 0;
+        if (wasBlocked) {
+            countNearby(cell, -1);
+        }
+        return wasBlocked;
+    }
+
+    private void countNearby(int cell, int delta) {
+        int cx = cell % size;
+        int cy = cell / size;
+        for (int ny = Math.max(0, cy - 1); ny <= Math.min(size - 1, cy + 1); ny++) {
+            for (int nx = Math.max(0, cx - 1); nx <= Math.min(size - 1, cx + 1); nx++) {
+                nearby[ny * size + nx] += delta;
+            }
+        }
+    }
+
+    /**
+     * Integrates one range reading from (x0, y0) to (x1, y1): cells along the
+     * ray lose evidence and, if {@code hit}, the end cell gains it. Indices
+     * of cells whose blocked state flipped are appended to {@code changed}
+     * from {@code count} on.
+     *
+     * @return the new number of entries in {@code changed}
+     */
+    public int traceRay(double x0, double y0, double x1, double y1, boolean hit, int[] changed, int count) {
+        int cx = (int) Math.floor((x0 - originX) / resolution);
+        int cy = (int) Math.floor((y0 - originY) / resolution);
+        int ex = (int) Math.floor((x1 - originX) / resolution);
+        int ey = (int) Math.floor((y1 - originY) / resolution);
+        // Bresenham; the end cell is handled separately below
+        int dx = Math.abs(ex - cx);
+        int dy = -Math.abs(ey - cy);
+        int sx = cx < ex ? 1 : -1;
+        int sy = cy < ey ? 1 : -1;
+        int error = dx + dy;
+        while (cx != ex || cy != ey) {
+            if (inside(cx, cy) && markFree(cy * size + cx) && count < changed.length) {
+                changed[count++] = cy * size + cx;
+            }
+            int e2 = 2 * error;
+            if (e2 >= dy) {
+                error += dy;
+                cx += sx;
+            }
+            if (e2 <= dx) {
+                error += dx;
+                cy += sy;
+            }
+        }
+        if (inside(ex, ey)) {
+            int end = ey * size + ex;
+            boolean flipped = hit ? markHit(end) : markFree(end);
+            if (flipped && count < changed.length) {
+                changed[count++] = end;
+            }
+        }
+        return count;
+    }
+
+    /** Empties the grid and centres it on the world point. */
+    public void reset(double x, double y) {
+        Arrays.fill(cells, (byte) 0);
+        Arrays.fill(nearby, (byte) 0);
+        originX = x - size * resolution / 2;
+        originY = y - size * resolution / 2;
+    }
+
+    /**
+     * Moves the grid so it is centred on the world point, keeping what is
+     * known about the overlapping area. The shift is rounded to whole cells.
+     */
+    public void recenter(double x, double y) {
+        int shiftX = (int) Math.round((x - size * resolution / 2 - originX) / resolution);
+        int shiftY = (int) Math.round((y - size * resolution / 2 - originY) / resolution);
+        if (shiftX == 0 && shiftY == 0) {
+            return;
+        }
+        Arrays.fill(scratch, (byte) 0);
+        for (int cy = 0; cy < size; cy++) {
+            int fromY = cy + shiftY;
+            if (fromY < 0 || fromY >= size) {
+                continue;
+            }
+            int fromX = Math.max(0, shiftX);
+            int toX = Math.max(0, -shiftX);
+            int length = size - Math.abs(shiftX);
+            if (length > 0) {
+                System.arraycopy(cells, fromY * size + fromX, scratch, cy * size + toX, length);
+            }
+        }
+        System.arraycopy(scratch, 0, cells, 0, cells.length);
+        originX += shiftX * resolution;
+        originY += shiftY * resolution;
+        Arrays.fill(nearby, (byte) 0);
+        for (int cell = 0; cell < cells.length; cell++) {
+            if (cells[cell] >= BLOCKED) {
+                countNearby(cell, 1);
+            }
+        }
+    }
+}
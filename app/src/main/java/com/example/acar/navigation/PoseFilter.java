@@ -0,0 +1,329 @@
+package com.example.acar.navigation;
+
+import java.util.Arrays;
+
+/**
+ * Extended Kalman filter fusing GPS fixes, the drive commands sent to the
+ * rover and, when the board has one, its IMU into a smooth pose that can be
+ * read between fixes.
+ *
+ * <p>The state is position (metres east and north of the first fix),
+ * heading (radians clockwise from north), speed and turn rate. Prediction
+ * follows a unicycle model whose speed and turn rate settle towards the
+ * commanded ones; while no command is known (the firmware is driving
+ * itself) they are left to wander instead. Every measurement is applied as
+ * a sequence of scalar updates, so no matrix is ever inverted.</p>
+ *
+ * <p>All matrices are preallocated row-major arrays and no method
+ * allocates, so the filter can be stepped at 100 Hz without producing
+ * garbage. Not thread-safe; {@link PoseFusion} runs it on its own thread.</p>
+ */
+public final class PoseFilter {
+
+    static final int X = 0, Y = 1, HEADING = 2, SPEED = 3, TURN_RATE = 4;
+    private static final int N = 5;
+
+    /** Speed at full throttle and turn rate at full steer, matching the firmware's motor mapping. */
+    static final double MAX_SPEED_MPS = 0.5;
+    static final double MAX_TURN_RATE_RAD_PER_S = Math.toRadians(45);
+    /** How quickly the wheels follow a new command. */
+    private static final double RESPONSE_TIME_S = 0.3;
+
+    // Process noise densities, per second
+    private static final double POSITION_NOISE = 0.01;
+    private static final double HEADING_NOISE = sq(Math.toRadians(3));
+    private static final double COMMANDED_SPEED_NOISE = sq(0.05);
+    private static final double FREE_SPEED_NOISE = sq(0.3);
+    private static final double COMMANDED_TURN_NOISE = sq(Math.toRadians(5));
+    private static final double FREE_TURN_NOISE = sq(Math.toRadians(30));
+
+    private static final double GYRO_SIGMA = Math.toRadians(2);
+    private static final double COMPASS_SIGMA = Math.toRadians(10);
+    /** Heading uncertainty right after it was worked out from the direction of travel. */
+    private static final double TRAVEL_HEADING_SIGMA = Math.toRadians(15);
+    /** Heading is reported as known while its standard deviation stays below this. */
+    private static final double HEADING_KNOWN_SIGMA = Math.toRadians(25);
+    /** Shortest straight-line travel from which the direction of travel is trusted as heading. */
+    private static final double MIN_HEADING_BASELINE_M = 1.5;
+
+    private final LocalFrame frame = new LocalFrame();
+    private final double gpsVariance;
+    private final double headingBaseline;
+
+    private final double[] state = new double[N];
+    private final double[] covariance = new double[N * N];
+    private final double[] jacobian = new double[N * N];
+    private final double[] product = new double[N * N];
+    private final double[] gain = new double[N];
+    private final double[] row = new double[N];
+
+    private boolean hasFix;
+    private boolean headingKnown;
+
+    private boolean controlled;
+    private double commandedSpeed;
+    private double commandedTurnRate;
+
+    // Straight-line travel since the last turn, from raw fixes, until heading is known
+    private double lastFixX, lastFixY;
+    private double anchorX, anchorY;
+
+    /**
+     * @param gpsAccuracy standard deviation of a GPS fix in metres
+     */
+    public PoseFilter(double gpsAccuracy) {
+        gpsVariance = gpsAccuracy * gpsAccuracy;
+        // Noisier fixes need a longer run before their bearing means anything
+        headingBaseline = Math.max(MIN_HEADING_BASELINE_M, 2 * gpsAccuracy);
+    }
+
+    /** Advances the pose by {@code seconds} under the current command. */
+    public void predict(double seconds) {
+        if (!hasFix || seconds <= 0) {
+            return;
+        }
+        double heading = state[HEADING];
+        double speed = state[SPEED];
+        double sin = Math.sin(heading);
+        double cos = Math.cos(heading);
+        double settle = controlled ? Math.min(1, seconds / RESPONSE_TIME_S) : 0;
+
+        Arrays.fill(jacobian, 0);
+        for (int i = 0; i < N; i++) {
+            jacobian[i * N + i] = 1;
+        }
+        // With no idea which way the rover faces, its motion is not projected at all;
+        // the extra position noise below covers the distance it may have covered
+        double travelling = headingKnown ? 1 : 0;
+        state[X] += travelling * speed * sin * seconds;
+        state[Y] += travelling * speed * cos * seconds;
+        state[HEADING] = wrap(heading + state[TURN_RATE] * seconds);
+        jacobian[X * N + HEADING] = travelling * speed * cos * seconds;
+        jacobian[X * N + SPEED] = travelling * sin * seconds;
+        jacobian[Y * N + HEADING] = -travelling * speed * sin * seconds;
+        jacobian[Y * N + SPEED] = travelling * cos * seconds;
+        jacobian[HEADING * N + TURN_RATE] = seconds;
+        if (controlled) {
+            state[SPEED] += settle * (commandedSpeed - speed);
+            state[TURN_RATE] += settle * (commandedTurnRate - state[TURN_RATE]);
+            jacobian[SPEED * N + SPEED] = 1 - settle;
+            jacobian[TURN_RATE * N + TURN_RATE] = 1 - settle;
+        }
+
+        // P = F P F^T + Q
+        multiply(jacobian, covariance, product, false);
+        multiply(product, jacobian, covariance, true);
+        double positionNoise = POSITION_NOISE + (headingKnown ? 0 : speed * speed);
+        covariance[X * N + X] += positionNoise * seconds;
+        covariance[Y * N + Y] += positionNoise * seconds;
+        covariance[HEADING * N + HEADING] += HEADING_NOISE * seconds;
+        covariance[SPEED * N + SPEED] += (controlled ? COMMANDED_SPEED_NOISE : FREE_SPEED_NOISE) * seconds;
+        covariance[TURN_RATE * N + TURN_RATE] += (controlled ? COMMANDED_TURN_NOISE : FREE_TURN_NOISE) * seconds;
+        if (headingKnown && covariance[HEADING * N + HEADING] > HEADING_KNOWN_SIGMA * HEADING_KNOWN_SIGMA) {
+            // Drifted too long without a correction; find it again from the next straight run
+            headingKnown = false;
+            anchorX = lastFixX;
+            anchorY = lastFixY;
+        }
+        if (!headingKnown) {
+            decoupleHeading();
+        }
+    }
+
+    /** Folds in a GPS fix in decimal degrees. */
+    public void onFix(double latitude, double longitude) {
+        if (Double.isNaN(latitude) || Double.isNaN(longitude)) {
+            return;
+        }
+        if (!frame.hasOrigin()) {
+            frame.setOrigin(latitude, longitude);
+        }
+        double x = frame.toX(longitude);
+        double y = frame.toY(latitude);
+        lastFixX = x;
+        lastFixY = y;
+        if (!hasFix) {
+            initialise(x, y);
+            return;
+        }
+        update(X, x - state[X], gpsVariance);
+        update(Y, y - state[Y], gpsVariance);
+        if (!headingKnown) {
+            headingFromTravel(x, y);
+        }
+    }
+
+    /**
+     * Folds in an IMU reading: yaw rate in degrees per second, clockwise
+     * positive, and compass heading in degrees, either of which may be NaN.
+     */
+    public void onImu(double yawRate, double heading) {
+        if (!hasFix) {
+            return;
+        }
+        if (!Double.isNaN(yawRate)) {
+            update(TURN_RATE, Math.toRadians(yawRate) - state[TURN_RATE], GYRO_SIGMA * GYRO_SIGMA);
+        }
+        if (!Double.isNaN(heading)) {
+            double measured = wrap(Math.toRadians(heading));
+            if (headingKnown) {
+                update(HEADING, wrap(measured - state[HEADING]), COMPASS_SIGMA * COMPASS_SIGMA);
+            } else {
+                setHeading(measured, COMPASS_SIGMA);
+            }
+        }
+    }
+
+    /** The rover is now driving with this throttle and steer, both in -1..1. */
+    public void setDrive(double throttle, double steer) {
+        // Only straight runs tell which way the rover faces
+        if (Math.abs(steer) >= 0.3 || Math.abs(throttle) < 0.1 || !controlled) {
+            anchorX = lastFixX;
+            anchorY = lastFixY;
+        }
+        controlled = true;
+        commandedSpeed = throttle * MAX_SPEED_MPS;
+        commandedTurnRate = steer * MAX_TURN_RATE_RAD_PER_S;
+    }
+
+    /** The rover drives itself from now on; its speed and turn rate are no longer known in advance. */
+    public void releaseControl() {
+        controlled = false;
+    }
+
+    public boolean hasFix() {
+        return hasFix;
+    }
+
+    public boolean isHeadingKnown() {
+        return headingKnown;
+    }
+
+    /** Metres east of the first fix. */
+    public double x() {
+        return state[X];
+    }
+
+    /** Metres north of the first fix. */
+    public double y() {
+        return state[Y];
+    }
+
+    public double latitude() {
+        return frame.toLatitude(state[Y]);
+    }
+
+    public double longitude() {
+        return frame.toLongitude(state[X]);
+    }
+
+    /** Radians clockwise from north, meaningful once {@link #isHeadingKnown()}. */
+    public double heading() {
+        return state[HEADING];
+    }
+
+    public double speed() {
+        return state[SPEED];
+    }
+
+    /** Radians per second, clockwise positive. */
+    public double turnRate() {
+        return state[TURN_RATE];
+    }
+
+    /** Standard deviation of the position along its worse axis, in metres. */
+    public double positionAccuracy() {
+        return Math.sqrt(Math.max(covariance[X * N + X], covariance[Y * N + Y]));
+    }
+
+    public double headingAccuracy() {
+        return Math.sqrt(covariance[HEADING * N + HEADING]);
+    }
+
+    private void initialise(double x, double y) {
+        Arrays.fill(state, 0);
+        Arrays.fill(covariance, 0);
+        state[X] = x;
+        state[Y] = y;
+        covariance[X * N + X] = gpsVariance;
+        covariance[Y * N + Y] = gpsVariance;
+        covariance[HEADING * N + HEADING] = Math.PI * Math.PI;
+        covariance[SPEED * N + SPEED] = MAX_SPEED_MPS * MAX_SPEED_MPS;
+        covariance[TURN_RATE * N + TURN_RATE] = MAX_TURN_RATE_RAD_PER_S * MAX_TURN_RATE_RAD_PER_S;
+        anchorX = x;
+        anchorY = y;
+        hasFix = true;
+        headingKnown = false;
+    }
+
+    private void headingFromTravel(double x, double y) {
+        double dx = x - anchorX;
+        double dy = y - anchorY;
+        boolean straight = controlled && Math.abs(commandedSpeed) > 0.1 * MAX_SPEED_MPS
+                && Math.abs(commandedTurnRate) < 0.3 * MAX_TURN_RATE_RAD_PER_S;
+        if (straight && dx * dx + dy * dy >= headingBaseline * headingBaseline) {
+            double travel = Math.atan2(dx, dy);
+            setHeading(commandedSpeed > 0 ? travel : wrap(travel + Math.PI), TRAVEL_HEADING_SIGMA);
+        }
+    }
+
+    private void setHeading(double heading, double sigma) {
+        state[HEADING] = heading;
+        decoupleHeading();
+        covariance[HEADING * N + HEADING] = sigma * sigma;
+        headingKnown = true;
+    }
+
+    /** Forgets any correlation between heading and the rest of the state. */
+    private void decoupleHeading() {
+        for (int i = 0; i < N; i++) {
+            if (i != HEADING) {
+                covariance[HEADING * N + i] = 0;
+                covariance[i * N + HEADING] = 0;
+            }
+        }
+    }
+
+    /** Scalar Kalman update of one state component by a measurement residual. */
+    private void update(int index, double residual, double variance) {
+        double innovation = covariance[index * N + index] + variance;
+        for (int i = 0; i < N; i++) {
+            gain[i] = covariance[i * N + index] / innovation;
+            row[i] = covariance[index * N + i];
+        }
+        for (int i = 0; i < N; i++) {
+            state[i] += gain[i] * residual;
+            for (int j = 0; j < N; j++) {
+                covariance[i * N + j] -= gain[i] * row[j];
+            }
+        }
+        state[HEADING] = wrap(state[HEADING]);
+    }
+
+    /** out = a * b, or a * b^T when {@code transposeB}; out must not alias a or b. */
+    private static void multiply(double[] a, double[] b, double[] out, boolean transposeB) {
+        for (int i = 0; i < N; i++) {
+            for (int j = 0; j < N; j++) {
+                double sum = 0;
+                for (int k = 0; k < N; k++) {
+                    sum += a[i * N + k] * (transposeB ? b[j * N + k] : b[k * N + j]);
+                }
+                out[i * N + j] = sum;
+            }
+        }
+    }
+
+    private static double sq(double value) {
+        return value * value;
+    }
+
+    static double wrap(double angle) {
+        while (angle > Math.PI) {
+            angle -= 2 * Math.PI;
+        }
+        while (angle < -Math.PI) {
+            angle += 2 * Math.PI;
+        }
+        return angle;
+    }
+}
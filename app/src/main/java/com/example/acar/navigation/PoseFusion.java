@@ -0,0 +1,223 @@
+package com.example.acar.navigation;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.SystemClock;
+
+import androidx.annotation.MainThread;
+
+import com.example.acar.telemetry.TelemetryListener;
+
+/**
+ * Runs a {@link PoseFilter} a hundred times a second on a background thread
+ * so the pose keeps moving between GPS fixes. Fixes and IMU readings arrive
+ * from the telemetry hub and drive commands from the screen that sends them,
+ * all on the main thread, and are handed over through a small locked inbox.
+ * The latest pose is published for {@link #read} and the {@link Listener}
+ * hears about it at most once per main-thread turn. Ticks only while started.
+ */
+public final class PoseFusion implements TelemetryListener {
+
+    /** Told on the main thread that a newer pose can be {@link #read}. */
+    public interface Listener {
+        void onPoseChanged();
+    }
+
+    /** Snapshot of the fused pose. */
+    public static final class Pose {
+        public boolean hasFix;
+        public double latitude;
+        public double longitude;
+        /** Radians clockwise from north; only meaningful when {@link #headingKnown}. */
+        public double heading;
+        public boolean headingKnown;
+        /** Metres per second, negative when reversing. */
+        public double speed;
+        /** Standard deviation of the position in metres. */
+        public double accuracy;
+    }
+
+    private static final long TICK_INTERVAL_MS = 10;
+    /** Typical accuracy of the rover's GPS module. */
+    private static final double GPS_ACCURACY_M = 2.5;
+
+    private final PoseFilter filter = new PoseFilter(GPS_ACCURACY_M);
+    private final HandlerThread thread;
+    private final Handler worker;
+    private final Handler main = new Handler(Looper.getMainLooper());
+    private final Listener listener;
+
+    // Inbox, guarded by this; written on the main thread, drained by the worker
+    private boolean ticking;
+    private boolean fixPending;
+    private double fixLatitude, fixLongitude;
+    private boolean imuPending;
+    private double imuYawRate, imuHeading;
+    private boolean drivePending;
+    private boolean commanded;
+    private double throttle, steer;
+
+    // Latest pose, guarded by published
+    private final Pose published = new Pose();
+    private boolean deliverPending;
+
+    private long lastTickNanos;
+
+    private final Runnable tick = this::tick;
+    private final Runnable deliver = this::deliver;
+
+    public PoseFusion(Listener listener) {
+        this.listener = listener;
+        thread = new HandlerThread("pose-fusion");
+        thread.start();
+        worker = new Handler(thread.getLooper());
+    }
+
+    /** Starts ticking; call when the owning screen becomes visible. */
+    @MainThread
+    public synchronized void start() {
+        if (!ticking) {
+            ticking = true;
+            lastTickNanos = 0;
+            // A tick still running from before the last stop may not have finished yet
+            worker.removeCallbacks(tick);
+            worker.post(tick);
+        }
+    }
+
+    /** Pauses ticking; the filter keeps its state for the next {@link #start}. */
+    @MainThread
+    public synchronized void stop() {
+        ticking = false;
+        worker.removeCallbacks(tick);
+    }
+
+    /** Stops the thread for good. */
+    @MainThread
+    public void quit() {
+        stop();
+        main.removeCallbacks(deliver);
+        thread.quitSafely();
+    }
+
+    @Override
+    public synchronized void onGps(double latitude, double longitude) {
+        fixPending = true;
+        fixLatitude = latitude;
+        fixLongitude = longitude;
+    }
+
+    @Override
+    public synchronized void onImu(double yawRate, double heading) {
+        imuPending = true;
+        imuYawRate = yawRate;
+        imuHeading = heading;
+    }
+
+    /** A drive tuple was sent to the rover. */
+    public synchronized void onDrive(float throttle, float steer) {
+        drivePending = true;
+        commanded = true;
+        this.throttle = throttle;
+        this.steer = steer;
+    }
+
+    /** A discrete movement word was sent to the rover. */
+    public void onCommand(String command) {
+        switch (command) {
+            case "forward":
+                onDrive(1, 0);
+                break;
+            case "backward":
+                onDrive(-1, 0);
+                break;
+            case "left":
+                onDrive(0, -1);
+                break;
+            case "right":
+                onDrive(0, 1);
+                break;
+            case "stop":
+                onDrive(0, 0);
+                break;
+            default:
+                break;
+        }
+    }
+
+    /** The rover's control mode changed; in autonomous mode it picks its own speed and turns. */
+    public synchronized void onControlMode(String mode) {
+        if ("autonomous".equals(mode)) {
+            drivePending = true;
+            commanded = false;
+        }
+    }
+
+    /** Copies the latest pose into {@code out}. */
+    public void read(Pose out) {
+        synchronized (published) {
+            out.hasFix = published.hasFix;
+            out.latitude = published.latitude;
+            out.longitude = published.longitude;
+            out.heading = published.heading;
+            out.headingKnown = published.headingKnown;
+            out.speed = published.speed;
+            out.accuracy = published.accuracy;
+        }
+    }
+
+    private void tick() {
+        long now = System.nanoTime();
+        double seconds = lastTickNanos == 0 ? 0 : (now - lastTickNanos) / 1e9;
+        lastTickNanos = now;
+        // Predict up to now first, then fold in what arrived since the last tick
+        filter.predict(seconds);
+        synchronized (this) {
+            if (drivePending) {
+                if (commanded) {
+                    filter.setDrive(throttle, steer);
+                } else {
+                    filter.releaseControl();
+                }
+                drivePending = false;
+            }
+            if (fixPending) {
+                filter.onFix(fixLatitude, fixLongitude);
+                fixPending = false;
+            }
+            if (imuPending) {
+                filter.onImu(imuYawRate, imuHeading);
+                imuPending = false;
+            }
+        }
+        boolean deliverNow;
+        synchronized (published) {
+            published.hasFix = filter.hasFix();
+            published.latitude = filter.latitude();
+            published.longitude = filter.longitude();
+            published.heading = filter.heading();
+            published.headingKnown = filter.isHeadingKnown();
+            published.speed = filter.speed();
+            published.accuracy = filter.positionAccuracy();
+            deliverNow = published.hasFix && !deliverPending;
+            deliverPending |= deliverNow;
+        }
+        if (deliverNow) {
+            main.post(deliver);
+        }
+        synchronized (this) {
+            if (ticking) {
+                worker.removeCallbacks(tick);
+                worker.postAtTime(tick, SystemClock.uptimeMillis() + TICK_INTERVAL_MS);
+            }
+        }
+    }
+
+    private void deliver() {
+        synchronized (published) {
+            deliverPending = false;
+        }
+        listener.onPoseChanged();
+    }
+}
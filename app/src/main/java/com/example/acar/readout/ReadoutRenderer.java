@@ -0,0 +1,101 @@
+package com.example.acar.readout;
+
+import android.view.Choreographer;
+import android.widget.TextView;
+
+import androidx.annotation.MainThread;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Coalesces readout updates and applies them once per display frame.
+ *
+ * <p>Callers mark a {@link Readout} dirty as often as they like; the renderer
+ * formats each dirty readout at most once per frame into a reusable buffer and
+ * only calls {@link TextView#setText(char[], int, int)} when the text really
+ * changed, so bursts of samples cost one layout pass at most.</p>
+ */
+@MainThread
+public final class ReadoutRenderer implements Choreographer.FrameCallback {
+
+    /** Writes the current text of a readout into {@code out}. */
+    public interface Formatter {
+        void format(TextBuffer out);
+    }
+
+    /** One TextView and the buffers used to render it. */
+    public final class Readout {
+        private final TextView view;
+        private final Formatter formatter;
+        // The TextView keeps a reference to the array it was given, so the
+        // displayed buffer is never written to; the spare one is swapped in instead
+        private TextBuffer shown = new TextBuffer();
+        private TextBuffer spare = new TextBuffer();
+        private boolean hasShown;
+        private boolean dirty;
+
+        Readout(TextView view, Formatter formatter) {
+            this.view = view;
+            this.formatter = formatter;
+        }
+
+        /** Schedules this readout to be redrawn on the next frame. */
+        public void invalidate() {
+            if (!dirty) {
+                dirty = true;
+                scheduleFrame();
+            }
+        }
+
+        void render() {
+            dirty = false;
+            formatter.format(spare.clear());
+            if (hasShown && spare.contentEquals(shown)) {
+                return;
+            }
+            TextBuffer next = spare;
+            spare = shown;
+            shown = next;
+            hasShown = true;
+            view.setText(shown.chars(), 0, shown.length());
+        }
+    }
+
+    private final Choreographer choreographer = Choreographer.getInstance();
+    private final List<Readout> readouts = new ArrayList<>();
+    private boolean frameScheduled;
+
+    /** Creates a readout that renders into {@code view} using {@code formatter}. */
+    public Readout add(TextView view, Formatter formatter) {
+        Readout readout = new Readout(view, formatter);
+        readouts.add(readout);
+        return readout;
+    }
+
+    /** Drops any frame that is still pending, e.g. when the screen goes away. */
+    public void cancel() {
+        if (frameScheduled) {
+            choreographer.removeFrameCallback(this);
+            frameScheduled = false;
+        }
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        frameScheduled = false;
+        for (int i = 0, n = readouts.size(); i < n; i++) {
+            Readout readout = readouts.get(i);
+            if (readout.dirty) {
+                readout.render();
+            }
+        }
+    }
+
+    private void scheduleFrame() {
+        if (!frameScheduled) {
+            frameScheduled = true;
+            choreographer.postFrameCallback(this);
+        }
+    }
+}
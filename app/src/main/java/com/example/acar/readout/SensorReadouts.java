@@ -0,0 +1,130 @@
+package com.example.acar.readout;
+
+import android.widget.TextView;
+
+import com.example.acar.telemetry.SensorChannel;
+import com.example.acar.telemetry.TelemetryListener;
+
+/**
+ * The four sensor cards shared by the manual and autonomous screens.
+ * Samples only update primitive fields here; the text is produced by the
+ * {@link ReadoutRenderer} on the next frame. Once a fused pose is shown,
+ * the GPS card follows it instead of the raw fixes.
+ */
+public final class SensorReadouts implements TelemetryListener {
+
+    private final ReadoutRenderer renderer = new ReadoutRenderer();
+    private final ReadoutRenderer.Readout climateReadout, gpsReadout, rainReadout, moistureReadout;
+
+    // Latest values; a false "available" flag renders the fallback text
+    private double temperature, humidity, latitude, longitude;
+    private boolean raining;
+    private int moisture;
+    private boolean climateAvailable, gpsAvailable, rainAvailable, moistureAvailable;
+    // Fused pose; heading in degrees from north, NaN until known
+    private boolean fused;
+    private double headingDegrees = Double.NaN;
+
+    public SensorReadouts(TextView tempHumidity, TextView gps, TextView raindrop, TextView moisture) {
+        climateReadout = renderer.add(tempHumidity, out -> {
+            if (climateAvailable) {
+                ReadingFormat.climate(out, temperature, humidity);
+            } else {
+                ReadingFormat.unavailable(out);
+            }
+        });
+        gpsReadout = renderer.add(gps, out -> {
+            if (gpsAvailable) {
+                ReadingFormat.position(out, latitude, longitude, fused ? headingDegrees : Double.NaN);
+            } else {
+                ReadingFormat.positionUnavailable(out);
+            }
+        });
+        rainReadout = renderer.add(raindrop, out -> {
+            if (rainAvailable) {
+                ReadingFormat.rain(out, raining);
+            } else {
+                ReadingFormat.unavailable(out);
+            }
+        });
+        moistureReadout = renderer.add(moisture, out -> {
+            if (moistureAvailable) {
+                ReadingFormat.moisture(out, this.moisture);
+            } else {
+                ReadingFormat.unavailable(out);
+            }
+        });
+    }
+
+    /** Drops any pending frame; call when the owning screen is destroyed. */
+    public void release() {
+        renderer.cancel();
+    }
+
+    @Override
+    public void onClimate(double temperature, double humidity) {
+        this.temperature = temperature;
+        this.humidity = humidity;
+        climateAvailable = true;
+        climateReadout.invalidate();
+    }
+
+    @Override
+    public void onGps(double latitude, double longitude) {
+        if (!fused) {
+            this.latitude = latitude;
+            this.longitude = longitude;
+        }
+        gpsAvailable = true;
+        gpsReadout.invalidate();
+    }
+
+    /**
+     * Shows a fused position and, when known, heading in radians clockwise
+     * from north, in place of the raw fixes.
+     */
+    public void onPose(double latitude, double longitude, double heading, boolean headingKnown) {
+        this.latitude = latitude;
+        this.longitude = longitude;
+        headingDegrees = headingKnown ? (Math.toDegrees(heading) + 360) % 360 : Double.NaN;
+        fused = true;
+        gpsReadout.invalidate();
+    }
+
+    @Override
+    public void onRain(boolean raining) {
+        this.raining = raining;
+        rainAvailable = true;
+        rainReadout.invalidate();
+    }
+
+    @Override
+    public void onMoisture(int moisture) {
+        this.moisture = moisture;
+        moistureAvailable = true;
+        moistureReadout.invalidate();
+    }
+
+    @Override
+    public void onChannelUnavailable(SensorChannel channel) {
+        switch (channel) {
+            case CLIMATE:
+                climateAvailable = false;
+                climateReadout.invalidate();
+                break;
+            case GPS:
+                gpsAvailable = false;
+                fused = false;
+                gpsReadout.invalidate();
+                break;
+            case RAIN:
+                rainAvailable = false;
+                rainReadout.invalidate();
+                break;
+            case MOISTURE:
+                moistureAvailable = false;
+                moistureReadout.invalidate();
+                break;
+        }
+    }
+}
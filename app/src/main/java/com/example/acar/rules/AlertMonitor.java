@@ -0,0 +1,176 @@
+package com.example.acar.rules;
+
+import android.app.NotificationChannel;
+import android.app.NotificationManager;
+import android.content.Context;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.core.app.NotificationCompat;
+
+import com.example.acar.R;
+import com.example.acar.metrics.LinkMetrics;
+import com.example.acar.telemetry.HistorySeries;
+import com.example.acar.telemetry.SeriesListener;
+import com.example.acar.telemetry.TelemetryHub;
+import com.example.acar.transport.RoverLink;
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseError;
+import com.google.firebase.database.FirebaseDatabase;
+import com.google.firebase.database.ValueEventListener;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Runs the alert rules stored under {@code alertRules} in the Realtime
+ * Database against the telemetry of the rover in focus, one rule per child:
+ * <pre>
+ * alertRules/&lt;name&gt;    "moisture mean 30s &lt; 20 notify"   (see {@link Rule})
+ * </pre>
+ * A rule that starts to hold posts a notification; a {@code stop} rule also
+ * sends the rover a stop command. Rules fire once when their condition
+ * starts to hold and again only after it has cleared. Malformed rules are
+ * skipped with a warning.
+ *
+ * <p>Samples come from the {@link TelemetryHub}, which is only subscribed
+ * to the rover while a screen showing telemetry (a control screen or the
+ * fleet screen) is started. Rules are therefore evaluated only then, at the
+ * rates the visible screens asked for. Once the app is in the background
+ * nothing reaches them, although the rover keeps trickling its safety
+ * channels. While samples do arrive, the latest readings are taken to hold
+ * until they change, every {@link #TICK_MS}, because a
+ * database node is not sent again while its value stays the same. Samples
+ * of a replayed mission are ignored: they must neither notify nor stop
+ * the live rover.</p>
+ */
+@MainThread
+public final class AlertMonitor implements SeriesListener, RuleEngine.Listener {
+
+    private static final String TAG = "AlertMonitor";
+    private static final String RULES = "alertRules";
+    private static final String CHANNEL_ID = "sensor_alerts";
+    /** How often unchanged readings are carried forward. */
+    static final long TICK_MS = 1000;
+
+    private static AlertMonitor instance;
+
+    private final Context context;
+    private final NotificationManager notifications;
+    private final RuleEngine engine = new RuleEngine(this);
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Runnable tick = this::tick;
+
+    private final ValueEventListener rulesListener = new ValueEventListener() {
+        @Override
+        public void onDataChange(@NonNull DataSnapshot snapshot) {
+            List<Rule> rules = new ArrayList<>();
+            for (DataSnapshot child : snapshot.getChildren()) {
+                Object text = child.getValue();
+                if (!(text instanceof String)) {
+                    Log.w(TAG, "Skipping rule " + child.getKey() + ": not text");
+                    continue;
+                }
+                try {
+                    rules.add(Rule.parse(child.getKey(), (String) text));
+                } catch (IllegalArgumentException e) {
+                    Log.w(TAG, "Skipping rule " + child.getKey() + ": " + e.getMessage());
+                }
+            }
+            Log.d(TAG, "Loaded " + rules.size() + " alert rules");
+            engine.setRules(rules);
+        }
+
+        @Override
+        public void onCancelled(@NonNull DatabaseError error) {
+            Log.e(TAG, "Failed to read alert rules", error.toException());
+        }
+    };
+
+    private AlertMonitor(Context context) {
+        this.context = context.getApplicationContext();
+        notifications = (NotificationManager) this.context.getSystemService(Context.NOTIFICATION_SERVICE);
+    }
+
+    /** Starts following the rules and the telemetry for the life of the process. */
+    public static void start(Context context) {
+        if (instance != null) {
+            return;
+        }
+        instance = new AlertMonitor(context);
+        instance.createChannel();
+        TelemetryHub.getInstance().addSeriesListener(instance);
+        FirebaseDatabase.getInstance().getReference(RULES).addValueEventListener(instance.rulesListener);
+        instance.handler.postDelayed(instance.tick, TICK_MS);
+    }
+
+    @Override
+    public void onSample(HistorySeries series, long timeMillis, double value) {
+        if (!RoverLink.isReplaying()) {
+            engine.record(series, timeMillis, value);
+        }
+    }
+
+    private void tick() {
+        // Readings only hold while the hub is attached; detached, they go stale
+        if (TelemetryHub.getInstance().getActiveSubscriberCount() == 0) {
+            engine.forgetLatest();
+        } else if (!RoverLink.isReplaying()) {
+            engine.advance(SystemClock.elapsedRealtime());
+        }
+        handler.postDelayed(tick, TICK_MS);
+    }
+
+    @Override
+    public void onSeriesUnavailable(HistorySeries series) {
+        engine.reset(series);
+    }
+
+    @Override
+    public void onRuleTriggered(Rule rule, double value) {
+        Log.i(TAG, "Rule " + rule + " holds at " + value);
+        String title = rule.getName();
+        if (rule.getAction() == Rule.Action.STOP) {
+            stopRover();
+            title = "Rover stopped: " + title;
+        }
+        notify(rule, title, String.format("%s %s is %.1f%s", rule.getSeries().label(),
+                rule.getAggregate().name().toLowerCase(Locale.ROOT), value, rule.getSeries().unit()));
+    }
+
+    private void stopRover() {
+        int sequence = LinkMetrics.getInstance().onStopSent();
+        RoverLink.getTransport().emergencyStop(sequence, e -> {
+            if (e != null) {
+                Log.e(TAG, "Failed to send stop for alert", e);
+            }
+        });
+    }
+
+    private void notify(Rule rule, String title, String text) {
+        if (notifications == null) {
+            return;
+        }
+        // One notification per rule, replaced when it fires again
+        notifications.notify(RULES, rule.getName().hashCode(), new NotificationCompat.Builder(context, CHANNEL_ID)
+                .setSmallIcon(R.mipmap.ic_launcher)
+                .setContentTitle(title)
+                .setContentText(text)
+                .setPriority(NotificationCompat.PRIORITY_HIGH)
+                .setAutoCancel(true)
+                .build());
+    }
+
+    private void createChannel() {
+        if (notifications != null && Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            notifications.createNotificationChannel(new NotificationChannel(CHANNEL_ID,
+                    context.getString(R.string.alerts_channel), NotificationManager.IMPORTANCE_HIGH));
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package com.example.acar.rules;
+
+import com.example.acar.telemetry.HistorySeries;
+
+import java.util.Locale;
+
+/**
+ * One alert condition: an aggregate of a {@link HistorySeries} over a
+ * sliding window compared against a threshold, and what to do when it
+ * starts to hold. Written as one line of text, for example
+ * <pre>
+ * moisture mean 30s &lt; 20 notify      soil below 20 % on average for 30 s
+ * rain min 10s &gt; 0.5 stop             raining for the whole last 10 s
+ * temperature rate 5m &gt; 2 notify      warming faster than 2 °C a minute
+ * </pre>
+ * Windows take an {@code s}, {@code m} or {@code h} suffix. Rain is 1 while
+ * raining and 0 when dry. Immutable.
+ */
+public final class Rule {
+
+    /** How the samples in the window are summarised. */
+    public enum Aggregate {
+        MEAN("mean"),
+        MIN("min"),
+        MAX("max"),
+        /** Change per minute between the oldest and the newest sample. */
+        RATE("rate");
+
+        private final String keyword;
+
+        Aggregate(String keyword) {
+            this.keyword = keyword;
+        }
+    }
+
+    public enum Op {
+        BELOW("<"),
+        ABOVE(">");
+
+        private final String symbol;
+
+        Op(String symbol) {
+            this.symbol = symbol;
+        }
+    }
+
+    public enum Action {
+        /** Posts a notification on the phone. */
+        NOTIFY("notify"),
+        /** Notifies and sends the rover a stop command. */
+        STOP("stop");
+
+        private final String keyword;
+
+        Action(String keyword) {
+            this.keyword = keyword;
+        }
+    }
+
+    private final String name;
+    private final HistorySeries series;
+    private final Aggregate aggregate;
+    private final long windowMillis;
+    private final Op op;
+    private final double threshold;
+    private final Action action;
+
+    public Rule(String name, HistorySeries series, Aggregate aggregate, long windowMillis,
+                Op op, double threshold, Action action) {
+        if (windowMillis <= 0) {
+            throw new IllegalArgumentException("Window must be positive: " + windowMillis);
+        }
+        if (Double.isNaN(threshold)) {
+            throw new IllegalArgumentException("Threshold must be a number");
+        }
+        this.name = name;
+        this.series = series;
+        this.aggregate = aggregate;
+        this.windowMillis = windowMillis;
+        this.op = op;
+        this.threshold = threshold;
+        this.action = action;
+    }
+
+    /**
+     * Reads a rule written as
+     * {@code <series> <mean|min|max|rate> <window> <'<'|'>'> <threshold> <notify|stop>}.
+     *
+     * @throws IllegalArgumentException if {@code text} is not a rule
+     */
+    public static Rule parse(String name, String text) {
+        String[] words = text.trim().toLowerCase(Locale.ROOT).split("\\s+");
+        if (words.length != 6) {
+            throw new IllegalArgumentException("Expected 6 words, got " + words.length + ": " + text);
+        }
+        try {
+            return new Rule(name, parseSeries(words[0]), parseAggregate(words[1]), parseWindow(words[2]),
+                    parseOp(words[3]), Double.parseDouble(words[4]), parseAction(words[5]));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Bad number in rule: " + text, e);
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public HistorySeries getSeries() {
+        return series;
+    }
+
+    public Aggregate getAggregate() {
+        return aggregate;
+    }
+
+    public long getWindowMillis() {
+        return windowMillis;
+    }
+
+    public Op getOp() {
+        return op;
+    }
+
+    public double getThreshold() {
+        return threshold;
+    }
+
+    public Action getAction() {
+        return action;
+    }
+
+    @Override
+    public String toString() {
+        return name + ": " + series.name().toLowerCase(Locale.ROOT) + ' ' + aggregate.keyword + ' '
+                + windowMillis / 1000 + "s " + op.symbol + ' ' + threshold + ' ' + action.keyword;
+    }
+
+    private static HistorySeries parseSeries(String word) {
+        for (HistorySeries series : HistorySeries.values()) {
+            if (series.name().toLowerCase(Locale.ROOT).equals(word)) {
+                return series;
+            }
+        }
+        throw new IllegalArgumentException("Unknown series: " + word);
+    }
+
+    private static Aggregate parseAggregate(String word) {
+        for (Aggregate aggregate : Aggregate.values()) {
+            if (aggregate.keyword.equals(word)) {
+                return aggregate;
+            }
+        }
+        throw new IllegalArgumentException("Unknown aggregate: " + word);
+    }
+
+    private static long parseWindow(String word) {
+        long unit;
+        switch (word.charAt(word.length() - 1)) {
+            case 's':
+                unit = 1000;
+                break;
+            case 'm':
+                unit = 60_000;
+                break;
+            case 'h':
+                unit = 3_600_000;
+                break;
+            default:
+                throw new IllegalArgumentException("Window needs an s, m or h suffix: " + word);
+        }
+        return Math.round(Double.parseDouble(word.substring(0, word.length() - 1)) * unit);
+    }
+
+    private static Op parseOp(String word) {
+        for (Op op : Op.values()) {
+            if (op.symbol.equals(word)) {
+                return op;
+            }
+        }
+        throw new IllegalArgumentException("Expected < or >, got " + word);
+    }
+
+    private static Action parseAction(String word) {
+        for (Action action : Action.values()) {
+            if (action.keyword.equals(word)) {
+                return action;
+            }
+        }
+        throw new IllegalArgumentException("Unknown action: " + word);
+    }
+}
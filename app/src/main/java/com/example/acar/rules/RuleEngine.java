@@ -0,0 +1,276 @@
+package com.example.acar.rules;
+
+import com.example.acar.telemetry.HistorySeries;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Evaluates a set of {@link Rule}s against streaming samples and reports
+ * each rule when its condition starts and stops holding.
+ *
+ * <p>Rules over the same series and window share one {@link SlidingWindow},
+ * and rules that also share aggregate and comparison form a group whose
+ * thresholds are kept sorted. A new aggregate value then satisfies a prefix
+ * (above) or suffix (below) of the thresholds, found by binary search, and
+ * only the rules between the old and the new boundary change state. A
+ * sample therefore costs one window update per distinct window plus a
+ * logarithmic step per group, however many rules share them, and allocates
+ * nothing.</p>
+ *
+ * <p>A reading that does not change may not be sent again, e.g. a database
+ * node that keeps saying it rains. {@link #advance} therefore carries the
+ * last sample of every series forward in time, so windows keep moving
+ * while nothing new arrives.</p>
+ *
+ * <p>Not thread safe; the app drives it from the main thread.</p>
+ */
+public final class RuleEngine {
+
+    /** Hears rules change state, from within {@link #record}. */
+    public interface Listener {
+        /** {@code rule} started to hold; {@code value} is the aggregate that made it. */
+        void onRuleTriggered(Rule rule, double value);
+
+        /** {@code rule} no longer holds, or its window lost coverage. */
+        default void onRuleCleared(Rule rule) {
+        }
+    }
+
+    private static final HistorySeries[] SERIES = HistorySeries.values();
+
+    private final Listener listener;
+    // Windows of each series, each with the groups that read it
+    private final WindowGroups[][] bySeries = new WindowGroups[SERIES.length][];
+    // Latest sample of each series, NaN when there is none to carry forward
+    private final long[] lastTimes = new long[SERIES.length];
+    private final double[] lastValues = new double[SERIES.length];
+
+    public RuleEngine(Listener listener) {
+        this.listener = listener;
+        Arrays.fill(lastValues, Double.NaN);
+        setRules(new ArrayList<>());
+    }
+
+    /**
+     * Replaces the rules. Windows start empty again, and rules that were
+     * holding are reported cleared.
+     */
+    public void setRules(Collection<Rule> rules) {
+        for (HistorySeries series : SERIES) {
+            reset(series);
+        }
+        List<List<Rule>> perSeries = new ArrayList<>();
+        for (int i = 0; i < SERIES.length; i++) {
+            perSeries.add(new ArrayList<>());
+        }
+        for (Rule rule : rules) {
+            perSeries.get(rule.getSeries().ordinal()).add(rule);
+        }
+        for (HistorySeries series : SERIES) {
+            bySeries[series.ordinal()] = buildWindows(perSeries.get(series.ordinal()));
+        }
+    }
+
+    /**
+     * Adds a sample of {@code series} taken at {@code timeMillis}. A time
+     * before the series' latest sample is taken as that time.
+     */
+    public void record(HistorySeries series, long timeMillis, double value) {
+        if (Double.isNaN(value)) {
+            return;
+        }
+        int index = series.ordinal();
+        if (!Double.isNaN(lastValues[index])) {
+            timeMillis = Math.max(timeMillis, lastTimes[index]);
+        }
+        lastTimes[index] = timeMillis;
+        lastValues[index] = value;
+        for (WindowGroups windowGroups : bySeries[series.ordinal()]) {
+            windowGroups.window.add(timeMillis, value);
+            for (ThresholdGroup group : windowGroups.groups) {
+                group.update(windowGroups.window.get(group.aggregate), listener);
+            }
+        }
+    }
+
+    /**
+     * Takes the latest sample of every series to still hold at
+     * {@code nowMillis}, as if it had been sent again.
+     */
+    public void advance(long nowMillis) {
+        for (HistorySeries series : SERIES) {
+            int index = series.ordinal();
+            if (!Double.isNaN(lastValues[index]) && nowMillis > lastTimes[index]) {
+                record(series, nowMillis, lastValues[index]);
+            }
+        }
+    }
+
+    /**
+     * Stops carrying the latest samples forward until new ones arrive, e.g.
+     * once they may have gone stale. Windows and rule states stay as they are.
+     */
+    public void forgetLatest() {
+        Arrays.fill(lastValues, Double.NaN);
+    }
+
+    /** Forgets the samples of {@code series}; its holding rules are reported cleared. */
+    public void reset(HistorySeries series) {
+        lastValues[series.ordinal()] = Double.NaN;
+        WindowGroups[] windows = bySeries[series.ordinal()];
+        if (windows == null) {
+            return;
+        }
+        for (WindowGroups windowGroups : windows) {
+            windowGroups.window.reset();
+            for (ThresholdGroup group : windowGroups.groups) {
+                group.update(Double.NaN, listener);
+            }
+        }
+    }
+
+    /** Whether {@code rule} currently holds; false for rules this engine does not have. */
+    public boolean isHolding(Rule rule) {
+        WindowGroups[] windows = bySeries[rule.getSeries().ordinal()];
+        for (WindowGroups windowGroups : windows) {
+            for (ThresholdGroup group : windowGroups.groups) {
+                if (group.isHolding(rule)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static WindowGroups[] buildWindows(List<Rule> rules) {
+        List<WindowGroups> windows = new ArrayList<>();
+        for (Rule rule : rules) {
+            WindowGroups target = null;
+            for (WindowGroups windowGroups : windows) {
+                if (windowGroups.window.getWindowMillis() == rule.getWindowMillis()) {
+                    target = windowGroups;
+                    break;
+                }
+            }
+            if (target == null) {
+                target = new WindowGroups(new SlidingWindow(rule.getWindowMillis()));
+                windows.add(target);
+            }
+            target.add(rule);
+        }
+        WindowGroups[] result = windows.toArray(new WindowGroups[0]);
+        for (WindowGroups windowGroups : result) {
+            windowGroups.seal();
+        }
+        return result;
+    }
+
+    /** One window and the groups of rules reading it. */
+    private static final class WindowGroups {
+        final SlidingWindow window;
+        final List<Rule> rules = new ArrayList<>();
+        ThresholdGroup[] groups;
+
+        WindowGroups(SlidingWindow window) {
+            this.window = window;
+        }
+
+        void add(Rule rule) {
+            rules.add(rule);
+        }
+
+        void seal() {
+            List<ThresholdGroup> built = new ArrayList<>();
+            for (Rule.Aggregate aggregate : Rule.Aggregate.values()) {
+                for (Rule.Op op : Rule.Op.values()) {
+                    List<Rule> members = new ArrayList<>();
+                    for (Rule rule : rules) {
+                        if (rule.getAggregate() == aggregate && rule.getOp() == op) {
+                            members.add(rule);
+                        }
+                    }
+                    if (!members.isEmpty()) {
+                        built.add(new ThresholdGroup(aggregate, op, members));
+                    }
+                }
+            }
+            groups = built.toArray(new ThresholdGroup[0]);
+        }
+    }
+
+    /**
+     * Rules sharing a window, aggregate and comparison, sorted by threshold.
+     * Rules {@code [0, boundary)} hold for {@code ABOVE}, rules
+     * {@code [boundary, n)} for {@code BELOW}.
+     */
+    private static final class ThresholdGroup {
+        final Rule.Aggregate aggregate;
+        final boolean above;
+        final Rule[] rules;
+        final double[] thresholds;
+        int boundary;
+
+        ThresholdGroup(Rule.Aggregate aggregate, Rule.Op op, List<Rule> members) {
+            this.aggregate = aggregate;
+            this.above = op == Rule.Op.ABOVE;
+            rules = members.toArray(new Rule[0]);
+            // Ascending, so above holds from the lowest threshold up and below from the highest down
+            Arrays.sort(rules, (a, b) -> Double.compare(a.getThreshold(), b.getThreshold()));
+            thresholds = new double[rules.length];
+            for (int i = 0; i < rules.length; i++) {
+                thresholds[i] = rules[i].getThreshold();
+            }
+            boundary = noneHolding();
+        }
+
+        void update(double value, Listener listener) {
+            int next = Double.isNaN(value) ? noneHolding() : boundaryFor(value);
+            if (next == boundary) {
+                return;
+            }
+            int from = Math.min(boundary, next);
+            int to = Math.max(boundary, next);
+            // Above: a growing prefix means newly holding rules; below: a shrinking start does
+            boolean triggered = above ? next > boundary : next < boundary;
+            boundary = next;
+            for (int i = from; i < to; i++) {
+                if (triggered) {
+                    listener.onRuleTriggered(rules[i], value);
+                } else {
+                    listener.onRuleCleared(rules[i]);
+                }
+            }
+        }
+
+        boolean isHolding(Rule rule) {
+            for (int i = 0; i < rules.length; i++) {
+                if (rules[i] == rule) {
+                    return above ? i < boundary : i >= boundary;
+                }
+            }
+            return false;
+        }
+
+        private int noneHolding() {
+            return above ? 0 : rules.length;
+        }
+
+        // Above: number of thresholds below value; below: index of the first threshold above value
+        private int boundaryFor(double value) {
+            int low = 0;
+            int high = thresholds.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (above ? thresholds[mid] < value : thresholds[mid] <= value) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package com.example.acar.rules;
+
+/**
+ * The samples of one series from the last {@code windowMillis}, with its
+ * mean, minimum, maximum and rate of change kept up to date as samples come
+ * and go. Each sample is added and expired once, so every aggregate costs
+ * amortised constant time per sample however long the window is.
+ *
+ * <p>The mean comes from a running sum; minimum and maximum from monotonic
+ * queues whose front is the extreme of the window. Samples are addressed by
+ * an ever-increasing sequence number, so the queues stay valid while the
+ * ring doubles.</p>
+ *
+ * <p>Until the samples since the last {@link #reset} span the whole window
+ * it is not {@link #isCovered covered} and every aggregate is NaN: a rule
+ * over 30 s must not fire on the first two readings.</p>
+ */
+final class SlidingWindow {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final long windowMillis;
+
+    // Samples with sequence numbers [head, tail), at index seq & mask
+    private long[] times = new long[INITIAL_CAPACITY];
+    private double[] values = new double[INITIAL_CAPACITY];
+    private int mask = INITIAL_CAPACITY - 1;
+    private long head, tail;
+    private double sum;
+
+    // Sequence numbers with increasing (min) or decreasing (max) values
+    private final SequenceQueue minQueue = new SequenceQueue();
+    private final SequenceQueue maxQueue = new SequenceQueue();
+
+    // Time of the first sample since the window was last empty
+    private long coveredFrom;
+
+    SlidingWindow(long windowMillis) {
+        this.windowMillis = windowMillis;
+    }
+
+    long getWindowMillis() {
+        return windowMillis;
+    }
+
+    void add(long time, double value) {
+        expire(time);
+        if (head == tail) {
+            coveredFrom = time;
+            sum = 0;
+        }
+        if (tail - head == times.length) {
+            grow();
+        }
+        long seq = tail++;
+        times[(int) seq & mask] = time;
+        values[(int) seq & mask] = value;
+        sum += value;
+        while (!minQueue.isEmpty() && valueAt(minQueue.peekLast()) >= value) {
+            minQueue.removeLast();
+        }
+        minQueue.addLast(seq);
+        while (!maxQueue.isEmpty() && valueAt(maxQueue.peekLast()) <= value) {
+            maxQueue.removeLast();
+        }
+        maxQueue.addLast(seq);
+    }
+
+    /** Drops every sample, e.g. when the series stops or jumps to another rover. */
+    void reset() {
+        head = tail;
+        sum = 0;
+        minQueue.clear();
+        maxQueue.clear();
+    }
+
+    boolean isCovered() {
+        return head != tail && times[(int) (tail - 1) & mask] - coveredFrom >= windowMillis;
+    }
+
+    double get(Rule.Aggregate aggregate) {
+        if (!isCovered()) {
+            return Double.NaN;
+        }
+        switch (aggregate) {
+            case MEAN:
+                return sum / (tail - head);
+            case MIN:
+                return valueAt(minQueue.peekFirst());
+            case MAX:
+                return valueAt(maxQueue.peekFirst());
+            case RATE:
+                long span = times[(int) (tail - 1) & mask] - times[(int) head & mask];
+                return span == 0 ? Double.NaN
+                        : (values[(int) (tail - 1) & mask] - values[(int) head & mask]) * 60_000.0 / span;
+            default:
+                throw new IllegalArgumentException("Unknown aggregate " + aggregate);
+        }
+    }
+
+    int size() {
+        return (int) (tail - head);
+    }
+
+    private void expire(long now) {
+        long oldest = now - windowMillis;
+        while (head != tail && times[(int) head & mask] <= oldest) {
+            sum -= values[(int) head & mask];
+            if (minQueue.peekFirst() == head) {
+                minQueue.removeFirst();
+            }
+            if (maxQueue.peekFirst() == head) {
+                maxQueue.removeFirst();
+            }
+            head++;
+        }
+    }
+
+    private double valueAt(long seq) {
+        return values[(int) seq & mask];
+    }
+
+    private void grow() {
+        int capacity = times.length * 2;
+        long[] newTimes = new long[capacity];
+        double[] newValues = new double[capacity];
+        for (long seq = head; seq != tail; seq++) {
+            newTimes[(int) seq & (capacity - 1)] = times[(int) seq & mask];
+            newValues[(int) seq & (capacity - 1)] = values[(int) seq & mask];
+        }
+        times = newTimes;
+        values = newValues;
+        mask = capacity - 1;
+    }
+
+    /** Growable ring of sequence numbers, open at both ends. */
+    private static final class SequenceQueue {
+        private long[] items = new long[INITIAL_CAPACITY];
+        private int first, count;
+
+        boolean isEmpty() {
+            return count == 0;
+        }
+
+        long peekFirst() {
+            return count == 0 ? -1 : items[first];
+        }
+
+        long peekLast() {
+            return items[(first + count - 1) & (items.length - 1)];
+        }
+
+        void addLast(long seq) {
+            if (count == items.length) {
+                long[] grown = new long[items.length * 2];
+                for (int i = 0; i < count; i++) {
+                    grown[i] = items[(first + i) & (items.length - 1)];
+                }
+                items = grown;
+                first = 0;
+            }
+            items[(first + count++) & (items.length - 1)] = seq;
+        }
+
+        void removeFirst() {
+            first = (first + 1) & (items.length - 1);
+            count--;
+        }
+
+        void removeLast() {
+            count--;
+        }
+
+        void clear() {
+            first = 0;
+            count = 0;
+        }
+    }
+}
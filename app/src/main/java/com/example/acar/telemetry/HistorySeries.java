@@ -0,0 +1,27 @@
+package com.example.acar.telemetry;
+
+/**
+ * Scalar series kept by the {@link TelemetryHistory}.
+ */
+public enum HistorySeries {
+    TEMPERATURE("Temperature", "°C"),
+    HUMIDITY("Humidity", "%"),
+    MOISTURE("Soil Moisture", "%"),
+    RAIN("Rain", "");
+
+    private final String label;
+    private final String unit;
+
+    HistorySeries(String label, String unit) {
+        this.label = label;
+        this.unit = unit;
+    }
+
+    public String label() {
+        return label;
+    }
+
+    public String unit() {
+        return unit;
+    }
+}
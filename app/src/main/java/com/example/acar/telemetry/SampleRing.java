@@ -0,0 +1,74 @@
+package com.example.acar.telemetry;
+
+/**
+ * Fixed-capacity ring of (time, value) samples kept in primitive arrays.
+ * Once full, each new sample overwrites the oldest one. Times are expected
+ * to be non-decreasing. Not thread-safe.
+ */
+public final class SampleRing {
+
+    private final long[] times;
+    private final double[] values;
+    private int next;
+    private int size;
+
+    public SampleRing(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        times = new long[capacity];
+        values = new double[capacity];
+    }
+
+    public void add(long time, double value) {
+        times[next] = time;
+        values[next] = value;
+        next = next + 1 == times.length ? 0 : next + 1;
+        if (size < times.length) {
+            size++;
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return times.length;
+    }
+
+    /** Time of the {@code i}-th retained sample, oldest first. */
+    public long timeAt(int i) {
+        return times[physical(i)];
+    }
+
+    /** Value of the {@code i}-th retained sample, oldest first. */
+    public double valueAt(int i) {
+        return values[physical(i)];
+    }
+
+    /** Index of the first retained sample with time &gt;= {@code time}, or {@link #size()} if none. */
+    public int firstIndexAtOrAfter(long time) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (timeAt(mid) < time) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    public void clear() {
+        next = 0;
+        size = 0;
+    }
+
+    private int physical(int i) {
+        int index = next - size + i;
+        return index < 0 ? index + times.length : index;
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.acar.telemetry;
+
+/**
+ * Receives every sample of the scalar {@link HistorySeries} as the
+ * {@link TelemetryHub} records it, stamped with its arrival time
+ * ({@code elapsedRealtime}), along with every GPS fix. Rain is 1 while
+ * raining and 0 otherwise. All callbacks run on the main thread.
+ */
+public interface SeriesListener {
+
+    void onSample(HistorySeries series, long timeMillis, double value);
+
+    /** The series stopped: its channel became unavailable or the source changed. */
+    default void onSeriesUnavailable(HistorySeries series) {
+    }
+
+    /** New GPS fix in decimal degrees. */
+    default void onFix(long timeMillis, double latitude, double longitude) {
+    }
+
+    /** The GPS channel stopped: its channel became unavailable or the source changed. */
+    default void onFixesUnavailable() {
+    }
+}
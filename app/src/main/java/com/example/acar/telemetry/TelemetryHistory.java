@@ -0,0 +1,44 @@
+package com.example.acar.telemetry;
+
+import androidx.annotation.MainThread;
+
+/**
+ * Recent history of every {@link HistorySeries}, fed by the
+ * {@link TelemetryHub} as samples arrive.
+ *
+ * <p>Each series keeps its last {@link #CAPACITY} samples in a
+ * {@link SampleRing}: 16 bytes per sample, so the four series together stay
+ * around 2 MB while holding over nine hours of 1 Hz readings.</p>
+ */
+@MainThread
+public final class TelemetryHistory {
+
+    public static final int CAPACITY = 32 * 1024;
+
+    private static TelemetryHistory instance;
+
+    private final SampleRing[] rings = new SampleRing[HistorySeries.values().length];
+
+    private TelemetryHistory() {
+        for (int i = 0; i < rings.length; i++) {
+            rings[i] = new SampleRing(CAPACITY);
+        }
+    }
+
+    public static synchronized TelemetryHistory getInstance() {
+        if (instance == null) {
+            instance = new TelemetryHistory();
+        }
+        return instance;
+    }
+
+    public SampleRing get(HistorySeries series) {
+        return rings[series.ordinal()];
+    }
+
+    void record(HistorySeries series, long time, double value) {
+        if (!Double.isNaN(value)) {
+            rings[series.ordinal()].add(time, value);
+        }
+    }
+}
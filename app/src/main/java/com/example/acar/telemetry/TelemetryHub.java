@@ -0,0 +1,388 @@
+package com.example.acar.telemetry;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleEventObserver;
+import androidx.lifecycle.LifecycleOwner;
+
+import com.example.acar.metrics.StartupTrace;
+import com.example.acar.transport.RoverLink;
+import com.example.acar.transport.RoverTransport;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Process-wide source of rover telemetry.
+ *
+ * <p>The hub keeps a single telemetry subscription on the active
+ * {@link com.example.acar.transport.RoverTransport}, which decodes every
+ * update once, records it in the {@link TelemetryHistory} and fans the typed
+ * values out to its subscribers through a {@link TelemetryFanout}.
+ * Subscriptions follow the lifecycle of their owner: they receive samples
+ * between {@code ON_START} and {@code ON_STOP} and are dropped on
+ * {@code ON_DESTROY}. The transport subscription is only held while at least
+ * one subscriber is started.</p>
+ *
+ * <p>Screens also declare which channels they show with {@link #need}. The
+ * hub turns the channels of the resumed screens into {@link TelemetryRates}
+ * and asks the rover for them, so a backgrounded app leaves the rover
+ * publishing only a trickle of safety readings. Rates go up as soon as a
+ * screen resumes and down only after {@link #RATE_DROP_DELAY_MS}, so moving
+ * between screens does not make the rover flap.</p>
+ *
+ * <p>Must only be used from the main thread.</p>
+ */
+public final class TelemetryHub {
+
+    private static final String TAG = "TelemetryHub";
+    private static final SensorChannel[] CHANNELS = SensorChannel.values();
+    /** Grace period before the rover is asked to slow down. */
+    static final long RATE_DROP_DELAY_MS = 2000;
+
+    private static TelemetryHub instance;
+
+    // Started subscribers and the latest values replayed to them when they start
+    private final TelemetryFanout started = new TelemetryFanout();
+
+    // Transport the telemetry subscription is held on, null while detached
+    private RoverTransport attachedTransport;
+
+    // Arrival time of the last sample per channel (elapsedRealtime), 0 if none yet
+    private final long[] lastArrival = new long[CHANNELS.length];
+    // Age of the batched sample being delivered, 0 outside a batch
+    private long sampleAge;
+    // Latest time a sample was recorded at, so batches never step back in time
+    private long lastStamp;
+
+    private final TelemetryHistory history = TelemetryHistory.getInstance();
+    // Process-wide series listeners, fed whenever the hub is attached
+    private SeriesListener[] seriesListeners = new SeriesListener[0];
+
+    // Channel sets of the resumed screens
+    private final List<Set<SensorChannel>> needed = new ArrayList<>();
+    // What the rover was last asked for, and through which transport
+    private TelemetryRates requestedRates;
+    private RoverTransport ratesTransport;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Runnable applyRates = this::applyRates;
+
+    // Receives samples already decoded by the active transport
+    private final TelemetryListener ingest = new TelemetryListener() {
+        @Override
+        public void onClimate(double temperature, double humidity) {
+            long now = arrived(SensorChannel.CLIMATE);
+            record(HistorySeries.TEMPERATURE, now, temperature);
+            record(HistorySeries.HUMIDITY, now, humidity);
+            started.onClimate(temperature, humidity);
+        }
+
+        @Override
+        public void onGps(double latitude, double longitude) {
+            long now = arrived(SensorChannel.GPS);
+            for (SeriesListener listener : seriesListeners) {
+                listener.onFix(now, latitude, longitude);
+            }
+            started.onGps(latitude, longitude);
+        }
+
+        @Override
+        public void onRain(boolean raining) {
+            record(HistorySeries.RAIN, arrived(SensorChannel.RAIN), raining ? 1 : 0);
+            started.onRain(raining);
+        }
+
+        @Override
+        public void onMoisture(int moisture) {
+            record(HistorySeries.MOISTURE, arrived(SensorChannel.MOISTURE), moisture);
+            started.onMoisture(moisture);
+        }
+
+        @Override
+        public void onObstacle(double distanceCm, boolean leftBlocked, boolean rightBlocked) {
+            arrived(SensorChannel.OBSTACLE);
+            started.onObstacle(distanceCm, leftBlocked, rightBlocked);
+        }
+
+        @Override
+        public void onImu(double yawRate, double heading) {
+            arrived(SensorChannel.IMU);
+            started.onImu(yawRate, heading);
+        }
+
+        @Override
+        public void onSampleAge(long millis) {
+            sampleAge = millis;
+        }
+
+        @Override
+        public void onChannelUnavailable(SensorChannel channel) {
+            markUnavailable(channel);
+        }
+    };
+
+    private TelemetryHub() {
+    }
+
+    public static synchronized TelemetryHub getInstance() {
+        if (instance == null) {
+            instance = new TelemetryHub();
+        }
+        return instance;
+    }
+
+    /**
+     * Registers a listener whose deliveries are bound to the lifecycle of
+     * {@code owner}. Cached values are replayed as soon as the owner starts.
+     */
+    @MainThread
+    public void subscribe(@NonNull LifecycleOwner owner, @NonNull TelemetryListener listener) {
+        owner.getLifecycle().addObserver(new Subscription(listener));
+    }
+
+    /**
+     * Declares that {@code owner} shows {@code channels}: they run at full
+     * rate while it is resumed.
+     */
+    @MainThread
+    public void need(@NonNull LifecycleOwner owner, @NonNull Set<SensorChannel> channels) {
+        owner.getLifecycle().addObserver(new Need(EnumSet.copyOf(channels)));
+    }
+
+    /**
+     * Adds a listener for the scalar series and GPS fixes that stays
+     * registered for the life of the process. It hears samples only while
+     * the hub is attached, i.e. while some subscriber is started, and only
+     * at the rates the visible screens asked the rover for. In the
+     * background it hears nothing, not even the safety channels the rover
+     * keeps trickling.
+     */
+    @MainThread
+    public void addSeriesListener(@NonNull SeriesListener listener) {
+        SeriesListener[] grown = Arrays.copyOf(seriesListeners, seriesListeners.length + 1);
+        grown[seriesListeners.length] = listener;
+        seriesListeners = grown;
+    }
+
+    /** The rates last requested from the rover, or null before the first screen resumed. */
+    @MainThread
+    public TelemetryRates getRequestedRates() {
+        return requestedRates;
+    }
+
+    /**
+     * Milliseconds since the last sample of {@code channel} arrived on this
+     * device, or -1 if none has arrived yet.
+     */
+    @MainThread
+    public long getSampleAgeMillis(SensorChannel channel) {
+        long arrival = lastArrival[channel.ordinal()];
+        return arrival == 0 ? -1 : SystemClock.elapsedRealtime() - arrival;
+    }
+
+    /** Number of subscribers currently receiving samples. */
+    @MainThread
+    public int getActiveSubscriberCount() {
+        return started.size();
+    }
+
+    private void start(TelemetryListener listener) {
+        if (!started.add(listener)) {
+            return;
+        }
+        if (attachedTransport == null) {
+            attach();
+        }
+    }
+
+    private void stop(TelemetryListener listener) {
+        if (!started.remove(listener)) {
+            return;
+        }
+        if (started.size() == 0 && attachedTransport != null) {
+            detach();
+        }
+    }
+
+    /**
+     * Moves the telemetry subscription to the transport {@link RoverLink} now
+     * hands out, e.g. when a replay starts or ends. Cached values are dropped.
+     */
+    @MainThread
+    public void onTransportChanged() {
+        if (ratesTransport != null && ratesTransport != RoverLink.getTransport()) {
+            // The rover left behind goes back to a trickle; the new one hears what is needed now
+            ratesTransport.setTelemetryRates(TelemetryRates.BACKGROUND, null);
+            ratesTransport = null;
+            applyRates();
+        }
+        if (attachedTransport != null) {
+            detach();
+            // Screens show the fallback text until the new source delivers
+            for (SensorChannel channel : CHANNELS) {
+                markUnavailable(channel);
+            }
+            attach();
+        }
+    }
+
+    private void onNeedsChanged() {
+        handler.removeCallbacks(applyRates);
+        if (requestedRates == null || wantedRates().atLeast(requestedRates)) {
+            applyRates();
+        } else {
+            handler.postDelayed(applyRates, RATE_DROP_DELAY_MS);
+        }
+    }
+
+    private TelemetryRates wantedRates() {
+        Set<SensorChannel> visible = EnumSet.noneOf(SensorChannel.class);
+        for (Set<SensorChannel> channels : needed) {
+            visible.addAll(channels);
+        }
+        return TelemetryRates.forVisible(visible);
+    }
+
+    private void applyRates() {
+        handler.removeCallbacks(applyRates);
+        TelemetryRates wanted = wantedRates();
+        RoverTransport transport = RoverLink.getTransport();
+        if (wanted.equals(requestedRates) && transport == ratesTransport) {
+            return;
+        }
+        requestedRates = wanted;
+        ratesTransport = transport;
+        Log.d(TAG, "Requesting " + wanted);
+        transport.setTelemetryRates(wanted, error -> {
+            if (error != null) {
+                Log.w(TAG, "Could not send telemetry rates", error);
+            }
+        });
+    }
+
+    private void attach() {
+        attachedTransport = RoverLink.getTransport();
+        attachedTransport.startTelemetry(ingest);
+        Log.d(TAG, "Attached to sensors");
+    }
+
+    private void detach() {
+        attachedTransport.stopTelemetry();
+        attachedTransport = null;
+        // Values go stale once nobody is listening; the next attach re-reads them
+        started.clear();
+        Log.d(TAG, "Detached from sensors");
+    }
+
+    // Stamps a sample of channel as arrived now, before it is published; returns the
+    // time it was taken, earlier than now for all but the newest sample of a batch
+    private long arrived(SensorChannel channel) {
+        long now = SystemClock.elapsedRealtime();
+        lastArrival[channel.ordinal()] = now;
+        if (started.size() > 0) {
+            StartupTrace.getInstance().mark(StartupTrace.Phase.FIRST_TELEMETRY);
+        }
+        lastStamp = Math.max(lastStamp, now - sampleAge);
+        return lastStamp;
+    }
+
+    private void markUnavailable(SensorChannel channel) {
+        started.onChannelUnavailable(channel);
+        switch (channel) {
+            case CLIMATE:
+                endSeries(HistorySeries.TEMPERATURE);
+                endSeries(HistorySeries.HUMIDITY);
+                break;
+            case RAIN:
+                endSeries(HistorySeries.RAIN);
+                break;
+            case MOISTURE:
+                endSeries(HistorySeries.MOISTURE);
+                break;
+            case GPS:
+                for (SeriesListener listener : seriesListeners) {
+                    listener.onFixesUnavailable();
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void record(HistorySeries series, long now, double value) {
+        history.record(series, now, value);
+        for (SeriesListener listener : seriesListeners) {
+            listener.onSample(series, now, value);
+        }
+    }
+
+    private void endSeries(HistorySeries series) {
+        for (SeriesListener listener : seriesListeners) {
+            listener.onSeriesUnavailable(series);
+        }
+    }
+
+    /** Counts one screen's channels while it is resumed. */
+    private final class Need implements LifecycleEventObserver {
+        private final Set<SensorChannel> channels;
+
+        Need(Set<SensorChannel> channels) {
+            this.channels = channels;
+        }
+
+        @Override
+        public void onStateChanged(@NonNull LifecycleOwner source, @NonNull Lifecycle.Event event) {
+            switch (event) {
+                case ON_RESUME:
+                    needed.add(channels);
+                    onNeedsChanged();
+                    break;
+                case ON_PAUSE:
+                    needed.remove(channels);
+                    onNeedsChanged();
+                    break;
+                case ON_DESTROY:
+                    source.getLifecycle().removeObserver(this);
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    /** Ties one listener to the lifecycle of its owner. */
+    private final class Subscription implements LifecycleEventObserver {
+        private final TelemetryListener listener;
+
+        Subscription(TelemetryListener listener) {
+            this.listener = listener;
+        }
+
+        @Override
+        public void onStateChanged(@NonNull LifecycleOwner source, @NonNull Lifecycle.Event event) {
+            switch (event) {
+                case ON_START:
+                    start(listener);
+                    break;
+                case ON_STOP:
+                    stop(listener);
+                    break;
+                case ON_DESTROY:
+                    stop(listener);
+                    source.getLifecycle().removeObserver(this);
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+}
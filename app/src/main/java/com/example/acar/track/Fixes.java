@@ -0,0 +1,106 @@
+package com.example.acar.track;
+
+import java.util.Arrays;
+
+/**
+ * Every GPS fix of a track, in arrival order, split into segments wherever
+ * the fixes stopped for a while.
+ *
+ * <p>Positions are kept as integers of 1e-7 degree (about a centimetre) in
+ * parallel primitive arrays, 16 bytes a fix, so half a million fixes from a
+ * long survey take 8 MB and no objects. The arrays only grow.</p>
+ */
+public final class Fixes {
+
+    private static final double E7 = 1e7;
+
+    private long[] times;
+    private int[] latitudes;
+    private int[] longitudes;
+    private int size;
+    // Index of the first fix of each segment
+    private int[] segmentStarts = new int[8];
+    private int segmentCount;
+
+    public Fixes() {
+        this(1024);
+    }
+
+    private Fixes(int capacity) {
+        times = new long[capacity];
+        latitudes = new int[capacity];
+        longitudes = new int[capacity];
+    }
+
+    /** Appends a fix, starting a new segment if {@code startsSegment} or if it is the first. */
+    void add(long timeMillis, double latitude, double longitude, boolean startsSegment) {
+        if (size == times.length) {
+            int capacity = size * 2;
+            times = Arrays.copyOf(times, capacity);
+            latitudes = Arrays.copyOf(latitudes, capacity);
+            longitudes = Arrays.copyOf(longitudes, capacity);
+        }
+        if (startsSegment || size == 0) {
+            if (segmentCount == segmentStarts.length) {
+                segmentStarts = Arrays.copyOf(segmentStarts, segmentCount * 2);
+            }
+            segmentStarts[segmentCount++] = size;
+        }
+        times[size] = timeMillis;
+        latitudes[size] = (int) Math.round(latitude * E7);
+        longitudes[size] = (int) Math.round(longitude * E7);
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long timeAt(int i) {
+        return times[i];
+    }
+
+    public double latitudeAt(int i) {
+        return latitudes[i] / E7;
+    }
+
+    public double longitudeAt(int i) {
+        return longitudes[i] / E7;
+    }
+
+    /** Latitude in 1e-7 degree, as stored. */
+    public int latitudeE7At(int i) {
+        return latitudes[i];
+    }
+
+    /** Longitude in 1e-7 degree, as stored. */
+    public int longitudeE7At(int i) {
+        return longitudes[i];
+    }
+
+    public int segmentCount() {
+        return segmentCount;
+    }
+
+    /** Index of the first fix of segment {@code s}. */
+    public int segmentStart(int s) {
+        return segmentStarts[s];
+    }
+
+    /** Index one past the last fix of segment {@code s}. */
+    public int segmentEnd(int s) {
+        return s + 1 < segmentCount ? segmentStarts[s + 1] : size;
+    }
+
+    /** An independent copy, e.g. to write out on another thread while recording goes on. */
+    public Fixes copy() {
+        Fixes copy = new Fixes(Math.max(size, 1));
+        System.arraycopy(times, 0, copy.times, 0, size);
+        System.arraycopy(latitudes, 0, copy.latitudes, 0, size);
+        System.arraycopy(longitudes, 0, copy.longitudes, 0, size);
+        copy.size = size;
+        copy.segmentStarts = Arrays.copyOf(segmentStarts, Math.max(segmentCount, 1));
+        copy.segmentCount = segmentCount;
+        return copy;
+    }
+}
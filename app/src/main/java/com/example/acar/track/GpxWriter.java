@@ -0,0 +1,94 @@
+package com.example.acar.track;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * Writes {@link Fixes} as a GPX 1.1 track, one {@code trkseg} per segment
+ * and every fix at full resolution.
+ *
+ * <p>Coordinates are printed straight from their 1e-7 degree integers and
+ * the timestamp is only reformatted when the second changes, so a survey of
+ * several hundred thousand fixes writes in one pass with little garbage.
+ * Wrap the writer in a buffer.</p>
+ */
+public final class GpxWriter {
+
+    private final Writer out;
+    private final StringBuilder line = new StringBuilder(128);
+    private final SimpleDateFormat seconds = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss", Locale.US);
+    private long formattedSecond = Long.MIN_VALUE;
+    private String formatted;
+
+    public GpxWriter(Writer out) {
+        this.out = out;
+        seconds.setTimeZone(TimeZone.getTimeZone("UTC"));
+    }
+
+    /**
+     * Writes the whole document. Fix times are turned into wall-clock time
+     * by adding {@code wallClockOffsetMillis}.
+     */
+    public void write(Fixes fixes, String name, long wallClockOffsetMillis) throws IOException {
+        out.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+        out.write("<gpx version=\"1.1\" creator=\"ACar\" xmlns=\"http://www.topografix.com/GPX/1/1\">\n");
+        out.write("  <trk>\n    <name>");
+        out.write(escape(name));
+        out.write("</name>\n");
+        for (int s = 0; s < fixes.segmentCount(); s++) {
+            out.write("    <trkseg>\n");
+            for (int i = fixes.segmentStart(s); i < fixes.segmentEnd(s); i++) {
+                line.setLength(0);
+                line.append("      <trkpt lat=\"");
+                appendDegrees(fixes.latitudeE7At(i));
+                line.append("\" lon=\"");
+                appendDegrees(fixes.longitudeE7At(i));
+                line.append("\"><time>");
+                appendTime(fixes.timeAt(i) + wallClockOffsetMillis);
+                line.append("</time></trkpt>\n");
+                out.append(line);
+            }
+            out.write("    </trkseg>\n");
+        }
+        out.write("  </trk>\n</gpx>\n");
+        out.flush();
+    }
+
+    private void appendDegrees(int e7) {
+        if (e7 < 0) {
+            line.append('-');
+        }
+        long magnitude = Math.abs((long) e7);
+        line.append(magnitude / 10_000_000).append('.');
+        long fraction = magnitude % 10_000_000;
+        for (long digit = 1_000_000; digit > fraction && digit > 1; digit /= 10) {
+            line.append('0');
+        }
+        line.append(fraction);
+    }
+
+    private void appendTime(long millis) {
+        long second = Math.floorDiv(millis, 1000);
+        if (second != formattedSecond) {
+            formattedSecond = second;
+            formatted = seconds.format(new Date(second * 1000));
+        }
+        int fraction = (int) Math.floorMod(millis, 1000);
+        line.append(formatted).append('.');
+        if (fraction < 100) {
+            line.append('0');
+        }
+        if (fraction < 10) {
+            line.append('0');
+        }
+        line.append(fraction).append('Z');
+    }
+
+    private static String escape(String text) {
+        return text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;");
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.acar.track;
+
+import com.example.acar.navigation.LocalFrame;
+
+/**
+ * A growing GPS track: every fix in {@link Fixes} plus a {@link TrackLevel}
+ * per zoom level, simplified as the fixes arrive. Drawing picks the level
+ * whose tolerance is just under a pixel, so a track of any length costs
+ * about as many points as the shape of the route needs at that scale
+ * rather than one per fix.
+ *
+ * <p>Distances are measured in a {@link LocalFrame} around the first fix. A
+ * gap of more than {@link #GAP_MS} between fixes, or a call to
+ * {@link #breakSegment}, starts a new segment so the track never draws a
+ * straight line across a stretch it knows nothing about.</p>
+ *
+ * <p>Not thread safe; the app drives it from the main thread.</p>
+ */
+public final class Track {
+
+    /** Silence after which the next fix starts a new segment. */
+    public static final long GAP_MS = 30_000;
+    // Finest level first; each four times coarser than the one before
+    private static final double[] TOLERANCES_M = {0.25, 1, 4, 16, 64, 256};
+
+    private final Fixes fixes = new Fixes();
+    private final TrackLevel[] levels = new TrackLevel[TOLERANCES_M.length];
+    private final LocalFrame frame = new LocalFrame();
+    private boolean breakPending;
+    private double minX, maxX, minY, maxY;
+
+    public Track() {
+        TrackLevel coarser = null;
+        for (int i = levels.length - 1; i >= 0; i--) {
+            levels[i] = new TrackLevel(TOLERANCES_M[i], coarser);
+            coarser = levels[i];
+        }
+    }
+
+    /**
+     * Adds a fix taken at {@code timeMillis}; times must not go back.
+     * Positions outside the valid range are ignored.
+     */
+    public void add(long timeMillis, double latitude, double longitude) {
+        if (!(Math.abs(latitude) <= 90 && Math.abs(longitude) <= 180)) {
+            return;
+        }
+        int index = fixes.size();
+        boolean startsSegment = breakPending || (index > 0 && timeMillis - fixes.timeAt(index - 1) > GAP_MS);
+        breakPending = false;
+        fixes.add(timeMillis, latitude, longitude, startsSegment);
+        if (index == 0) {
+            frame.setOrigin(latitude, longitude);
+        }
+        double x = frame.toX(longitude);
+        double y = frame.toY(latitude);
+        if (index == 0) {
+            minX = maxX = x;
+            minY = maxY = y;
+        } else {
+            minX = Math.min(minX, x);
+            maxX = Math.max(maxX, x);
+            minY = Math.min(minY, y);
+            maxY = Math.max(maxY, y);
+        }
+        levels[0].add(index, x, y, startsSegment);
+    }
+
+    /** Makes the next fix start a new segment, e.g. when the GPS went away. */
+    public void breakSegment() {
+        breakPending = true;
+    }
+
+    public Fixes getFixes() {
+        return fixes;
+    }
+
+    public int levelCount() {
+        return levels.length;
+    }
+
+    /** Level {@code i}, 0 being the finest. */
+    public TrackLevel level(int i) {
+        return levels[i];
+    }
+
+    /** The coarsest level still accurate to {@code metersPerPixel}, or the finest if none is. */
+    public TrackLevel levelFor(double metersPerPixel) {
+        TrackLevel best = levels[0];
+        for (TrackLevel level : levels) {
+            if (level.getToleranceMeters() <= metersPerPixel) {
+                best = level;
+            }
+        }
+        return best;
+    }
+
+    /** Metres east of the first fix of fix {@code i}. */
+    public double xAt(int i) {
+        return frame.toX(fixes.longitudeAt(i));
+    }
+
+    /** Metres north of the first fix of fix {@code i}. */
+    public double yAt(int i) {
+        return frame.toY(fixes.latitudeAt(i));
+    }
+
+    // Bounds of all fixes in metres; undefined while the track is empty
+
+    public double getMinX() {
+        return minX;
+    }
+
+    public double getMaxX() {
+        return maxX;
+    }
+
+    public double getMinY() {
+        return minY;
+    }
+
+    public double getMaxY() {
+        return maxY;
+    }
+}
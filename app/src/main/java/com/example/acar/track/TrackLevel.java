@@ -0,0 +1,171 @@
+package com.example.acar.track;
+
+import java.util.Arrays;
+
+/**
+ * A simplified copy of a track for one zoom level: the indices of the fixes
+ * kept, none of which the dropped fixes stray further than the tolerance
+ * from.
+ *
+ * <p>Points are simplified as they arrive, in two steps. A radial-distance
+ * filter first drops fixes closer than the tolerance to the last one taken,
+ * which removes the jitter of a rover standing still. The rest go through
+ * an opening window, the streaming form of Douglas–Peucker: fixes collect
+ * behind the last kept one for as long as the segment from it to the newest
+ * fix passes within the tolerance of all of them, and when it no longer
+ * does the previous fix is kept and the window starts again there. A
+ * window holds at most {@link #MAX_WINDOW} fixes so each one costs a bounded
+ * amount of work even along a long straight run. The first and last fix of
+ * every closed segment are always kept.</p>
+ *
+ * <p>Kept fixes are passed on to the next, coarser level, so each level
+ * only looks at what the finer one kept. The error against the raw track
+ * then adds up over the levels, but with tolerances growing by a factor of
+ * four it stays within a third above a level's own tolerance.</p>
+ */
+public final class TrackLevel {
+
+    static final int MAX_WINDOW = 64;
+
+    private final double tolerance;
+    private final double toleranceSquared;
+    private final TrackLevel coarser;
+
+    // Kept fixes, and the position in that list where each segment starts
+    private int[] kept = new int[256];
+    private int size;
+    private int[] segmentStarts = new int[8];
+    private int segmentCount;
+
+    // Last kept fix in metres
+    private double anchorX, anchorY;
+    // Fixes waiting behind the anchor
+    private final int[] window = new int[MAX_WINDOW];
+    private final double[] windowX = new double[MAX_WINDOW];
+    private final double[] windowY = new double[MAX_WINDOW];
+    private int windowSize;
+    // Newest fix, when the radial filter dropped it
+    private int droppedIndex = -1;
+    private double droppedX, droppedY;
+
+    TrackLevel(double toleranceMeters, TrackLevel coarser) {
+        this.tolerance = toleranceMeters;
+        this.toleranceSquared = toleranceMeters * toleranceMeters;
+        this.coarser = coarser;
+    }
+
+    /** Largest distance in metres between this level and the finer track it was built from. */
+    public double getToleranceMeters() {
+        return tolerance;
+    }
+
+    /** Number of fixes kept so far. */
+    public int size() {
+        return size;
+    }
+
+    /** Fix index of the {@code k}-th kept fix. */
+    public int indexAt(int k) {
+        return kept[k];
+    }
+
+    public int segmentCount() {
+        return segmentCount;
+    }
+
+    /** Position in the kept fixes where segment {@code s} starts. */
+    public int segmentStart(int s) {
+        return segmentStarts[s];
+    }
+
+    /** Position one past the last kept fix of segment {@code s}. */
+    public int segmentEnd(int s) {
+        return s + 1 < segmentCount ? segmentStarts[s + 1] : size;
+    }
+
+    /** Fix {@code index} at ({@code x}, {@code y}) metres; fixes come in order. */
+    void add(int index, double x, double y, boolean startsSegment) {
+        if (startsSegment || size == 0) {
+            if (size > 0) {
+                closeSegment();
+            }
+            keep(index, x, y, true);
+            return;
+        }
+        double lastX = windowSize > 0 ? windowX[windowSize - 1] : anchorX;
+        double lastY = windowSize > 0 ? windowY[windowSize - 1] : anchorY;
+        if (distanceSquared(x - lastX, y - lastY) < toleranceSquared) {
+            droppedIndex = index;
+            droppedX = x;
+            droppedY = y;
+            return;
+        }
+        droppedIndex = -1;
+        append(index, x, y);
+    }
+
+    // Keeps the end of the segment, so it stops where the fixes did
+    private void closeSegment() {
+        if (droppedIndex >= 0) {
+            append(droppedIndex, droppedX, droppedY);
+            droppedIndex = -1;
+        }
+        if (windowSize > 0) {
+            keep(windowSize - 1, false);
+        }
+        windowSize = 0;
+    }
+
+    private void append(int index, double x, double y) {
+        if (windowSize == MAX_WINDOW || !windowFits(x, y)) {
+            keep(windowSize - 1, false);
+            windowSize = 0;
+        }
+        window[windowSize] = index;
+        windowX[windowSize] = x;
+        windowY[windowSize] = y;
+        windowSize++;
+    }
+
+    private void keep(int windowIndex, boolean startsSegment) {
+        keep(window[windowIndex], windowX[windowIndex], windowY[windowIndex], startsSegment);
+    }
+
+    private void keep(int index, double x, double y, boolean startsSegment) {
+        if (size == kept.length) {
+            kept = Arrays.copyOf(kept, size * 2);
+        }
+        if (startsSegment) {
+            if (segmentCount == segmentStarts.length) {
+                segmentStarts = Arrays.copyOf(segmentStarts, segmentCount * 2);
+            }
+            segmentStarts[segmentCount++] = size;
+        }
+        kept[size++] = index;
+        anchorX = x;
+        anchorY = y;
+        if (coarser != null) {
+            coarser.add(index, x, y, startsSegment);
+        }
+    }
+
+    // Whether every waiting fix lies within the tolerance of the segment from the anchor to (x, y)
+    private boolean windowFits(double x, double y) {
+        double dx = x - anchorX;
+        double dy = y - anchorY;
+        double lengthSquared = distanceSquared(dx, dy);
+        for (int i = 0; i < windowSize; i++) {
+            double px = windowX[i] - anchorX;
+            double py = windowY[i] - anchorY;
+            double t = lengthSquared == 0 ? 0 : Math.max(0, Math.min(1, (px * dx + py * dy) / lengthSquared));
+            if (distanceSquared(px - t * dx, py - t * dy) > toleranceSquared) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static double distanceSquared(double dx, double dy) {
+        return dx * dx + dy * dy;
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.acar.track;
+
+import androidx.annotation.MainThread;
+
+import com.example.acar.telemetry.HistorySeries;
+import com.example.acar.telemetry.SeriesListener;
+import com.example.acar.telemetry.TelemetryHub;
+import com.example.acar.transport.RoverLink;
+
+/**
+ * Records every GPS fix the {@link TelemetryHub} delivers into one
+ * {@link Track} for the life of the process. When the GPS channel goes away
+ * or the telemetry source changes, the track breaks into a new segment.
+ *
+ * <p>Fixes arrive while some screen is subscribed to telemetry, which is
+ * whenever the rover is being driven or watched. Fixes of a replayed
+ * mission are not the rover's current path and are left out.</p>
+ */
+@MainThread
+public final class TrackRecorder implements SeriesListener {
+
+    private static TrackRecorder instance;
+
+    private final Track track = new Track();
+    private boolean started;
+
+    private TrackRecorder() {
+    }
+
+    public static synchronized TrackRecorder getInstance() {
+        if (instance == null) {
+            instance = new TrackRecorder();
+        }
+        return instance;
+    }
+
+    /** Starts recording fixes for the life of the process. */
+    public void start() {
+        if (started) {
+            return;
+        }
+        started = true;
+        TelemetryHub.getInstance().addSeriesListener(this);
+    }
+
+    public Track getTrack() {
+        return track;
+    }
+
+    @Override
+    public void onSample(HistorySeries series, long timeMillis, double value) {
+    }
+
+    @Override
+    public void onFix(long timeMillis, double latitude, double longitude) {
+        if (!RoverLink.isReplaying()) {
+            track.add(timeMillis, latitude, longitude);
+        }
+    }
+
+    @Override
+    public void onFixesUnavailable() {
+        track.breakSegment();
+    }
+}
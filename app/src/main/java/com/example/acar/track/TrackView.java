@@ -0,0 +1,170 @@
+package com.example.acar.track;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.AttributeSet;
+import android.util.Log;
+import android.view.View;
+import android.widget.Toast;
+
+import androidx.lifecycle.LifecycleOwner;
+
+import com.example.acar.readout.TextBuffer;
+import com.example.acar.telemetry.TelemetryHub;
+import com.example.acar.telemetry.TelemetryListener;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+
+/**
+ * Map-less plot of the {@link TrackRecorder} track, scaled to fit the view
+ * with north up. Tapping it exports the full track as GPX to the app's
+ * external files directory.
+ *
+ * <p>Only the {@link TrackLevel} accurate to a pixel at the current scale is
+ * drawn, so a multi-hour track costs a few thousand segments however many
+ * fixes it holds. Redraws are requested with
+ * {@code postInvalidateOnAnimation}, once per frame at most.</p>
+ */
+public class TrackView extends View {
+
+    private static final String TAG = "TrackView";
+    // Smallest span shown, so the first few fixes do not fill the view
+    private static final double MIN_SPAN_M = 20;
+
+    private final Track track = TrackRecorder.getInstance().getTrack();
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Paint linePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint roverPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint labelPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final TextBuffer label = new TextBuffer();
+    private float[] lines = new float[0];
+
+    private final TelemetryListener redrawOnFix = new TelemetryListener() {
+        @Override
+        public void onGps(double latitude, double longitude) {
+            postInvalidateOnAnimation();
+        }
+    };
+
+    public TrackView(Context context) {
+        this(context, null);
+    }
+
+    public TrackView(Context context, AttributeSet attrs) {
+        super(context, attrs);
+        float density = context.getResources().getDisplayMetrics().density;
+        linePaint.setColor(Color.parseColor("#2196F3"));
+        linePaint.setStrokeWidth(2 * density);
+        roverPaint.setColor(Color.parseColor("#F44336"));
+        labelPaint.setColor(Color.parseColor("#333333"));
+        labelPaint.setTextSize(12 * density);
+        setOnClickListener(v -> export());
+    }
+
+    /** Redraws whenever a fix arrives while {@code owner} is started. */
+    public void bind(LifecycleOwner owner) {
+        TelemetryHub.getInstance().subscribe(owner, redrawOnFix);
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        super.onDraw(canvas);
+        int left = getPaddingLeft();
+        int top = getPaddingTop();
+        int width = getWidth() - left - getPaddingRight();
+        int height = getHeight() - top - getPaddingBottom();
+        Fixes fixes = track.getFixes();
+        int fixCount = fixes.size();
+        label.clear().append("Track: ").append(fixCount).append(" fixes");
+        if (width <= 0 || height <= 0 || fixCount == 0) {
+            canvas.drawText(label.chars(), 0, label.length(), left, top + labelPaint.getTextSize(), labelPaint);
+            return;
+        }
+
+        float plotTop = top + labelPaint.getTextSize() * 1.5f;
+        float plotHeight = top + height - plotTop;
+        double spanX = Math.max(track.getMaxX() - track.getMinX(), MIN_SPAN_M);
+        double spanY = Math.max(track.getMaxY() - track.getMinY(), MIN_SPAN_M);
+        double metersPerPixel = Math.max(spanX / width, spanY / plotHeight);
+        // Centre the track in the plot
+        double centerX = (track.getMinX() + track.getMaxX()) / 2;
+        double centerY = (track.getMinY() + track.getMaxY()) / 2;
+        float originX = left + width / 2f;
+        float originY = plotTop + plotHeight / 2f;
+        float scale = (float) (1 / metersPerPixel);
+
+        TrackLevel level = track.levelFor(metersPerPixel);
+        // One segment of four floats per kept fix, plus the tail to the latest fix
+        int needed = (level.size() + 1) * 4;
+        if (lines.length < needed) {
+            lines = new float[Math.max(needed, lines.length * 2)];
+        }
+        int count = 0;
+        for (int s = 0; s < level.segmentCount(); s++) {
+            int end = level.segmentEnd(s);
+            float previousX = 0, previousY = 0;
+            for (int k = level.segmentStart(s); k < end; k++) {
+                int index = level.indexAt(k);
+                float x = originX + (float) (track.xAt(index) - centerX) * scale;
+                float y = originY - (float) (track.yAt(index) - centerY) * scale;
+                if (k > level.segmentStart(s)) {
+                    lines[count++] = previousX;
+                    lines[count++] = previousY;
+                    lines[count++] = x;
+                    lines[count++] = y;
+                }
+                previousX = x;
+                previousY = y;
+            }
+            if (s == level.segmentCount() - 1) {
+                // Fixes after the last kept one are still pending in the level
+                int latest = fixCount - 1;
+                lines[count++] = previousX;
+                lines[count++] = previousY;
+                lines[count++] = originX + (float) (track.xAt(latest) - centerX) * scale;
+                lines[count++] = originY - (float) (track.yAt(latest) - centerY) * scale;
+            }
+        }
+        canvas.drawLines(lines, 0, count, linePaint);
+        canvas.drawCircle(lines[count - 2], lines[count - 1], linePaint.getStrokeWidth() * 2, roverPaint);
+
+        label.append(", ").append(count / 4).append(" drawn");
+        canvas.drawText(label.chars(), 0, label.length(), left, top + labelPaint.getTextSize(), labelPaint);
+    }
+
+    private void export() {
+        Context context = getContext();
+        if (track.getFixes().size() == 0) {
+            Toast.makeText(context, "No GPS fixes recorded yet", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        // Copied on the main thread; recording goes on while the file is written
+        Fixes fixes = track.getFixes().copy();
+        long wallClockOffset = System.currentTimeMillis() - SystemClock.elapsedRealtime();
+        String name = "track-" + new SimpleDateFormat("yyyyMMdd-HHmmss", Locale.US).format(new Date());
+        File file = new File(context.getExternalFilesDir(null), name + ".gpx");
+        new Thread(() -> {
+            try (Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8))) {
+                new GpxWriter(out).write(fixes, name, wallClockOffset);
+                handler.post(() -> Toast.makeText(context, "Track saved to " + file.getName(), Toast.LENGTH_SHORT).show());
+            } catch (IOException e) {
+                Log.e(TAG, "Failed to export track", e);
+                handler.post(() -> Toast.makeText(context, "Failed to export track", Toast.LENGTH_SHORT).show());
+            }
+        }, "track-export").start();
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.acar.transport;
+
+import android.util.Log;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+
+import com.example.acar.metrics.StartupTrace;
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseError;
+import com.google.firebase.database.DatabaseReference;
+import com.google.firebase.database.FirebaseDatabase;
+import com.google.firebase.database.ValueEventListener;
+
+/**
+ * Opens the Realtime Database connection and fills its cache with the
+ * rover's {@code sensors} node while the user is still logging in or
+ * choosing a mode, so the control screens find a live socket and a first
+ * copy of every reading instead of starting both from nothing. Nothing is
+ * persisted to disk: a reading cached by an earlier run would look live.
+ *
+ * <p>Kept in sync is the node of the rover in focus; {@link RoverLink#focus}
+ * moves the sync along with the transport. The sync only lasts while the
+ * login and mode selection screen is shown and is released with
+ * {@link #release}: a control screen holds its own subscription, and in
+ * the background the rover should be left to its trickle of safety
+ * readings.</p>
+ */
+@MainThread
+public final class DatabaseWarmup {
+
+    private static final String TAG = "DatabaseWarmup";
+
+    private static boolean connecting;
+    // Sensors node kept in sync, or null
+    private static DatabaseReference sensors;
+
+    private static final ValueEventListener connectedListener = new ValueEventListener() {
+        @Override
+        public void onDataChange(@NonNull DataSnapshot snapshot) {
+            if (Boolean.TRUE.equals(snapshot.getValue(Boolean.class))) {
+                StartupTrace.getInstance().mark(StartupTrace.Phase.DATABASE_CONNECTED);
+            }
+        }
+
+        @Override
+        public void onCancelled(@NonNull DatabaseError error) {
+            Log.w(TAG, "Failed to watch the connection", error.toException());
+        }
+    };
+
+    private DatabaseWarmup() {
+    }
+
+    /** Opens the database connection now rather than on the first read or write. */
+    public static void connect() {
+        if (connecting) {
+            return;
+        }
+        connecting = true;
+        FirebaseDatabase database = FirebaseDatabase.getInstance();
+        database.goOnline();
+        database.getReference(FirebaseTransport.INFO_CONNECTED).addValueEventListener(connectedListener);
+    }
+
+    /**
+     * Keeps the sensors of the rover in focus synced into the local cache.
+     * Needs a signed-in user, as the database rules only let them read.
+     */
+    public static void syncSensors() {
+        connect();
+        DatabaseReference target = RoverLink.roverRoot().child(FirebaseTransport.SENSORS);
+        if (sensors != null) {
+            if (sensors.equals(target)) {
+                return;
+            }
+            sensors.keepSynced(false);
+        }
+        sensors = target;
+        sensors.keepSynced(true);
+        sensors.addListenerForSingleValueEvent(new ValueEventListener() {
+            @Override
+            public void onDataChange(@NonNull DataSnapshot snapshot) {
+                StartupTrace.getInstance().mark(StartupTrace.Phase.SENSORS_SYNCED);
+            }
+
+            @Override
+            public void onCancelled(@NonNull DatabaseError error) {
+                Log.w(TAG, "Failed to sync sensors", error.toException());
+            }
+        });
+    }
+
+    /** Stops keeping the sensors synced, if they were. */
+    public static void release() {
+        if (sensors != null) {
+            sensors.keepSynced(false);
+            sensors = null;
+        }
+    }
+
+    /** Moves an active sensor sync to the rover now in focus. */
+    static void onFocusChanged() {
+        if (sensors != null) {
+            syncSensors();
+        }
+    }
+}
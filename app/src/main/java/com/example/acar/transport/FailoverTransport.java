@@ -0,0 +1,144 @@
+package com.example.acar.transport;
+
+import android.util.Log;
+
+import com.example.acar.telemetry.TelemetryListener;
+import com.example.acar.telemetry.TelemetryRates;
+
+/**
+ * Prefers the direct LAN link and falls back to Firebase whenever that link
+ * is down. Telemetry follows the active transport, and the last control mode
+ * and telemetry rates are re-sent after every switch so both paths agree on
+ * them. Emergency stops go out on both paths at once, so a link that has just
+ * died cannot swallow them.
+ *
+ * <p>Must only be used from the main thread, which is also where the
+ * primary's link changes are delivered.</p>
+ */
+public class FailoverTransport implements RoverTransport {
+
+    private static final String TAG = "FailoverTransport";
+
+    private final UdpTransport primary;
+    private final RoverTransport fallback;
+
+    private RoverTransport active;
+    private TelemetryListener sink;
+    private String controlMode;
+    private TelemetryRates telemetryRates;
+
+    public FailoverTransport(UdpTransport primary, RoverTransport fallback) {
+        this.primary = primary;
+        this.fallback = fallback;
+        this.active = primary.isConnected() ? primary : fallback;
+        primary.setLinkListener(this::onLinkChanged);
+    }
+
+    /**
+     * Stops following the LAN link once this transport has been replaced, so
+     * a later flap neither switches its paths nor re-sends its control mode
+     * to a rover that is no longer in focus. The LAN link itself stays open.
+     */
+    public void release() {
+        primary.setLinkListener(null);
+    }
+
+    /** The transport commands currently go through. */
+    public RoverTransport getActive() {
+        return active;
+    }
+
+    @Override
+    public void sendCommand(int sequence, String command, Completion completion) {
+        active.sendCommand(sequence, command, completion);
+    }
+
+    @Override
+    public void setAckListener(AckListener listener) {
+        // Acks may still arrive on the old path right after a switch
+        primary.setAckListener(listener);
+        fallback.setAckListener(listener);
+    }
+
+    @Override
+    public void setControlMode(String mode, Completion completion) {
+        controlMode = mode;
+        active.setControlMode(mode, completion);
+    }
+
+    @Override
+    public void sendDrive(int sequence, float throttle, float steer, Completion completion) {
+        active.sendDrive(sequence, throttle, steer, completion);
+    }
+
+    @Override
+    public void sendHeartbeat(int beat, long deadlineMillis, Completion completion) {
+        active.sendHeartbeat(beat, deadlineMillis, completion);
+    }
+
+    @Override
+    public void endHeartbeat() {
+        // Beats may have gone out on either path since the last switch
+        primary.endHeartbeat();
+        fallback.endHeartbeat();
+    }
+
+    @Override
+    public void emergencyStop(int sequence, Completion completion) {
+        // The rover acks whichever copy arrives first; the second ack is ignored as a duplicate
+        RoverTransport other = active == primary ? fallback : primary;
+        active.emergencyStop(sequence, completion);
+        other.emergencyStop(sequence, null);
+    }
+
+    @Override
+    public void startTelemetry(TelemetryListener sink) {
+        this.sink = sink;
+        active.startTelemetry(sink);
+    }
+
+    @Override
+    public void stopTelemetry() {
+        sink = null;
+        active.stopTelemetry();
+    }
+
+    @Override
+    public void setTelemetryRates(TelemetryRates rates, Completion completion) {
+        telemetryRates = rates;
+        active.setTelemetryRates(rates, completion);
+    }
+
+    @Override
+    public boolean isConnected() {
+        return active.isConnected();
+    }
+
+    private void onLinkChanged(boolean connected) {
+        RoverTransport next = connected ? primary : fallback;
+        if (next == active) {
+            return;
+        }
+        Log.i(TAG, connected ? "Switching to direct LAN link" : "LAN link lost, falling back to Firebase");
+        RoverTransport previous = active;
+        active = next;
+        if (sink != null) {
+            previous.stopTelemetry();
+            next.startTelemetry(sink);
+        }
+        if (controlMode != null) {
+            next.setControlMode(controlMode, error -> {
+                if (error != null) {
+                    Log.e(TAG, "Failed to restore control mode after switch", error);
+                }
+            });
+        }
+        if (telemetryRates != null) {
+            next.setTelemetryRates(telemetryRates, error -> {
+                if (error != null) {
+                    Log.e(TAG, "Failed to restore telemetry rates after switch", error);
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,312 @@
+package com.example.acar.transport;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.example.acar.telemetry.SensorChannel;
+import com.example.acar.telemetry.TelemetryListener;
+import com.example.acar.telemetry.TelemetryRates;
+import com.google.android.gms.tasks.Task;
+import com.google.firebase.database.ChildEventListener;
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseError;
+import com.google.firebase.database.DatabaseReference;
+import com.google.firebase.database.FirebaseDatabase;
+import com.google.firebase.database.ValueEventListener;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Transport through the Firebase Realtime Database, which the NodeMCU
+ * firmware polls: {@code commands}, {@code controlMode}, {@code drive} and
+ * {@code sensors/*}. A lone rover keeps them at the database root; each
+ * rover of a fleet under {@code rovers/<id>/} (see {@link #roverRoot}).
+ * Each command is written together with its sequence
+ * number in {@code commandSeq}; the rover echoes that number to
+ * {@code commandAck} once it has acted on it. The rates the app wants
+ * telemetry at go to {@code telemetryRates} (see {@link TelemetryRates}). Firmware that batches its
+ * readings writes them to {@code sensors/packed} instead (see
+ * {@link PackedTelemetry}); both layouts are read.
+ *
+ * <p>Heartbeats are written to {@code heartbeat} as {@code {beat, deadlineMs}}.
+ * While they go out, an on-disconnect write is left with the server, which
+ * sets {@code commands} to stop, brings {@code drive} to rest and removes
+ * {@code heartbeat} should this client drop off, so the rover hears of a
+ * lost phone without waiting out the deadline. The server runs such a write
+ * once, so it is left again every time the connection comes back, and
+ * withdrawn when the heartbeats end. An emergency stop writes its number to
+ * {@code estop} together with a plain stop command for firmware that
+ * predates it, and also brings {@code drive} to rest. Bringing it to rest
+ * zeroes throttle and steer in place but keeps {@code seq}, so firmware
+ * that follows the tuple in manual mode never finds one still moving, and
+ * the drive channel's next tuple is still the newer one. The database
+ * applies a client's writes in order, so a stop overtakes nothing already
+ * sent; drive writes are one in flight at most.</p>
+ */
+public class FirebaseTransport implements RoverTransport {
+
+    /** Parent of each fleet rover's nodes. */
+    public static final String ROVERS = "rovers";
+    /**
+     * Parent of each fleet rover's summary: {@code fleet/<id>} holds a
+     * one-sample {@link PackedTelemetry} frame refreshed about once a second.
+     */
+    public static final String FLEET = "fleet";
+    static final String SENSORS = "sensors";
+    static final String HEARTBEAT = "heartbeat";
+    static final String ESTOP = "estop";
+    static final String DRIVE = "drive";
+    /** Client-side node that is true while the database connection is up. */
+    static final String INFO_CONNECTED = ".info/connected";
+
+    private final DatabaseReference databaseReference;
+    private final PackedTelemetry.Decoder packedDecoder = new PackedTelemetry.Decoder();
+    private TelemetryListener sink;
+    private AckListener ackListener;
+    // Whether the on-disconnect stop is kept armed, i.e. heartbeats are going out
+    private boolean stopOnDisconnect;
+
+    private final ValueEventListener ackValueListener = new ValueEventListener() {
+        @Override
+        public void onDataChange(@NonNull DataSnapshot snapshot) {
+            Object value = snapshot.getValue();
+            if (value instanceof Number && ackListener != null) {
+                ackListener.onAck(((Number) value).intValue());
+            }
+        }
+
+        @Override
+        public void onCancelled(@NonNull DatabaseError error) {
+            Log.e("Firebase", "Failed to read command acks", error.toException());
+        }
+    };
+
+    private final ValueEventListener connectedListener = new ValueEventListener() {
+        @Override
+        public void onDataChange(@NonNull DataSnapshot snapshot) {
+            // Also true after every reconnect, when the previous write has been used up
+            if (Boolean.TRUE.equals(snapshot.getValue(Boolean.class))) {
+                Map<String, Object> onLoss = new HashMap<>();
+                onLoss.put("commands", "stop");
+                putDriveAtRest(onLoss);
+                onLoss.put(HEARTBEAT, null);
+                databaseReference.onDisconnect().updateChildren(onLoss);
+            }
+        }
+
+        @Override
+        public void onCancelled(@NonNull DatabaseError error) {
+            Log.e("Firebase", "Failed to watch the connection", error.toException());
+        }
+    };
+
+    private final ChildEventListener sensorsListener = new ChildEventListener() {
+        @Override
+        public void onChildAdded(@NonNull DataSnapshot snapshot, String previousChildName) {
+            decode(snapshot);
+        }
+
+        @Override
+        public void onChildChanged(@NonNull DataSnapshot snapshot, String previousChildName) {
+            decode(snapshot);
+        }
+
+        @Override
+        public void onChildRemoved(@NonNull DataSnapshot snapshot) {
+            SensorChannel channel = SensorChannel.fromKey(snapshot.getKey());
+            if (channel != null && sink != null) {
+                sink.onChannelUnavailable(channel);
+            }
+        }
+
+        @Override
+        public void onChildMoved(@NonNull DataSnapshot snapshot, String previousChildName) {
+            // Ordering of sensor nodes carries no meaning
+        }
+
+        @Override
+        public void onCancelled(@NonNull DatabaseError error) {
+            Log.e("Firebase", "Failed to read sensor data", error.toException());
+        }
+    };
+
+    public FirebaseTransport() {
+        this(FirebaseDatabase.getInstance().getReference());
+    }
+
+    /** @param roverRoot the node holding this rover's commands and sensors */
+    public FirebaseTransport(DatabaseReference roverRoot) {
+        databaseReference = roverRoot;
+    }
+
+    /** Node holding the rover's data: the database root when {@code roverId} is empty. */
+    public static DatabaseReference roverRoot(String roverId) {
+        DatabaseReference root = FirebaseDatabase.getInstance().getReference();
+        return roverId.isEmpty() ? root : root.child(ROVERS).child(roverId);
+    }
+
+    @Override
+    public void sendCommand(int sequence, String command, Completion completion) {
+        // Written in one update so the rover never sees a word with another command's number
+        Map<String, Object> update = new HashMap<>();
+        update.put("commands", command);
+        update.put("commandSeq", sequence);
+        putDriveAtRest(update);
+        complete(databaseReference.updateChildren(update), completion);
+    }
+
+    private static void putDriveAtRest(Map<String, Object> update) {
+        update.put(DRIVE + "/throttle", 0f);
+        update.put(DRIVE + "/steer", 0f);
+    }
+
+    @Override
+    public void setAckListener(AckListener listener) {
+        DatabaseReference acks = databaseReference.child("commandAck");
+        if (ackListener != null) {
+            acks.removeEventListener(ackValueListener);
+        }
+        ackListener = listener;
+        if (listener != null) {
+            acks.addValueEventListener(ackValueListener);
+        }
+    }
+
+    @Override
+    public void setControlMode(String mode, Completion completion) {
+        complete(databaseReference.child("controlMode").setValue(mode), completion);
+    }
+
+    @Override
+    public void sendDrive(int sequence, float throttle, float steer, Completion completion) {
+        Map<String, Object> drive = new HashMap<>();
+        drive.put("throttle", throttle);
+        drive.put("steer", steer);
+        drive.put("seq", sequence);
+        complete(databaseReference.child(DRIVE).setValue(drive), completion);
+    }
+
+    @Override
+    public void sendHeartbeat(int beat, long deadlineMillis, Completion completion) {
+        if (!stopOnDisconnect) {
+            stopOnDisconnect = true;
+            // Called straight away with the current state, then on every change
+            FirebaseDatabase.getInstance().getReference(INFO_CONNECTED).addValueEventListener(connectedListener);
+        }
+        Map<String, Object> heartbeat = new HashMap<>();
+        heartbeat.put("beat", beat);
+        heartbeat.put("deadlineMs", deadlineMillis);
+        complete(databaseReference.child(HEARTBEAT).setValue(heartbeat), completion);
+    }
+
+    @Override
+    public void endHeartbeat() {
+        if (!stopOnDisconnect) {
+            return;
+        }
+        stopOnDisconnect = false;
+        FirebaseDatabase.getInstance().getReference(INFO_CONNECTED).removeEventListener(connectedListener);
+        databaseReference.onDisconnect().cancel();
+    }
+
+    @Override
+    public void emergencyStop(int sequence, Completion completion) {
+        Map<String, Object> update = new HashMap<>();
+        update.put(ESTOP, sequence);
+        update.put("commands", "stop");
+        update.put("commandSeq", sequence);
+        complete(databaseReference.updateChildren(update), completion);
+    }
+
+    @Override
+    public void startTelemetry(TelemetryListener sink) {
+        if (this.sink != null) {
+            return;
+        }
+        this.sink = sink;
+        databaseReference.child(SENSORS).addChildEventListener(sensorsListener);
+    }
+
+    @Override
+    public void stopTelemetry() {
+        if (sink == null) {
+            return;
+        }
+        databaseReference.child(SENSORS).removeEventListener(sensorsListener);
+        sink = null;
+    }
+
+    @Override
+    public void setTelemetryRates(TelemetryRates rates, Completion completion) {
+        // Written whole, so channels back at full rate lose their entry; no entries removes the node
+        complete(databaseReference.child(TelemetryRates.KEY).setValue(rates.toMap()), completion);
+    }
+
+    @Override
+    public boolean isConnected() {
+        // Firebase queues writes while offline and delivers them on reconnect
+        return true;
+    }
+
+    private void decode(DataSnapshot snapshot) {
+        if (PackedTelemetry.KEY.equals(snapshot.getKey())) {
+            decodePacked(snapshot.getValue());
+            return;
+        }
+        SensorChannel channel = SensorChannel.fromKey(snapshot.getKey());
+        if (channel == null || sink == null) {
+            return;
+        }
+        if (!snapshot.exists()) {
+            sink.onChannelUnavailable(channel);
+            return;
+        }
+        switch (channel) {
+            case CLIMATE:
+                sink.onClimate(asDouble(snapshot.child("temperature").getValue()),
+                        asDouble(snapshot.child("humidity").getValue()));
+                break;
+            case GPS:
+                sink.onGps(asDouble(snapshot.child("latitude").getValue()),
+                        asDouble(snapshot.child("longitude").getValue()));
+                break;
+            case RAIN:
+                sink.onRain(Boolean.TRUE.equals(snapshot.getValue()));
+                break;
+            case MOISTURE:
+                sink.onMoisture((int) asDouble(snapshot.getValue()));
+                break;
+            case OBSTACLE:
+                sink.onObstacle(asDouble(snapshot.child("distance").getValue()),
+                        Boolean.TRUE.equals(snapshot.child("left").getValue()),
+                        Boolean.TRUE.equals(snapshot.child("right").getValue()));
+                break;
+            case IMU:
+                sink.onImu(asDouble(snapshot.child("yawRate").getValue()),
+                        asDouble(snapshot.child("heading").getValue()));
+                break;
+        }
+    }
+
+    private void decodePacked(Object value) {
+        if (sink == null || !(value instanceof String)) {
+            return;
+        }
+        if (packedDecoder.decode((String) value, sink) < 0) {
+            Log.w("Firebase", "Ignoring unreadable packed telemetry frame");
+        }
+    }
+
+    private static double asDouble(Object value) {
+        // The database hands back Long for whole numbers and Double otherwise
+        return value instanceof Number ? ((Number) value).doubleValue() : Double.NaN;
+    }
+
+    private static void complete(Task<Void> task, Completion completion) {
+        if (completion != null) {
+            task.addOnCompleteListener(result -> completion.onComplete(result.isSuccessful() ? null : result.getException()));
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.example.acar.transport;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleEventObserver;
+import androidx.lifecycle.LifecycleOwner;
+
+import com.example.acar.metrics.LinkMetrics;
+
+/**
+ * Process-wide dead-man heartbeat. While any screen that drives the rover
+ * is started, a numbered beat goes out every {@link #INTERVAL_MS} through
+ * the current {@link RoverTransport}, carrying the deadline after which the
+ * rover must stop on its own if no further beat arrives. A phone that
+ * loses its link, crashes or freezes therefore leaves a stopped rover
+ * rather than one still obeying the last "forward".
+ *
+ * <p>Beats are scheduled on the main thread on purpose: a UI thread stalled
+ * past the deadline cannot react to the operator either, so the rover
+ * should stop. How far each beat strays from its schedule is recorded in
+ * {@link LinkMetrics}, along with beats late enough to have stopped the
+ * rover.</p>
+ *
+ * <p>While a recorded mission is replaying nothing can reach the rover, so
+ * the beats pause and resume when the replay ends.</p>
+ */
+@MainThread
+public final class Heartbeat {
+
+    private static final String TAG = "Heartbeat";
+
+    /** Time between beats. */
+    public static final long INTERVAL_MS = 250;
+    /** Deadline used until {@link #setDeadlineMillis} is called. */
+    public static final long DEFAULT_DEADLINE_MS = 1000;
+
+    private static Heartbeat instance;
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Runnable tick = this::tick;
+
+    private long deadlineMillis = DEFAULT_DEADLINE_MS;
+    // Started owners holding the heartbeat
+    private int holders;
+    private int beat;
+    // When the previous beat left, 0 when none has since starting
+    private long lastBeatNanos;
+    // Transport the last beat went through, told when the beats end
+    private RoverTransport beating;
+
+    private final RoverTransport.Completion onSent = error -> {
+        if (error != null) {
+            Log.w(TAG, "Failed to send heartbeat", error);
+        }
+    };
+
+    private Heartbeat() {
+    }
+
+    public static synchronized Heartbeat getInstance() {
+        if (instance == null) {
+            instance = new Heartbeat();
+        }
+        return instance;
+    }
+
+    /** Sets how long the rover waits for the next beat before it stops. */
+    public void setDeadlineMillis(long deadlineMillis) {
+        if (deadlineMillis <= INTERVAL_MS) {
+            throw new IllegalArgumentException("Deadline must exceed the " + INTERVAL_MS + " ms interval");
+        }
+        this.deadlineMillis = deadlineMillis;
+    }
+
+    public long getDeadlineMillis() {
+        return deadlineMillis;
+    }
+
+    /** Keeps the heartbeat going while {@code owner} is started. */
+    public void hold(@NonNull LifecycleOwner owner) {
+        owner.getLifecycle().addObserver(new LifecycleEventObserver() {
+            @Override
+            public void onStateChanged(@NonNull LifecycleOwner source, @NonNull Lifecycle.Event event) {
+                if (event == Lifecycle.Event.ON_START) {
+                    if (holders++ == 0) {
+                        lastBeatNanos = 0;
+                        tick();
+                    }
+                } else if (event == Lifecycle.Event.ON_STOP) {
+                    if (--holders == 0) {
+                        // The rover stops by itself once the deadline passes
+                        handler.removeCallbacks(tick);
+                        end();
+                    }
+                } else if (event == Lifecycle.Event.ON_DESTROY) {
+                    source.getLifecycle().removeObserver(this);
+                }
+            }
+        });
+    }
+
+    private void tick() {
+        if (RoverLink.isReplaying()) {
+            // No gap is counted across the pause
+            end();
+            lastBeatNanos = 0;
+            handler.postDelayed(tick, INTERVAL_MS);
+            return;
+        }
+        long now = SystemClock.elapsedRealtimeNanos();
+        if (lastBeatNanos != 0) {
+            long gapMicros = (now - lastBeatNanos) / 1000;
+            boolean late = gapMicros > deadlineMillis * 1000;
+            if (late) {
+                Log.w(TAG, "Heartbeat " + gapMicros / 1000 + " ms after the previous one; the rover may have stopped");
+            }
+            LinkMetrics.getInstance().onHeartbeat(Math.abs(gapMicros - INTERVAL_MS * 1000), late);
+        }
+        lastBeatNanos = now;
+        RoverTransport transport = RoverLink.getTransport();
+        if (transport != beating) {
+            end();
+            beating = transport;
+        }
+        transport.sendHeartbeat(++beat, deadlineMillis, onSent);
+        handler.postDelayed(tick, INTERVAL_MS);
+    }
+
+    private void end() {
+        if (beating != null) {
+            beating.endHeartbeat();
+            beating = null;
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package com.example.acar.transport;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.Looper;
+import android.text.TextUtils;
+import android.util.Log;
+
+import androidx.annotation.MainThread;
+
+import com.example.acar.R;
+import com.example.acar.metrics.LinkMetrics;
+import com.example.acar.mission.LoggingTransport;
+import com.example.acar.mission.MissionFiles;
+import com.example.acar.mission.MissionLogWriter;
+import com.example.acar.mission.ReplayTransport;
+import com.example.acar.telemetry.TelemetryHub;
+import com.google.firebase.database.DatabaseReference;
+
+import java.io.File;
+import java.net.InetSocketAddress;
+import java.net.SocketException;
+
+/**
+ * Holds the process-wide {@link RoverTransport}.
+ *
+ * <p>When a rover LAN address is configured (the {@code rover_lan_host}
+ * preference, defaulting to the string resource of the same name) the live
+ * transport is a {@link FailoverTransport} preferring UDP; otherwise it is
+ * plain Firebase. Live traffic is recorded to a mission log, and a recorded
+ * mission can temporarily take the place of the live transport for replay.</p>
+ *
+ * <p>In a fleet the transport talks to the rover in focus (the
+ * {@code rover_id} preference, empty for a lone rover at the database
+ * root). {@link #focus} moves it to another rover; the LAN link only ever
+ * reaches the rover that was in focus at startup, while a
+ * {@link DatabaseWarmup} sensor sync follows the focus.</p>
+ */
+public final class RoverLink {
+
+    private static final String TAG = "RoverLink";
+
+    public static final String PREFERENCES = "rover_link";
+    public static final String KEY_HOST = "rover_lan_host";
+    public static final String KEY_PORT = "rover_lan_port";
+    public static final String KEY_ROVER_ID = "rover_id";
+    /** Address of the rover camera's MJPEG stream, read by the video view. */
+    public static final String KEY_CAMERA_URL = "camera_stream_url";
+    /** Map tile server address template, read by the map. */
+    public static final String KEY_MAP_TILE_URL = "map_tile_url";
+
+    // Live path to the rover, without the logging wrapper
+    private static RoverTransport live;
+    // What callers get: the logged live transport, or a replay
+    private static RoverTransport transport;
+    private static MissionLogWriter missionLog;
+    private static ReplayTransport replay;
+    // Acks feed the round-trip statistics regardless of the path they arrive on
+    private static final RoverTransport.AckListener ACKS =
+            sequence -> LinkMetrics.getInstance().onCommandAck(sequence);
+
+    // Rover in focus, "" for a lone rover; the LAN link and the rover it reaches
+    private static String roverId = "";
+    private static UdpTransport udp;
+    private static String lanRoverId;
+
+    private RoverLink() {
+    }
+
+    /** Builds the transport from configuration; called once from the Application. */
+    public static synchronized void init(Context context) {
+        if (transport != null) {
+            return;
+        }
+        SharedPreferences preferences = context.getSharedPreferences(PREFERENCES, Context.MODE_PRIVATE);
+        String host = preferences.getString(KEY_HOST, context.getString(R.string.rover_lan_host));
+        int port = preferences.getInt(KEY_PORT, LanProtocol.DEFAULT_PORT);
+        roverId = preferences.getString(KEY_ROVER_ID, context.getString(R.string.rover_id));
+
+        if (!TextUtils.isEmpty(host)) {
+            Handler mainHandler = new Handler(Looper.getMainLooper());
+            // Resolving happens lazily on the send thread, so no lookup on the main thread here
+            UdpTransport lan = new UdpTransport(InetSocketAddress.createUnresolved(host, port), mainHandler::post);
+            try {
+                lan.start();
+                udp = lan;
+                lanRoverId = roverId;
+                Log.d(TAG, "Direct link to " + host + ":" + port + " with Firebase fallback");
+            } catch (SocketException e) {
+                Log.e(TAG, "Could not open UDP socket, using Firebase only", e);
+            }
+        }
+        live = createLive();
+
+        // Every live session is recorded for later analysis and replay; old logs are
+        // pruned and the new one created on the writer's thread, not during startup
+        Context appContext = context.getApplicationContext();
+        missionLog = new MissionLogWriter(() -> {
+            MissionFiles.prune(appContext);
+            return MissionFiles.newLog(appContext);
+        });
+        setTransport(new LoggingTransport(live, missionLog));
+    }
+
+    /** The transport to use for all rover traffic. */
+    public static synchronized RoverTransport getTransport() {
+        if (transport == null) {
+            // Not initialised through the Application (e.g. in tests): Firebase only
+            live = new FirebaseTransport();
+            setTransport(live);
+        }
+        return transport;
+    }
+
+    /** Id of the rover in focus, empty for a lone rover at the database root. */
+    public static synchronized String getRoverId() {
+        return roverId;
+    }
+
+    /** Database node of the rover in focus. */
+    public static synchronized DatabaseReference roverRoot() {
+        return FirebaseTransport.roverRoot(roverId);
+    }
+
+    /**
+     * Points the live transport at another rover of the fleet and remembers
+     * the choice. Subscribers keep their subscriptions and hear from the new
+     * rover from now on.
+     */
+    @MainThread
+    public static void focus(Context context, String id) {
+        synchronized (RoverLink.class) {
+            getTransport();
+            if (id.equals(roverId)) {
+                return;
+            }
+            roverId = id;
+            context.getSharedPreferences(PREFERENCES, Context.MODE_PRIVATE)
+                    .edit().putString(KEY_ROVER_ID, id).apply();
+            // The old rover's acks must not count for the new one's commands
+            live.setAckListener(null);
+            // Nor may losing this phone stop it any more
+            live.endHeartbeat();
+            // Nor may the LAN link coming and going send it anything
+            if (live instanceof FailoverTransport) {
+                ((FailoverTransport) live).release();
+            }
+            live = createLive();
+            // Set on the live transport itself so it survives a replay in progress
+            live.setAckListener(ACKS);
+            if (replay == null) {
+                transport = missionLog != null ? new LoggingTransport(live, missionLog) : live;
+            }
+        }
+        DatabaseWarmup.onFocusChanged();
+        TelemetryHub.getInstance().onTransportChanged();
+    }
+
+    /** The file the current session is being recorded to, or null. */
+    public static synchronized File getMissionLogFile() {
+        return missionLog != null ? missionLog.getFile() : null;
+    }
+
+    /** Feeds the recorded mission in {@code file} to the UI instead of the live rover. */
+    @MainThread
+    public static void startReplay(File file) {
+        synchronized (RoverLink.class) {
+            getTransport();
+            replay = new ReplayTransport(file);
+            transport = replay;
+        }
+        TelemetryHub.getInstance().onTransportChanged();
+    }
+
+    /** Returns to the live rover after {@link #startReplay}. */
+    @MainThread
+    public static void stopReplay() {
+        synchronized (RoverLink.class) {
+            if (replay == null) {
+                return;
+            }
+            replay = null;
+            transport = missionLog != null ? new LoggingTransport(live, missionLog) : live;
+        }
+        TelemetryHub.getInstance().onTransportChanged();
+    }
+
+    public static synchronized boolean isReplaying() {
+        return replay != null;
+    }
+
+    /** Short name of the path commands currently take, and the rover in a fleet, for diagnostics. */
+    public static synchronized String describe() {
+        if (replay != null) {
+            return "replay";
+        }
+        RoverTransport current = live != null ? live : getTransport();
+        String path;
+        if (current instanceof FailoverTransport) {
+            path = ((FailoverTransport) current).getActive() instanceof UdpTransport ? "lan" : "firebase (fallback)";
+        } else {
+            path = current instanceof UdpTransport ? "lan" : "firebase";
+        }
+        return roverId.isEmpty() ? path : path + " to " + roverId;
+    }
+
+    private static RoverTransport createLive() {
+        FirebaseTransport firebase = new FirebaseTransport(FirebaseTransport.roverRoot(roverId));
+        return udp != null && roverId.equals(lanRoverId) ? new FailoverTransport(udp, firebase) : firebase;
+    }
+
+    private static void setTransport(RoverTransport newTransport) {
+        transport = newTransport;
+        transport.setAckListener(ACKS);
+    }
+}
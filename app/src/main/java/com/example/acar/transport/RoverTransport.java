@@ -0,0 +1,74 @@
+package com.example.acar.transport;
+
+import androidx.annotation.Nullable;
+
+import com.example.acar.telemetry.TelemetryListener;
+import com.example.acar.telemetry.TelemetryRates;
+
+/**
+ * A way of talking to the rover: commands go out, sensor samples come back.
+ *
+ * <p>Completions, acknowledgements and telemetry are delivered on the main
+ * thread.</p>
+ */
+public interface RoverTransport {
+
+    /** Called once a write has been handed off; {@code error} is null on success. */
+    interface Completion {
+        void onComplete(@Nullable Exception error);
+    }
+
+    /** Receives the sequence numbers the rover echoes back for executed commands. */
+    interface AckListener {
+        void onAck(int sequence);
+    }
+
+    /**
+     * Sends one of the discrete movement words ("forward", "stop", ...) tagged
+     * with {@code sequence}, which the rover echoes back once it has acted on it.
+     */
+    void sendCommand(int sequence, String command, Completion completion);
+
+    /** Registers the listener for command acknowledgements. */
+    void setAckListener(AckListener listener);
+
+    /** Switches the rover between "manual" and "autonomous" control. */
+    void setControlMode(String mode, Completion completion);
+
+    /** Sends a continuous drive tuple. */
+    void sendDrive(int sequence, float throttle, float steer, Completion completion);
+
+    /**
+     * Sends dead-man heartbeat number {@code beat}. A rover that has heard
+     * one stops by itself when the next fails to arrive within
+     * {@code deadlineMillis}.
+     */
+    void sendHeartbeat(int beat, long deadlineMillis, Completion completion);
+
+    /**
+     * No heartbeats follow for now. The rover stops on its deadline as
+     * usual; a stop the transport left with a server in case this client
+     * is lost is withdrawn.
+     */
+    default void endHeartbeat() {
+    }
+
+    /**
+     * Stops the rover on the fastest path the transport has, ahead of
+     * anything still queued behind it. The rover acks {@code sequence} like
+     * a command.
+     */
+    void emergencyStop(int sequence, Completion completion);
+
+    /** Starts delivering decoded sensor samples to {@code sink}. */
+    void startTelemetry(TelemetryListener sink);
+
+    /** Stops the delivery started by {@link #startTelemetry}. */
+    void stopTelemetry();
+
+    /** Asks the rover to publish each channel no faster than {@code rates}. */
+    void setTelemetryRates(TelemetryRates rates, Completion completion);
+
+    /** Whether the transport can currently reach the rover. */
+    boolean isConnected();
+}
@@ -0,0 +1,286 @@
+package com.example.acar.transport;
+
+import android.util.Log;
+
+import com.example.acar.telemetry.TelemetryListener;
+import com.example.acar.telemetry.TelemetryRates;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetSocketAddress;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Direct link to the rover over UDP on the local network, using the
+ * {@link LanProtocol} message format.
+ *
+ * <p>A HELLO keepalive goes out every {@link #HELLO_INTERVAL_MS}; the link is
+ * considered up while any datagram has arrived from the rover within
+ * {@link #LINK_TIMEOUT_MS}. Datagrams from any other address are dropped,
+ * so another host on the network can neither feed telemetry nor forge
+ * acks. Socket I/O runs on background threads and results
+ * are handed to {@code callbackExecutor}.</p>
+ *
+ * <p>Emergency stops have a send thread of their own, so they never wait
+ * behind drive, heartbeat or keepalive datagrams, and go out
+ * {@link #ESTOP_COPIES} times since a lost datagram is not retried.</p>
+ */
+public class UdpTransport implements RoverTransport {
+
+    /** Notified on the callback executor when the link comes up or goes down. */
+    public interface LinkListener {
+        void onLinkChanged(boolean connected);
+    }
+
+    private static final String TAG = "UdpTransport";
+
+    static final long HELLO_INTERVAL_MS = 500;
+    static final long LINK_TIMEOUT_MS = 1500;
+    private static final int RECEIVE_TIMEOUT_MS = 250;
+    static final int ESTOP_COPIES = 3;
+
+    // Stands in for the sink while telemetry is off so acks are still decoded
+    private static final TelemetryListener IGNORE_TELEMETRY = new TelemetryListener() {
+    };
+
+    // Resolved lazily on the send thread so callers may pass an unresolved address
+    private volatile InetSocketAddress rover;
+    private final Executor callbackExecutor;
+    private final LanProtocol.Decoder decoder = new LanProtocol.Decoder();
+
+    private DatagramSocket socket;
+    private ScheduledExecutorService sender;
+    private ExecutorService urgentSender;
+    private Thread receiver;
+
+    private volatile boolean running;
+    private volatile boolean wantTelemetry;
+    private volatile TelemetryRates telemetryRates = TelemetryRates.UNLIMITED;
+    private volatile boolean connected;
+    private volatile long lastHeardNanos;
+
+    // Only touched on the callback executor
+    private TelemetryListener sink;
+    private LinkListener linkListener;
+    private AckListener ackListener;
+
+    public UdpTransport(InetSocketAddress rover, Executor callbackExecutor) {
+        this.rover = rover;
+        this.callbackExecutor = callbackExecutor;
+    }
+
+    public void setLinkListener(LinkListener linkListener) {
+        this.linkListener = linkListener;
+    }
+
+    /** Opens the socket and starts the keepalive and receive loops. */
+    public synchronized void start() throws SocketException {
+        if (running) {
+            return;
+        }
+        socket = new DatagramSocket();
+        socket.setSoTimeout(RECEIVE_TIMEOUT_MS);
+        running = true;
+
+        sender = Executors.newSingleThreadScheduledExecutor(r -> new Thread(r, "rover-udp-send"));
+        urgentSender = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "rover-udp-estop");
+            thread.setPriority(Thread.MAX_PRIORITY);
+            return thread;
+        });
+        // Rates ride on every keepalive, so a lost datagram is repaired half a second later
+        sender.scheduleWithFixedDelay(() -> transmit(LanProtocol.hello(wantTelemetry, telemetryRates)),
+                0, HELLO_INTERVAL_MS, TimeUnit.MILLISECONDS);
+
+        receiver = new Thread(this::receiveLoop, "rover-udp-receive");
+        receiver.start();
+    }
+
+    /** Stops both loops and closes the socket. */
+    public synchronized void close() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        sender.shutdownNow();
+        urgentSender.shutdownNow();
+        socket.close();
+        try {
+            receiver.join(RECEIVE_TIMEOUT_MS * 2);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        updateLink(false);
+    }
+
+    @Override
+    public void sendCommand(int sequence, String command, Completion completion) {
+        send(LanProtocol.command(sequence, command), completion);
+    }
+
+    @Override
+    public void setAckListener(AckListener listener) {
+        ackListener = listener;
+    }
+
+    @Override
+    public void setControlMode(String mode, Completion completion) {
+        send(LanProtocol.mode(mode), completion);
+    }
+
+    @Override
+    public void sendDrive(int sequence, float throttle, float steer, Completion completion) {
+        send(LanProtocol.drive(sequence, throttle, steer), completion);
+    }
+
+    @Override
+    public void sendHeartbeat(int beat, long deadlineMillis, Completion completion) {
+        send(LanProtocol.heartbeat(beat, deadlineMillis), completion);
+    }
+
+    @Override
+    public void emergencyStop(int sequence, Completion completion) {
+        byte[] message = LanProtocol.emergencyStop(sequence);
+        ExecutorService executor = urgentSender;
+        if (!running || executor == null) {
+            send(message, completion);
+            return;
+        }
+        executor.execute(() -> {
+            // Succeeds if any copy got out
+            IOException error = null;
+            boolean sent = false;
+            for (int i = 0; i < ESTOP_COPIES; i++) {
+                IOException copyError = transmit(message);
+                sent |= copyError == null;
+                error = copyError != null ? copyError : error;
+            }
+            IOException result = sent ? null : error;
+            if (completion != null) {
+                callbackExecutor.execute(() -> completion.onComplete(result));
+            }
+        });
+    }
+
+    @Override
+    public void startTelemetry(TelemetryListener sink) {
+        this.sink = sink;
+        wantTelemetry = true;
+        // Ask right away instead of waiting for the next keepalive
+        send(LanProtocol.hello(true, telemetryRates), null);
+    }
+
+    @Override
+    public void stopTelemetry() {
+        sink = null;
+        wantTelemetry = false;
+    }
+
+    @Override
+    public void setTelemetryRates(TelemetryRates rates, Completion completion) {
+        telemetryRates = rates;
+        send(LanProtocol.hello(wantTelemetry, rates), completion);
+    }
+
+    @Override
+    public boolean isConnected() {
+        return connected;
+    }
+
+    private void send(byte[] message, Completion completion) {
+        ExecutorService executor = sender;
+        if (!running || executor == null) {
+            if (completion != null) {
+                callbackExecutor.execute(() -> completion.onComplete(new IOException("UDP transport not started")));
+            }
+            return;
+        }
+        executor.execute(() -> {
+            IOException error = transmit(message);
+            if (completion != null) {
+                callbackExecutor.execute(() -> completion.onComplete(error));
+            }
+        });
+    }
+
+    private IOException transmit(byte[] message) {
+        try {
+            InetSocketAddress target = rover;
+            if (target.isUnresolved()) {
+                target = new InetSocketAddress(target.getHostString(), target.getPort());
+                if (target.isUnresolved()) {
+                    throw new IOException("Cannot resolve rover address " + target.getHostString());
+                }
+                rover = target;
+            }
+            socket.send(new DatagramPacket(message, message.length, target));
+            return null;
+        } catch (IOException e) {
+            if (running) {
+                Log.w(TAG, "Failed to send to rover", e);
+            }
+            return e;
+        }
+    }
+
+    private void receiveLoop() {
+        byte[] buffer = new byte[LanProtocol.MAX_DATAGRAM];
+        DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+        while (running) {
+            try {
+                packet.setLength(buffer.length);
+                socket.receive(packet);
+                if (isFromRover(packet)) {
+                    lastHeardNanos = System.nanoTime();
+                    updateLink(true);
+                    byte[] copy = new byte[packet.getLength()];
+                    System.arraycopy(buffer, 0, copy, 0, copy.length);
+                    callbackExecutor.execute(() -> deliver(copy));
+                }
+            } catch (SocketTimeoutException e) {
+                // Fall through to the liveness check
+            } catch (IOException e) {
+                if (running) {
+                    Log.w(TAG, "Receive failed", e);
+                }
+            }
+            if (connected && System.nanoTime() - lastHeardNanos > TimeUnit.MILLISECONDS.toNanos(LINK_TIMEOUT_MS)) {
+                updateLink(false);
+            }
+        }
+    }
+
+    // Nothing has been sent before the address is resolved, so nothing can be a reply yet
+    private boolean isFromRover(DatagramPacket packet) {
+        InetSocketAddress expected = rover;
+        return !expected.isUnresolved() && expected.equals(packet.getSocketAddress());
+    }
+
+    private void deliver(byte[] message) {
+        TelemetryListener target = sink != null ? sink : IGNORE_TELEMETRY;
+        int kind = decoder.decode(message, message.length, target);
+        if (kind == LanProtocol.ACK && ackListener != null) {
+            ackListener.onAck(decoder.getAckSequence());
+        }
+    }
+
+    private void updateLink(boolean up) {
+        if (connected == up) {
+            return;
+        }
+        connected = up;
+        Log.d(TAG, up ? "Rover link up" : "Rover link lost");
+        callbackExecutor.execute(() -> {
+            if (linkListener != null) {
+                linkListener.onLinkChanged(up);
+            }
+        });
+    }
+}
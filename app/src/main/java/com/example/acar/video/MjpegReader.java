@@ -0,0 +1,245 @@
+package com.example.acar.video;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Splits a {@code multipart/x-mixed-replace} MJPEG stream, as served by the
+ * ESP32-CAM, into JPEG frames.
+ *
+ * <p>Each part's body is copied into a caller-supplied {@link Frame} whose
+ * buffer only grows, so after the first few frames reading allocates nothing.
+ * Parts with a {@code Content-Length} header are read by length; others are
+ * read up to the JPEG end-of-image marker. Not thread-safe.</p>
+ */
+public final class MjpegReader {
+
+    /** One JPEG image and when it started arriving. */
+    public static final class Frame {
+        byte[] data = new byte[64 * 1024];
+        int length;
+        long receivedNanos;
+        long sequence;
+
+        public byte[] data() {
+            return data;
+        }
+
+        public int length() {
+            return length;
+        }
+
+        /** {@link System#nanoTime} at which the part's headers arrived. */
+        public long receivedNanos() {
+            return receivedNanos;
+        }
+
+        /** Position of the frame in its stream, counting from 1. */
+        public long sequence() {
+            return sequence;
+        }
+    }
+
+    /** Larger parts are treated as a corrupt stream rather than buffered. */
+    static final int MAX_FRAME_BYTES = 4 * 1024 * 1024;
+
+    private static final byte[] CONTENT_LENGTH = "content-length:".getBytes(StandardCharsets.US_ASCII);
+
+    private final InputStream in;
+    private final byte[] boundary;
+    private final byte[] buffer = new byte[16 * 1024];
+    private int position;
+    private int limit;
+    // Longer lines are truncated; only boundaries and Content-Length matter
+    private final byte[] line = new byte[256];
+    private int lineLength;
+    private long sequence;
+
+    /** @param boundary the boundary parameter of the stream's content type */
+    public MjpegReader(InputStream in, String boundary) {
+        this.in = in;
+        this.boundary = boundary.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Extracts the multipart boundary from a {@code Content-Type} header
+     * value, or returns null if there is none.
+     */
+    public static String boundaryOf(String contentType) {
+        if (contentType == null) {
+            return null;
+        }
+        int start = contentType.toLowerCase().indexOf("boundary=");
+        if (start < 0) {
+            return null;
+        }
+        start += "boundary=".length();
+        int end = contentType.indexOf(';', start);
+        String value = (end < 0 ? contentType.substring(start) : contentType.substring(start, end)).trim();
+        if (value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"")) {
+            value = value.substring(1, value.length() - 1);
+        }
+        return value.isEmpty() ? null : value;
+    }
+
+    /**
+     * Reads the next part into {@code frame}. Returns false once the stream
+     * ends; a part cut short by the end of the stream is discarded.
+     */
+    public boolean next(Frame frame) throws IOException {
+        do {
+            if (!readLine()) {
+                return false;
+            }
+        } while (!isBoundary());
+        long started = System.nanoTime();
+
+        int contentLength = -1;
+        while (true) {
+            if (!readLine()) {
+                return false;
+            }
+            if (lineLength == 0) {
+                break;
+            }
+            if (startsWithIgnoreCase(CONTENT_LENGTH)) {
+                contentLength = parseLength(CONTENT_LENGTH.length);
+            }
+        }
+        if (contentLength > MAX_FRAME_BYTES) {
+            throw new IOException("Frame of " + contentLength + " bytes exceeds the limit");
+        }
+        boolean complete = contentLength >= 0 ? readBody(frame, contentLength) : readToEndOfImage(frame);
+        if (!complete) {
+            return false;
+        }
+        frame.receivedNanos = started;
+        frame.sequence = ++sequence;
+        return true;
+    }
+
+    private boolean readBody(Frame frame, int length) throws IOException {
+        if (frame.data.length < length) {
+            frame.data = new byte[length];
+        }
+        int copied = 0;
+        while (copied < length) {
+            if (position == limit && !fill()) {
+                return false;
+            }
+            int n = Math.min(length - copied, limit - position);
+            System.arraycopy(buffer, position, frame.data, copied, n);
+            position += n;
+            copied += n;
+        }
+        frame.length = length;
+        return true;
+    }
+
+    private boolean readToEndOfImage(Frame frame) throws IOException {
+        int length = 0;
+        int previous = -1;
+        while (true) {
+            if (position == limit && !fill()) {
+                return false;
+            }
+            int b = buffer[position++] & 0xFF;
+            if (length == frame.data.length) {
+                if (length >= MAX_FRAME_BYTES) {
+                    throw new IOException("Frame exceeds the limit without an end-of-image marker");
+                }
+                byte[] grown = new byte[Math.min(length * 2, MAX_FRAME_BYTES)];
+                System.arraycopy(frame.data, 0, grown, 0, length);
+                frame.data = grown;
+            }
+            frame.data[length++] = (byte) b;
+            // FF D9 ends a JPEG; it cannot occur inside the entropy-coded data
+            if (previous == 0xFF && b == 0xD9) {
+                frame.length = length;
+                return true;
+            }
+            previous = b;
+        }
+    }
+
+    /** Reads one line without its terminator; false at the end of the stream. */
+    private boolean readLine() throws IOException {
+        lineLength = 0;
+        boolean any = false;
+        while (true) {
+            if (position == limit && !fill()) {
+                return any;
+            }
+            any = true;
+            byte b = buffer[position++];
+            if (b == '\n') {
+                if (lineLength > 0 && line[lineLength - 1] == '\r') {
+                    lineLength--;
+                }
+                return true;
+            }
+            if (lineLength < line.length) {
+                line[lineLength++] = b;
+            }
+        }
+    }
+
+    private boolean isBoundary() {
+        // Delimiters are "--" + boundary, but some cameras already include the dashes
+        int offset = lineLength >= 2 && line[0] == '-' && line[1] == '-' ? 2 : 0;
+        return matches(offset) || offset == 2 && matches(0);
+    }
+
+    private boolean matches(int offset) {
+        if (lineLength - offset != boundary.length) {
+            return false;
+        }
+        for (int i = 0; i < boundary.length; i++) {
+            if (line[offset + i] != boundary[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean startsWithIgnoreCase(byte[] prefix) {
+        if (lineLength < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (Character.toLowerCase(line[i]) != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int parseLength(int from) throws IOException {
+        long value = 0;
+        boolean digits = false;
+        for (int i = from; i < lineLength; i++) {
+            byte b = line[i];
+            if (b >= '0' && b <= '9') {
+                value = value * 10 + (b - '0');
+                digits = true;
+                if (value > Integer.MAX_VALUE) {
+                    throw new IOException("Content-Length out of range");
+                }
+            } else if (b != ' ' && b != '\t' || digits) {
+                break;
+            }
+        }
+        return digits ? (int) value : -1;
+    }
+
+    private boolean fill() throws IOException {
+        int n = in.read(buffer, 0, buffer.length);
+        if (n <= 0) {
+            return false;
+        }
+        position = 0;
+        limit = n;
+        return true;
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.acar.video;
+
+import android.util.Log;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+
+/**
+ * Keeps an HTTP connection to an MJPEG stream open on a background thread
+ * and publishes every frame to a {@link NewestSlot}. The thread only copies
+ * bytes, so it keeps up with the camera and the socket never backs up with
+ * old frames; skipping stale frames is left to whoever takes from the slot.
+ * Reconnects after {@link #RETRY_INTERVAL_MS} when the stream drops.
+ */
+public final class MjpegReceiver {
+
+    private static final String TAG = "MjpegReceiver";
+
+    static final long RETRY_INTERVAL_MS = 1000;
+    private static final int CONNECT_TIMEOUT_MS = 3000;
+    private static final int READ_TIMEOUT_MS = 3000;
+
+    private final URL url;
+    private final NewestSlot<MjpegReader.Frame> slot;
+
+    // The receive thread that should be running, null once stopped. A stopped
+    // thread may linger until its connection gives up, so each checks it is still this one.
+    private volatile Thread thread;
+    private volatile boolean connected;
+    private volatile HttpURLConnection connection;
+
+    public MjpegReceiver(URL url, NewestSlot<MjpegReader.Frame> slot) {
+        this.url = url;
+        this.slot = slot;
+    }
+
+    public synchronized void start() {
+        if (thread != null) {
+            return;
+        }
+        Thread started = new Thread(this::receiveLoop, "mjpeg-receive");
+        thread = started;
+        started.start();
+    }
+
+    /**
+     * Closes the connection and lets the thread finish on its own, without
+     * waiting for it: a stalled camera socket could otherwise hold up the
+     * caller, usually the main thread, for the whole read timeout.
+     */
+    public synchronized void stop() {
+        Thread stopping = thread;
+        if (stopping == null) {
+            return;
+        }
+        thread = null;
+        connected = false;
+        HttpURLConnection current = connection;
+        if (current != null) {
+            // Unblocks a read in progress
+            current.disconnect();
+        }
+        stopping.interrupt();
+    }
+
+    /** True while a stream is open. */
+    public boolean isConnected() {
+        return connected;
+    }
+
+    private void receiveLoop() {
+        // Only touched by this thread
+        MjpegReader.Frame frame = new MjpegReader.Frame();
+        while (isCurrent()) {
+            try {
+                frame = receive(frame);
+            } catch (IOException e) {
+                if (isCurrent()) {
+                    Log.w(TAG, "Stream from " + url + " interrupted: " + e.getMessage());
+                }
+            }
+            try {
+                Thread.sleep(RETRY_INTERVAL_MS);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    private boolean isCurrent() {
+        return thread == Thread.currentThread();
+    }
+
+    private MjpegReader.Frame receive(MjpegReader.Frame frame) throws IOException {
+        HttpURLConnection opened = (HttpURLConnection) url.openConnection();
+        if (!isCurrent()) {
+            return frame;
+        }
+        connection = opened;
+        try {
+            opened.setConnectTimeout(CONNECT_TIMEOUT_MS);
+            opened.setReadTimeout(READ_TIMEOUT_MS);
+            opened.setUseCaches(false);
+            String boundary = MjpegReader.boundaryOf(opened.getContentType());
+            if (boundary == null) {
+                throw new IOException("Not an MJPEG stream: " + opened.getContentType());
+            }
+            MjpegReader reader = new MjpegReader(opened.getInputStream(), boundary);
+            connected = isCurrent();
+            while (isCurrent() && reader.next(frame)) {
+                frame = slot.publish(frame);
+            }
+            return frame;
+        } finally {
+            // Leave a newer thread's state alone
+            if (isCurrent()) {
+                connected = false;
+                connection = null;
+            }
+            opened.disconnect();
+        }
+    }
+}
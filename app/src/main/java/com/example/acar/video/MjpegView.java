@@ -0,0 +1,164 @@
+package com.example.acar.video;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.text.TextUtils;
+import android.util.AttributeSet;
+import android.util.Log;
+import android.view.View;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleEventObserver;
+import androidx.lifecycle.LifecycleOwner;
+
+import com.example.acar.R;
+import com.example.acar.metrics.LatencyHistogram;
+import com.example.acar.readout.TextBuffer;
+import com.example.acar.transport.RoverLink;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+
+/**
+ * Shows the rover's camera stream with a one-line status: the latest and
+ * 99th percentile delay from a frame starting to arrive until it is drawn,
+ * and how many frames were dropped to keep that delay down.
+ *
+ * <p>The stream address is the {@code camera_stream_url} preference,
+ * defaulting to the string resource of the same name; without one the view
+ * hides itself. The stream runs while the owning screen is started.</p>
+ */
+public class MjpegView extends View implements LifecycleEventObserver {
+
+    private static final String TAG = "MjpegView";
+    // Delays beyond ten seconds are all the same to a driver
+    private static final long MAX_LATENCY_MICROS = 10_000_000L;
+    // Keeps the status current while no frames arrive to trigger a draw
+    private static final long STATUS_REFRESH_MS = 500;
+
+    private final Paint bitmapPaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+    private final Paint statusPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint statusBackground = new Paint();
+    private final Rect target = new Rect();
+    private final TextBuffer status = new TextBuffer();
+    private final LatencyHistogram latency = new LatencyHistogram(MAX_LATENCY_MICROS);
+
+    private VideoStream stream;
+    private VideoStream.Picture shown = new VideoStream.Picture();
+    private long lastLatencyMicros = -1;
+
+    private final Runnable redraw = this::postInvalidateOnAnimation;
+
+    public MjpegView(Context context) {
+        this(context, null);
+    }
+
+    public MjpegView(Context context, AttributeSet attrs) {
+        super(context, attrs);
+        float density = context.getResources().getDisplayMetrics().density;
+        statusPaint.setColor(Color.WHITE);
+        statusPaint.setTextSize(12 * density);
+        statusBackground.setColor(Color.parseColor("#99000000"));
+    }
+
+    /** Plays the configured stream while {@code owner} is started. */
+    public void bind(LifecycleOwner owner) {
+        String address = getContext()
+                .getSharedPreferences(RoverLink.PREFERENCES, Context.MODE_PRIVATE)
+                .getString(RoverLink.KEY_CAMERA_URL, getContext().getString(R.string.camera_stream_url));
+        if (TextUtils.isEmpty(address)) {
+            setVisibility(GONE);
+            return;
+        }
+        try {
+            stream = new VideoStream(new URL(address), redraw);
+        } catch (MalformedURLException e) {
+            Log.e(TAG, "Invalid camera stream address " + address, e);
+            setVisibility(GONE);
+            return;
+        }
+        owner.getLifecycle().addObserver(this);
+    }
+
+    /** True when a stream is configured and {@link #bind} set it up. */
+    public boolean hasStream() {
+        return stream != null;
+    }
+
+    /** Passes decoded frames to {@code listener} as well; see {@link VideoStream#setFrameListener}. */
+    public void setFrameListener(VideoStream.FrameListener listener) {
+        if (stream != null) {
+            stream.setFrameListener(listener);
+        }
+    }
+
+    @Override
+    public void onStateChanged(@NonNull LifecycleOwner source, @NonNull Lifecycle.Event event) {
+        if (event == Lifecycle.Event.ON_START) {
+            stream.start();
+        } else if (event == Lifecycle.Event.ON_STOP) {
+            stream.stop();
+        } else if (event == Lifecycle.Event.ON_DESTROY) {
+            source.getLifecycle().removeObserver(this);
+        }
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        super.onDraw(canvas);
+        canvas.drawColor(Color.BLACK);
+        if (stream == null) {
+            return;
+        }
+        VideoStream.Picture newest = stream.take(shown);
+        if (newest != null) {
+            shown = newest;
+            lastLatencyMicros = (System.nanoTime() - shown.receivedNanos) / 1000;
+            latency.record(lastLatencyMicros);
+        }
+        if (shown.bitmap != null) {
+            fitCenter(shown.bitmap.getWidth(), shown.bitmap.getHeight());
+            canvas.drawBitmap(shown.bitmap, null, target, bitmapPaint);
+        }
+
+        status.clear();
+        if (!stream.isConnected()) {
+            status.append("Connecting to camera...");
+        } else if (lastLatencyMicros < 0) {
+            status.append("Waiting for video...");
+        } else {
+            status.append("Delay ").append(lastLatencyMicros / 1000)
+                    .append(" ms, p99 ").append(latency.getValueAtPercentile(99) / 1000)
+                    .append(" ms, dropped ").append(stream.getDropped())
+                    .append(" of ").append(stream.getReceived());
+        }
+        float lineHeight = statusPaint.getTextSize() * 1.4f;
+        canvas.drawRect(0, 0, getWidth(), lineHeight, statusBackground);
+        canvas.drawText(status.chars(), 0, status.length(), lineHeight * 0.25f, statusPaint.getTextSize(), statusPaint);
+        removeCallbacks(redraw);
+        postDelayed(redraw, STATUS_REFRESH_MS);
+    }
+
+    private void fitCenter(int width, int height) {
+        int viewWidth = getWidth();
+        int viewHeight = getHeight();
+        if (width <= 0 || height <= 0) {
+            target.set(0, 0, viewWidth, viewHeight);
+            return;
+        }
+        // Letterbox: scale to the smaller of the two ratios
+        if ((long) viewWidth * height > (long) viewHeight * width) {
+            int scaledWidth = (int) ((long) viewHeight * width / height);
+            int left = (viewWidth - scaledWidth) / 2;
+            target.set(left, 0, left + scaledWidth, viewHeight);
+        } else {
+            int scaledHeight = (int) ((long) viewWidth * height / width);
+            int top = (viewHeight - scaledHeight) / 2;
+            target.set(0, top, viewWidth, top + scaledHeight);
+        }
+    }
+}
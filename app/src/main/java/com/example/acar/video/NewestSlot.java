@@ -0,0 +1,79 @@
+package com.example.acar.video;
+
+/**
+ * Hands the newest item from one producer thread to one consumer thread
+ * without copying or allocating.
+ *
+ * <p>Three items circulate: the producer fills one, the slot holds one and
+ * the consumer works on one. {@link #publish} swaps the producer's filled
+ * item into the slot and hands back the item it replaces, so a producer that
+ * runs ahead simply overwrites frames the consumer never got to; those are
+ * counted as dropped. {@link #take} swaps the consumer's finished item back
+ * into the slot in exchange for the fresh one.</p>
+ */
+public final class NewestSlot<T> {
+
+    private T held;
+    private boolean fresh;
+    private long published;
+    private long dropped;
+
+    /** @param initial the item the slot holds before anything is published */
+    public NewestSlot(T initial) {
+        held = initial;
+    }
+
+    /** Makes {@code filled} the newest item and returns an item for the producer to fill next. */
+    public synchronized T publish(T filled) {
+        T previous = held;
+        if (fresh) {
+            dropped++;
+        }
+        held = filled;
+        fresh = true;
+        published++;
+        notifyAll();
+        return previous;
+    }
+
+    /**
+     * Exchanges {@code done} for the newest item if one was published since
+     * the last take, otherwise returns null and the caller keeps {@code done}.
+     */
+    public synchronized T take(T done) {
+        if (!fresh) {
+            return null;
+        }
+        return swap(done);
+    }
+
+    /** Like {@link #take} but waits up to {@code timeoutMs} for a newer item. */
+    public synchronized T await(T done, long timeoutMs) throws InterruptedException {
+        long deadline = System.nanoTime() + timeoutMs * 1_000_000L;
+        while (!fresh) {
+            long remainingMs = (deadline - System.nanoTime()) / 1_000_000L;
+            if (remainingMs <= 0) {
+                return null;
+            }
+            wait(remainingMs);
+        }
+        return swap(done);
+    }
+
+    /** Number of items published so far. */
+    public synchronized long getPublished() {
+        return published;
+    }
+
+    /** Number of items replaced before the consumer took them. */
+    public synchronized long getDropped() {
+        return dropped;
+    }
+
+    private T swap(T done) {
+        T newest = held;
+        held = done;
+        fresh = false;
+        return newest;
+    }
+}
@@ -0,0 +1,169 @@
+package com.example.acar.video;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+
+import java.net.URL;
+
+/**
+ * Receives an MJPEG stream and decodes only the newest frame.
+ *
+ * <p>A {@link MjpegReceiver} thread publishes every JPEG to one
+ * {@link NewestSlot}; a decode thread takes whatever is newest, decodes it
+ * into one of three pooled bitmaps through {@code inBitmap} and publishes
+ * the {@link Picture} to a second slot for the screen. Frames that arrive
+ * while a decode is running, and pictures the screen has not drawn before
+ * the next one is ready, are dropped instead of queued, so the delay stays
+ * at about one frame however slow decoding or drawing gets.</p>
+ */
+public final class VideoStream {
+
+    /** A decoded frame. The bitmap is reused once the picture is handed back. */
+    public static final class Picture {
+        Bitmap bitmap;
+        long receivedNanos;
+
+        public Bitmap bitmap() {
+            return bitmap;
+        }
+
+        /** {@link System#nanoTime} at which the frame started arriving. */
+        public long receivedNanos() {
+            return receivedNanos;
+        }
+    }
+
+    /** Sees each decoded frame on the decode thread, before the screen gets it. */
+    public interface FrameListener {
+        /** The bitmap is only valid during the call. */
+        void onFrame(Bitmap bitmap);
+    }
+
+    private static final long IDLE_WAIT_MS = 250;
+
+    private final NewestSlot<MjpegReader.Frame> frames = new NewestSlot<>(new MjpegReader.Frame());
+    private final NewestSlot<Picture> pictures = new NewestSlot<>(new Picture());
+    private final MjpegReceiver receiver;
+    private final Runnable onPicture;
+    private volatile FrameListener frameListener;
+    private final BitmapFactory.Options options = new BitmapFactory.Options();
+
+    // Only touched by the decode thread while it runs
+    private MjpegReader.Frame frame = new MjpegReader.Frame();
+    private Picture picture = new Picture();
+
+    private Thread decoder;
+    private volatile boolean running;
+    private volatile long decoded;
+    private volatile long corrupt;
+
+    /** @param onPicture called on the decode thread whenever a new picture can be taken */
+    public VideoStream(URL url, Runnable onPicture) {
+        this.receiver = new MjpegReceiver(url, frames);
+        this.onPicture = onPicture;
+        options.inMutable = true;
+        // Half the memory traffic of ARGB_8888 and plenty for a small preview
+        options.inPreferredConfig = Bitmap.Config.RGB_565;
+    }
+
+    /** Adds an analysis step on the decode thread; null removes it. Keep it short, it delays the picture. */
+    public void setFrameListener(FrameListener listener) {
+        frameListener = listener;
+    }
+
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        decoder = new Thread(this::decodeLoop, "mjpeg-decode");
+        decoder.start();
+        receiver.start();
+    }
+
+    public synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        receiver.stop();
+        decoder.interrupt();
+        try {
+            decoder.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Exchanges the picture the caller has finished drawing for the newest
+     * one, or returns null if nothing newer has been decoded.
+     */
+    public Picture take(Picture shown) {
+        return pictures.take(shown);
+    }
+
+    public boolean isConnected() {
+        return receiver.isConnected();
+    }
+
+    /** Frames received from the camera. */
+    public long getReceived() {
+        return frames.getPublished();
+    }
+
+    /** Frames decoded. */
+    public long getDecoded() {
+        return decoded;
+    }
+
+    /** Frames skipped before decoding, decoded but never taken, or undecodable. */
+    public long getDropped() {
+        return frames.getDropped() + pictures.getDropped() + corrupt;
+    }
+
+    private void decodeLoop() {
+        while (running) {
+            MjpegReader.Frame newest;
+            try {
+                newest = frames.await(frame, IDLE_WAIT_MS);
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (newest == null) {
+                continue;
+            }
+            frame = newest;
+            if (decode()) {
+                decoded++;
+                FrameListener listener = frameListener;
+                if (listener != null) {
+                    listener.onFrame(picture.bitmap);
+                }
+                picture = pictures.publish(picture);
+                onPicture.run();
+            } else {
+                corrupt++;
+            }
+        }
+    }
+
+    private boolean decode() {
+        options.inBitmap = picture.bitmap;
+        Bitmap bitmap;
+        try {
+            bitmap = BitmapFactory.decodeByteArray(frame.data, 0, frame.length, options);
+        } catch (IllegalArgumentException e) {
+            // The frame is larger than the pooled bitmap, e.g. after a resolution change
+            options.inBitmap = null;
+            bitmap = BitmapFactory.decodeByteArray(frame.data, 0, frame.length, options);
+        }
+        options.inBitmap = null;
+        if (bitmap == null) {
+            return false;
+        }
+        picture.bitmap = bitmap;
+        picture.receivedNanos = frame.receivedNanos;
+        return true;
+    }
+}
@@ -0,0 +1,175 @@
+package com.example.acar.vision;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Finds how much open ground lies ahead in a small grayscale camera frame.
+ *
+ * <p>Each pixel column is scanned upwards from the bottom of the image,
+ * computing the Sobel gradient as it goes, until the first strong edge: the
+ * foot of whatever stands on the ground, or a drop or change of surface. The
+ * rows below it are free ground. The frame is split into {@link #SECTORS}
+ * sectors (left, centre, right) and each reports the free rows that a
+ * quarter of its columns fall short of, so a single noisy column does not
+ * block a sector but a narrow post still does.</p>
+ *
+ * <p>Columns are independent, so the frame is cut into vertical tiles that
+ * a fixed pool of worker threads scans in parallel with the calling thread.
+ * Detecting allocates nothing. Not thread-safe; call from one thread.</p>
+ */
+public final class FreeSpaceDetector implements AutoCloseable {
+
+    public static final int SECTORS = 3;
+    public static final int LEFT = 0;
+    public static final int CENTER = 1;
+    public static final int RIGHT = 2;
+
+    /** Sum of absolute Sobel responses that counts as an edge; a step of about 40 grey levels. */
+    static final int EDGE_THRESHOLD = 160;
+
+    private final int width;
+    private final int height;
+    private final int[] freeRows;
+    private final int[] sectorFreeRows = new int[SECTORS];
+    // Rows-free histogram reused for each sector's percentile
+    private final int[] histogram;
+    private final Tile[] tiles;
+    private final ExecutorService workers;
+    private final Semaphore finished = new Semaphore(0);
+
+    private byte[] gray;
+
+    /** @param threads threads to scan with, including the caller */
+    public FreeSpaceDetector(int width, int height, int threads) {
+        if (width < 3 * SECTORS || height < 3) {
+            throw new IllegalArgumentException("Frame of " + width + "x" + height + " is too small");
+        }
+        this.width = width;
+        this.height = height;
+        freeRows = new int[width];
+        histogram = new int[height];
+        int tileCount = Math.max(1, Math.min(threads, width));
+        tiles = new Tile[tileCount];
+        for (int t = 0; t < tileCount; t++) {
+            tiles[t] = new Tile(width * t / tileCount, width * (t + 1) / tileCount);
+        }
+        workers = tileCount > 1
+                ? Executors.newFixedThreadPool(tileCount - 1, r -> {
+                    Thread thread = new Thread(r, "vision-worker");
+                    thread.setDaemon(true);
+                    return thread;
+                })
+                : null;
+    }
+
+    public int width() {
+        return width;
+    }
+
+    public int height() {
+        return height;
+    }
+
+    /** Rows the free ground can span: every row but the ones the Sobel kernel cannot centre on. */
+    public int maxFreeRows() {
+        return height - 2;
+    }
+
+    /**
+     * Scans a frame of {@code width * height} luminance bytes, row by row
+     * from the top left.
+     */
+    public void detect(byte[] frame) {
+        gray = frame;
+        for (int t = 1; t < tiles.length; t++) {
+            workers.execute(tiles[t]);
+        }
+        tiles[0].scan();
+        finished.acquireUninterruptibly(tiles.length - 1);
+        for (int s = 0; s < SECTORS; s++) {
+            sectorFreeRows[s] = lowerQuartile(width * s / SECTORS, width * (s + 1) / SECTORS);
+        }
+    }
+
+    /** Free rows above the bottom of the frame in column {@code x}, from the last {@link #detect}. */
+    public int freeRows(int x) {
+        return freeRows[x];
+    }
+
+    /** Free rows in {@code sector}; {@link #maxFreeRows} when nothing was found. */
+    public int sectorFreeRows(int sector) {
+        return sectorFreeRows[sector];
+    }
+
+    @Override
+    public void close() {
+        if (workers != null) {
+            workers.shutdownNow();
+        }
+    }
+
+    private int lowerQuartile(int from, int to) {
+        for (int i = 0; i < histogram.length; i++) {
+            histogram[i] = 0;
+        }
+        for (int x = from; x < to; x++) {
+            histogram[freeRows[x]]++;
+        }
+        int target = (to - from + 3) / 4;
+        int seen = 0;
+        for (int rows = 0; rows < histogram.length; rows++) {
+            seen += histogram[rows];
+            if (seen >= target) {
+                return rows;
+            }
+        }
+        return maxFreeRows();
+    }
+
+    /** The columns from {@code from} up to {@code to}. */
+    private final class Tile implements Runnable {
+        private final int from;
+        private final int to;
+
+        Tile(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public void run() {
+            try {
+                scan();
+            } finally {
+                finished.release();
+            }
+        }
+
+        void scan() {
+            byte[] frame = gray;
+            int bottom = height - 2;
+            for (int x = from; x < to; x++) {
+                // Edge columns reuse their inner neighbour for the kernel's missing side
+                int left = Math.max(x - 1, 0);
+                int right = Math.min(x + 1, width - 1);
+                int rows = bottom;
+                for (int y = bottom; y >= 1; y--) {
+                    int above = (y - 1) * width;
+                    int row = y * width;
+                    int below = (y + 1) * width;
+                    int gx = (frame[above + right] & 0xFF) + 2 * (frame[row + right] & 0xFF) + (frame[below + right] & 0xFF)
+                            - (frame[above + left] & 0xFF) - 2 * (frame[row + left] & 0xFF) - (frame[below + left] & 0xFF);
+                    int gy = (frame[below + left] & 0xFF) + 2 * (frame[below + x] & 0xFF) + (frame[below + right] & 0xFF)
+                            - (frame[above + left] & 0xFF) - 2 * (frame[above + x] & 0xFF) - (frame[above + right] & 0xFF);
+                    if (Math.abs(gx) + Math.abs(gy) >= EDGE_THRESHOLD) {
+                        rows = bottom - y;
+                        break;
+                    }
+                }
+                freeRows[x] = rows;
+            }
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package com.example.acar.vision;
+
+import android.graphics.Bitmap;
+
+import com.example.acar.readout.TextBuffer;
+import com.example.acar.video.NewestSlot;
+import com.example.acar.video.VideoStream;
+
+/**
+ * Turns camera frames into obstacle hints: how far the ground ahead is
+ * clear to the left, straight ahead and to the right.
+ *
+ * <p>Frames arrive on the video decode thread. At most one is accepted per
+ * {@link #FRAME_BUDGET_MS}, and only while the previous one is finished, so
+ * a slow phone analyses fewer frames instead of falling behind; everything
+ * else is skipped after a single check. An accepted frame is shrunk to
+ * {@link #WIDTH} x {@link #HEIGHT} grayscale on the decode thread and
+ * analysed by a {@link FreeSpaceDetector} on the vision thread and its
+ * workers.</p>
+ *
+ * <p>Image rows are turned into distances by assuming flat ground and the
+ * camera mount described by the constants below.</p>
+ */
+public final class VisionStage implements VideoStream.FrameListener {
+
+    /** Receives each hint on the vision thread. Distances are in metres, infinite when clear. */
+    public interface Listener {
+        void onVisionHint(double leftM, double centerM, double rightM);
+    }
+
+    public static final int WIDTH = 80;
+    public static final int HEIGHT = 60;
+    /** Analyse at most ten frames a second; the hints feed a 10 Hz planner. */
+    static final long FRAME_BUDGET_MS = 100;
+
+    // OV2640 module on the ESP32-CAM with its stock lens, mounted at the front of the rover
+    private static final double CAMERA_HEIGHT_M = 0.2;
+    private static final double CAMERA_TILT_RAD = Math.toRadians(15);
+    private static final double VERTICAL_FOV_RAD = Math.toRadians(41);
+
+    private static final long IDLE_WAIT_MS = 250;
+
+    private final Listener listener;
+    private final FreeSpaceDetector detector;
+    // Ground distance at the foot of an edge after n free rows
+    private final double[] distances;
+    private final NewestSlot<byte[]> frames = new NewestSlot<>(new byte[WIDTH * HEIGHT]);
+
+    // Only touched on the decode thread
+    private byte[] input = new byte[WIDTH * HEIGHT];
+    private int[] row = new int[0];
+    // Only touched on the vision thread while it runs
+    private byte[] working = new byte[WIDTH * HEIGHT];
+
+    private Thread thread;
+    private volatile boolean running;
+    private volatile boolean busy;
+    private volatile long nextDueNanos;
+    private volatile long skipped;
+    private volatile long analysed;
+    private volatile long overruns;
+    private volatile long lastCostNanos;
+    private volatile double left = Double.POSITIVE_INFINITY;
+    private volatile double center = Double.POSITIVE_INFINITY;
+    private volatile double right = Double.POSITIVE_INFINITY;
+
+    public VisionStage(Listener listener) {
+        this.listener = listener;
+        // Leave a core for decoding and the UI
+        int threads = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() - 1));
+        detector = new FreeSpaceDetector(WIDTH, HEIGHT, threads);
+        distances = groundDistances(detector);
+    }
+
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        busy = false;
+        thread = new Thread(this::analyseLoop, "vision");
+        thread.start();
+    }
+
+    public synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        thread.interrupt();
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** Stops for good and releases the worker threads. */
+    public void quit() {
+        stop();
+        detector.close();
+    }
+
+    @Override
+    public void onFrame(Bitmap bitmap) {
+        long now = System.nanoTime();
+        if (!running || busy || now - nextDueNanos < 0) {
+            skipped++;
+            return;
+        }
+        busy = true;
+        nextDueNanos = now + FRAME_BUDGET_MS * 1_000_000L;
+        shrink(bitmap, input);
+        input = frames.publish(input);
+    }
+
+    /** One line of status for the screen. */
+    public void appendStatus(TextBuffer out) {
+        out.append("Vision ");
+        if (analysed == 0) {
+            out.append("waiting for frames");
+            return;
+        }
+        out.append(lastCostNanos / 1e6, 1).append(" ms, clear L ");
+        appendDistance(out, left);
+        out.append(" C ");
+        appendDistance(out, center);
+        out.append(" R ");
+        appendDistance(out, right);
+        out.append(" · skipped ").append(skipped).append(" overran ").append(overruns);
+    }
+
+    private static void appendDistance(TextBuffer out, double metres) {
+        if (Double.isInfinite(metres)) {
+            out.append('-');
+        } else {
+            out.append(metres, 1).append('m');
+        }
+    }
+
+    private void analyseLoop() {
+        while (running) {
+            byte[] newest;
+            try {
+                newest = frames.await(working, IDLE_WAIT_MS);
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (newest == null) {
+                continue;
+            }
+            working = newest;
+            long start = System.nanoTime();
+            detector.detect(working);
+            left = distances[detector.sectorFreeRows(FreeSpaceDetector.LEFT)];
+            center = distances[detector.sectorFreeRows(FreeSpaceDetector.CENTER)];
+            right = distances[detector.sectorFreeRows(FreeSpaceDetector.RIGHT)];
+            long cost = System.nanoTime() - start;
+            lastCostNanos = cost;
+            if (cost > FRAME_BUDGET_MS * 1_000_000L) {
+                overruns++;
+            }
+            analysed++;
+            busy = false;
+            listener.onVisionHint(left, center, right);
+        }
+    }
+
+    /** Averages each block of source pixels into one luminance byte. */
+    private void shrink(Bitmap bitmap, byte[] out) {
+        int sourceWidth = bitmap.getWidth();
+        int sourceHeight = bitmap.getHeight();
+        if (row.length < sourceWidth) {
+            row = new int[sourceWidth];
+        }
+        for (int y = 0; y < HEIGHT; y++) {
+            // One source row from the middle of each band keeps the copy small
+            int sourceY = (2 * y + 1) * sourceHeight / (2 * HEIGHT);
+            bitmap.getPixels(row, 0, sourceWidth, 0, sourceY, sourceWidth, 1);
+            for (int x = 0; x < WIDTH; x++) {
+                int from = x * sourceWidth / WIDTH;
+                int to = Math.max(from + 1, (x + 1) * sourceWidth / WIDTH);
+                int sum = 0;
+                for (int i = from; i < to; i++) {
+                    int pixel = row[i];
+                    sum += (77 * ((pixel >> 16) & 0xFF) + 150 * ((pixel >> 8) & 0xFF) + 29 * (pixel & 0xFF)) >> 8;
+                }
+                out[y * WIDTH + x] = (byte) (sum / (to - from));
+            }
+        }
+    }
+
+    /** Flat-ground distance to the foot of an edge for every possible count of free rows. */
+    static double[] groundDistances(FreeSpaceDetector detector) {
+        int height = detector.height();
+        double focal = height / 2.0 / Math.tan(VERTICAL_FOV_RAD / 2);
+        int bottom = detector.maxFreeRows();
+        double[] distances = new double[bottom + 1];
+        for (int rows = 0; rows < bottom; rows++) {
+            int y = bottom - rows;
+            double depression = CAMERA_TILT_RAD + Math.atan((y + 0.5 - height / 2.0) / focal);
+            distances[rows] = depression > 0 ? CAMERA_HEIGHT_M / Math.tan(depression) : Double.POSITIVE_INFINITY;
+        }
+        // No edge in the whole column
+        distances[bottom] = Double.POSITIVE_INFINITY;
+        return distances;
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.acar.chart;
+
+import com.example.acar.telemetry.SampleRing;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the sample ring and per-column downsampling.
+ */
+public class MinMaxDownsamplerTest {
+
+    @Test
+    public void ringKeepsNewestSamplesInOrder() {
+        SampleRing ring = new SampleRing(4);
+        for (int i = 0; i < 6; i++) {
+            ring.add(i * 10L, i);
+        }
+        assertEquals(4, ring.size());
+        assertEquals(20L, ring.timeAt(0));
+        assertEquals(5.0, ring.valueAt(3), 0);
+        assertEquals(1, ring.firstIndexAtOrAfter(25));
+        assertEquals(0, ring.firstIndexAtOrAfter(0));
+        assertEquals(4, ring.firstIndexAtOrAfter(100));
+    }
+
+    @Test
+    public void keepsSpikesWithinEachColumn() {
+        SampleRing ring = new SampleRing(1000);
+        for (int i = 0; i < 1000; i++) {
+            ring.add(i, i == 503 ? 100 : 1);
+        }
+        MinMaxDownsampler downsampler = new MinMaxDownsampler();
+        downsampler.downsample(ring, 0, 1000, 10);
+
+        assertEquals(10, downsampler.columns());
+        assertEquals(100.0, downsampler.max(5), 0);
+        assertEquals(1.0, downsampler.min(5), 0);
+        assertEquals(1.0, downsampler.max(4), 0);
+        assertEquals(1.0, downsampler.lowest(), 0);
+        assertEquals(100.0, downsampler.highest(), 0);
+    }
+
+    @Test
+    public void leavesEmptyColumnsUnfilled() {
+        SampleRing ring = new SampleRing(8);
+        ring.add(0, 2);
+        ring.add(90, 3);
+        MinMaxDownsampler downsampler = new MinMaxDownsampler();
+        downsampler.downsample(ring, 0, 100, 10);
+
+        assertTrue(downsampler.hasData(0));
+        assertFalse(downsampler.hasData(5));
+        assertTrue(downsampler.hasData(9));
+        assertEquals(3.0, downsampler.last(9), 0);
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.acar.drive;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for drive command coalescing and rate limiting.
+ */
+public class DriveChannelTest {
+
+    /** Manual clock holding at most one scheduled task, like the channel needs. */
+    private static final class FakeScheduler implements DriveChannel.Scheduler {
+        long now;
+        Runnable task;
+        long dueAt;
+
+        @Override
+        public long now() {
+            return now;
+        }
+
+        @Override
+        public void schedule(Runnable task, long delayMillis) {
+            this.task = task;
+            this.dueAt = now + delayMillis;
+        }
+
+        @Override
+        public void cancel(Runnable task) {
+            this.task = null;
+        }
+
+        void advanceTo(long time) {
+            now = time;
+            if (task != null && dueAt <= now) {
+                Runnable run = task;
+                task = null;
+                run.run();
+            }
+        }
+    }
+
+    private final List<float[]> sent = new ArrayList<>();
+    private final List<Runnable> acks = new ArrayList<>();
+    private final FakeScheduler scheduler = new FakeScheduler();
+    private final DriveChannel channel = new DriveChannel((seq, throttle, steer, onSent) -> {
+        sent.add(new float[]{seq, throttle, steer});
+        acks.add(onSent);
+    }, 10, scheduler);
+
+    @Test
+    public void coalescesPositionsWhileWriteInFlight() {
+        channel.submit(0.1f, 0f);
+        channel.submit(0.2f, 0f);
+        channel.submit(0.3f, 0.5f);
+        assertEquals(1, sent.size());
+
+        scheduler.advanceTo(150);
+        acks.get(0).run();
+        assertEquals(2, sent.size());
+        assertEquals(0.3f, sent.get(1)[1], 1e-6);
+        assertEquals(0.5f, sent.get(1)[2], 1e-6);
+    }
+
+    @Test
+    public void spacesWritesByMaximumRate() {
+        channel.submit(0.1f, 0f);
+        acks.get(0).run();
+        scheduler.advanceTo(20);
+        channel.submit(0.2f, 0f);
+        assertEquals(1, sent.size());
+
+        scheduler.advanceTo(99);
+        assertEquals(1, sent.size());
+        scheduler.advanceTo(100);
+        assertEquals(2, sent.size());
+    }
+
+    @Test
+    public void stopBypassesPendingAndInFlight() {
+        channel.submit(0.8f, 0f);
+        channel.submit(0.9f, 0f);
+        channel.stop();
+
+        assertEquals(2, sent.size());
+        assertEquals(0f, sent.get(1)[1], 0);
+        assertEquals(2, channel.getSequence());
+
+        // The coalesced 0.9 position must never follow the stop
+        acks.get(0).run();
+        acks.get(1).run();
+        scheduler.advanceTo(1000);
+        assertEquals(2, sent.size());
+    }
+
+    @Test
+    public void onlyTheNewestWriteFreesTheChannel() {
+        channel.submit(0.8f, 0f);
+        channel.stop();
+        acks.get(0).run();
+
+        // The stop is still in flight
+        scheduler.advanceTo(1000);
+        channel.submit(0.4f, 0f);
+        assertEquals(2, sent.size());
+
+        acks.get(1).run();
+        assertEquals(3, sent.size());
+        assertEquals(0.4f, sent.get(2)[1], 1e-6);
+    }
+}
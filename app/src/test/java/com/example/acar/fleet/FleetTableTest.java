@@ -0,0 +1,70 @@
+package com.example.acar.fleet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.example.acar.transport.PackedTelemetry;
+
+import org.junit.Test;
+
+public class FleetTableTest {
+
+    private static String summary(double temperature, int moisture) {
+        PackedTelemetry.Encoder encoder = new PackedTelemetry.Encoder();
+        encoder.beginSample(0).climate(temperature, 50).gps(15.35, 76.15).rain(false).moisture(moisture);
+        return encoder.toBase64();
+    }
+
+    @Test
+    public void keepsOneRowPerRoverInIdOrder() {
+        FleetTable table = new FleetTable();
+        assertTrue(table.update("rover-3", summary(21, 30), 100));
+        assertTrue(table.update("rover-1", summary(22, 31), 110));
+        assertTrue(table.update("rover-2", summary(23, 32), 120));
+        // A later summary updates the row in place
+        assertFalse(table.update("rover-1", summary(24.5, 33), 200));
+
+        assertEquals(3, table.size());
+        assertEquals("rover-1", table.id(0));
+        assertEquals("rover-2", table.id(1));
+        assertEquals("rover-3", table.id(2));
+        assertEquals(24.5, table.temperature(0), 1e-9);
+        assertEquals(33, table.moisture(0));
+        assertEquals(200, table.updatedMillis(0));
+        assertTrue(table.hasRain(0));
+        assertFalse(table.isRaining(0));
+
+        assertTrue(table.remove("rover-2"));
+        assertFalse(table.remove("rover-2"));
+        assertEquals(2, table.size());
+        assertEquals("rover-3", table.id(1));
+        assertEquals(21, table.temperature(1), 1e-9);
+    }
+
+    @Test
+    public void growsPastItsInitialCapacityAndIgnoresBadFrames() {
+        FleetTable table = new FleetTable();
+        for (int i = 0; i < 20; i++) {
+            table.update(String.format("rover-%02d", 19 - i), summary(i, i), i);
+        }
+        assertEquals(20, table.size());
+        for (int row = 0; row < 20; row++) {
+            assertEquals(String.format("rover-%02d", row), table.id(row));
+            assertEquals(19 - row, table.moisture(row));
+        }
+
+        assertFalse(table.update("rover-99", "not base64!", 0));
+        assertEquals(20, table.size());
+        assertTrue(table.indexOf("rover-99") < 0);
+
+        // A rover whose summary lacks a channel shows it as unknown
+        PackedTelemetry.Encoder encoder = new PackedTelemetry.Encoder();
+        encoder.beginSample(0).rain(true);
+        table.update("rover-new", encoder.toBase64(), 0);
+        int row = table.indexOf("rover-new");
+        assertTrue(Double.isNaN(table.temperature(row)));
+        assertEquals(FleetTable.UNKNOWN, table.moisture(row));
+        assertTrue(table.isRaining(row));
+    }
+}
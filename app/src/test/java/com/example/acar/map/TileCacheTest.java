@@ -0,0 +1,266 @@
+package com.example.acar.map;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Local unit tests of the tile tiers, with in-memory tile sources standing
+ * in for the tile pack and the tile server.
+ */
+public class TileCacheTest {
+
+    private static final TileCache.Decoder<byte[]> BYTES = new TileCache.Decoder<byte[]>() {
+        @Override
+        public byte[] decode(byte[] data) {
+            return data.length == 0 ? null : data;
+        }
+
+        @Override
+        public int sizeOf(byte[] tile) {
+            return tile.length;
+        }
+    };
+
+    // Stands in for the main thread: results queue here until the test runs them
+    private final BlockingQueue<Runnable> mainThread = new LinkedBlockingQueue<>();
+    private final List<TileCache<byte[]>> caches = new ArrayList<>();
+    private File directory;
+
+    @After
+    public void tearDown() {
+        for (TileCache<byte[]> cache : caches) {
+            cache.close();
+        }
+        if (directory != null) {
+            File[] files = directory.listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    //noinspection ResultOfMethodCallIgnored
+                    file.delete();
+                }
+            }
+            //noinspection ResultOfMethodCallIgnored
+            directory.delete();
+        }
+    }
+
+    @Test
+    public void tileKeysAndProjectionRoundTrip() {
+        long key = TileMath.key(18, 187_000, 120_000);
+        assertEquals(18, TileMath.zoom(key));
+        assertEquals(187_000, TileMath.x(key));
+        assertEquals(120_000, TileMath.y(key));
+        assertEquals(76.5, TileMath.longitude(TileMath.worldX(76.5, 17), 17), 1e-9);
+        assertEquals(15.25, TileMath.latitude(TileMath.worldY(15.25, 17), 17), 1e-9);
+        assertEquals(128, TileMath.worldX(0, 0), 1e-9);
+        assertEquals(128, TileMath.worldY(0, 0), 1e-9);
+    }
+
+    @Test
+    public void offlinePackServesTilesWithoutTheNetwork() throws Exception {
+        FakeSource pack = new FakeSource();
+        pack.put(16, 100, 200, tile(50, 1));
+        FakeSource server = new FakeSource();
+        TileCache<byte[]> cache = cache(pack, server, 1 << 20);
+        int[] loaded = new int[1];
+        cache.setOnTileLoaded(() -> loaded[0]++);
+
+        // Never blocks: a miss returns at once and the tile follows
+        assertNull(cache.get(16, 100, 200));
+        pumpUntil(() -> loaded[0] == 1);
+        assertArrayEquals(tile(50, 1), cache.get(16, 100, 200));
+        assertEquals(1, cache.getLoadedFromPack());
+        assertEquals(1, cache.getHits());
+        assertTrue(server.fetched.isEmpty());
+        // Pack tiles are already on the phone and are not copied to the disk tier
+        assertEquals(0, new DiskTileCache(directory, 1 << 20).getSizeBytes());
+    }
+
+    @Test
+    public void downloadedTilesAreKeptOnDiskForTheNextSession() throws Exception {
+        FakeSource server = new FakeSource();
+        server.put(15, 7, 9, tile(80, 2));
+        TileCache<byte[]> online = cache(null, server, 1 << 20);
+        assertNull(online.get(15, 7, 9));
+        pumpUntil(() -> online.peek(15, 7, 9) != null);
+        assertEquals(1, online.getLoadedFromRemote());
+
+        // Next session, out in the field with no server at all
+        TileCache<byte[]> offline = cache(null, null, 1 << 20);
+        assertNull(offline.get(15, 7, 9));
+        pumpUntil(() -> offline.peek(15, 7, 9) != null);
+        assertArrayEquals(tile(80, 2), offline.get(15, 7, 9));
+        assertEquals(1, offline.getLoadedFromDisk());
+        assertEquals(1, server.fetched.size());
+    }
+
+    @Test
+    public void tilesFoundNowhereAreNotAskedForOnEveryFrame() throws Exception {
+        FakeSource server = new FakeSource();
+        TileCache<byte[]> cache = cache(null, server, 1 << 20);
+        assertNull(cache.get(12, 1, 1));
+        pumpUntil(() -> server.fetched.size() == 1);
+        // Let the result reach the main thread
+        pumpFor(100);
+        for (int frame = 0; frame < 10; frame++) {
+            assertNull(cache.get(12, 1, 1));
+        }
+        pumpFor(100);
+        assertEquals(1, server.fetched.size());
+    }
+
+    @Test
+    public void prefetchFollowsTheHeading() throws Exception {
+        FakeSource pack = new FakeSource();
+        TileCache<byte[]> cache = cache(pack, null, 1 << 20);
+        // Middle of tile 10/10 heading east: three tiles deep, three wide
+        cache.prefetchAhead(5, 10.5 * TileMath.TILE_SIZE, 10.5 * TileMath.TILE_SIZE, 90, 3);
+        pumpUntil(() -> pack.fetched.size() == 9);
+        Set<Long> expected = new HashSet<>();
+        for (int x = 11; x <= 13; x++) {
+            for (int y = 9; y <= 11; y++) {
+                expected.add(TileMath.key(5, x, y));
+            }
+        }
+        assertEquals(expected, new HashSet<>(pack.fetched));
+    }
+
+    @Test
+    public void screenTilesGoBeforePrefetchedOnes() throws InterruptedException {
+        LoadQueue queue = new LoadQueue(3);
+        queue.offer(1, false);
+        queue.offer(2, false);
+        queue.offer(3, true);
+        queue.offer(4, true);
+        assertEquals(LoadQueue.NONE, queue.offer(4, true));
+        // Wanted again on screen: move up
+        assertEquals(LoadQueue.NONE, queue.promote(2));
+        // The urgent class is full; its stalest entry makes way
+        assertEquals(3, queue.offer(5, true));
+
+        List<Long> order = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            long taken = queue.take();
+            order.add(LoadQueue.key(taken));
+            assertEquals(i < 3, LoadQueue.isUrgent(taken));
+        }
+        assertEquals(Arrays.asList(5L, 2L, 4L, 1L), order);
+    }
+
+    @Test
+    public void memoryTierKeepsToItsBudget() {
+        MemoryTileCache<byte[]> memory = new MemoryTileCache<>(300, BYTES);
+        memory.put(1, new byte[100]);
+        memory.put(2, new byte[100]);
+        memory.put(3, new byte[100]);
+        assertNotNull(memory.get(1));
+        memory.put(4, new byte[100]);
+        assertFalse(memory.contains(2));
+        assertTrue(memory.contains(1) && memory.contains(3) && memory.contains(4));
+        assertEquals(300, memory.getSizeBytes());
+        assertEquals(1, memory.getEvictions());
+    }
+
+    @Test
+    public void diskTierEvictsLeastRecentlyUsedPastItsBudget() throws IOException {
+        directory = Files.createTempDirectory("tiles").toFile();
+        DiskTileCache disk = new DiskTileCache(directory, 300);
+        long a = TileMath.key(10, 1, 1);
+        long b = TileMath.key(10, 1, 2);
+        long c = TileMath.key(10, 1, 3);
+        long d = TileMath.key(10, 1, 4);
+        disk.put(a, tile(100, 1));
+        disk.put(b, tile(100, 2));
+        disk.put(c, tile(100, 3));
+        assertArrayEquals(tile(100, 1), disk.get(a));
+        disk.put(d, tile(100, 4));
+        assertFalse(disk.contains(b));
+        assertNull(disk.get(b));
+        assertEquals(300, disk.getSizeBytes());
+
+        // A fresh index finds what is on disk and ignores anything else there
+        assertTrue(new File(directory, "junk.tmp").createNewFile());
+        DiskTileCache reopened = new DiskTileCache(directory, 300);
+        assertEquals(300, reopened.getSizeBytes());
+        assertArrayEquals(tile(100, 4), reopened.get(d));
+        assertFalse(new File(directory, "junk.tmp").exists());
+    }
+
+    private TileCache<byte[]> cache(TileSource pack, TileSource server, long memoryBudget) throws IOException {
+        if (directory == null) {
+            directory = Files.createTempDirectory("tiles").toFile();
+        }
+        TileCache<byte[]> cache = new TileCache<>(pack, new DiskTileCache(directory, 1 << 20), server, BYTES,
+                memoryBudget, mainThread::add);
+        caches.add(cache);
+        return cache;
+    }
+
+    private void pumpUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            long left = deadline - System.nanoTime();
+            assertTrue("Timed out", left > 0);
+            Runnable task = mainThread.poll(left, TimeUnit.NANOSECONDS);
+            if (task != null) {
+                task.run();
+            }
+        }
+    }
+
+    private void pumpFor(long millis) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
+        long left;
+        while ((left = deadline - System.nanoTime()) > 0) {
+            Runnable task = mainThread.poll(left, TimeUnit.NANOSECONDS);
+            if (task != null) {
+                task.run();
+            }
+        }
+    }
+
+    private static byte[] tile(int size, int fill) {
+        byte[] data = new byte[size];
+        Arrays.fill(data, (byte) fill);
+        return data;
+    }
+
+    /** Tile pack or tile server held in memory, remembering what was asked of it. */
+    private static final class FakeSource implements TileSource {
+        final Map<Long, byte[]> tiles = new HashMap<>();
+        final List<Long> fetched = java.util.Collections.synchronizedList(new ArrayList<>());
+
+        void put(int zoom, int x, int y, byte[] data) {
+            tiles.put(TileMath.key(zoom, x, y), data);
+        }
+
+        @Override
+        public byte[] fetch(int zoom, int x, int y) {
+            long key = TileMath.key(zoom, x, y);
+            fetched.add(key);
+            return tiles.get(key);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.acar.metrics;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for latency recording and command round-trip tracking.
+ */
+public class LatencyHistogramTest {
+
+    @Test
+    public void reportsPercentilesWithinBucketPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram(60_000_000L);
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000L);
+        }
+        assertEquals(1000, histogram.getTotalCount());
+        assertEquals(1_000_000L, histogram.getMax());
+        assertEquals(500_000, histogram.getValueAtPercentile(50), 500_000 * 0.04);
+        assertEquals(990_000, histogram.getValueAtPercentile(99), 990_000 * 0.04);
+        assertEquals(1_000_000L, histogram.getValueAtPercentile(100));
+    }
+
+    @Test
+    public void bucketsCoverEveryValueOnce() {
+        long previousUpper = -1;
+        for (int index = 0; index < 400; index++) {
+            long upper = LatencyHistogram.upperBound(index);
+            assertEquals(index, LatencyHistogram.indexOf(previousUpper + 1));
+            assertEquals(index, LatencyHistogram.indexOf(upper));
+            previousUpper = upper;
+        }
+    }
+
+    @Test
+    public void clampsValuesAboveRange() {
+        LatencyHistogram histogram = new LatencyHistogram(1000);
+        histogram.record(5);
+        histogram.record(1_000_000_000L);
+        assertEquals(1_000_000_000L, histogram.getMax());
+        assertEquals(5, histogram.getValueAtPercentile(50));
+    }
+
+    @Test
+    public void tracksRoundTripsAndLostCommands() {
+        CommandLatencyTracker tracker = new CommandLatencyTracker();
+        int first = tracker.begin(0);
+        int second = tracker.begin(1_000_000);
+        tracker.acknowledge(second, 6_000_000);
+        tracker.acknowledge(second, 9_000_000);
+        assertEquals(1, tracker.getAcknowledged());
+        assertEquals(5000, tracker.getRoundTrips().getMax());
+
+        // Wrap the ring so the never-acked first command is counted as lost
+        for (int i = 0; i < 64; i++) {
+            tracker.begin(10_000_000);
+        }
+        assertEquals(1, tracker.getLost());
+        tracker.acknowledge(first, 20_000_000);
+        assertEquals(1, tracker.getAcknowledged());
+    }
+
+    @Test
+    public void numbersFollowOnFromTheFirstSequence() {
+        assertTrue(new CommandLatencyTracker().begin(0) > 0);
+        CommandLatencyTracker tracker = new CommandLatencyTracker(41);
+        assertEquals(41, tracker.begin(0));
+        assertEquals(42, tracker.begin(0, true));
+    }
+
+    @Test
+    public void keepsEmergencyStopRoundTripsApart() {
+        CommandLatencyTracker tracker = new CommandLatencyTracker();
+        int drive = tracker.begin(0);
+        int stop = tracker.begin(0, true);
+        tracker.acknowledge(drive, 40_000_000);
+        tracker.acknowledge(stop, 3_000_000);
+        assertEquals(2, tracker.getRoundTrips().getTotalCount());
+        assertEquals(1, tracker.getStopRoundTrips().getTotalCount());
+        assertEquals(3000, tracker.getStopRoundTrips().getMax());
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.acar.mission;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests writing a mission log and reading it back through the mapping.
+ */
+public class MissionLogTest {
+
+    private File file;
+
+    @After
+    public void tearDown() {
+        if (file != null) {
+            //noinspection ResultOfMethodCallIgnored
+            file.delete();
+        }
+    }
+
+    @Test
+    public void roundTripsRecordsAndSeeksByTime() throws IOException {
+        file = File.createTempFile("mission", ".acl");
+        MissionLogWriter writer = new MissionLogWriter(file);
+        for (int i = 0; i < 5000; i++) {
+            writer.append(1_000L + i * 10L, MissionRecord.TYPE_SAMPLE, (byte) 0, 0, 20 + i * 0.01, 50);
+            if (i % 1000 == 999) {
+                // Stand-in for the periodic flush a real session gets between bursts
+                writer.flush();
+            }
+        }
+        writer.append(60_000L, MissionRecord.TYPE_COMMAND, MissionRecord.commandCode("stop"), 42, 0, 0);
+        writer.close();
+        assertEquals(5001, writer.getWrittenCount());
+        assertEquals(0, writer.getDroppedCount());
+
+        try (MissionLogReader reader = new MissionLogReader(file)) {
+            assertEquals(5001, reader.size());
+            MissionRecord record = reader.read(123, new MissionRecord());
+            assertEquals(2_230L, record.getTime());
+            assertEquals(MissionRecord.TYPE_SAMPLE, record.getType());
+            assertEquals(21.23, record.getA(), 1e-9);
+            assertEquals(50.0, record.getB(), 0);
+
+            assertEquals(500, reader.indexAtOrAfter(6_000L));
+            assertEquals(501, reader.indexAtOrAfter(6_001L));
+            assertEquals(5000, reader.indexAtOrAfter(59_000L));
+            reader.read(5000, record);
+            assertEquals("stop", MissionRecord.commandName(record.getCode()));
+            assertEquals(42, record.getExtra());
+        }
+    }
+
+    @Test
+    public void dropsInsteadOfBlockingWhenDiskFallsBehind() throws IOException {
+        file = File.createTempFile("mission", ".acl");
+        MissionLogWriter writer = new MissionLogWriter(file);
+        for (int i = 0; i < 100_000; i++) {
+            writer.append(i, MissionRecord.TYPE_SAMPLE, (byte) 0, 0, i, 0);
+        }
+        writer.close();
+        assertEquals(100_000, writer.getWrittenCount() + writer.getDroppedCount());
+        try (MissionLogReader reader = new MissionLogReader(file)) {
+            assertEquals(writer.getWrittenCount(), reader.size());
+        }
+    }
+
+    @Test
+    public void createsTheFileOnItsOwnThread() throws IOException {
+        file = File.createTempFile("mission", ".acl");
+        MissionLogWriter writer = new MissionLogWriter(() -> file);
+        writer.append(5L, MissionRecord.TYPE_SAMPLE, (byte) 0, 0, 1, 2);
+        writer.close();
+        assertEquals(file, writer.getFile());
+        try (MissionLogReader reader = new MissionLogReader(file)) {
+            assertEquals(1, reader.size());
+            assertEquals(5L, reader.timeAt(0));
+        }
+
+        MissionLogWriter failed = new MissionLogWriter(() -> {
+            throw new IOException("no space");
+        });
+        failed.append(MissionRecord.TYPE_MODE, (byte) 1, 0, 0, 0);
+        failed.close();
+        assertNull(failed.getFile());
+        assertEquals(0, failed.getWrittenCount());
+    }
+
+    @Test
+    public void readsWallClockStampedLogs() throws IOException {
+        file = File.createTempFile("mission", ".acl");
+        ByteBuffer log = ByteBuffer.allocate(MissionRecord.HEADER_SIZE + MissionRecord.RECORD_SIZE);
+        log.put(MissionRecord.MAGIC)
+                .putInt(MissionRecord.VERSION_WALL_CLOCK)
+                .putInt(MissionRecord.RECORD_SIZE)
+                .putLong(1_600_000_000_000L)
+                .putLong(0)
+                .putLong(1_600_000_000_250L);
+        java.nio.file.Files.write(file.toPath(), log.array());
+        try (MissionLogReader reader = new MissionLogReader(file)) {
+            assertEquals(1, reader.size());
+            assertEquals(0, reader.getWallClockOffset());
+            assertEquals(1_600_000_000_250L, reader.timeAt(0));
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsForeignFiles() throws IOException {
+        file = File.createTempFile("mission", ".acl");
+        java.nio.file.Files.write(file.toPath(), new byte[64]);
+        new MissionLogReader(file).close();
+    }
+}
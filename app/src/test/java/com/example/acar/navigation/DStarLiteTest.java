@@ -0,0 +1,158 @@
+package com.example.acar.navigation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+public class DStarLiteTest {
+
+    private static final int SIZE = 64;
+
+    @Test
+    public void repairedPlanMatchesFreshPlan() {
+        Random random = new Random(42);
+        OccupancyGrid grid = new OccupancyGrid(SIZE, 1);
+        grid.reset(SIZE / 2.0, SIZE / 2.0);
+        DStarLite planner = new DStarLite(grid);
+        int goal = cell(60, 60);
+        planner.reset(cell(2, 2), goal);
+        planner.computeShortestPath();
+
+        int[] changed = new int[32];
+        for (int step = 0; step < 40; step++) {
+            int start = planner.nextStep(planner.getStart());
+            if (start < 0 || start == goal) {
+                break;
+            }
+            planner.moveStart(start);
+            int count = 0;
+            for (int i = 0; i < 8; i++) {
+                int target = random.nextInt(SIZE * SIZE);
+                if (target != start && target != goal && grid.markHit(target)) {
+                    changed[count++] = target;
+                }
+            }
+            planner.cellsChanged(changed, count);
+            planner.computeShortestPath();
+
+            DStarLite fresh = new DStarLite(grid);
+            fresh.reset(start, goal);
+            fresh.computeShortestPath();
+            assertEquals(fresh.costToGoal(start), planner.costToGoal(start), 1e-3);
+        }
+    }
+
+    @Test
+    public void routesAroundAWallAndReportsUnreachableGoals() {
+        OccupancyGrid grid = new OccupancyGrid(SIZE, 1);
+        grid.reset(SIZE / 2.0, SIZE / 2.0);
+        // Wall across x = 30 with a gap at the top
+        for (int y = 0; y < SIZE - 4; y++) {
+            grid.markHit(cell(30, y));
+        }
+        DStarLite planner = new DStarLite(grid);
+        planner.reset(cell(10, 10), cell(50, 10));
+        planner.computeShortestPath();
+        int[] path = new int[SIZE * SIZE];
+        int length = planner.path(path);
+        assertEquals(cell(50, 10), path[length - 1]);
+        for (int i = 0; i < length; i++) {
+            assertTrue(!grid.isBlocked(path[i]));
+        }
+        // Up to the gap and back down again
+        assertTrue(planner.costToGoal(cell(10, 10)) > 100);
+
+        // Closing the gap leaves no way through
+        int[] changed = new int[4];
+        int count = 0;
+        for (int y = SIZE - 4; y < SIZE; y++) {
+            grid.markHit(cell(30, y));
+            changed[count++] = cell(30, y);
+        }
+        planner.cellsChanged(changed, count);
+        planner.computeShortestPath();
+        assertTrue(Float.isInfinite(planner.costToGoal(cell(10, 10))));
+    }
+
+    @Test
+    public void recenterKeepsObstaclesInPlace() {
+        OccupancyGrid grid = new OccupancyGrid(SIZE, 0.5);
+        grid.reset(0, 0);
+        grid.markHit(grid.cellAt(3.2, -4.1));
+        grid.recenter(7.0, 2.0);
+        assertTrue(grid.isBlocked(grid.cellAt(3.2, -4.1)));
+        assertEquals(1, countBlocked(grid));
+        grid.recenter(100, 100);
+        assertEquals(0, countBlocked(grid));
+    }
+
+    @Test
+    public void navigatorDrivesAroundAnUnseenWall() {
+        // Wall 1 m thick, 12 m wide, 6 m north of the start; goal 12 m north
+        double[][] walls = {{-6, 6, 6, 7}};
+        LocalFrame frame = new LocalFrame();
+        frame.setOrigin(15.0, 76.0);
+        Navigator navigator = new Navigator();
+        navigator.setGoal(frame.toLatitude(12), frame.toLongitude(0));
+        // Heading is only known from fused fixes and commands, as on the phone
+        PoseFilter filter = new PoseFilter(0.3);
+
+        double x = 0, y = 0, heading = Math.toRadians(20);
+        double dt = 0.1;
+        int state = Navigator.IDLE;
+        for (int i = 0; i < 3000 && state != Navigator.ARRIVED; i++) {
+            filter.predict(dt);
+            filter.onFix(frame.toLatitude(y), frame.toLongitude(x));
+            navigator.onPose(filter.latitude(), filter.longitude(), filter.heading(), filter.isHeadingKnown());
+            navigator.onObstacle(range(walls, x, y, heading, 4.0) * 100,
+                    range(walls, x, y, heading - Math.PI / 4, 0.3) < 0.3,
+                    range(walls, x, y, heading + Math.PI / 4, 0.3) < 0.3);
+            state = navigator.tick();
+            filter.setDrive(navigator.getThrottle(), navigator.getSteer());
+            assertTrue("no path found", state != Navigator.BLOCKED);
+            heading += navigator.getSteer() * Math.toRadians(45) * dt;
+            double speed = navigator.getThrottle() * 0.5;
+            x += Math.sin(heading) * speed * dt;
+            y += Math.cos(heading) * speed * dt;
+            assertTrue("drove into the wall", !inside(walls, x, y));
+        }
+        assertEquals(Navigator.ARRIVED, state);
+        assertTrue("replans should take milliseconds, took " + navigator.getMaxPlanNanos() / 1e6,
+                navigator.getMaxPlanNanos() < 250_000_000L);
+    }
+
+    private static double range(double[][] walls, double x, double y, double bearing, double max) {
+        for (double d = 0.05; d <= max; d += 0.05) {
+            if (inside(walls, x + Math.sin(bearing) * d, y + Math.cos(bearing) * d)) {
+                return d;
+            }
+        }
+        return Double.NaN;
+    }
+
+    private static boolean inside(double[][] walls, double x, double y) {
+        for (double[] wall : walls) {
+            if (x >= wall[0] && x <= wall[2] && y >= wall[1] && y <= wall[3]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int countBlocked(OccupancyGrid grid) {
+        int blocked = 0;
+        for (int i = 0; i < grid.cellCount(); i++) {
+            if (grid.isBlocked(i)) {
+                blocked++;
+            }
+        }
+        return blocked;
+    }
+
+    private static int cell(int x, int y) {
+        return y * SIZE + x;
+    }
+}
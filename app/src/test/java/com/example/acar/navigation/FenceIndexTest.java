@@ -0,0 +1,116 @@
+package com.example.acar.navigation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class FenceIndexTest {
+
+    private static final double LATITUDE = 15.35;
+    private static final double LONGITUDE = 75.12;
+
+    @Test
+    public void matchesCheckingEveryPolygon() {
+        Random random = new Random(7);
+        FenceIndex.Builder builder = new FenceIndex.Builder();
+        List<double[]> polygons = new ArrayList<>();
+        // Several hundred small, partly overlapping zones scattered over a ~1 km field
+        for (int i = 0; i < 600; i++) {
+            double[] polygon = randomPolygon(random);
+            polygons.add(polygon);
+            builder.add("zone" + i, polygon);
+        }
+        FenceIndex index = builder.build();
+        assertEquals(600, index.size());
+
+        int[] stack = new int[index.stackSize()];
+        int inside = 0;
+        for (int i = 0; i < 20_000; i++) {
+            double latitude = LATITUDE + random.nextDouble() * 0.01;
+            double longitude = LONGITUDE + random.nextDouble() * 0.01;
+            boolean expected = false;
+            for (int p = 0; p < polygons.size() && !expected; p++) {
+                expected = index.contains(p, latitude, longitude);
+            }
+            int found = index.find(latitude, longitude, stack);
+            assertEquals(expected, found >= 0);
+            if (found >= 0) {
+                assertTrue(index.contains(found, latitude, longitude));
+                inside++;
+            }
+        }
+        // The field is neither empty nor covered, so both answers were exercised
+        assertTrue(inside > 500 && inside < 19_500);
+    }
+
+    @Test
+    public void handlesConcavePolygonsAndEmptyIndexes() {
+        assertEquals(-1, FenceIndex.EMPTY.find(LATITUDE, LONGITUDE));
+
+        // A U shape opening to the north
+        FenceIndex.Builder builder = new FenceIndex.Builder();
+        builder.add("u", new double[]{
+                0, 0, 0, 3, 3, 3, 3, 2, 1, 2, 1, 1, 3, 1, 3, 0});
+        FenceIndex index = builder.build();
+        assertEquals(0, index.find(0.5, 1.5));
+        assertEquals(0, index.find(2.5, 0.5));
+        assertEquals(-1, index.find(2, 1.5));
+        assertEquals(-1, index.find(4, 1.5));
+        assertEquals("u", index.name(0));
+    }
+
+    @Test
+    public void guardReportsEachBreachOnce() {
+        FenceIndex.Builder geofence = new FenceIndex.Builder();
+        geofence.add("field", square(0, 0, 10));
+        FenceIndex.Builder noGo = new FenceIndex.Builder();
+        noGo.add("pond", square(4, 4, 2));
+        List<String> breaches = new ArrayList<>();
+        FenceGuard guard = new FenceGuard((kind, zone) -> breaches.add(kind + ":" + zone));
+        guard.setPlan(new MissionPlan(new double[0], new double[0], geofence.build(), noGo.build()));
+
+        guard.onGps(1, 1);
+        assertEquals(FenceGuard.INSIDE, guard.getStatus());
+        guard.onGps(5, 5);
+        guard.onGps(5.5, 5.5);
+        assertEquals(FenceGuard.IN_NO_GO_ZONE, guard.getStatus());
+        guard.onGps(8, 8);
+        guard.onGps(11, 8);
+        assertEquals(FenceGuard.OUTSIDE_GEOFENCE, guard.getStatus());
+        assertEquals(List.of(FenceGuard.IN_NO_GO_ZONE + ":pond", FenceGuard.OUTSIDE_GEOFENCE + ":null"), breaches);
+
+        // Without fences nothing is ever a breach
+        guard.setPlan(MissionPlan.EMPTY);
+        guard.onGps(50, 50);
+        assertEquals(FenceGuard.INSIDE, guard.getStatus());
+        assertEquals(2, breaches.size());
+    }
+
+    private static double[] randomPolygon(Random random) {
+        double centerLat = LATITUDE + random.nextDouble() * 0.01;
+        double centerLon = LONGITUDE + random.nextDouble() * 0.01;
+        int vertices = 3 + random.nextInt(6);
+        double[] polygon = new double[vertices * 2];
+        for (int v = 0; v < vertices; v++) {
+            // Star-shaped around the centre, up to ~30 m across
+            double angle = 2 * Math.PI * v / vertices;
+            double radius = 0.00005 + random.nextDouble() * 0.00025;
+            polygon[v * 2] = centerLat + Math.sin(angle) * radius;
+            polygon[v * 2 + 1] = centerLon + Math.cos(angle) * radius;
+        }
+        return polygon;
+    }
+
+    private static double[] square(double latitude, double longitude, double side) {
+        return new double[]{
+                latitude, longitude,
+                latitude, longitude + side,
+                latitude + side, longitude + side,
+                latitude + side, longitude};
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.acar.navigation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+
+public class PoseFilterTest {
+
+    private static final double LATITUDE = 15.35;
+    private static final double LONGITUDE = 76.15;
+    private static final double STEP = 0.01;
+
+    @Test
+    public void smoothsNoisyFixesAndFindsHeading() {
+        LocalFrame frame = new LocalFrame();
+        frame.setOrigin(LATITUDE, LONGITUDE);
+        PoseFilter filter = new PoseFilter(2.0);
+        Random random = new Random(3);
+
+        // The real rover is a little slower than the model assumes
+        double x = 0, y = 0, heading = Math.toRadians(70);
+        double fusedSquares = 0, rawSquares = 0;
+        int fusedCount = 0, rawCount = 0;
+        for (int i = 0; i < 18_000; i++) {
+            double t = i * STEP;
+            double throttle = 1;
+            double steer = t > 60 && t < 70 || t > 120 && t < 125 ? 0.3 : 0;
+            filter.setDrive(throttle, steer);
+            heading += steer * PoseFilter.MAX_TURN_RATE_RAD_PER_S * 0.95 * STEP;
+            x += Math.sin(heading) * throttle * 0.45 * STEP;
+            y += Math.cos(heading) * throttle * 0.45 * STEP;
+            filter.predict(STEP);
+            // 1 Hz fixes with metres of noise
+            if (i % 100 == 0) {
+                double fixX = x + random.nextGaussian() * 2.0;
+                double fixY = y + random.nextGaussian() * 2.0;
+                filter.onFix(frame.toLatitude(fixY), frame.toLongitude(fixX));
+                if (t > 40) {
+                    rawSquares += (fixX - x) * (fixX - x) + (fixY - y) * (fixY - y);
+                    rawCount++;
+                }
+            }
+            if (t > 40) {
+                double ex = frame.toX(filter.longitude()) - x;
+                double ey = frame.toY(filter.latitude()) - y;
+                fusedSquares += ex * ex + ey * ey;
+                fusedCount++;
+            }
+        }
+        double fused = Math.sqrt(fusedSquares / fusedCount);
+        double raw = Math.sqrt(rawSquares / rawCount);
+        assertTrue("fused error " + fused + " m vs raw " + raw + " m", fused < raw * 0.6);
+        assertTrue(filter.isHeadingKnown());
+        assertEquals(0, Math.toDegrees(PoseFilter.wrap(filter.heading() - heading)), 20);
+    }
+
+    @Test
+    public void compassGivesHeadingBeforeAnyTravel() {
+        PoseFilter filter = new PoseFilter(2.5);
+        filter.onFix(LATITUDE, LONGITUDE);
+        assertFalse(filter.isHeadingKnown());
+        filter.onImu(0, 270);
+        assertTrue(filter.isHeadingKnown());
+        assertEquals(-90, Math.toDegrees(filter.heading()), 1e-9);
+
+        // The gyro then carries the heading round between compass readings
+        for (int i = 0; i < 100; i++) {
+            filter.predict(STEP);
+            filter.onImu(30, Double.NaN);
+        }
+        assertEquals(-60, Math.toDegrees(filter.heading()), 3);
+    }
+
+    @Test
+    public void stepsWithoutAllocating() {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+        PoseFilter filter = new PoseFilter(2.5);
+        filter.onFix(LATITUDE, LONGITUDE);
+        run(filter, 20_000);
+
+        long before = threads.getThreadAllocatedBytes(thread);
+        run(filter, 100_000);
+        long allocated = threads.getThreadAllocatedBytes(thread) - before;
+        assertTrue("allocated " + allocated + " bytes", allocated < 1024);
+    }
+
+    private static void run(PoseFilter filter, int steps) {
+        for (int i = 0; i < steps; i++) {
+            filter.setDrive(0.5, (i / 500) % 2 == 0 ? 0 : 0.2);
+            filter.predict(STEP);
+            if (i % 100 == 0) {
+                filter.onFix(LATITUDE + i * 1e-9, LONGITUDE);
+                filter.onImu(5, Double.NaN);
+            }
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package com.example.acar.rules;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.example.acar.telemetry.HistorySeries;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class RuleEngineTest {
+
+    private final List<String> events = new ArrayList<>();
+
+    private final RuleEngine engine = new RuleEngine(new RuleEngine.Listener() {
+        @Override
+        public void onRuleTriggered(Rule rule, double value) {
+            events.add("+" + rule.getName());
+        }
+
+        @Override
+        public void onRuleCleared(Rule rule) {
+            events.add("-" + rule.getName());
+        }
+    });
+
+    @Test
+    public void parsesTheRuleSyntax() {
+        Rule rule = Rule.parse("dry", " Moisture mean 30s < 20 notify ");
+        assertEquals(HistorySeries.MOISTURE, rule.getSeries());
+        assertEquals(Rule.Aggregate.MEAN, rule.getAggregate());
+        assertEquals(30_000, rule.getWindowMillis());
+        assertEquals(Rule.Op.BELOW, rule.getOp());
+        assertEquals(20, rule.getThreshold(), 0);
+        assertEquals(Rule.Action.NOTIFY, rule.getAction());
+        assertEquals(120_000, Rule.parse("warm", "temperature rate 2m > 1.5 stop").getWindowMillis());
+
+        for (String bad : new String[]{"moisture mean 30s < 20", "wind mean 30s < 20 notify",
+                "moisture median 30s < 20 notify", "moisture mean 30 < 20 notify",
+                "moisture mean 30s = 20 notify", "moisture mean 30s < low notify"}) {
+            try {
+                Rule.parse("bad", bad);
+                throw new AssertionError("Parsed " + bad);
+            } catch (IllegalArgumentException expected) {
+                // Rejected as it should be
+            }
+        }
+    }
+
+    @Test
+    public void meanRuleWaitsForAFullWindowAndFiresOnceUntilCleared() {
+        Rule dry = Rule.parse("dry", "moisture mean 10s < 20 notify");
+        engine.setRules(Arrays.asList(dry));
+
+        // Low from the start, but the window is only covered after 10 s
+        for (long t = 0; t < 10_000; t += 1000) {
+            engine.record(HistorySeries.MOISTURE, t, 10);
+        }
+        assertTrue(events.isEmpty());
+        engine.record(HistorySeries.MOISTURE, 10_000, 10);
+        assertEquals(Arrays.asList("+dry"), events);
+
+        // Still dry: no repeat
+        engine.record(HistorySeries.MOISTURE, 11_000, 12);
+        assertEquals(1, events.size());
+
+        // Wet samples pull the mean back up
+        for (long t = 12_000; t <= 20_000; t += 1000) {
+            engine.record(HistorySeries.MOISTURE, t, 40);
+        }
+        assertEquals(Arrays.asList("+dry", "-dry"), events);
+        assertFalse(engine.isHolding(dry));
+    }
+
+    @Test
+    public void rainForTheWholeWindowUsesTheMinimum() {
+        Rule raining = Rule.parse("raining", "rain min 10s > 0.5 stop");
+        Rule anyRain = Rule.parse("anyRain", "rain max 10s > 0.5 notify");
+        engine.setRules(Arrays.asList(raining, anyRain));
+
+        for (long t = 0; t <= 10_000; t += 1000) {
+            engine.record(HistorySeries.RAIN, t, 0);
+        }
+        engine.record(HistorySeries.RAIN, 11_000, 1);
+        assertEquals(Arrays.asList("+anyRain"), events);
+        for (long t = 12_000; t < 20_000; t += 1000) {
+            engine.record(HistorySeries.RAIN, t, 1);
+        }
+        assertEquals(Arrays.asList("+anyRain"), events);
+        // The last dry sample leaves the window
+        engine.record(HistorySeries.RAIN, 20_000, 1);
+        assertEquals(Arrays.asList("+anyRain", "+raining"), events);
+        assertTrue(engine.isHolding(raining));
+    }
+
+    @Test
+    public void rateIsPerMinuteAndGapsRestartCoverage() {
+        engine.setRules(Arrays.asList(Rule.parse("warming", "temperature rate 60s > 2 notify")));
+        for (long t = 0; t <= 60_000; t += 5000) {
+            engine.record(HistorySeries.TEMPERATURE, t, 20 + t / 60_000.0);
+        }
+        // 1 °C a minute is not enough
+        assertTrue(events.isEmpty());
+        for (long t = 65_000; t <= 120_000; t += 5000) {
+            engine.record(HistorySeries.TEMPERATURE, t, 21 + (t - 60_000) / 20_000.0);
+        }
+        assertEquals(Arrays.asList("+warming"), events);
+
+        // A silence longer than the window empties it: nothing holds until it is covered again
+        engine.record(HistorySeries.TEMPERATURE, 300_000, 50);
+        assertEquals(Arrays.asList("+warming", "-warming"), events);
+        engine.reset(HistorySeries.TEMPERATURE);
+        assertEquals(2, events.size());
+    }
+
+    @Test
+    public void onlyRulesWhoseThresholdIsCrossedChangeState() {
+        List<Rule> rules = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            rules.add(new Rule("above" + i, HistorySeries.HUMIDITY, Rule.Aggregate.MAX, 5000,
+                    Rule.Op.ABOVE, i, Rule.Action.NOTIFY));
+        }
+        engine.setRules(rules);
+        for (long t = 0; t <= 5000; t += 1000) {
+            engine.record(HistorySeries.HUMIDITY, t, 49.5);
+        }
+        // Thresholds 0..49 hold
+        assertEquals(50, events.size());
+        assertTrue(engine.isHolding(rules.get(49)));
+        assertFalse(engine.isHolding(rules.get(50)));
+
+        events.clear();
+        engine.record(HistorySeries.HUMIDITY, 6000, 52.5);
+        assertEquals(Arrays.asList("+above50", "+above51", "+above52"), events);
+
+        // The maximum only falls once 52.5 has left the window
+        events.clear();
+        for (long t = 7000; t < 11_000; t += 1000) {
+            engine.record(HistorySeries.HUMIDITY, t, 48.5);
+        }
+        assertTrue(events.isEmpty());
+        engine.record(HistorySeries.HUMIDITY, 11_000, 48.5);
+        assertEquals(Arrays.asList("-above49", "-above50", "-above51", "-above52"), events);
+    }
+
+    @Test
+    public void unchangedReadingsAreCarriedForward() {
+        Rule raining = Rule.parse("raining", "rain min 10s > 0.5 stop");
+        engine.setRules(Arrays.asList(raining));
+
+        // The node says it rains once and is never sent again
+        engine.record(HistorySeries.RAIN, 0, 1);
+        for (long t = 1000; t < 10_000; t += 1000) {
+            engine.advance(t);
+        }
+        assertTrue(events.isEmpty());
+        engine.advance(10_000);
+        assertEquals(Arrays.asList("+raining"), events);
+
+        // A late batched sample counts as the latest time, not before it
+        engine.record(HistorySeries.RAIN, 9000, 0);
+        assertEquals(Arrays.asList("+raining", "-raining"), events);
+
+        // Nothing is carried forward once forgotten or reset
+        engine.forgetLatest();
+        engine.advance(30_000);
+        assertFalse(engine.isHolding(raining));
+        engine.record(HistorySeries.RAIN, 30_000, 1);
+        engine.reset(HistorySeries.RAIN);
+        engine.advance(60_000);
+        assertEquals(2, events.size());
+    }
+
+    @Test
+    public void windowGrowsPastItsInitialCapacity() {
+        SlidingWindow window = new SlidingWindow(1000);
+        for (int i = 0; i < 1000; i++) {
+            window.add(i, i % 7);
+        }
+        assertEquals(1000, window.size());
+        window.add(1000, 100);
+        assertEquals(1000, window.size());
+        assertEquals(0, window.get(Rule.Aggregate.MIN), 0);
+        assertEquals(100, window.get(Rule.Aggregate.MAX), 0);
+        double sum = 100;
+        for (int i = 1; i < 1000; i++) {
+            sum += i % 7;
+        }
+        assertEquals(sum / 1000, window.get(Rule.Aggregate.MEAN), 1e-9);
+    }
+}
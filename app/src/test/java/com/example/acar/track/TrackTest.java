@@ -0,0 +1,134 @@
+package com.example.acar.track;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Random;
+
+public class TrackTest {
+
+    private static final double LATITUDE = 51.5;
+    private static final double LONGITUDE = -0.12;
+    private static final double METERS_PER_DEGREE = 111_320.0;
+
+    private final Track track = new Track();
+
+    @Test
+    public void longSurveyDrawsFewPointsWithinTolerance() {
+        // A lawnmower survey at 1 Hz: 100 m rows 5 m apart, half a metre a second, with GPS noise
+        Random noise = new Random(7);
+        int fixes = 100_000;
+        for (int i = 0; i < fixes; i++) {
+            double along = (i * 0.5) % 100;
+            int row = (int) (i * 0.5 / 100);
+            double x = (row % 2 == 0 ? along : 100 - along) + noise.nextGaussian() * 0.05;
+            double y = row * 5 + noise.nextGaussian() * 0.05;
+            add(i * 1000L, x, y);
+        }
+        assertEquals(fixes, track.getFixes().size());
+        assertEquals(1, track.getFixes().segmentCount());
+
+        // The whole survey spans about 2.5 km, so a 1000 px view sits at 2.5 m a pixel
+        TrackLevel level = track.levelFor(2.5);
+        assertEquals(1, level.getToleranceMeters(), 0);
+        assertTrue("Drew " + level.size(), level.size() < 5000);
+        for (int i = 1; i < track.levelCount(); i++) {
+            assertTrue(track.level(i).size() <= track.level(i - 1).size());
+        }
+        for (int i = 0; i < track.levelCount(); i++) {
+            assertWithinTolerance(track.level(i));
+        }
+    }
+
+    @Test
+    public void gapsAndLostGpsStartNewSegments() {
+        for (int i = 0; i < 100; i++) {
+            add(i * 1000L, i, 0);
+        }
+        // Silence past the gap limit
+        for (int i = 0; i < 100; i++) {
+            add(200_000 + i * 1000L, i, 10);
+        }
+        track.breakSegment();
+        for (int i = 0; i < 100; i++) {
+            add(300_000 + i * 1000L, i, 20);
+        }
+
+        Fixes fixes = track.getFixes();
+        assertEquals(3, fixes.segmentCount());
+        assertEquals(100, fixes.segmentStart(1));
+        assertEquals(200, fixes.segmentStart(2));
+        assertEquals(300, fixes.segmentEnd(2));
+        for (int i = 0; i < track.levelCount(); i++) {
+            TrackLevel level = track.level(i);
+            assertEquals(3, level.segmentCount());
+            for (int s = 0; s < 3; s++) {
+                assertEquals(s * 100, level.indexAt(level.segmentStart(s)));
+                // The last fix of a closed segment is kept on every level
+                if (s < 2) {
+                    assertEquals(s * 100 + 99, level.indexAt(level.segmentEnd(s) - 1));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void ignoresPositionsOutOfRange() {
+        track.add(0, Double.NaN, 0);
+        track.add(0, 91, 0);
+        track.add(0, 0, 181);
+        assertEquals(0, track.getFixes().size());
+    }
+
+    @Test
+    public void writesGpx() throws IOException {
+        track.add(0, -33.8688197, 151.2092955);
+        track.add(1500, -33.0000001, 0.0000123);
+        track.breakSegment();
+        track.add(2000, 0, -0.5);
+
+        StringWriter out = new StringWriter();
+        // 2026-01-01T00:00:00Z
+        new GpxWriter(out).write(track.getFixes().copy(), "survey <1>", 1_767_225_600_000L);
+        String gpx = out.toString();
+        assertTrue(gpx.contains("<name>survey &lt;1&gt;</name>"));
+        assertTrue(gpx.contains("<trkpt lat=\"-33.8688197\" lon=\"151.2092955\"><time>2026-01-01T00:00:00.000Z</time></trkpt>"));
+        assertTrue(gpx.contains("<trkpt lat=\"-33.0000001\" lon=\"0.0000123\"><time>2026-01-01T00:00:01.500Z</time></trkpt>"));
+        assertTrue(gpx.contains("<trkpt lat=\"0.0000000\" lon=\"-0.5000000\"><time>2026-01-01T00:00:02.000Z</time></trkpt>"));
+        assertEquals(2, gpx.split("<trkseg>", -1).length - 1);
+        assertTrue(gpx.endsWith("</gpx>\n"));
+    }
+
+    private void add(long time, double x, double y) {
+        double latitude = LATITUDE + y / METERS_PER_DEGREE;
+        double longitude = LONGITUDE + x / (METERS_PER_DEGREE * Math.cos(Math.toRadians(LATITUDE)));
+        track.add(time, latitude, longitude);
+    }
+
+    // Every raw fix up to the last kept one lies near the kept segment spanning it
+    private void assertWithinTolerance(TrackLevel level) {
+        double limit = level.getToleranceMeters() * 4 / 3 + 0.01;
+        for (int k = 1; k < level.size(); k++) {
+            int from = level.indexAt(k - 1);
+            int to = level.indexAt(k);
+            for (int i = from + 1; i < to; i++) {
+                double distance = distanceToSegment(i, from, to);
+                assertTrue("Fix " + i + " is " + distance + " m off level " + level.getToleranceMeters(),
+                        distance <= limit);
+            }
+        }
+    }
+
+    private double distanceToSegment(int i, int from, int to) {
+        double ax = track.xAt(from), ay = track.yAt(from);
+        double dx = track.xAt(to) - ax, dy = track.yAt(to) - ay;
+        double px = track.xAt(i) - ax, py = track.yAt(i) - ay;
+        double lengthSquared = dx * dx + dy * dy;
+        double t = lengthSquared == 0 ? 0 : Math.max(0, Math.min(1, (px * dx + py * dy) / lengthSquared));
+        return Math.hypot(px - t * dx, py - t * dy);
+    }
+}
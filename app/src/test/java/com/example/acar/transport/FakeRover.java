@@ -0,0 +1,86 @@
+package com.example.acar.transport;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Local stand-in for the rover's UDP endpoint: answers HELLO with PONG,
+ * acknowledges CMD and ESTOP messages, records every message it receives and can push
+ * sensor datagrams back.
+ */
+class FakeRover implements AutoCloseable {
+
+    final List<String> received = new CopyOnWriteArrayList<>();
+
+    private final DatagramSocket socket;
+    private final Thread thread;
+    private volatile SocketAddress client;
+    private volatile boolean running = true;
+
+    FakeRover() throws SocketException {
+        socket = new DatagramSocket(0, InetAddress.getLoopbackAddress());
+        thread = new Thread(this::serve, "fake-rover");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    InetSocketAddress address() {
+        return new InetSocketAddress(InetAddress.getLoopbackAddress(), socket.getLocalPort());
+    }
+
+    /** Address of the transport talking to this rover, once it has said anything. */
+    SocketAddress client() {
+        return client;
+    }
+
+    void push(byte[] message) throws IOException {
+        socket.send(new DatagramPacket(message, message.length, client));
+    }
+
+    boolean awaitMessage(String message, long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (System.currentTimeMillis() < deadline) {
+            if (received.contains(message)) {
+                return true;
+            }
+            Thread.sleep(10);
+        }
+        return false;
+    }
+
+    private void serve() {
+        byte[] buffer = new byte[LanProtocol.MAX_DATAGRAM];
+        DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+        while (running) {
+            try {
+                packet.setLength(buffer.length);
+                socket.receive(packet);
+                client = packet.getSocketAddress();
+                String message = new String(buffer, 0, packet.getLength(), StandardCharsets.US_ASCII);
+                received.add(message);
+                if (message.startsWith("HELLO")) {
+                    push(LanProtocol.pong());
+                } else if (message.startsWith("CMD ") || message.startsWith("ESTOP ")) {
+                    String sequence = message.substring(message.lastIndexOf(' ') + 1);
+                    push(LanProtocol.ack(Integer.parseInt(sequence)));
+                }
+            } catch (IOException e) {
+                // Socket closed
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        socket.close();
+    }
+}
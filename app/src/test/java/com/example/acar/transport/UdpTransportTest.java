@@ -0,0 +1,270 @@
+package com.example.acar.transport;
+
+import com.example.acar.telemetry.TelemetryListener;
+import com.example.acar.telemetry.TelemetryRates;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs the UDP transport against a {@link FakeRover} on the loopback interface.
+ */
+public class UdpTransportTest {
+
+    private FakeRover rover;
+    private UdpTransport transport;
+
+    @After
+    public void tearDown() {
+        if (transport != null) {
+            transport.close();
+        }
+        if (rover != null) {
+            rover.close();
+        }
+    }
+
+    @Test
+    public void connectsAndExchangesMessages() throws Exception {
+        rover = new FakeRover();
+        transport = new UdpTransport(rover.address(), Runnable::run);
+        AtomicReference<double[]> climate = new AtomicReference<>();
+        AtomicReference<Integer> acked = new AtomicReference<>();
+        transport.setAckListener(acked::set);
+        transport.start();
+        transport.startTelemetry(new TelemetryListener() {
+            @Override
+            public void onClimate(double temperature, double humidity) {
+                climate.set(new double[]{temperature, humidity});
+            }
+        });
+
+        assertTrue(rover.awaitMessage("HELLO 1", 2000));
+        waitFor(() -> transport.isConnected());
+
+        transport.sendCommand(3, "forward", null);
+        transport.sendDrive(7, 0.5f, -0.25f, null);
+        assertTrue(rover.awaitMessage("CMD forward 3", 2000));
+        waitFor(() -> acked.get() != null);
+        assertEquals(Integer.valueOf(3), acked.get());
+        assertTrue(rover.awaitMessage("DRIVE 7 0.5 -0.25", 2000));
+
+        rover.push(LanProtocol.climate(21.5, 48.0));
+        waitFor(() -> climate.get() != null);
+        assertEquals(21.5, climate.get()[0], 1e-9);
+        assertEquals(48.0, climate.get()[1], 1e-9);
+    }
+
+    @Test
+    public void ignoresDatagramsFromOtherHosts() throws Exception {
+        rover = new FakeRover();
+        transport = new UdpTransport(rover.address(), Runnable::run);
+        List<Integer> moisture = new CopyOnWriteArrayList<>();
+        AtomicReference<Integer> acked = new AtomicReference<>();
+        transport.setAckListener(acked::set);
+        transport.start();
+        transport.startTelemetry(new TelemetryListener() {
+            @Override
+            public void onMoisture(int value) {
+                moisture.add(value);
+            }
+        });
+        assertTrue(rover.awaitMessage("HELLO 1", 2000));
+
+        try (DatagramSocket stranger = new DatagramSocket(0, InetAddress.getLoopbackAddress())) {
+            byte[] forged = LanProtocol.moisture(99);
+            byte[] ack = LanProtocol.ack(5);
+            stranger.send(new DatagramPacket(forged, forged.length, rover.client()));
+            stranger.send(new DatagramPacket(ack, ack.length, rover.client()));
+        }
+        // Sent after the forged ones, so once it arrives they would have too
+        rover.push(LanProtocol.moisture(40));
+        waitFor(() -> !moisture.isEmpty());
+        assertEquals(Collections.singletonList(40), moisture);
+        assertNull(acked.get());
+    }
+
+    @Test
+    public void failsOverWhenRoverGoesSilent() throws Exception {
+        rover = new FakeRover();
+        transport = new UdpTransport(rover.address(), Runnable::run);
+        RecordingTransport fallback = new RecordingTransport();
+        FailoverTransport failover = new FailoverTransport(transport, fallback);
+        transport.start();
+
+        waitFor(() -> failover.getActive() == transport);
+        failover.setControlMode("manual", null);
+
+        rover.close();
+        waitFor(() -> failover.getActive() == fallback);
+        // Control mode is restored on the fallback path
+        assertEquals("manual", fallback.controlMode);
+
+        failover.sendCommand(1, "stop", null);
+        assertEquals("stop", fallback.command);
+    }
+
+    @Test
+    public void releasedFailoverIgnoresTheLink() throws Exception {
+        rover = new FakeRover();
+        transport = new UdpTransport(rover.address(), Runnable::run);
+        RecordingTransport fallback = new RecordingTransport();
+        FailoverTransport failover = new FailoverTransport(transport, fallback);
+        transport.start();
+        waitFor(() -> failover.getActive() == transport);
+        failover.setControlMode("manual", null);
+
+        failover.release();
+        rover.close();
+        waitFor(() -> !transport.isConnected());
+        assertSame(transport, failover.getActive());
+        assertNull(fallback.controlMode);
+    }
+
+    @Test
+    public void emergencyStopTakesBothPathsAndHeartbeatsFollowTheActiveOne() throws Exception {
+        rover = new FakeRover();
+        transport = new UdpTransport(rover.address(), Runnable::run);
+        RecordingTransport fallback = new RecordingTransport();
+        FailoverTransport failover = new FailoverTransport(transport, fallback);
+        AtomicReference<Integer> acked = new AtomicReference<>();
+        failover.setAckListener(acked::set);
+        transport.start();
+        waitFor(() -> failover.getActive() == transport);
+
+        failover.sendHeartbeat(4, 1000, null);
+        assertTrue(rover.awaitMessage("HB 4 1000", 2000));
+        assertEquals(0, fallback.heartbeat);
+
+        failover.emergencyStop(9, null);
+        assertTrue(rover.awaitMessage("ESTOP 9", 2000));
+        assertEquals(9, fallback.stopSequence);
+        waitFor(() -> acked.get() != null);
+        assertEquals(Integer.valueOf(9), acked.get());
+    }
+
+    @Test
+    public void decodesSensorMessages() {
+        LanProtocol.Decoder decoder = new LanProtocol.Decoder();
+        AtomicReference<String> seen = new AtomicReference<>();
+        TelemetryListener sink = new TelemetryListener() {
+            @Override
+            public void onGps(double latitude, double longitude) {
+                seen.set(latitude + "," + longitude);
+            }
+
+            @Override
+            public void onMoisture(int moisture) {
+                seen.set("m" + moisture);
+            }
+
+            @Override
+            public void onObstacle(double distanceCm, boolean leftBlocked, boolean rightBlocked) {
+                seen.set("o" + distanceCm + "," + leftBlocked + "," + rightBlocked);
+            }
+
+            @Override
+            public void onImu(double yawRate, double heading) {
+                seen.set("i" + yawRate + "," + heading);
+            }
+        };
+        byte[] gps = LanProtocol.gps(15.3456, -76.125);
+        assertEquals(LanProtocol.SENSOR, decoder.decode(gps, gps.length, sink));
+        assertEquals("15.3456,-76.125", seen.get());
+
+        byte[] moisture = LanProtocol.moisture(37);
+        assertEquals(LanProtocol.SENSOR, decoder.decode(moisture, moisture.length, sink));
+        assertEquals("m37", seen.get());
+
+        byte[] obstacle = LanProtocol.obstacle(42.5, true, false);
+        assertEquals(LanProtocol.SENSOR, decoder.decode(obstacle, obstacle.length, sink));
+        assertEquals("o42.5,true,false", seen.get());
+
+        // No echo within range
+        byte[] clear = LanProtocol.obstacle(Double.NaN, false, true);
+        assertEquals(LanProtocol.SENSOR, decoder.decode(clear, clear.length, sink));
+        assertEquals("oNaN,false,true", seen.get());
+
+        byte[] imu = LanProtocol.imu(-12.5, Double.NaN);
+        assertEquals(LanProtocol.SENSOR, decoder.decode(imu, imu.length, sink));
+        assertEquals("i-12.5,NaN", seen.get());
+
+        byte[] pong = LanProtocol.pong();
+        assertEquals(LanProtocol.PONG, decoder.decode(pong, pong.length, sink));
+        byte[] junk = "SENS gpsx 1 2".getBytes();
+        assertEquals(LanProtocol.UNKNOWN, decoder.decode(junk, junk.length, sink));
+    }
+
+    private static void waitFor(java.util.function.BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                fail("Condition not met in time");
+            }
+            Thread.sleep(10);
+        }
+    }
+
+    /** Fallback transport that only remembers what it was asked to send. */
+    private static final class RecordingTransport implements RoverTransport {
+        volatile String command;
+        volatile String controlMode;
+        volatile int heartbeat;
+        volatile int stopSequence;
+
+        @Override
+        public void sendCommand(int sequence, String command, Completion completion) {
+            this.command = command;
+        }
+
+        @Override
+        public void setAckListener(AckListener listener) {
+        }
+
+        @Override
+        public void setControlMode(String mode, Completion completion) {
+            this.controlMode = mode;
+        }
+
+        @Override
+        public void sendDrive(int sequence, float throttle, float steer, Completion completion) {
+        }
+
+        @Override
+        public void sendHeartbeat(int beat, long deadlineMillis, Completion completion) {
+            heartbeat = beat;
+        }
+
+        @Override
+        public void emergencyStop(int sequence, Completion completion) {
+            stopSequence = sequence;
+        }
+
+        @Override
+        public void startTelemetry(TelemetryListener sink) {
+        }
+
+        @Override
+        public void stopTelemetry() {
+        }
+
+        @Override
+        public void setTelemetryRates(TelemetryRates rates, Completion completion) {
+        }
+
+        @Override
+        public boolean isConnected() {
+            return true;
+        }
+    }
+}
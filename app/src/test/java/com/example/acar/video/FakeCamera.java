@@ -0,0 +1,84 @@
+package com.example.acar.video;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.MalformedURLException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Local stand-in for the ESP32-CAM stream endpoint: answers one HTTP request
+ * with a multipart MJPEG response in the camera's format, sending
+ * {@code frames} parts of {@code frameBytes} each with the frame number in
+ * the first four bytes, then closes the connection.
+ */
+class FakeCamera implements AutoCloseable {
+
+    static final String BOUNDARY = "123456789000000000000987654321";
+
+    private final ServerSocket server;
+    private final Thread thread;
+    private final int frames;
+    private final int frameBytes;
+    private final long intervalMillis;
+
+    FakeCamera(int frames, int frameBytes, long intervalMillis) throws IOException {
+        this.frames = frames;
+        this.frameBytes = frameBytes;
+        this.intervalMillis = intervalMillis;
+        server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+        thread = new Thread(this::serve, "fake-camera");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    URL url() throws MalformedURLException {
+        return new URL("http://127.0.0.1:" + server.getLocalPort() + "/stream");
+    }
+
+    private void serve() {
+        try (Socket client = server.accept()) {
+            // The request itself does not matter; wait for its end before answering
+            byte[] request = new byte[1024];
+            int read;
+            StringBuilder headers = new StringBuilder();
+            while (headers.indexOf("\r\n\r\n") < 0 && (read = client.getInputStream().read(request)) > 0) {
+                headers.append(new String(request, 0, read, StandardCharsets.US_ASCII));
+            }
+            OutputStream out = client.getOutputStream();
+            out.write(("HTTP/1.1 200 OK\r\n"
+                    + "Content-Type: multipart/x-mixed-replace;boundary=" + BOUNDARY + "\r\n"
+                    + "Access-Control-Allow-Origin: *\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+            byte[] jpeg = new byte[frameBytes];
+            for (int i = 0; i < frames; i++) {
+                jpeg[0] = (byte) (i >>> 24);
+                jpeg[1] = (byte) (i >>> 16);
+                jpeg[2] = (byte) (i >>> 8);
+                jpeg[3] = (byte) i;
+                out.write(("\r\n--" + BOUNDARY + "\r\n"
+                        + "Content-Type: image/jpeg\r\nContent-Length: " + frameBytes + "\r\n"
+                        + "X-Timestamp: 0.000000\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+                out.write(jpeg);
+                out.flush();
+                if (intervalMillis > 0) {
+                    Thread.sleep(intervalMillis);
+                }
+            }
+        } catch (IOException | InterruptedException e) {
+            // Client went away
+        }
+    }
+
+    static int frameNumber(MjpegReader.Frame frame) {
+        byte[] data = frame.data();
+        return (data[0] & 0xFF) << 24 | (data[1] & 0xFF) << 16 | (data[2] & 0xFF) << 8 | data[3] & 0xFF;
+    }
+
+    @Override
+    public void close() throws IOException {
+        server.close();
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.acar.video;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+public class MjpegReceiverTest {
+
+    @Test
+    public void splitsPartsWithAndWithoutLength() throws IOException {
+        assertEquals("frame", MjpegReader.boundaryOf("multipart/x-mixed-replace; boundary=\"frame\""));
+        assertEquals(FakeCamera.BOUNDARY,
+                MjpegReader.boundaryOf("multipart/x-mixed-replace;boundary=" + FakeCamera.BOUNDARY));
+        assertNull(MjpegReader.boundaryOf("image/jpeg"));
+
+        byte[] first = {(byte) 0xFF, (byte) 0xD8, 1, 2, 3, (byte) 0xFF, (byte) 0xD9};
+        byte[] second = {(byte) 0xFF, (byte) 0xD8, 4, (byte) 0xFF, 5, (byte) 0xFF, (byte) 0xD9};
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        stream.write(ascii("--frame\r\nContent-Type: image/jpeg\r\ncontent-length:  7\r\n\r\n"));
+        stream.write(first);
+        // No length: read up to the end-of-image marker
+        stream.write(ascii("\r\n--frame\r\nContent-Type: image/jpeg\r\n\r\n"));
+        stream.write(second);
+        // Cut short by the end of the stream
+        stream.write(ascii("\r\n--frame\r\nContent-Length: 100\r\n\r\nxyz"));
+
+        MjpegReader reader = new MjpegReader(new ByteArrayInputStream(stream.toByteArray()), "frame");
+        MjpegReader.Frame frame = new MjpegReader.Frame();
+        assertTrue(reader.next(frame));
+        assertArrayEquals(first, Arrays.copyOf(frame.data(), frame.length()));
+        assertEquals(1, frame.sequence());
+        assertTrue(reader.next(frame));
+        assertArrayEquals(second, Arrays.copyOf(frame.data(), frame.length()));
+        assertEquals(2, frame.sequence());
+        assertFalse(reader.next(frame));
+    }
+
+    @Test
+    public void slowConsumerAlwaysGetsTheNewestFrame() throws Exception {
+        int frames = 300;
+        NewestSlot<MjpegReader.Frame> slot = new NewestSlot<>(new MjpegReader.Frame());
+        try (FakeCamera camera = new FakeCamera(frames, 20_000, 1)) {
+            MjpegReceiver receiver = new MjpegReceiver(camera.url(), slot);
+            receiver.start();
+            try {
+                MjpegReader.Frame frame = new MjpegReader.Frame();
+                Set<byte[]> buffers = Collections.newSetFromMap(new IdentityHashMap<>());
+                int last = -1;
+                int taken = 0;
+                long deadline = System.currentTimeMillis() + 10_000;
+                while (last < frames - 1 && System.currentTimeMillis() < deadline) {
+                    // A consumer far slower than the camera, like a decoder on a busy phone
+                    Thread.sleep(15);
+                    MjpegReader.Frame newest = slot.take(frame);
+                    if (newest == null) {
+                        continue;
+                    }
+                    frame = newest;
+                    int number = FakeCamera.frameNumber(frame);
+                    assertTrue("frame " + number + " after " + last, number > last);
+                    last = number;
+                    taken++;
+                    buffers.add(frame.data());
+                }
+                assertEquals(frames - 1, last);
+                assertEquals(frames, slot.getPublished());
+                assertTrue("dropped " + slot.getDropped(), slot.getDropped() > 0);
+                assertEquals(frames, slot.getDropped() + taken);
+                // Receiving reuses the three circulating buffers
+                assertTrue(buffers.size() <= 3);
+            } finally {
+                receiver.stop();
+            }
+        }
+    }
+
+    private static byte[] ascii(String text) {
+        return text.getBytes(StandardCharsets.US_ASCII);
+    }
+}
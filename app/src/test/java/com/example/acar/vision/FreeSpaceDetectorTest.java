@@ -0,0 +1,78 @@
+package com.example.acar.vision;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+public class FreeSpaceDetectorTest {
+
+    private static final int WIDTH = VisionStage.WIDTH;
+    private static final int HEIGHT = VisionStage.HEIGHT;
+
+    @Test
+    public void findsTheFootOfAnObstacleInItsSector() {
+        // Speckled ground with a dark box standing on it, low on the left
+        byte[] frame = ground(new Random(5));
+        fill(frame, 4, 20, 35, 45, 30);
+        try (FreeSpaceDetector detector = new FreeSpaceDetector(WIDTH, HEIGHT, 1)) {
+            detector.detect(frame);
+            int bottom = detector.maxFreeRows();
+            // The box's lower edge is at row 45, 13 rows above the last scanned row
+            assertEquals(bottom - 45, detector.sectorFreeRows(FreeSpaceDetector.LEFT), 1);
+            assertEquals(bottom, detector.sectorFreeRows(FreeSpaceDetector.CENTER));
+            assertEquals(bottom, detector.sectorFreeRows(FreeSpaceDetector.RIGHT));
+
+            double[] distances = VisionStage.groundDistances(detector);
+            assertTrue(Double.isInfinite(distances[bottom]));
+            // Higher in the image is further away, up to the horizon
+            for (int rows = 1; rows < bottom; rows++) {
+                assertTrue(distances[rows] > distances[rows - 1] || Double.isInfinite(distances[rows]));
+            }
+            assertTrue(distances[0] > 0.1 && distances[0] < 1);
+        }
+    }
+
+    @Test
+    public void tilesGiveTheSameAnswerAsOneThread() {
+        Random random = new Random(11);
+        try (FreeSpaceDetector serial = new FreeSpaceDetector(WIDTH, HEIGHT, 1);
+             FreeSpaceDetector parallel = new FreeSpaceDetector(WIDTH, HEIGHT, 4)) {
+            for (int i = 0; i < 50; i++) {
+                byte[] frame = ground(random);
+                for (int box = 0; box < 3; box++) {
+                    int left = random.nextInt(WIDTH - 10);
+                    int top = random.nextInt(HEIGHT - 10);
+                    fill(frame, left, left + 3 + random.nextInt(10), top, top + 3 + random.nextInt(10),
+                            random.nextInt(256));
+                }
+                serial.detect(frame);
+                parallel.detect(frame);
+                for (int x = 0; x < WIDTH; x++) {
+                    assertEquals(serial.freeRows(x), parallel.freeRows(x));
+                }
+                for (int s = 0; s < FreeSpaceDetector.SECTORS; s++) {
+                    assertEquals(serial.sectorFreeRows(s), parallel.sectorFreeRows(s));
+                }
+            }
+        }
+    }
+
+    private static byte[] ground(Random random) {
+        byte[] frame = new byte[WIDTH * HEIGHT];
+        for (int i = 0; i < frame.length; i++) {
+            frame[i] = (byte) (140 + random.nextInt(16));
+        }
+        return frame;
+    }
+
+    private static void fill(byte[] frame, int left, int right, int top, int bottom, int value) {
+        for (int y = top; y < Math.min(bottom, HEIGHT); y++) {
+            for (int x = left; x < Math.min(right, WIDTH); x++) {
+                frame[y * WIDTH + x] = (byte) value;
+            }
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.acar.bench;
+
+import com.example.acar.telemetry.SensorChannel;
+import com.example.acar.telemetry.TelemetryListener;
+
+import org.openjdk.jmh.infra.Blackhole;
+
+/** Listener that hands every value to JMH so no decoding is optimised away. */
+final class BlackholeListener implements TelemetryListener {
+
+    private final Blackhole blackhole;
+
+    BlackholeListener(Blackhole blackhole) {
+        this.blackhole = blackhole;
+    }
+
+    @Override
+    public void onClimate(double temperature, double humidity) {
+        blackhole.consume(temperature);
+        blackhole.consume(humidity);
+    }
+
+    @Override
+    public void onGps(double latitude, double longitude) {
+        blackhole.consume(latitude);
+        blackhole.consume(longitude);
+    }
+
+    @Override
+    public void onRain(boolean raining) {
+        blackhole.consume(raining);
+    }
+
+    @Override
+    public void onMoisture(int moisture) {
+        blackhole.consume(moisture);
+    }
+
+    @Override
+    public void onObstacle(double distanceCm, boolean leftBlocked, boolean rightBlocked) {
+        blackhole.consume(distanceCm);
+        blackhole.consume(leftBlocked);
+        blackhole.consume(rightBlocked);
+    }
+
+    @Override
+    public void onImu(double yawRate, double heading) {
+        blackhole.consume(yawRate);
+        blackhole.consume(heading);
+    }
+
+    @Override
+    public void onChannelUnavailable(SensorChannel channel) {
+        blackhole.consume(channel);
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.acar.bench;
+
+import com.example.acar.telemetry.SensorChannel;
+import com.example.acar.telemetry.TelemetryRates;
+import com.example.acar.transport.LanProtocol;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.EnumSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encoding cost of the messages the app sends over the LAN link: drive
+ * updates from the joystick (up to 50 a second), heartbeats (4 a second),
+ * commands, and the keepalive carrying the telemetry rates.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CommandEncodeBenchmark {
+
+    private final TelemetryRates rates = TelemetryRates.forVisible(EnumSet.of(SensorChannel.GPS, SensorChannel.CLIMATE));
+    private int sequence;
+
+    @Benchmark
+    public byte[] drive() {
+        sequence++;
+        return LanProtocol.drive(sequence, 0.75f, -0.125f);
+    }
+
+    @Benchmark
+    public byte[] heartbeat() {
+        return LanProtocol.heartbeat(++sequence, 1000);
+    }
+
+    @Benchmark
+    public byte[] command() {
+        return LanProtocol.command(++sequence, "forward");
+    }
+
+    @Benchmark
+    public byte[] hello() {
+        return LanProtocol.hello(true, rates);
+    }
+}
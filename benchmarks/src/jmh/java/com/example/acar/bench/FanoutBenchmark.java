@@ -0,0 +1,53 @@
+package com.example.acar.bench;
+
+import com.example.acar.telemetry.TelemetryFanout;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost per sample of handing telemetry to the subscribers of a screen. A
+ * control screen subscribes about four listeners (readouts, chart, pose
+ * fusion, overlay); sixteen is a generous upper bound.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FanoutBenchmark {
+
+    @Param({"1", "4", "16"})
+    public int listeners;
+
+    private final TelemetryFanout fanout = new TelemetryFanout();
+    private double reading;
+
+    @Setup
+    public void setUp(Blackhole blackhole) {
+        for (int i = 0; i < listeners; i++) {
+            fanout.add(new BlackholeListener(blackhole));
+        }
+    }
+
+    /** One sample of each channel. */
+    @Benchmark
+    @OperationsPerInvocation(6)
+    public void publish() {
+        reading += 0.01;
+        fanout.onClimate(21.5 + reading, 48.25);
+        fanout.onGps(12.9715987 + reading * 1e-6, 77.5945627);
+        fanout.onRain(false);
+        fanout.onMoisture(37);
+        fanout.onObstacle(84.5 - reading, false, true);
+        fanout.onImu(-3.25, 271.5 + reading);
+    }
+}
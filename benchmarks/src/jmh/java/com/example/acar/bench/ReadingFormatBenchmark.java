@@ -0,0 +1,44 @@
+package com.example.acar.bench;
+
+import com.example.acar.readout.ReadingFormat;
+import com.example.acar.readout.TextBuffer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of writing the sensor cards' text, which happens at most once per
+ * display frame per card. It should allocate nothing once the buffer has
+ * grown to fit.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ReadingFormatBenchmark {
+
+    private final TextBuffer out = new TextBuffer();
+    private double reading;
+
+    @Benchmark
+    public int climate() {
+        reading += 0.01;
+        return ReadingFormat.climate(out.clear(), 21.5 + reading, 48.25).length();
+    }
+
+    @Benchmark
+    public int position() {
+        reading += 1e-7;
+        return ReadingFormat.position(out.clear(), 12.9715987 + reading, 77.5945627, 271.5).length();
+    }
+
+    @Benchmark
+    public int moisture() {
+        return ReadingFormat.moisture(out.clear(), 37).length();
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.acar.bench;
+
+import com.example.acar.transport.LanProtocol;
+import com.example.acar.transport.PackedTelemetry;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decoding cost per sample on both telemetry paths. Packed frames hold a
+ * second of readings from a rover sampling at {@link #RATE_HZ}, as the
+ * firmware batches them; LAN datagrams carry one reading each, cycling
+ * through the channels.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TelemetryDecodeBenchmark {
+
+    static final int RATE_HZ = 20;
+
+    private String frame;
+    private final PackedTelemetry.Decoder packedDecoder = new PackedTelemetry.Decoder();
+
+    private byte[][] datagrams;
+    private int next;
+    private final LanProtocol.Decoder lanDecoder = new LanProtocol.Decoder();
+
+    private BlackholeListener sink;
+
+    @Setup
+    public void setUp(Blackhole blackhole) {
+        sink = new BlackholeListener(blackhole);
+        PackedTelemetry.Encoder encoder = new PackedTelemetry.Encoder();
+        for (int i = 0; i < RATE_HZ; i++) {
+            // Climate and moisture change slowly, so the firmware sends them every fifth sample
+            encoder.beginSample(1000L * i / RATE_HZ);
+            if (i % 5 == 0) {
+                encoder.climate(21.5 + i * 0.01, 48.25);
+            }
+            encoder.gps(12.9715987 + i * 1e-6, 77.5945627 - i * 1e-6);
+            encoder.rain(false);
+            if (i % 5 == 0) {
+                encoder.moisture(37);
+            }
+        }
+        frame = encoder.toBase64();
+
+        datagrams = new byte[][]{
+                LanProtocol.climate(21.5, 48.25),
+                LanProtocol.gps(12.9715987, 77.5945627),
+                LanProtocol.rain(false),
+                LanProtocol.moisture(37),
+                LanProtocol.obstacle(84.5, false, true),
+                LanProtocol.imu(-3.25, 271.5),
+        };
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RATE_HZ)
+    public int packedFrame() {
+        return packedDecoder.decode(frame, sink);
+    }
+
+    @Benchmark
+    public int lanDatagram() {
+        byte[] datagram = datagrams[next];
+        next = next + 1 == datagrams.length ? 0 : next + 1;
+        return lanDecoder.decode(datagram, datagram.length, sink);
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.acar.readout;
+
+/**
+ * Text of the sensor cards, written into a {@link TextBuffer} so a card
+ * can be redrawn on every frame without allocating.
+ */
+public final class ReadingFormat {
+
+    private ReadingFormat() {
+    }
+
+    /** Temperature in °C and relative humidity in %, one decimal each. */
+    public static TextBuffer climate(TextBuffer out, double temperature, double humidity) {
+        return out.append("Temperature: ").append(temperature, 1)
+                .append("°C\nHumidity: ").append(humidity, 1).append('%');
+    }
+
+    /**
+     * Position to six decimals (about 10 cm), and the heading in whole
+     * degrees from 0 to 359 unless {@code headingDegrees} is NaN.
+     */
+    public static TextBuffer position(TextBuffer out, double latitude, double longitude, double headingDegrees) {
+        out.append("Latitude: ").append(latitude, 6)
+                .append("\nLongitude: ").append(longitude, 6);
+        if (!Double.isNaN(headingDegrees)) {
+            // 359.6 rounds to 360, which reads as north again
+            out.append("\nHeading: ").append(Math.floorMod(Math.round(headingDegrees), 360L)).append('°');
+        }
+        return out;
+    }
+
+    public static TextBuffer rain(TextBuffer out, boolean raining) {
+        return out.append(raining ? "Rain detected" : "No rain detected");
+    }
+
+    public static TextBuffer moisture(TextBuffer out, int moisture) {
+        return out.append("Soil Moisture: ").append(moisture).append('%');
+    }
+
+    /** Fallback text of a card whose channel has no reading. */
+    public static TextBuffer unavailable(TextBuffer out) {
+        return out.append("Data not available");
+    }
+
+    /** Fallback text of the position card. */
+    public static TextBuffer positionUnavailable(TextBuffer out) {
+        return out.append("GPS data not available");
+    }
+}
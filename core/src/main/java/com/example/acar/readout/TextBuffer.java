@@ -0,0 +1,133 @@
+package com.example.acar.readout;
+
+/**
+ * Growable char buffer used to format readouts without creating Strings.
+ * Numbers are written digit by digit so formatting never boxes or allocates
+ * once the buffer has reached its working size.
+ */
+public final class TextBuffer {
+
+    private static final long[] POWERS_OF_TEN = {
+            1L, 10L, 100L, 1_000L, 10_000L, 100_000L, 1_000_000L, 10_000_000L, 100_000_000L
+    };
+
+    // Values beyond this cannot be scaled into a long without overflowing
+    private static final double MAX_FORMATTABLE = 1e10;
+
+    private char[] chars;
+    private int length;
+
+    public TextBuffer() {
+        this(32);
+    }
+
+    public TextBuffer(int capacity) {
+        chars = new char[capacity];
+    }
+
+    public char[] chars() {
+        return chars;
+    }
+
+    public int length() {
+        return length;
+    }
+
+    public TextBuffer clear() {
+        length = 0;
+        return this;
+    }
+
+    public TextBuffer append(char c) {
+        ensureCapacity(length + 1);
+        chars[length++] = c;
+        return this;
+    }
+
+    public TextBuffer append(String text) {
+        int n = text.length();
+        ensureCapacity(length + n);
+        text.getChars(0, n, chars, length);
+        length += n;
+        return this;
+    }
+
+    public TextBuffer append(long value) {
+        if (value < 0) {
+            append('-');
+            if (value == Long.MIN_VALUE) {
+                // Cannot be negated; fall back to the slow path for this one value
+                return append(Long.toString(value).substring(1));
+            }
+            value = -value;
+        }
+        int digits = 1;
+        for (long v = value; v >= 10; v /= 10) {
+            digits++;
+        }
+        ensureCapacity(length + digits);
+        int pos = length + digits;
+        do {
+            chars[--pos] = (char) ('0' + (value % 10));
+            value /= 10;
+        } while (value != 0);
+        length += digits;
+        return this;
+    }
+
+    /**
+     * Appends {@code value} rounded to {@code decimals} places (0..8).
+     * NaN is written as "--" so missing fields are visible but compact.
+     */
+    public TextBuffer append(double value, int decimals) {
+        if (Double.isNaN(value)) {
+            return append("--");
+        }
+        if (Double.isInfinite(value) || Math.abs(value) >= MAX_FORMATTABLE) {
+            return append(value < 0 ? "-inf" : "inf");
+        }
+        long scale = POWERS_OF_TEN[decimals];
+        long scaled = Math.round(Math.abs(value) * scale);
+        if (value < 0 && scaled != 0) {
+            append('-');
+        }
+        append(scaled / scale);
+        if (decimals > 0) {
+            append('.');
+            long fraction = scaled % scale;
+            ensureCapacity(length + decimals);
+            for (int i = decimals - 1; i >= 0; i--) {
+                chars[length + i] = (char) ('0' + (fraction % 10));
+                fraction /= 10;
+            }
+            length += decimals;
+        }
+        return this;
+    }
+
+    /** True when both buffers hold the same characters. */
+    public boolean contentEquals(TextBuffer other) {
+        if (other.length != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (chars[i] != other.chars[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return new String(chars, 0, length);
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > chars.length) {
+            char[] grown = new char[Math.max(capacity, chars.length * 2)];
+            System.arraycopy(chars, 0, grown, 0, length);
+            chars = grown;
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.acar.telemetry;
+
+/**
+ * Sensor streams published by the rover under the {@code sensors} node.
+ * Each constant carries the child key the NodeMCU firmware writes to.
+ */
+public enum SensorChannel {
+    CLIMATE("dht22"),
+    GPS("gps"),
+    RAIN("raindrop"),
+    MOISTURE("moisture"),
+    OBSTACLE("obstacle"),
+    IMU("imu");
+
+    private static final SensorChannel[] VALUES = values();
+
+    private final String key;
+
+    SensorChannel(String key) {
+        this.key = key;
+    }
+
+    /** Child key of this channel below {@code sensors}. */
+    public String key() {
+        return key;
+    }
+
+    /** Looks up a channel by its database key, or returns null for unknown keys. */
+    public static SensorChannel fromKey(String key) {
+        for (SensorChannel channel : VALUES) {
+            if (channel.key.equals(key)) {
+                return channel;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,159 @@
+package com.example.acar.telemetry;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps the latest value of every channel and hands each new sample to a
+ * set of listeners. A listener added later is first brought up to date
+ * with the values already known. Values are held as primitives and the
+ * listener array is only copied when the set changes, so delivering a
+ * sample allocates nothing.
+ *
+ * <p>Not thread-safe: samples and changes to the set must come from one
+ * thread.</p>
+ */
+public final class TelemetryFanout implements TelemetryListener {
+
+    private static final SensorChannel[] CHANNELS = SensorChannel.values();
+
+    // Replaced on every change so delivery can iterate without copying
+    private TelemetryListener[] listeners = new TelemetryListener[0];
+    private final List<TelemetryListener> added = new ArrayList<>();
+
+    // Latest values, valid where present
+    private final boolean[] present = new boolean[CHANNELS.length];
+    private double temperature, humidity;
+    private double latitude, longitude;
+    private boolean raining;
+    private int moisture;
+    private double obstacleDistance;
+    private boolean obstacleLeft, obstacleRight;
+    private double yawRate, heading;
+
+    /**
+     * Adds {@code listener} and replays the known values to it.
+     *
+     * @return false if it was already added
+     */
+    public boolean add(TelemetryListener listener) {
+        if (added.contains(listener)) {
+            return false;
+        }
+        added.add(listener);
+        listeners = added.toArray(new TelemetryListener[0]);
+        for (SensorChannel channel : CHANNELS) {
+            if (present[channel.ordinal()]) {
+                dispatch(channel, listener);
+            }
+        }
+        return true;
+    }
+
+    /** @return false if {@code listener} was not added */
+    public boolean remove(TelemetryListener listener) {
+        if (!added.remove(listener)) {
+            return false;
+        }
+        listeners = added.toArray(new TelemetryListener[0]);
+        return true;
+    }
+
+    /** Number of listeners added. */
+    public int size() {
+        return listeners.length;
+    }
+
+    /** Whether a value of {@code channel} is known. */
+    public boolean isPresent(SensorChannel channel) {
+        return present[channel.ordinal()];
+    }
+
+    /** Forgets all values without telling the listeners, e.g. once they went stale. */
+    public void clear() {
+        for (int i = 0; i < present.length; i++) {
+            present[i] = false;
+        }
+    }
+
+    @Override
+    public void onClimate(double temperature, double humidity) {
+        this.temperature = temperature;
+        this.humidity = humidity;
+        publish(SensorChannel.CLIMATE);
+    }
+
+    @Override
+    public void onGps(double latitude, double longitude) {
+        this.latitude = latitude;
+        this.longitude = longitude;
+        publish(SensorChannel.GPS);
+    }
+
+    @Override
+    public void onRain(boolean raining) {
+        this.raining = raining;
+        publish(SensorChannel.RAIN);
+    }
+
+    @Override
+    public void onMoisture(int moisture) {
+        this.moisture = moisture;
+        publish(SensorChannel.MOISTURE);
+    }
+
+    @Override
+    public void onObstacle(double distanceCm, boolean leftBlocked, boolean rightBlocked) {
+        obstacleDistance = distanceCm;
+        obstacleLeft = leftBlocked;
+        obstacleRight = rightBlocked;
+        publish(SensorChannel.OBSTACLE);
+    }
+
+    @Override
+    public void onImu(double yawRate, double heading) {
+        this.yawRate = yawRate;
+        this.heading = heading;
+        publish(SensorChannel.IMU);
+    }
+
+    @Override
+    public void onChannelUnavailable(SensorChannel channel) {
+        present[channel.ordinal()] = false;
+        TelemetryListener[] targets = listeners;
+        for (TelemetryListener listener : targets) {
+            listener.onChannelUnavailable(channel);
+        }
+    }
+
+    private void publish(SensorChannel channel) {
+        present[channel.ordinal()] = true;
+        TelemetryListener[] targets = listeners;
+        for (TelemetryListener listener : targets) {
+            dispatch(channel, listener);
+        }
+    }
+
+    private void dispatch(SensorChannel channel, TelemetryListener listener) {
+        switch (channel) {
+            case CLIMATE:
+                listener.onClimate(temperature, humidity);
+                break;
+            case GPS:
+                listener.onGps(latitude, longitude);
+                break;
+            case RAIN:
+                listener.onRain(raining);
+                break;
+            case MOISTURE:
+                listener.onMoisture(moisture);
+                break;
+            case OBSTACLE:
+                listener.onObstacle(obstacleDistance, obstacleLeft, obstacleRight);
+                break;
+            case IMU:
+                listener.onImu(yawRate, heading);
+                break;
+        }
+    }
+}
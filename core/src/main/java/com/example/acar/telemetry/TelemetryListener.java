@@ -0,0 +1,55 @@
+package com.example.acar.telemetry;
+
+/**
+ * Receives decoded sensor samples, from a transport's decoder or from the
+ * app's telemetry hub. The hub calls back on the main thread; values are
+ * passed as primitives so subscribers never have to unbox them again.
+ */
+public interface TelemetryListener {
+
+    /** New temperature (°C) and humidity (%) reading from the DHT22. */
+    default void onClimate(double temperature, double humidity) {
+    }
+
+    /** New GPS fix in decimal degrees. */
+    default void onGps(double latitude, double longitude) {
+    }
+
+    /** New raindrop sensor state. */
+    default void onRain(boolean raining) {
+    }
+
+    /** New soil moisture reading in percent. */
+    default void onMoisture(int moisture) {
+    }
+
+    /**
+     * New obstacle reading: ultrasonic distance straight ahead in cm (NaN
+     * when nothing echoes back) and whether the left and right IR sensors
+     * see something close.
+     */
+    default void onObstacle(double distanceCm, boolean leftBlocked, boolean rightBlocked) {
+    }
+
+    /**
+     * New inertial reading: yaw rate in degrees per second, clockwise
+     * positive, and compass heading in degrees from north (NaN when the
+     * board has no magnetometer).
+     */
+    default void onImu(double yawRate, double heading) {
+    }
+
+    /**
+     * The readings delivered next, up to the following call, were taken
+     * {@code millis} before the newest sample of their batch, which is
+     * arriving now. Only decoders of batched frames call this, ending each
+     * batch with 0 for its newest sample, so a listener that stamps
+     * readings on arrival can spread the batch over the time it covers.
+     */
+    default void onSampleAge(long millis) {
+    }
+
+    /** The channel was removed from the database or has no usable data. */
+    default void onChannelUnavailable(SensorChannel channel) {
+    }
+}
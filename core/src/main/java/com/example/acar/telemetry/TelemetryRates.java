@@ -0,0 +1,118 @@
+package com.example.acar.telemetry;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * How often the app wants the rover to publish each sensor channel.
+ *
+ * <p>Channels a visible screen shows run at {@link #FULL} rate, which leaves
+ * the rover at its own pace. Safety channels (obstacle and GPS) never drop
+ * below {@link #SAFETY_HZ}, so the last known position and whether the
+ * rover is stuck stay reasonably fresh with the app in the background.
+ * Everything else is switched off until a screen needs it again.</p>
+ *
+ * <p>Rovers read the request from {@link #KEY} beside their sensors: one
+ * entry per limited channel, in readings per second, 0 meaning off. A
+ * channel without an entry, or no node at all, is unlimited, so rovers and
+ * apps that predate the node keep working. Immutable.</p>
+ */
+public final class TelemetryRates {
+
+    /** Control node the rates are written to. */
+    public static final String KEY = "telemetryRates";
+    /** As fast as the rover publishes. */
+    public static final double FULL = Double.POSITIVE_INFINITY;
+    /** Background trickle for the safety channels: one reading every five seconds. */
+    public static final double SAFETY_HZ = 0.2;
+
+    private static final SensorChannel[] CHANNELS = SensorChannel.values();
+
+    /** No limits at all, what the rover does without a request. */
+    public static final TelemetryRates UNLIMITED = new TelemetryRates(filled(FULL));
+    /** No screen visible: safety channels trickle, the rest is off. */
+    public static final TelemetryRates BACKGROUND = forVisible(EnumSet.noneOf(SensorChannel.class));
+
+    private final double[] hz;
+
+    private TelemetryRates(double[] hz) {
+        this.hz = hz;
+    }
+
+    /** Full rate for {@code visible}, a trickle for the other safety channels and nothing else. */
+    public static TelemetryRates forVisible(Set<SensorChannel> visible) {
+        double[] hz = new double[CHANNELS.length];
+        for (SensorChannel channel : CHANNELS) {
+            hz[channel.ordinal()] = visible.contains(channel) ? FULL : isSafety(channel) ? SAFETY_HZ : 0;
+        }
+        return new TelemetryRates(hz);
+    }
+
+    /** Channels that keep trickling while no screen shows them. */
+    public static boolean isSafety(SensorChannel channel) {
+        return channel == SensorChannel.OBSTACLE || channel == SensorChannel.GPS;
+    }
+
+    /** Readings per second wanted on {@code channel}; {@link #FULL} or 0 for off. */
+    public double get(SensorChannel channel) {
+        return hz[channel.ordinal()];
+    }
+
+    /** True if no channel is slower here than in {@code other}. */
+    public boolean atLeast(TelemetryRates other) {
+        for (int i = 0; i < hz.length; i++) {
+            if (hz[i] < other.hz[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** The limited channels by database key, as written to {@link #KEY}; empty when unlimited. */
+    public Map<String, Object> toMap() {
+        Map<String, Object> map = new HashMap<>();
+        for (SensorChannel channel : CHANNELS) {
+            double rate = hz[channel.ordinal()];
+            if (rate != FULL) {
+                map.put(channel.key(), rate);
+            }
+        }
+        return map;
+    }
+
+    /** The limited channels as space separated {@code key=hz} fields, each preceded by a space. */
+    public void appendFields(StringBuilder out) {
+        for (SensorChannel channel : CHANNELS) {
+            double rate = hz[channel.ordinal()];
+            if (rate != FULL) {
+                out.append(' ').append(channel.key()).append('=').append(rate);
+            }
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof TelemetryRates && Arrays.equals(hz, ((TelemetryRates) o).hz);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(hz);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder out = new StringBuilder("rates");
+        appendFields(out);
+        return out.toString();
+    }
+
+    private static double[] filled(double value) {
+        double[] hz = new double[CHANNELS.length];
+        Arrays.fill(hz, value);
+        return hz;
+    }
+}
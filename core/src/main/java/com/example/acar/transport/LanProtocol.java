@@ -0,0 +1,283 @@
+package com.example.acar.transport;
+
+import com.example.acar.telemetry.SensorChannel;
+import com.example.acar.telemetry.TelemetryListener;
+import com.example.acar.telemetry.TelemetryRates;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Line format spoken over UDP between the app and the rover on the local
+ * network. Every datagram is one ASCII message of space separated fields:
+ *
+ * <pre>
+ * app to rover:  HELLO &lt;0|1&gt; [key=hz ...]    keepalive, 1 = stream telemetry back,
+ *                                             no faster than the listed channel rates
+ *                CMD &lt;word&gt; &lt;seq&gt;
+ *                ESTOP &lt;seq&gt;                 stop now, acked like a command
+ *                HB &lt;beat&gt; &lt;deadline ms&gt;     dead-man heartbeat: stop if the next is late
+ *                MODE &lt;manual|autonomous&gt;
+ *                DRIVE &lt;seq&gt; &lt;throttle&gt; &lt;steer&gt;
+ * rover to app:  PONG
+ *                ACK &lt;seq&gt;                 command &lt;seq&gt; was executed
+ *                SENS dht22 &lt;temperature&gt; &lt;humidity&gt;
+ *                SENS gps &lt;latitude&gt; &lt;longitude&gt;
+ *                SENS raindrop &lt;0|1&gt;
+ *                SENS moisture &lt;percent&gt;
+ *                SENS obstacle &lt;cm|-&gt; &lt;left 0|1&gt; &lt;right 0|1&gt;
+ *                SENS imu &lt;yaw rate deg/s&gt; &lt;heading deg|-&gt;
+ * </pre>
+ */
+public final class LanProtocol {
+
+    public static final int DEFAULT_PORT = 4210;
+    public static final int MAX_DATAGRAM = 512;
+
+    /** Results of {@link Decoder#decode}. */
+    public static final int UNKNOWN = 0, PONG = 1, SENSOR = 2, ACK = 3;
+
+    private LanProtocol() {
+    }
+
+    /** Keepalive that also carries the rates of the limited channels, see {@link TelemetryRates}. */
+    public static byte[] hello(boolean wantTelemetry, TelemetryRates rates) {
+        StringBuilder message = new StringBuilder(wantTelemetry ? "HELLO 1" : "HELLO 0");
+        rates.appendFields(message);
+        return ascii(message.toString());
+    }
+
+    public static byte[] command(int sequence, String word) {
+        return ascii("CMD " + word + " " + sequence);
+    }
+
+    public static byte[] emergencyStop(int sequence) {
+        return ascii("ESTOP " + sequence);
+    }
+
+    public static byte[] heartbeat(int beat, long deadlineMillis) {
+        return ascii("HB " + beat + " " + deadlineMillis);
+    }
+
+    public static byte[] mode(String mode) {
+        return ascii("MODE " + mode);
+    }
+
+    public static byte[] drive(int sequence, float throttle, float steer) {
+        return ascii("DRIVE " + sequence + " " + throttle + " " + steer);
+    }
+
+    public static byte[] pong() {
+        return ascii("PONG");
+    }
+
+    public static byte[] ack(int sequence) {
+        return ascii("ACK " + sequence);
+    }
+
+    public static byte[] climate(double temperature, double humidity) {
+        return ascii("SENS " + SensorChannel.CLIMATE.key() + " " + temperature + " " + humidity);
+    }
+
+    public static byte[] gps(double latitude, double longitude) {
+        return ascii("SENS " + SensorChannel.GPS.key() + " " + latitude + " " + longitude);
+    }
+
+    public static byte[] rain(boolean raining) {
+        return ascii("SENS " + SensorChannel.RAIN.key() + (raining ? " 1" : " 0"));
+    }
+
+    public static byte[] moisture(int moisture) {
+        return ascii("SENS " + SensorChannel.MOISTURE.key() + " " + moisture);
+    }
+
+    public static byte[] obstacle(double distanceCm, boolean leftBlocked, boolean rightBlocked) {
+        return ascii("SENS " + SensorChannel.OBSTACLE.key() + " " + (Double.isNaN(distanceCm) ? "-" : distanceCm)
+                + (leftBlocked ? " 1" : " 0") + (rightBlocked ? " 1" : " 0"));
+    }
+
+    public static byte[] imu(double yawRate, double heading) {
+        return ascii("SENS " + SensorChannel.IMU.key() + " " + yawRate + " " + (Double.isNaN(heading) ? "-" : heading));
+    }
+
+    private static byte[] ascii(String message) {
+        return message.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Parses rover messages straight from the datagram bytes. Not thread-safe;
+     * keep one decoder per receiving thread.
+     */
+    public static final class Decoder {
+        private byte[] data;
+        private int end;
+        private int pos;
+        private int ackSequence;
+
+        /** Sequence number carried by the last message decoded as {@link #ACK}. */
+        public int getAckSequence() {
+            return ackSequence;
+        }
+
+        public int decode(byte[] data, int length, TelemetryListener sink) {
+            this.data = data;
+            this.end = length;
+            this.pos = 0;
+            if (nextTokenIs("PONG")) {
+                return PONG;
+            }
+            pos = 0;
+            if (nextTokenIs("ACK")) {
+                double sequence = nextDouble();
+                if (Double.isNaN(sequence)) {
+                    return UNKNOWN;
+                }
+                ackSequence = (int) sequence;
+                return ACK;
+            }
+            if (!nextTokenIs("SENS")) {
+                return UNKNOWN;
+            }
+            if (nextTokenIs(SensorChannel.CLIMATE.key())) {
+                double temperature = nextDouble();
+                sink.onClimate(temperature, nextDouble());
+            } else if (nextTokenIs(SensorChannel.GPS.key())) {
+                double latitude = nextDouble();
+                sink.onGps(latitude, nextDouble());
+            } else if (nextTokenIs(SensorChannel.RAIN.key())) {
+                sink.onRain(nextDouble() != 0);
+            } else if (nextTokenIs(SensorChannel.MOISTURE.key())) {
+                sink.onMoisture((int) nextDouble());
+            } else if (nextTokenIs(SensorChannel.OBSTACLE.key())) {
+                // "-" means no echo, which parses as NaN like any other non-number
+                double distance = nextDouble();
+                boolean left = nextDouble() == 1;
+                sink.onObstacle(distance, left, nextDouble() == 1);
+            } else if (nextTokenIs(SensorChannel.IMU.key())) {
+                // "-" means no compass
+                double yawRate = nextDouble();
+                sink.onImu(yawRate, nextDouble());
+            } else {
+                return UNKNOWN;
+            }
+            return SENSOR;
+        }
+
+        private boolean nextTokenIs(String token) {
+            skipSpaces();
+            int start = pos;
+            int n = token.length();
+            if (end - start < n) {
+                return false;
+            }
+            for (int i = 0; i < n; i++) {
+                if (data[start + i] != token.charAt(i)) {
+                    return false;
+                }
+            }
+            if (start + n < end && data[start + n] != ' ') {
+                return false;
+            }
+            pos = start + n;
+            return true;
+        }
+
+        /**
+         * Parses [-]digits[.digits][(e|E)[+|-]digits], which covers what
+         * {@code Double.toString} writes for very small and very large
+         * values; anything else yields NaN.
+         */
+        private double nextDouble() {
+            skipSpaces();
+            boolean negative = false;
+            if (pos < end && data[pos] == '-') {
+                negative = true;
+                pos++;
+            }
+            long mantissa = 0;
+            int digits = 0;
+            // Power of ten the mantissa is scaled by
+            int exponent = 0;
+            boolean anyDigit = false;
+            boolean inFraction = false;
+            while (pos < end && data[pos] != ' ') {
+                byte b = data[pos++];
+                if (b == '.' && !inFraction) {
+                    inFraction = true;
+                } else if (b >= '0' && b <= '9') {
+                    anyDigit = true;
+                    if (mantissa == 0 && b == '0') {
+                        // Leading zeros take no precision
+                        if (inFraction) {
+                            exponent--;
+                        }
+                    } else if (digits < 18) {
+                        mantissa = mantissa * 10 + (b - '0');
+                        digits++;
+                        if (inFraction) {
+                            exponent--;
+                        }
+                    } else if (!inFraction) {
+                        // Digits beyond 18 are dropped, but still count towards the magnitude
+                        exponent++;
+                    }
+                } else if ((b == 'e' || b == 'E') && anyDigit) {
+                    int written = nextExponent();
+                    if (written == Integer.MIN_VALUE) {
+                        return Double.NaN;
+                    }
+                    exponent += written;
+                    break;
+                } else {
+                    skipToken();
+                    return Double.NaN;
+                }
+            }
+            if (!anyDigit) {
+                return Double.NaN;
+            }
+            double value = mantissa;
+            if (mantissa != 0 && exponent != 0) {
+                // One rounding step rather than one per digit
+                value = exponent < 0 ? value / Math.pow(10, -exponent) : value * Math.pow(10, exponent);
+            }
+            return negative ? -value : value;
+        }
+
+        /** Parses the [+|-]digits after an exponent marker, MIN_VALUE if malformed. */
+        private int nextExponent() {
+            boolean negative = false;
+            if (pos < end && (data[pos] == '+' || data[pos] == '-')) {
+                negative = data[pos] == '-';
+                pos++;
+            }
+            int value = 0;
+            int digits = 0;
+            while (pos < end && data[pos] != ' ') {
+                byte b = data[pos++];
+                if (b < '0' || b > '9') {
+                    skipToken();
+                    return Integer.MIN_VALUE;
+                }
+                // Anything past 400 is beyond the range of a double either way
+                value = Math.min(400, value * 10 + (b - '0'));
+                digits++;
+            }
+            if (digits == 0) {
+                return Integer.MIN_VALUE;
+            }
+            return negative ? -value : value;
+        }
+
+        private void skipSpaces() {
+            while (pos < end && data[pos] == ' ') {
+                pos++;
+            }
+        }
+
+        private void skipToken() {
+            while (pos < end && data[pos] != ' ') {
+                pos++;
+            }
+        }
+    }
+}
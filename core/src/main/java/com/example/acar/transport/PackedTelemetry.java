@@ -0,0 +1,298 @@
+package com.example.acar.transport;
+
+import com.example.acar.telemetry.TelemetryListener;
+
+/**
+ * Compact telemetry frame the rover can write to {@code sensors/packed}
+ * instead of, or alongside, the per-channel nodes. One frame carries a
+ * batch of samples, each holding any subset of the channels, so one
+ * database write replaces up to channels x batch separate ones. Frames are
+ * stored as a Base64 string; the bytes are big-endian:
+ *
+ * <pre>
+ * frame:   byte   version (1)
+ *          byte   sample count, 1..255
+ *          int    rover clock of the first sample, ms (wraps)
+ *          sample[count]
+ * sample:  byte   channel mask, see the MASK_ constants
+ *          ushort ms since the previous sample (0 for the first)
+ *          short  temperature, 0.01 °C      if MASK_CLIMATE
+ *          ushort humidity, 0.01 %          if MASK_CLIMATE
+ *          int    latitude, 1e-7 degrees    if MASK_GPS
+ *          int    longitude, 1e-7 degrees   if MASK_GPS
+ *          byte   soil moisture, %          if MASK_MOISTURE
+ * </pre>
+ *
+ * Rain fits in the mask itself. Any field added later bumps the version,
+ * and frames of an unknown version are ignored as a whole.
+ */
+public final class PackedTelemetry {
+
+    public static final String KEY = "packed";
+    public static final int VERSION = 1;
+    public static final int MAX_SAMPLES = 255;
+
+    public static final int MASK_CLIMATE = 1;
+    public static final int MASK_GPS = 1 << 1;
+    /** The sample carries a raindrop reading; its value is {@link #MASK_RAINING}. */
+    public static final int MASK_RAIN = 1 << 2;
+    public static final int MASK_RAINING = 1 << 3;
+    public static final int MASK_MOISTURE = 1 << 4;
+    private static final int MASK_KNOWN = MASK_CLIMATE | MASK_GPS | MASK_RAIN | MASK_RAINING | MASK_MOISTURE;
+
+    private static final int HEADER_BYTES = 6;
+    private static final int MAX_SAMPLE_BYTES = 1 + 2 + 4 + 8 + 1;
+
+    private static final char[] ALPHABET =
+            "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".toCharArray();
+    private static final byte[] SEXTETS = new byte[128];
+
+    static {
+        java.util.Arrays.fill(SEXTETS, (byte) -1);
+        for (int i = 0; i < ALPHABET.length; i++) {
+            SEXTETS[ALPHABET[i]] = (byte) i;
+        }
+        // Accept the URL-safe alphabet too
+        SEXTETS['-'] = 62;
+        SEXTETS['_'] = 63;
+    }
+
+    private PackedTelemetry() {
+    }
+
+    /**
+     * Builds frames sample by sample. Mostly used by tests and tools; the
+     * rover firmware writes the same layout.
+     */
+    public static final class Encoder {
+        private final byte[] bytes = new byte[HEADER_BYTES + MAX_SAMPLES * MAX_SAMPLE_BYTES];
+        private int length;
+        private int count;
+        private long lastTime;
+        private int mask;
+        private int maskPos;
+
+        public Encoder() {
+            reset();
+        }
+
+        public void reset() {
+            bytes[0] = VERSION;
+            length = HEADER_BYTES;
+            count = 0;
+        }
+
+        public int getSampleCount() {
+            return count;
+        }
+
+        /** Starts a sample taken at {@code timeMillis} on the rover's clock. */
+        public Encoder beginSample(long timeMillis) {
+            if (count == MAX_SAMPLES) {
+                throw new IllegalStateException("Frame is full");
+            }
+            if (count == 0) {
+                putInt(2, (int) timeMillis);
+                lastTime = timeMillis;
+            }
+            long delta = Math.max(0, Math.min(0xFFFF, timeMillis - lastTime));
+            lastTime = timeMillis;
+            count++;
+            bytes[1] = (byte) count;
+            maskPos = length;
+            mask = 0;
+            bytes[length++] = 0;
+            putShort((int) delta);
+            return this;
+        }
+
+        public Encoder climate(double temperature, double humidity) {
+            checkOrder(MASK_CLIMATE);
+            mask |= MASK_CLIMATE;
+            putShort((int) Math.round(temperature * 100));
+            putShort((int) Math.round(humidity * 100));
+            return endField();
+        }
+
+        public Encoder gps(double latitude, double longitude) {
+            checkOrder(MASK_GPS);
+            mask |= MASK_GPS;
+            putInt(length, (int) Math.round(latitude * 1e7));
+            putInt(length + 4, (int) Math.round(longitude * 1e7));
+            length += 8;
+            return endField();
+        }
+
+        public Encoder rain(boolean raining) {
+            checkOrder(MASK_RAIN);
+            mask |= raining ? MASK_RAIN | MASK_RAINING : MASK_RAIN;
+            return endField();
+        }
+
+        public Encoder moisture(int moisture) {
+            checkOrder(MASK_MOISTURE);
+            mask |= MASK_MOISTURE;
+            bytes[length++] = (byte) Math.max(0, Math.min(255, moisture));
+            return endField();
+        }
+
+        /** The frame so far, Base64 encoded. */
+        public String toBase64() {
+            char[] out = new char[(length + 2) / 3 * 4];
+            int o = 0;
+            for (int i = 0; i < length; i += 3) {
+                int b0 = bytes[i] & 0xFF;
+                int b1 = i + 1 < length ? bytes[i + 1] & 0xFF : 0;
+                int b2 = i + 2 < length ? bytes[i + 2] & 0xFF : 0;
+                out[o++] = ALPHABET[b0 >> 2];
+                out[o++] = ALPHABET[(b0 & 3) << 4 | b1 >> 4];
+                out[o++] = i + 1 < length ? ALPHABET[(b1 & 15) << 2 | b2 >> 6] : '=';
+                out[o++] = i + 2 < length ? ALPHABET[b2 & 63] : '=';
+            }
+            return new String(out);
+        }
+
+        // Fields are decoded in mask bit order, so they have to be written in it too
+        private void checkOrder(int field) {
+            if (count == 0) {
+                throw new IllegalStateException("No sample started");
+            }
+            if ((mask & ~(field - 1)) != 0) {
+                throw new IllegalStateException("Fields must be added as climate, gps, rain, moisture");
+            }
+        }
+
+        private Encoder endField() {
+            bytes[maskPos] = (byte) mask;
+            return this;
+        }
+
+        private void putShort(int value) {
+            bytes[length++] = (byte) (value >> 8);
+            bytes[length++] = (byte) value;
+        }
+
+        private void putInt(int at, int value) {
+            bytes[at] = (byte) (value >> 24);
+            bytes[at + 1] = (byte) (value >> 16);
+            bytes[at + 2] = (byte) (value >> 8);
+            bytes[at + 3] = (byte) value;
+        }
+    }
+
+    /**
+     * Expands frames into {@link TelemetryListener} calls, oldest sample
+     * first, each sample preceded by its age relative to the newest one
+     * (see {@link TelemetryListener#onSampleAge}). Decodes the Base64 text into a reused buffer, so a frame costs
+     * no allocation beyond the string the database hands over. Not
+     * thread-safe; keep one decoder per transport.
+     */
+    public static final class Decoder {
+        private byte[] bytes = new byte[HEADER_BYTES + 16 * MAX_SAMPLE_BYTES];
+        private int length;
+        private long lastSampleTime;
+
+        /** Rover clock of the newest sample in the last frame decoded. */
+        public long getLastSampleTime() {
+            return lastSampleTime;
+        }
+
+        /**
+         * @return the number of samples delivered, or -1 if the frame was
+         * malformed or of an unsupported version, in which case nothing was
+         * delivered
+         */
+        public int decode(CharSequence base64, TelemetryListener sink) {
+            if (!unbase64(base64) || length < HEADER_BYTES || bytes[0] != VERSION) {
+                return -1;
+            }
+            int count = bytes[1] & 0xFF;
+            // Validate the whole frame first so a truncated one delivers nothing
+            long time = getInt(2) & 0xFFFFFFFFL;
+            long newest = time;
+            int pos = HEADER_BYTES;
+            for (int i = 0; i < count; i++) {
+                if (pos + 3 > length) {
+                    return -1;
+                }
+                int mask = bytes[pos] & 0xFF;
+                if ((mask & ~MASK_KNOWN) != 0) {
+                    return -1;
+                }
+                newest += getUnsignedShort(pos + 1);
+                pos += 3 + sampleBytes(mask);
+            }
+            if (pos > length) {
+                return -1;
+            }
+
+            pos = HEADER_BYTES;
+            for (int i = 0; i < count; i++) {
+                int mask = bytes[pos] & 0xFF;
+                time += getUnsignedShort(pos + 1);
+                sink.onSampleAge(newest - time);
+                pos += 3;
+                if ((mask & MASK_CLIMATE) != 0) {
+                    sink.onClimate((short) getUnsignedShort(pos) / 100.0, getUnsignedShort(pos + 2) / 100.0);
+                    pos += 4;
+                }
+                if ((mask & MASK_GPS) != 0) {
+                    sink.onGps(getInt(pos) / 1e7, getInt(pos + 4) / 1e7);
+                    pos += 8;
+                }
+                if ((mask & MASK_RAIN) != 0) {
+                    sink.onRain((mask & MASK_RAINING) != 0);
+                }
+                if ((mask & MASK_MOISTURE) != 0) {
+                    sink.onMoisture(bytes[pos] & 0xFF);
+                    pos += 1;
+                }
+            }
+            lastSampleTime = time;
+            return count;
+        }
+
+        private static int sampleBytes(int mask) {
+            return ((mask & MASK_CLIMATE) != 0 ? 4 : 0)
+                    + ((mask & MASK_GPS) != 0 ? 8 : 0)
+                    + ((mask & MASK_MOISTURE) != 0 ? 1 : 0);
+        }
+
+        private boolean unbase64(CharSequence text) {
+            int n = text.length();
+            while (n > 0 && text.charAt(n - 1) == '=') {
+                n--;
+            }
+            int needed = n * 3 / 4;
+            if (needed > bytes.length) {
+                bytes = new byte[Math.max(needed, bytes.length * 2)];
+            }
+            int accumulator = 0;
+            int bits = 0;
+            int out = 0;
+            for (int i = 0; i < n; i++) {
+                char c = text.charAt(i);
+                int sextet = c < 128 ? SEXTETS[c] : -1;
+                if (sextet < 0) {
+                    return false;
+                }
+                accumulator = accumulator << 6 | sextet;
+                bits += 6;
+                if (bits >= 8) {
+                    bits -= 8;
+                    bytes[out++] = (byte) (accumulator >> bits);
+                }
+            }
+            length = out;
+            return true;
+        }
+
+        private int getUnsignedShort(int at) {
+            return (bytes[at] & 0xFF) << 8 | bytes[at + 1] & 0xFF;
+        }
+
+        private int getInt(int at) {
+            return bytes[at] << 24 | (bytes[at + 1] & 0xFF) << 16 | (bytes[at + 2] & 0xFF) << 8 | bytes[at + 3] & 0xFF;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.acar.readout;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the allocation-free readout formatting.
+ */
+public class TextBufferTest {
+
+    @Test
+    public void formatsFixedDecimals() {
+        TextBuffer buffer = new TextBuffer(4);
+        buffer.append("T: ").append(23.456, 1).append(' ').append(-0.04, 1).append(' ').append(-12.345678, 6);
+        assertEquals("T: 23.5 0.0 -12.345678", buffer.toString());
+    }
+
+    @Test
+    public void formatsIntegersAndMissingValues() {
+        TextBuffer buffer = new TextBuffer();
+        buffer.append(0L).append(',').append(-42L).append(',').append(Double.NaN, 2).append(',').append(7.0, 0);
+        assertEquals("0,-42,--,7", buffer.toString());
+    }
+
+    @Test
+    public void comparesContent() {
+        TextBuffer a = new TextBuffer().append("Soil Moisture: ").append(40L);
+        TextBuffer b = new TextBuffer().append("Soil Moisture: ").append(40L);
+        assertTrue(a.contentEquals(b));
+        b.clear().append("Soil Moisture: ").append(41L);
+        assertFalse(a.contentEquals(b));
+    }
+
+    @Test
+    public void sensorCardsFormatIntoTheBuffer() {
+        TextBuffer out = new TextBuffer();
+        assertEquals("Temperature: 21.5°C\nHumidity: 48.3%",
+                ReadingFormat.climate(out, 21.5, 48.25).toString());
+        assertEquals("Latitude: 12.971599\nLongitude: 77.594563\nHeading: 272°",
+                ReadingFormat.position(out.clear(), 12.9715987, 77.5945627, 271.5).toString());
+        assertEquals("Latitude: 12.971599\nLongitude: 77.594563",
+                ReadingFormat.position(out.clear(), 12.9715987, 77.5945627, Double.NaN).toString());
+        assertEquals("Latitude: 0.000000\nLongitude: 0.000000\nHeading: 0°",
+                ReadingFormat.position(out.clear(), 0, 0, 359.6).toString());
+        assertEquals("Latitude: 0.000000\nLongitude: 0.000000\nHeading: 355°",
+                ReadingFormat.position(out.clear(), 0, 0, -5).toString());
+        assertEquals("Soil Moisture: 37%", ReadingFormat.moisture(out.clear(), 37).toString());
+        assertEquals("No rain detected", ReadingFormat.rain(out.clear(), false).toString());
+    }
+}
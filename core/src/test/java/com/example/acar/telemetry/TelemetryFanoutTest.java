@@ -0,0 +1,104 @@
+package com.example.acar.telemetry;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class TelemetryFanoutTest {
+
+    private final TelemetryFanout fanout = new TelemetryFanout();
+
+    @Test
+    public void latecomersAreBroughtUpToDate() {
+        List<String> first = new ArrayList<>();
+        assertTrue(fanout.add(new Recorder(first)));
+        fanout.onMoisture(40);
+        fanout.onGps(12.5, 77.25);
+        assertEquals(Arrays.asList("moisture 40", "gps 12.5 77.25"), first);
+
+        // Replayed in channel order, not arrival order
+        List<String> late = new ArrayList<>();
+        fanout.add(new Recorder(late));
+        assertEquals(Arrays.asList("gps 12.5 77.25", "moisture 40"), late);
+        assertEquals(2, fanout.size());
+
+        fanout.onRain(true);
+        assertEquals("rain true", first.get(first.size() - 1));
+        assertEquals("rain true", late.get(late.size() - 1));
+    }
+
+    @Test
+    public void unavailableAndClearedChannelsAreNotReplayed() {
+        fanout.onClimate(21.5, 48);
+        fanout.onImu(-3, 270);
+        fanout.onChannelUnavailable(SensorChannel.IMU);
+        assertTrue(fanout.isPresent(SensorChannel.CLIMATE));
+        assertFalse(fanout.isPresent(SensorChannel.IMU));
+
+        List<String> events = new ArrayList<>();
+        fanout.add(new Recorder(events));
+        assertEquals(Arrays.asList("climate 21.5 48.0"), events);
+
+        fanout.clear();
+        events.clear();
+        fanout.add(new Recorder(events));
+        assertTrue(events.isEmpty());
+    }
+
+    @Test
+    public void removedListenersHearNothingMore() {
+        List<String> events = new ArrayList<>();
+        Recorder recorder = new Recorder(events);
+        fanout.add(recorder);
+        assertFalse(fanout.add(recorder));
+        assertTrue(fanout.remove(recorder));
+        assertFalse(fanout.remove(recorder));
+        fanout.onObstacle(30, true, false);
+        assertTrue(events.isEmpty());
+        assertEquals(0, fanout.size());
+    }
+
+    private static final class Recorder implements TelemetryListener {
+        private final List<String> events;
+
+        Recorder(List<String> events) {
+            this.events = events;
+        }
+
+        @Override
+        public void onClimate(double temperature, double humidity) {
+            events.add("climate " + temperature + " " + humidity);
+        }
+
+        @Override
+        public void onGps(double latitude, double longitude) {
+            events.add("gps " + latitude + " " + longitude);
+        }
+
+        @Override
+        public void onRain(boolean raining) {
+            events.add("rain " + raining);
+        }
+
+        @Override
+        public void onMoisture(int moisture) {
+            events.add("moisture " + moisture);
+        }
+
+        @Override
+        public void onObstacle(double distanceCm, boolean leftBlocked, boolean rightBlocked) {
+            events.add("obstacle " + distanceCm);
+        }
+
+        @Override
+        public void onImu(double yawRate, double heading) {
+            events.add("imu " + heading);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.acar.telemetry;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.example.acar.transport.LanProtocol;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.EnumSet;
+import java.util.Map;
+
+public class TelemetryRatesTest {
+
+    @Test
+    public void visibleChannelsRunFullAndOnlySafetyChannelsTrickle() {
+        TelemetryRates rates = TelemetryRates.forVisible(EnumSet.of(SensorChannel.CLIMATE, SensorChannel.IMU));
+        assertEquals(TelemetryRates.FULL, rates.get(SensorChannel.CLIMATE), 0);
+        assertEquals(TelemetryRates.FULL, rates.get(SensorChannel.IMU), 0);
+        assertEquals(TelemetryRates.SAFETY_HZ, rates.get(SensorChannel.GPS), 0);
+        assertEquals(TelemetryRates.SAFETY_HZ, rates.get(SensorChannel.OBSTACLE), 0);
+        assertEquals(0, rates.get(SensorChannel.RAIN), 0);
+        assertEquals(0, rates.get(SensorChannel.MOISTURE), 0);
+
+        // Full rate channels are left out so the rover uses its own pace
+        Map<String, Object> node = rates.toMap();
+        assertEquals(4, node.size());
+        assertFalse(node.containsKey("dht22"));
+        assertEquals(0.0, node.get("raindrop"));
+        assertEquals(TelemetryRates.SAFETY_HZ, node.get("gps"));
+        assertTrue(TelemetryRates.UNLIMITED.toMap().isEmpty());
+    }
+
+    @Test
+    public void ratesOnlyRiseWhenEveryChannelDoes() {
+        TelemetryRates manual = TelemetryRates.forVisible(EnumSet.of(SensorChannel.CLIMATE, SensorChannel.GPS));
+        TelemetryRates all = TelemetryRates.forVisible(EnumSet.allOf(SensorChannel.class));
+        assertTrue(all.atLeast(manual));
+        assertTrue(manual.atLeast(TelemetryRates.BACKGROUND));
+        assertFalse(manual.atLeast(all));
+        assertEquals(all, TelemetryRates.UNLIMITED);
+    }
+
+    @Test
+    public void helloListsTheLimitedChannels() {
+        String hello = new String(LanProtocol.hello(true, TelemetryRates.BACKGROUND), StandardCharsets.US_ASCII);
+        assertEquals("HELLO 1 dht22=0.0 gps=0.2 raindrop=0.0 moisture=0.0 obstacle=0.2 imu=0.0", hello);
+        assertEquals("HELLO 0", new String(LanProtocol.hello(false, TelemetryRates.UNLIMITED), StandardCharsets.US_ASCII));
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.acar.transport;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.example.acar.telemetry.TelemetryListener;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+
+public class LanProtocolTest {
+
+    private final LanProtocol.Decoder decoder = new LanProtocol.Decoder();
+    private final double[] decoded = new double[2];
+
+    private final TelemetryListener sink = new TelemetryListener() {
+        @Override
+        public void onGps(double latitude, double longitude) {
+            decoded[0] = latitude;
+            decoded[1] = longitude;
+        }
+
+        @Override
+        public void onImu(double yawRate, double heading) {
+            decoded[0] = yawRate;
+            decoded[1] = heading;
+        }
+
+        @Override
+        public void onObstacle(double distanceCm, boolean leftBlocked, boolean rightBlocked) {
+            decoded[0] = distanceCm;
+        }
+    };
+
+    @Test
+    public void tinyHugeAndNegativeValuesSurviveTheRoundTrip() {
+        // Double.toString writes these in exponent form
+        double[][] pairs = {
+                {0.0001, 12345678.9},
+                {-0.0005, 1e-5},
+                {-1.5e-300, 9.87654321e250},
+                {0, -0.0},
+                {12.9715987, -77.5945627},
+                {1.2345678901234567e7, -3.0e-4},
+        };
+        for (double[] pair : pairs) {
+            assertRoundTrip(pair[0], pair[1], LanProtocol.gps(pair[0], pair[1]));
+            assertRoundTrip(pair[0], pair[1], LanProtocol.imu(pair[0], pair[1]));
+        }
+        byte[] obstacle = LanProtocol.obstacle(2.5e-4, false, false);
+        assertEquals(LanProtocol.SENSOR, decoder.decode(obstacle, obstacle.length, sink));
+        assertEquals(2.5e-4, decoded[0], 0);
+    }
+
+    @Test
+    public void malformedNumbersAreNaN() {
+        for (String message : new String[]{"SENS gps 1e 2", "SENS gps 1e+ 2", "SENS gps e5 2",
+                "SENS gps 1.5x 2", "SENS gps - 2", "SENS gps 1e5.5 2"}) {
+            byte[] bytes = message.getBytes(StandardCharsets.US_ASCII);
+            decoded[0] = 0;
+            assertEquals(LanProtocol.SENSOR, decoder.decode(bytes, bytes.length, sink));
+            assertTrue(message, Double.isNaN(decoded[0]));
+            assertEquals(message, 2, decoded[1], 0);
+        }
+    }
+
+    @Test
+    public void longMantissasKeepTheirMagnitude() {
+        byte[] bytes = "SENS gps 123456789012345678901 0.000000000000000000000123".getBytes(StandardCharsets.US_ASCII);
+        decoder.decode(bytes, bytes.length, sink);
+        assertEquals(1.23456789012345678901e20, decoded[0], 1e6);
+        assertEquals(1.23e-22, decoded[1], 1e-36);
+    }
+
+    private void assertRoundTrip(double first, double second, byte[] message) {
+        String text = new String(message, StandardCharsets.US_ASCII);
+        assertEquals(text, LanProtocol.SENSOR, decoder.decode(message, message.length, sink));
+        assertEquals(text, first, decoded[0], Math.ulp(first) * 2);
+        assertEquals(text, second, decoded[1], Math.ulp(second) * 2);
+    }
+}
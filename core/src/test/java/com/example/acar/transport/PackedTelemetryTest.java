@@ -0,0 +1,114 @@
+package com.example.acar.transport;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.example.acar.telemetry.TelemetryListener;
+
+import org.junit.Test;
+
+public class PackedTelemetryTest {
+
+    /** Flattens callbacks into one line per reading. */
+    private static final class Recorder implements TelemetryListener {
+        final StringBuilder log = new StringBuilder();
+
+        @Override
+        public void onClimate(double temperature, double humidity) {
+            log.append("climate ").append(temperature).append(' ').append(humidity).append('\n');
+        }
+
+        @Override
+        public void onGps(double latitude, double longitude) {
+            log.append("gps ").append(latitude).append(' ').append(longitude).append('\n');
+        }
+
+        @Override
+        public void onRain(boolean raining) {
+            log.append("rain ").append(raining).append('\n');
+        }
+
+        @Override
+        public void onMoisture(int moisture) {
+            log.append("moisture ").append(moisture).append('\n');
+        }
+    }
+
+    @Test
+    public void roundTripsBatchedSamplesInOrder() {
+        PackedTelemetry.Encoder encoder = new PackedTelemetry.Encoder();
+        encoder.beginSample(1000).climate(-4.25, 55.5).gps(15.3517123, -76.1557456).rain(true).moisture(40);
+        encoder.beginSample(1100).rain(false);
+        encoder.beginSample(1350).moisture(41);
+
+        PackedTelemetry.Decoder decoder = new PackedTelemetry.Decoder();
+        Recorder recorder = new Recorder();
+        assertEquals(3, decoder.decode(encoder.toBase64(), recorder));
+        assertEquals("climate -4.25 55.5\n"
+                        + "gps 15.3517123 -76.1557456\n"
+                        + "rain true\n"
+                        + "moisture 40\n"
+                        + "rain false\n"
+                        + "moisture 41\n",
+                recorder.log.toString());
+        assertEquals(1350, decoder.getLastSampleTime());
+    }
+
+    @Test
+    public void rejectsTruncatedAndUnknownFramesWithoutDelivering() {
+        PackedTelemetry.Encoder encoder = new PackedTelemetry.Encoder();
+        encoder.beginSample(0).climate(20, 50);
+        encoder.beginSample(10).gps(1, 2);
+        String frame = encoder.toBase64();
+
+        Recorder recorder = new Recorder();
+        PackedTelemetry.Decoder decoder = new PackedTelemetry.Decoder();
+        assertEquals(-1, decoder.decode(frame.substring(0, frame.length() - 8), recorder));
+        // Version 2 starts with 0x02, which is "Ag" in Base64
+        assertEquals(-1, decoder.decode("Ag" + frame.substring(2), recorder));
+        assertEquals(-1, decoder.decode("not base64!", recorder));
+        assertTrue(recorder.log.length() == 0);
+    }
+
+    @Test
+    public void eachSampleCarriesItsAgeWithinTheBatch() {
+        PackedTelemetry.Encoder encoder = new PackedTelemetry.Encoder();
+        encoder.beginSample(5000).moisture(40);
+        encoder.beginSample(5050).moisture(41);
+        encoder.beginSample(5120).rain(false);
+        StringBuilder log = new StringBuilder();
+        new PackedTelemetry.Decoder().decode(encoder.toBase64(), new TelemetryListener() {
+            @Override
+            public void onSampleAge(long millis) {
+                log.append("age ").append(millis).append('\n');
+            }
+
+            @Override
+            public void onMoisture(int moisture) {
+                log.append("moisture ").append(moisture).append('\n');
+            }
+
+            @Override
+            public void onRain(boolean raining) {
+                log.append("rain ").append(raining).append('\n');
+            }
+        });
+        // The newest sample is 0 old, which also ends the batch
+        assertEquals("age 120\nmoisture 40\nage 70\nmoisture 41\nage 0\nrain false\n", log.toString());
+    }
+
+    @Test
+    public void growsForLargeFrames() {
+        PackedTelemetry.Encoder encoder = new PackedTelemetry.Encoder();
+        for (int i = 0; i < PackedTelemetry.MAX_SAMPLES; i++) {
+            encoder.beginSample(i * 10L).climate(20, 50).gps(1, 2).moisture(i % 100);
+        }
+        assertEquals(PackedTelemetry.MAX_SAMPLES,
+                new PackedTelemetry.Decoder().decode(encoder.toBase64(), new Recorder()));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void fieldsMustFollowMaskOrder() {
+        new PackedTelemetry.Encoder().beginSample(0).moisture(1).climate(20, 50);
+    }
+}
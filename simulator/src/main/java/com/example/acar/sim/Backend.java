@@ -0,0 +1,37 @@
+package com.example.acar.sim;
+
+import com.example.acar.transport.PackedTelemetry;
+
+import java.io.IOException;
+
+/**
+ * Where the simulated rover publishes readings and receives commands from.
+ */
+interface Backend extends AutoCloseable {
+
+    /** Starts listening for commands, which are applied to {@code model}. */
+    void start(RoverModel model) throws IOException;
+
+    void publishClimate(double temperature, double humidity) throws IOException;
+
+    void publishGps(double latitude, double longitude) throws IOException;
+
+    void publishRain(boolean raining) throws IOException;
+
+    void publishMoisture(int moisture) throws IOException;
+
+    /** Ultrasonic distance in cm (NaN for no echo) and the two IR sensors. */
+    void publishObstacle(double distanceCm, boolean left, boolean right) throws IOException;
+
+    /** Gyro yaw rate in degrees per second and compass heading in degrees. */
+    void publishImu(double yawRate, double heading) throws IOException;
+
+    /** Writes a Base64 packed telemetry frame, see {@link PackedTelemetry}. */
+    void publishPacked(String frame) throws IOException;
+
+    /** Writes the once-a-second fleet summary, a one-sample packed frame. */
+    void publishSummary(String frame) throws IOException;
+
+    @Override
+    void close();
+}
@@ -0,0 +1,301 @@
+package com.example.acar.sim;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Speaks the same database contract as the NodeMCU firmware through the
+ * Realtime Database REST API, so it works against the local emulator
+ * ({@code firebase emulators:start --only database}) or a real project.
+ * Readings are PUT to {@code sensors/*}; {@code commands},
+ * {@code commandSeq}, {@code controlMode}, {@code drive},
+ * {@code telemetryRates}, {@code heartbeat} and {@code estop} are followed with server-sent event streams,
+ * and each command is acknowledged by copying its number to
+ * {@code commandAck}. A removed heartbeat, which the app's on-disconnect
+ * write does, stops the rover at once. A rover of a fleet keeps all of
+ * these under {@code rovers/<id>/} and also writes a summary to
+ * {@code fleet/<id>}.
+ */
+final class EmulatorBackend implements Backend {
+
+    private static final int CONNECT_TIMEOUT_MS = 5000;
+
+    private final String baseUrl;
+    private final String query;
+    // Prefix of the rover's own nodes: "" for a lone rover, "rovers/<id>/" in a fleet
+    private final String roverPath;
+    private final String summaryPath;
+    private final List<HttpURLConnection> streams = new ArrayList<>();
+    private final List<Thread> readers = new ArrayList<>();
+    private volatile boolean closed;
+    private RoverModel model;
+
+    /**
+     * @param baseUrl   database root, e.g. {@code http://127.0.0.1:9000}
+     * @param namespace database name the emulator should use, or null for a real project URL
+     * @param authToken ID token or database secret, or null when rules allow anonymous access
+     * @param roverId   id within the fleet, or null for a lone rover at the root
+     */
+    EmulatorBackend(String baseUrl, String namespace, String authToken, String roverId) {
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        StringBuilder builder = new StringBuilder();
+        if (namespace != null) {
+            builder.append(builder.length() == 0 ? '?' : '&').append("ns=").append(namespace);
+        }
+        if (authToken != null) {
+            builder.append(builder.length() == 0 ? '?' : '&').append("auth=").append(authToken);
+        }
+        query = builder.toString();
+        roverPath = roverId != null ? "rovers/" + roverId + "/" : "";
+        summaryPath = roverId != null ? "fleet/" + roverId : null;
+    }
+
+    @Override
+    public void start(RoverModel model) throws IOException {
+        this.model = model;
+        follow("controlMode", data -> {
+            String mode = unquote(data);
+            if (mode != null) {
+                model.onControlMode(mode);
+            }
+        });
+        follow("drive", data -> {
+            double sequence = SimJson.number(data, "seq");
+            if (!Double.isNaN(sequence)) {
+                model.onDrive((int) sequence, SimJson.number(data, "throttle"), SimJson.number(data, "steer"));
+            }
+        });
+        // The app writes commands and commandSeq in one update; the number is read after the word
+        follow("commandSeq", data -> {
+            int sequence;
+            try {
+                sequence = (int) Double.parseDouble(data);
+            } catch (NumberFormatException e) {
+                return;
+            }
+            String command = unquote(get("commands"));
+            if (command != null) {
+                model.onCommand(command);
+                put("commandAck", Integer.toString(sequence));
+            }
+        });
+        follow("telemetryRates", new DataHandler() {
+            @Override
+            public void onData(String data) {
+                double[] hz = RoverModel.unlimitedRates();
+                for (SimConfig.Channel channel : SimConfig.Channel.values()) {
+                    double rate = SimJson.number(data, channel.key);
+                    if (!Double.isNaN(rate)) {
+                        hz[channel.ordinal()] = rate;
+                    }
+                }
+                model.onTelemetryRates(hz);
+            }
+
+            @Override
+            public void onDeleted() {
+                model.onTelemetryRates(RoverModel.unlimitedRates());
+            }
+        });
+        follow("heartbeat", new DataHandler() {
+            @Override
+            public void onData(String data) {
+                double deadline = SimJson.number(data, "deadlineMs");
+                if (!Double.isNaN(deadline)) {
+                    model.onHeartbeat((long) deadline);
+                }
+            }
+
+            @Override
+            public void onDeleted() {
+                model.onHeartbeatLost();
+            }
+        });
+        // Written together with a plain stop; acting on this one first is what makes it fast
+        follow("estop", data -> {
+            try {
+                int sequence = (int) Double.parseDouble(data);
+                model.onEmergencyStop();
+                put("commandAck", Integer.toString(sequence));
+            } catch (NumberFormatException e) {
+                // Not a sequence number; the plain stop beside it still applies
+            }
+        });
+        // Words written without a number, e.g. by older app builds
+        follow("commands", data -> {
+            String command = unquote(data);
+            if (command != null) {
+                model.onCommand(command);
+            }
+        });
+    }
+
+    @Override
+    public void publishClimate(double temperature, double humidity) throws IOException {
+        put("sensors/dht22", "{\"temperature\":" + SimJson.number(temperature)
+                + ",\"humidity\":" + SimJson.number(humidity) + "}");
+    }
+
+    @Override
+    public void publishGps(double latitude, double longitude) throws IOException {
+        put("sensors/gps", "{\"latitude\":" + SimJson.number(latitude)
+                + ",\"longitude\":" + SimJson.number(longitude) + "}");
+    }
+
+    @Override
+    public void publishRain(boolean raining) throws IOException {
+        put("sensors/raindrop", raining ? "true" : "false");
+    }
+
+    @Override
+    public void publishMoisture(int moisture) throws IOException {
+        put("sensors/moisture", Integer.toString(moisture));
+    }
+
+    @Override
+    public void publishObstacle(double distanceCm, boolean left, boolean right) throws IOException {
+        put("sensors/obstacle", "{\"distance\":" + SimJson.number(distanceCm)
+                + ",\"left\":" + left + ",\"right\":" + right + "}");
+    }
+
+    @Override
+    public void publishImu(double yawRate, double heading) throws IOException {
+        put("sensors/imu", "{\"yawRate\":" + SimJson.number(yawRate) + ",\"heading\":" + SimJson.number(heading) + "}");
+    }
+
+    @Override
+    public void publishPacked(String frame) throws IOException {
+        put("sensors/packed", "\"" + frame + "\"");
+    }
+
+    @Override
+    public void publishSummary(String frame) throws IOException {
+        if (summaryPath != null) {
+            putAt(summaryPath, "\"" + frame + "\"");
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        synchronized (streams) {
+            for (HttpURLConnection stream : streams) {
+                stream.disconnect();
+            }
+        }
+        for (Thread reader : readers) {
+            reader.interrupt();
+        }
+    }
+
+    /** Writes {@code json} to the rover's node {@code path}. */
+    void put(String path, String json) throws IOException {
+        putAt(roverPath + path, json);
+    }
+
+    private void putAt(String path, String json) throws IOException {
+        HttpURLConnection connection = open(path);
+        connection.setRequestMethod("PUT");
+        connection.setDoOutput(true);
+        connection.setRequestProperty("Content-Type", "application/json");
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        connection.setFixedLengthStreamingMode(body.length);
+        try (OutputStream out = connection.getOutputStream()) {
+            out.write(body);
+        }
+        int status = connection.getResponseCode();
+        // Drain the body so the keep-alive connection goes back to the pool
+        try (InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+            if (in != null) {
+                in.transferTo(OutputStream.nullOutputStream());
+            }
+        }
+        if (status >= 400) {
+            throw new IOException("PUT " + path + " failed with HTTP " + status);
+        }
+    }
+
+    private String get(String path) throws IOException {
+        HttpURLConnection connection = open(roverPath + path);
+        int status = connection.getResponseCode();
+        if (status >= 400) {
+            throw new IOException("GET " + path + " failed with HTTP " + status);
+        }
+        try (InputStream in = connection.getInputStream()) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8).trim();
+        }
+    }
+
+    private HttpURLConnection open(String path) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(baseUrl + "/" + path + ".json" + query).openConnection();
+        connection.setConnectTimeout(CONNECT_TIMEOUT_MS);
+        return connection;
+    }
+
+    private interface DataHandler {
+        void onData(String data) throws IOException;
+
+        /** The node was removed or does not exist yet. */
+        default void onDeleted() {
+        }
+    }
+
+    /** Streams {@code path} on its own thread, handing each new value to {@code handler}. */
+    private void follow(String path, DataHandler handler) throws IOException {
+        HttpURLConnection connection = open(roverPath + path);
+        connection.setRequestProperty("Accept", "text/event-stream");
+        // Streams stay open indefinitely; only the connect is bounded
+        connection.setReadTimeout(0);
+        if (connection.getResponseCode() >= 400) {
+            throw new IOException("Streaming " + path + " failed with HTTP " + connection.getResponseCode());
+        }
+        synchronized (streams) {
+            streams.add(connection);
+        }
+        Thread reader = new Thread(() -> {
+            try (BufferedReader in = new BufferedReader(
+                    new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8))) {
+                String event = null;
+                String line;
+                while (!closed && (line = in.readLine()) != null) {
+                    if (line.startsWith("event:")) {
+                        event = line.substring(6).trim();
+                    } else if (line.startsWith("data:") && ("put".equals(event) || "patch".equals(event))) {
+                        // Only whole-node writes are interesting here, which arrive with path "/"
+                        String payload = line.substring(5).trim();
+                        if ("/".equals(SimJson.string(payload, "path"))) {
+                            String data = SimJson.field(payload, "data");
+                            if (data != null && !"null".equals(data)) {
+                                handler.onData(data);
+                            } else {
+                                handler.onDeleted();
+                            }
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                if (!closed) {
+                    System.err.println("Stream " + path + " ended: " + e.getMessage());
+                }
+            }
+        }, "sim-stream-" + path);
+        reader.setDaemon(true);
+        readers.add(reader);
+        reader.start();
+    }
+
+    private static String unquote(String value) {
+        if (value == null || value.length() < 2 || value.charAt(0) != '"') {
+            return null;
+        }
+        return value.substring(1, value.length() - 1);
+    }
+}
@@ -0,0 +1,213 @@
+package com.example.acar.sim;
+
+import com.example.acar.transport.PackedTelemetry;
+
+import java.io.IOException;
+import java.util.EnumSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Publishes each enabled channel on its own schedule at the current rate,
+ * spreading intervals by the configured jitter and dropping readings with
+ * the configured loss probability. Each channel draws from its own seeded
+ * {@link Random}, so the pattern of gaps is the same on every run with the
+ * same seed. In packed mode a single schedule samples every channel at once
+ * and writes a frame per batch, with loss applied to whole frames. Channels
+ * the app asked to slow down (see {@link RoverModel#telemetryRate}) run at
+ * the lower of the two rates, and channels it switched off are skipped and
+ * checked again every {@link #OFF_RECHECK_MS}. A rover
+ * of a fleet also writes a one-sample summary every {@link #SUMMARY_PERIOD_MS}
+ * whatever the rate. Counts what it did for the once-a-second report.
+ */
+final class Publisher {
+
+    static final long SUMMARY_PERIOD_MS = 1000;
+    static final long OFF_RECHECK_MS = 500;
+
+    private final SimConfig config;
+    private final RoverModel model;
+    private final Backend backend;
+    private final ScheduledExecutorService executor;
+    private volatile double rateHz;
+    private volatile boolean stopped;
+
+    private final PackedTelemetry.Encoder frame = new PackedTelemetry.Encoder();
+    private final PackedTelemetry.Encoder summary = new PackedTelemetry.Encoder();
+    private final long startNanos = System.nanoTime();
+
+    /** Writes that reached the backend; one per reading, or one per frame when packed. */
+    final AtomicLong published = new AtomicLong();
+    final AtomicLong samples = new AtomicLong();
+    final AtomicLong lost = new AtomicLong();
+    /** Rounds skipped because the app switched the channel off. */
+    final AtomicLong held = new AtomicLong();
+    final AtomicLong failed = new AtomicLong();
+    final AtomicLong writeNanos = new AtomicLong();
+    final AtomicLong maxWriteNanos = new AtomicLong();
+
+    Publisher(SimConfig config, RoverModel model, Backend backend, ScheduledExecutorService executor) {
+        this.config = config;
+        this.model = model;
+        this.backend = backend;
+        this.executor = executor;
+        this.rateHz = config.rateHz;
+    }
+
+    void start() {
+        if (config.packed()) {
+            Random random = new Random(config.seed * 31 - 1);
+            executor.execute(() -> publish(null, random));
+        }
+        for (SimConfig.Channel channel : config.channels) {
+            // Channels without a field in version 1 frames keep their own node
+            if (config.packed() && channel.packed) {
+                continue;
+            }
+            Random random = new Random(config.seed * 31 + channel.ordinal());
+            executor.execute(() -> publish(channel, random));
+        }
+        if (config.roverId != null) {
+            executor.scheduleAtFixedRate(this::publishSummary, 0, SUMMARY_PERIOD_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    void setRate(double rateHz) {
+        this.rateHz = rateHz;
+    }
+
+    double getRate() {
+        return rateHz;
+    }
+
+    void stop() {
+        stopped = true;
+    }
+
+    /** Publishes {@code channel}, or adds a sample to the packed frame when it is null. */
+    private void publish(SimConfig.Channel channel, Random random) {
+        if (stopped) {
+            return;
+        }
+        long started = System.nanoTime();
+        double wantedHz = channel != null ? model.telemetryRate(channel) : packedRate();
+        if (wantedHz <= 0) {
+            held.incrementAndGet();
+            executor.schedule(() -> publish(channel, random), OFF_RECHECK_MS, TimeUnit.MILLISECONDS);
+            return;
+        }
+        boolean due = true;
+        if (channel == null) {
+            addSample(frame, (started - startNanos) / 1_000_000, packedChannels());
+            due = frame.getSampleCount() == config.batch;
+        }
+        if (due) {
+            int count = channel == null ? config.batch : 1;
+            if (config.loss > 0 && random.nextDouble() < config.loss) {
+                lost.addAndGet(count);
+            } else {
+                try {
+                    if (channel == null) {
+                        backend.publishPacked(frame.toBase64());
+                    } else {
+                        write(channel);
+                    }
+                    long elapsed = System.nanoTime() - started;
+                    published.incrementAndGet();
+                    samples.addAndGet(count);
+                    writeNanos.addAndGet(elapsed);
+                    maxWriteNanos.accumulateAndGet(elapsed, Math::max);
+                } catch (IOException e) {
+                    failed.incrementAndGet();
+                }
+            }
+            if (channel == null) {
+                frame.reset();
+            }
+        }
+        // The next reading is due one period after this one started, give or take the jitter
+        double periodNanos = 1e9 / Math.min(rateHz, wantedHz);
+        double jitterNanos = config.jitterMillis * 1e6 * (2 * random.nextDouble() - 1);
+        long delay = (long) (periodNanos + jitterNanos) - (System.nanoTime() - started);
+        executor.schedule(() -> publish(channel, random), Math.max(0, delay), TimeUnit.NANOSECONDS);
+    }
+
+    /** Packed frames go out as fast as their fastest wanted channel. */
+    private double packedRate() {
+        double fastest = 0;
+        for (SimConfig.Channel channel : config.channels) {
+            if (channel.packed) {
+                fastest = Math.max(fastest, model.telemetryRate(channel));
+            }
+        }
+        return fastest;
+    }
+
+    /** The enabled channels the app has not switched off. */
+    private Set<SimConfig.Channel> packedChannels() {
+        Set<SimConfig.Channel> wanted = EnumSet.noneOf(SimConfig.Channel.class);
+        for (SimConfig.Channel channel : config.channels) {
+            if (model.telemetryRate(channel) > 0) {
+                wanted.add(channel);
+            }
+        }
+        return wanted;
+    }
+
+    /** Appends one sample with every packed channel in {@code channels} read from the model. */
+    private void addSample(PackedTelemetry.Encoder encoder, long timeMillis, Set<SimConfig.Channel> channels) {
+        encoder.beginSample(timeMillis);
+        // Fields go in the order of their mask bits
+        if (channels.contains(SimConfig.Channel.CLIMATE)) {
+            encoder.climate(model.temperature(), model.humidity());
+        }
+        if (channels.contains(SimConfig.Channel.GPS)) {
+            encoder.gps(model.latitude(), model.longitude());
+        }
+        if (channels.contains(SimConfig.Channel.RAIN)) {
+            encoder.rain(model.raining());
+        }
+        if (channels.contains(SimConfig.Channel.MOISTURE)) {
+            encoder.moisture(model.moisture());
+        }
+    }
+
+    private void publishSummary() {
+        if (stopped) {
+            return;
+        }
+        summary.reset();
+        addSample(summary, (System.nanoTime() - startNanos) / 1_000_000, config.channels);
+        try {
+            backend.publishSummary(summary.toBase64());
+        } catch (IOException e) {
+            failed.incrementAndGet();
+        }
+    }
+
+    private void write(SimConfig.Channel channel) throws IOException {
+        switch (channel) {
+            case CLIMATE:
+                backend.publishClimate(model.temperature(), model.humidity());
+                break;
+            case GPS:
+                backend.publishGps(model.latitude(), model.longitude());
+                break;
+            case RAIN:
+                backend.publishRain(model.raining());
+                break;
+            case MOISTURE:
+                backend.publishMoisture(model.moisture());
+                break;
+            case OBSTACLE:
+                backend.publishObstacle(model.obstacleDistanceCm(), model.obstacleLeft(), model.obstacleRight());
+                break;
+            case IMU:
+                backend.publishImu(model.yawRate(), model.heading());
+                break;
+        }
+    }
+}
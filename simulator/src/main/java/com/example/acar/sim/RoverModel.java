@@ -0,0 +1,292 @@
+package com.example.acar.sim;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Simulated rover state: drifting environmental readings and a position
+ * that follows the commands received, in a field of box-shaped obstacles
+ * the ultrasonic and IR sensors can see and the rover cannot drive through.
+ * Advanced in fixed steps from a seeded {@link Random}, so a given seed and
+ * command sequence always produce the same readings.
+ *
+ * <p>Like the firmware, the rover obeys the app's dead-man heartbeat once
+ * it has heard one: if the next beat has not arrived when the deadline it
+ * carried runs out, the rover stops until driven again. The deadline counts
+ * down in simulated time.</p>
+ */
+final class RoverModel {
+
+    private static final double METERS_PER_DEGREE = 111_320.0;
+    private static final double MAX_SPEED_MPS = 0.5;
+    private static final double MAX_TURN_DEG_PER_S = 45.0;
+    private static final double ULTRASONIC_RANGE_M = 4.0;
+    private static final double IR_RANGE_M = 0.3;
+    private static final double IR_ANGLE_DEG = 45.0;
+    /** Obstacles are kept this far from the start so the rover never begins boxed in. */
+    private static final double CLEAR_START_RADIUS_M = 3.0;
+
+    private final Random random;
+
+    private double temperature = 28.0;
+    private double humidity = 55.0;
+    private double moisture = 40.0;
+    private boolean raining;
+
+    private final double startLatitude;
+    private final double startLongitude;
+    // Metres east and north of the start
+    private double x;
+    private double y;
+    private double headingDegrees;
+    // Obstacle boxes as {minX, minY, maxX, maxY} in the same frame
+    private double[][] obstacles = new double[0][];
+
+    private double throttle;
+    private double steer;
+    private int lastDriveSequence;
+    private String lastCommand = "stop";
+    private String controlMode = "manual";
+    // Dead-man heartbeat: armed by a beat, counted down by step()
+    private boolean heartbeatArmed;
+    private double heartbeatLeftSeconds;
+    private long heartbeatStops;
+    // Readings per second the app asked for on each channel, infinite when unlimited
+    private final double[] telemetryRates = unlimitedRates();
+
+    RoverModel(long seed, double latitude, double longitude) {
+        this.random = new Random(seed);
+        this.startLatitude = latitude;
+        this.startLongitude = longitude;
+    }
+
+    /**
+     * Scatters {@code count} boxes of 0.5 to 3 m a side within {@code radius}
+     * metres of the start.
+     */
+    synchronized void addRandomObstacles(int count, double radius) {
+        double[][] boxes = new double[count][];
+        int placed = 0;
+        while (placed < count) {
+            double width = 0.5 + random.nextDouble() * 2.5;
+            double depth = 0.5 + random.nextDouble() * 2.5;
+            double cx = (random.nextDouble() * 2 - 1) * radius;
+            double cy = (random.nextDouble() * 2 - 1) * radius;
+            if (Math.hypot(cx, cy) - Math.hypot(width, depth) / 2 < CLEAR_START_RADIUS_M) {
+                continue;
+            }
+            boxes[placed++] = new double[]{cx - width / 2, cy - depth / 2, cx + width / 2, cy + depth / 2};
+        }
+        obstacles = boxes;
+    }
+
+    /** Applies one of the discrete command words. */
+    synchronized void onCommand(String command) {
+        lastCommand = command;
+        switch (command) {
+            case "forward":
+                throttle = 1;
+                steer = 0;
+                break;
+            case "backward":
+                throttle = -1;
+                steer = 0;
+                break;
+            case "left":
+                throttle = 0;
+                steer = -1;
+                break;
+            case "right":
+                throttle = 0;
+                steer = 1;
+                break;
+            default:
+                throttle = 0;
+                steer = 0;
+                break;
+        }
+    }
+
+    /** Applies a continuous drive tuple unless an equal or newer one was already seen. */
+    synchronized void onDrive(int sequence, double throttle, double steer) {
+        if (sequence <= lastDriveSequence) {
+            return;
+        }
+        lastDriveSequence = sequence;
+        this.throttle = clamp(throttle);
+        this.steer = clamp(steer);
+    }
+
+    synchronized void onControlMode(String mode) {
+        controlMode = mode;
+    }
+
+    /** Takes a heartbeat: the rover stops if the next one is more than {@code deadlineMillis} away. */
+    synchronized void onHeartbeat(long deadlineMillis) {
+        heartbeatArmed = true;
+        heartbeatLeftSeconds = deadlineMillis / 1000.0;
+    }
+
+    /** The app is known to be gone, e.g. its heartbeat node was removed on disconnect: stop now. */
+    synchronized void onHeartbeatLost() {
+        if (heartbeatArmed) {
+            heartbeatArmed = false;
+            heartbeatStops++;
+            halt();
+        }
+    }
+
+    /** Stops at once, whatever was queued before. */
+    synchronized void onEmergencyStop() {
+        halt();
+    }
+
+    /** Advances the simulation by {@code seconds}. */
+    synchronized void step(double seconds) {
+        if (heartbeatArmed) {
+            heartbeatLeftSeconds -= seconds;
+            if (heartbeatLeftSeconds <= 0) {
+                onHeartbeatLost();
+            }
+        }
+        temperature = bounded(temperature + random.nextGaussian() * 0.05 * seconds, -10, 60);
+        humidity = bounded(humidity + random.nextGaussian() * 0.2 * seconds, 0, 100);
+        moisture = bounded(moisture + random.nextGaussian() * 0.1 * seconds + (raining ? 0.2 * seconds : 0), 0, 100);
+        // Rain starts or stops roughly every few minutes
+        if (random.nextDouble() < 0.005 * seconds) {
+            raining = !raining;
+        }
+
+        headingDegrees = (headingDegrees + steer * MAX_TURN_DEG_PER_S * seconds + 360) % 360;
+        double distance = throttle * MAX_SPEED_MPS * seconds;
+        double heading = Math.toRadians(headingDegrees);
+        double nextX = x + Math.sin(heading) * distance;
+        double nextY = y + Math.cos(heading) * distance;
+        // Bumping into an obstacle stops the rover where it is
+        if (!insideObstacle(nextX, nextY)) {
+            x = nextX;
+            y = nextY;
+        }
+    }
+
+    synchronized double temperature() {
+        return temperature;
+    }
+
+    synchronized double humidity() {
+        return humidity;
+    }
+
+    synchronized int moisture() {
+        return (int) Math.round(moisture);
+    }
+
+    synchronized boolean raining() {
+        return raining;
+    }
+
+    synchronized double latitude() {
+        return startLatitude + y / METERS_PER_DEGREE;
+    }
+
+    synchronized double longitude() {
+        return startLongitude + x / (METERS_PER_DEGREE * Math.cos(Math.toRadians(startLatitude)));
+    }
+
+    /** Ultrasonic distance straight ahead in cm, or NaN when nothing is in range. */
+    synchronized double obstacleDistanceCm() {
+        double range = range(headingDegrees, ULTRASONIC_RANGE_M);
+        return Double.isNaN(range) ? Double.NaN : Math.round(range * 100);
+    }
+
+    synchronized boolean obstacleLeft() {
+        return !Double.isNaN(range(headingDegrees - IR_ANGLE_DEG, IR_RANGE_M));
+    }
+
+    synchronized boolean obstacleRight() {
+        return !Double.isNaN(range(headingDegrees + IR_ANGLE_DEG, IR_RANGE_M));
+    }
+
+    private double range(double bearingDegrees, double max) {
+        double bearing = Math.toRadians(bearingDegrees);
+        double dx = Math.sin(bearing);
+        double dy = Math.cos(bearing);
+        for (double d = 0.02; d <= max; d += 0.02) {
+            if (insideObstacle(x + dx * d, y + dy * d)) {
+                return d;
+            }
+        }
+        return Double.NaN;
+    }
+
+    private boolean insideObstacle(double px, double py) {
+        for (double[] box : obstacles) {
+            if (px >= box[0] && px <= box[2] && py >= box[1] && py <= box[3]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Gyro yaw rate in degrees per second, clockwise positive. */
+    synchronized double yawRate() {
+        return steer * MAX_TURN_DEG_PER_S;
+    }
+
+    /** Compass heading in degrees from north. */
+    synchronized double heading() {
+        return headingDegrees;
+    }
+
+    synchronized double throttle() {
+        return throttle;
+    }
+
+    synchronized double steer() {
+        return steer;
+    }
+
+    synchronized String lastCommand() {
+        return lastCommand;
+    }
+
+    synchronized String controlMode() {
+        return controlMode;
+    }
+
+    /** Times the rover stopped because heartbeats stopped coming. */
+    synchronized long heartbeatStops() {
+        return heartbeatStops;
+    }
+
+    /** Takes the app's rate request, indexed by channel; see {@link #unlimitedRates}. */
+    synchronized void onTelemetryRates(double[] hz) {
+        System.arraycopy(hz, 0, telemetryRates, 0, telemetryRates.length);
+    }
+
+    /** Readings per second the app wants on {@code channel}: infinite for no limit, 0 for none. */
+    synchronized double telemetryRate(SimConfig.Channel channel) {
+        return telemetryRates[channel.ordinal()];
+    }
+
+    /** A rate request without limits, for backends to fill in. */
+    static double[] unlimitedRates() {
+        double[] hz = new double[SimConfig.Channel.values().length];
+        Arrays.fill(hz, Double.POSITIVE_INFINITY);
+        return hz;
+    }
+
+    private void halt() {
+        lastCommand = "stop";
+        throttle = 0;
+        steer = 0;
+    }
+
+    private static double clamp(double value) {
+        return Math.max(-1, Math.min(1, value));
+    }
+
+    private static double bounded(double value, double min, double max) {
+        return Math.max(min, Math.min(max, value));
+    }
+}
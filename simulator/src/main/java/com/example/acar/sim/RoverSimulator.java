@@ -0,0 +1,180 @@
+package com.example.acar.sim;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Headless stand-in for the rover. Publishes simulated readings over UDP or
+ * to the Realtime Database (emulator or real project), follows the commands
+ * the app sends, and prints a line a second with the achieved publish rate
+ * so the rate at which the app's telemetry path falls behind can be found
+ * by ramping it up. With {@code --fleet} a whole fleet of rovers runs on
+ * one shared thread pool and the report adds them up.
+ */
+public final class RoverSimulator {
+
+    /** The model is advanced at a fixed rate so the readings don't depend on the publish rate. */
+    private static final double STEP_SECONDS = 0.05;
+
+    private RoverSimulator() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        SimConfig config;
+        try {
+            config = SimConfig.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.exit(2);
+            return;
+        }
+
+        int rovers = config.roverCount();
+        // Enough threads that a slow HTTP write on one channel doesn't stall the others
+        ScheduledExecutorService executor = Executors.newScheduledThreadPool(rovers * (config.channels.size() + 2), runnable -> {
+            Thread thread = new Thread(runnable, "sim-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        List<RoverModel> models = new ArrayList<>();
+        List<Backend> backends = new ArrayList<>();
+        List<Publisher> publishers = new ArrayList<>();
+        for (int i = 0; i < rovers; i++) {
+            SimConfig roverConfig = config.forRover(i);
+            RoverModel model = new RoverModel(roverConfig.seed, roverConfig.startLatitude, roverConfig.startLongitude);
+            model.addRandomObstacles(roverConfig.obstacles, 30);
+            Backend backend = createBackend(roverConfig);
+            backend.start(model);
+            executor.scheduleAtFixedRate(() -> model.step(STEP_SECONDS),
+                    0, (long) (STEP_SECONDS * 1000), TimeUnit.MILLISECONDS);
+            models.add(model);
+            backends.add(backend);
+            publishers.add(new Publisher(roverConfig, model, backend, executor));
+        }
+        for (Publisher publisher : publishers) {
+            publisher.start();
+        }
+        executor.scheduleAtFixedRate(new Reporter(publishers, models), 1, 1, TimeUnit.SECONDS);
+        if (config.ramping()) {
+            long stepMillis = (long) (config.rampSeconds * 1000);
+            executor.scheduleAtFixedRate(() -> {
+                double current = publishers.get(0).getRate();
+                double next = Math.min(config.rampTo, current * config.rampFactor);
+                if (next != current) {
+                    for (Publisher publisher : publishers) {
+                        publisher.setRate(next);
+                    }
+                    System.out.printf("ramp: %.1f Hz per channel%n", next);
+                }
+            }, stepMillis, stepMillis, TimeUnit.MILLISECONDS);
+        }
+
+        System.out.printf("simulating %s via %s at %.1f Hz per channel%s, seed %d%n",
+                describeRovers(config), describe(config), config.rateHz,
+                config.packed() ? ", packed in frames of " + config.batch : "", config.seed);
+
+        Runnable shutdown = () -> {
+            for (Publisher publisher : publishers) {
+                publisher.stop();
+            }
+            executor.shutdownNow();
+            for (Backend backend : backends) {
+                backend.close();
+            }
+        };
+        Runtime.getRuntime().addShutdownHook(new Thread(shutdown, "sim-shutdown"));
+        if (config.durationSeconds > 0) {
+            Thread.sleep((long) (config.durationSeconds * 1000));
+            System.exit(0);
+        } else {
+            Thread.currentThread().join();
+        }
+    }
+
+    private static Backend createBackend(SimConfig config) throws IOException {
+        switch (config.target) {
+            case FIREBASE:
+                return new EmulatorBackend(config.url, config.namespace, config.auth, config.roverId);
+            case UDP:
+            default:
+                return new UdpBackend(config.port);
+        }
+    }
+
+    private static String describe(SimConfig config) {
+        return config.target == SimConfig.Target.UDP
+                ? "udp port " + config.port
+                : config.url + (config.namespace != null ? " (ns " + config.namespace + ")" : "");
+    }
+
+    private static String describeRovers(SimConfig config) {
+        if (config.fleet > 0) {
+            return config.fleet + " rovers " + config.roverId + "-1.." + config.roverId + "-" + config.fleet;
+        }
+        return config.roverId != null ? "rover " + config.roverId : "rover";
+    }
+
+    /** Prints what happened over the last second, summed over every rover. */
+    private static final class Reporter implements Runnable {
+
+        private final List<Publisher> publishers;
+        private final List<RoverModel> models;
+        private long seconds;
+        private long lastPublished;
+        private long lastSamples;
+        private long lastLost;
+        private long lastHeld;
+        private long lastFailed;
+        private long lastWriteNanos;
+
+        Reporter(List<Publisher> publishers, List<RoverModel> models) {
+            this.publishers = publishers;
+            this.models = models;
+        }
+
+        @Override
+        public void run() {
+            seconds++;
+            long published = 0;
+            long samples = 0;
+            long lost = 0;
+            long held = 0;
+            long failed = 0;
+            long writeNanos = 0;
+            long maxWriteNanos = 0;
+            long heartbeatStops = 0;
+            for (RoverModel model : models) {
+                heartbeatStops += model.heartbeatStops();
+            }
+            for (Publisher publisher : publishers) {
+                published += publisher.published.get();
+                samples += publisher.samples.get();
+                lost += publisher.lost.get();
+                held += publisher.held.get();
+                failed += publisher.failed.get();
+                writeNanos += publisher.writeNanos.get();
+                maxWriteNanos = Math.max(maxWriteNanos, publisher.maxWriteNanos.getAndSet(0));
+            }
+            long count = published - lastPublished;
+            double meanMillis = count == 0 ? 0 : (writeNanos - lastWriteNanos) / 1e6 / count;
+            double maxMillis = maxWriteNanos / 1e6;
+            // A fleet's modes and commands differ per rover; the totals are what matter there
+            RoverModel first = models.get(0);
+            System.out.printf("t=%ds target=%.1fHz writes=%d/s samples=%d/s lost=%d held=%d failed=%d write=%.2fms avg %.2fms max hbStops=%d mode=%s cmd=%s%n",
+                    seconds, publishers.get(0).getRate(), count, samples - lastSamples, lost - lastLost, held - lastHeld,
+                    failed - lastFailed,
+                    meanMillis, maxMillis, heartbeatStops, models.size() == 1 ? first.controlMode() : "-",
+                    models.size() == 1 ? first.lastCommand() : "-");
+            lastPublished = published;
+            lastSamples = samples;
+            lastLost = lost;
+            lastHeld = held;
+            lastFailed = failed;
+            lastWriteNanos = writeNanos;
+        }
+    }
+}
@@ -0,0 +1,239 @@
+package com.example.acar.sim;
+
+import com.example.acar.telemetry.SensorChannel;
+import com.example.acar.transport.LanProtocol;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Command line options of the simulator. Every option has a default, so
+ * running with no arguments streams 1 Hz telemetry over UDP on port 4210.
+ */
+final class SimConfig implements Cloneable {
+
+    enum Target {
+        UDP, FIREBASE
+    }
+
+    /** The sensor nodes, in the order the firmware publishes them; one per {@link SensorChannel}. */
+    enum Channel {
+        CLIMATE(true), GPS(true), RAIN(true), MOISTURE(true), OBSTACLE(false), IMU(false);
+
+        final String key;
+        /** Whether packed frames carry this channel. */
+        final boolean packed;
+
+        Channel(boolean packed) {
+            this.key = SensorChannel.valueOf(name()).key();
+            this.packed = packed;
+        }
+
+        static Channel fromKey(String key) {
+            for (Channel channel : values()) {
+                if (channel.key.equals(key)) {
+                    return channel;
+                }
+            }
+            throw new IllegalArgumentException("Unknown channel " + key);
+        }
+    }
+
+    static final String USAGE = String.join("\n",
+            "usage: rover-sim [options]",
+            "  --target udp|firebase   where the rover lives (default udp)",
+            "  --port N                UDP port to listen on (default 4210)",
+            "  --url URL               database root (default http://127.0.0.1:9000, the emulator)",
+            "  --namespace NAME        emulator database name (default acar-default-rtdb)",
+            "  --auth TOKEN            ID token or secret for a real project",
+            "  --rate HZ               readings per second on each channel (default 1)",
+            "  --channels a,b          subset of dht22,gps,raindrop,moisture,obstacle,imu",
+            "                          (default all)",
+            "  --jitter MS             uniform +/- spread added to each publish interval",
+            "  --loss P                probability in [0,1] that a reading is dropped",
+            "  --batch N               firebase only: write N samples of all channels per",
+            "                          packed frame to sensors/packed instead of one node each",
+            "  --seed N                makes readings, jitter and loss repeatable (default 1)",
+            "  --ramp FROM,TO,FACTOR,SECONDS",
+            "                          multiply the rate by FACTOR every SECONDS until TO",
+            "  --duration SECONDS      stop after this long (default: run until killed)",
+            "  --start LAT,LON         initial position",
+            "  --obstacles N           boxes scattered within 30 m of the start (default 12)",
+            "  --rover-id ID           firebase only: live under rovers/ID/ as one rover of a",
+            "                          fleet and write a summary to fleet/ID every second",
+            "  --fleet N               firebase only: run N rovers ID-1..ID-N (ID from",
+            "                          --rover-id, default rover), each with its own seed");
+
+    Target target = Target.UDP;
+    int port = LanProtocol.DEFAULT_PORT;
+    String url = "http://127.0.0.1:9000";
+    String namespace = "acar-default-rtdb";
+    String auth;
+    double rateHz = 1;
+    Set<Channel> channels = EnumSet.allOf(Channel.class);
+    double jitterMillis;
+    double loss;
+    long seed = 1;
+    int batch;
+    double rampTo;
+    double rampFactor;
+    double rampSeconds;
+    double durationSeconds;
+    double startLatitude = 15.3517;
+    double startLongitude = 76.1557;
+    int obstacles = 12;
+    String roverId;
+    int fleet;
+
+    static SimConfig parse(String[] args) {
+        SimConfig config = new SimConfig();
+        for (int i = 0; i < args.length; i++) {
+            String option = args[i];
+            if ("--help".equals(option) || "-h".equals(option)) {
+                throw new IllegalArgumentException(USAGE);
+            }
+            if (i + 1 >= args.length) {
+                throw new IllegalArgumentException("Missing value for " + option + "\n" + USAGE);
+            }
+            String value = args[++i];
+            switch (option) {
+                case "--target":
+                    config.target = Target.valueOf(value.toUpperCase());
+                    break;
+                case "--port":
+                    config.port = Integer.parseInt(value);
+                    break;
+                case "--url":
+                    config.url = value;
+                    // A real project URL already names its database
+                    if (!value.contains("127.0.0.1") && !value.contains("localhost")) {
+                        config.namespace = null;
+                    }
+                    break;
+                case "--namespace":
+                    config.namespace = value;
+                    break;
+                case "--auth":
+                    config.auth = value;
+                    break;
+                case "--rate":
+                    config.rateHz = positive(option, Double.parseDouble(value));
+                    break;
+                case "--channels":
+                    config.channels = EnumSet.noneOf(Channel.class);
+                    for (String key : value.split(",")) {
+                        config.channels.add(Channel.fromKey(key.trim()));
+                    }
+                    break;
+                case "--jitter":
+                    config.jitterMillis = Double.parseDouble(value);
+                    break;
+                case "--loss":
+                    config.loss = Double.parseDouble(value);
+                    if (config.loss < 0 || config.loss > 1) {
+                        throw new IllegalArgumentException("--loss must be between 0 and 1");
+                    }
+                    break;
+                case "--batch":
+                    config.batch = Integer.parseInt(value);
+                    if (config.batch < 1 || config.batch > 255) {
+                        throw new IllegalArgumentException("--batch must be between 1 and 255");
+                    }
+                    break;
+                case "--seed":
+                    config.seed = Long.parseLong(value);
+                    break;
+                case "--ramp": {
+                    String[] parts = value.split(",");
+                    if (parts.length != 4) {
+                        throw new IllegalArgumentException("--ramp takes FROM,TO,FACTOR,SECONDS");
+                    }
+                    config.rateHz = positive(option, Double.parseDouble(parts[0]));
+                    config.rampTo = positive(option, Double.parseDouble(parts[1]));
+                    config.rampFactor = Double.parseDouble(parts[2]);
+                    config.rampSeconds = positive(option, Double.parseDouble(parts[3]));
+                    if (config.rampFactor <= 1) {
+                        throw new IllegalArgumentException("--ramp FACTOR must be greater than 1");
+                    }
+                    break;
+                }
+                case "--duration":
+                    config.durationSeconds = Double.parseDouble(value);
+                    break;
+                case "--obstacles":
+                    config.obstacles = Integer.parseInt(value);
+                    break;
+                case "--rover-id":
+                    config.roverId = value;
+                    break;
+                case "--fleet":
+                    config.fleet = Integer.parseInt(value);
+                    if (config.fleet < 1 || config.fleet > 100) {
+                        throw new IllegalArgumentException("--fleet must be between 1 and 100");
+                    }
+                    break;
+                case "--start": {
+                    String[] parts = value.split(",");
+                    config.startLatitude = Double.parseDouble(parts[0]);
+                    config.startLongitude = Double.parseDouble(parts[1]);
+                    break;
+                }
+                default:
+                    throw new IllegalArgumentException("Unknown option " + option + "\n" + USAGE);
+            }
+        }
+        if (config.batch > 0 && config.target != Target.FIREBASE) {
+            throw new IllegalArgumentException("--batch needs --target firebase");
+        }
+        if ((config.roverId != null || config.fleet > 0) && config.target != Target.FIREBASE) {
+            throw new IllegalArgumentException("--rover-id and --fleet need --target firebase");
+        }
+        if (config.fleet > 0 && config.roverId == null) {
+            config.roverId = "rover";
+        }
+        return config;
+    }
+
+    boolean packed() {
+        return batch > 0;
+    }
+
+    boolean ramping() {
+        return rampFactor > 1;
+    }
+
+    /** Rovers to simulate. */
+    int roverCount() {
+        return Math.max(1, fleet);
+    }
+
+    /**
+     * Options for rover {@code index} (from 0) of the fleet: its own id, seed
+     * and a start a few metres further north, so rovers neither repeat each
+     * other's readings nor start in one spot.
+     */
+    SimConfig forRover(int index) {
+        if (fleet == 0) {
+            return this;
+        }
+        SimConfig rover;
+        try {
+            rover = (SimConfig) clone();
+        } catch (CloneNotSupportedException e) {
+            throw new AssertionError(e);
+        }
+        rover.fleet = 0;
+        rover.roverId = roverId + "-" + (index + 1);
+        rover.seed = seed + index;
+        // About 5 m apart
+        rover.startLatitude = startLatitude + index * 0.00005;
+        return rover;
+    }
+
+    private static double positive(String option, double value) {
+        if (!(value > 0)) {
+            throw new IllegalArgumentException(option + " must be positive");
+        }
+        return value;
+    }
+}
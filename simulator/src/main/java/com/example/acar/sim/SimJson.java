@@ -0,0 +1,83 @@
+package com.example.acar.sim;
+
+/**
+ * Just enough JSON for the simulator: reading one field out of the small
+ * objects the Realtime Database REST API sends, and writing numbers.
+ */
+final class SimJson {
+
+    private SimJson() {
+    }
+
+    /**
+     * Raw text of the value stored under {@code key} in {@code json}, or null.
+     * Strings keep their quotes; objects are returned with their braces.
+     */
+    static String field(String json, String key) {
+        String marker = "\"" + key + "\":";
+        int start = json.indexOf(marker);
+        if (start < 0) {
+            return null;
+        }
+        int i = start + marker.length();
+        while (i < json.length() && json.charAt(i) == ' ') {
+            i++;
+        }
+        if (i >= json.length()) {
+            return null;
+        }
+        char first = json.charAt(i);
+        int end;
+        if (first == '"') {
+            end = i + 1;
+            while (end < json.length() && (json.charAt(end) != '"' || json.charAt(end - 1) == '\\')) {
+                end++;
+            }
+            end++;
+        } else if (first == '{') {
+            int depth = 0;
+            end = i;
+            do {
+                char c = json.charAt(end++);
+                if (c == '{') {
+                    depth++;
+                } else if (c == '}') {
+                    depth--;
+                }
+            } while (depth > 0 && end < json.length());
+        } else {
+            end = i;
+            while (end < json.length() && json.charAt(end) != ',' && json.charAt(end) != '}') {
+                end++;
+            }
+        }
+        return json.substring(i, Math.min(end, json.length())).trim();
+    }
+
+    /** The string value under {@code key} without quotes, or null if absent or not a string. */
+    static String string(String json, String key) {
+        String raw = field(json, key);
+        if (raw == null || raw.length() < 2 || raw.charAt(0) != '"') {
+            return null;
+        }
+        return raw.substring(1, raw.length() - 1);
+    }
+
+    /** The numeric value under {@code key}, or NaN. */
+    static double number(String json, String key) {
+        String raw = field(json, key);
+        if (raw == null) {
+            return Double.NaN;
+        }
+        try {
+            return Double.parseDouble(raw);
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+
+    /** A JSON number; NaN and infinities become null, which the database accepts. */
+    static String number(double value) {
+        return Double.isNaN(value) || Double.isInfinite(value) ? "null" : Double.toString(value);
+    }
+}
@@ -0,0 +1,184 @@
+package com.example.acar.sim;
+
+import com.example.acar.transport.LanProtocol;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Plays the rover's side of the app's LAN link (see {@link LanProtocol}),
+ * with the same encoders the app uses: answers {@code HELLO} with {@code PONG},
+ * acknowledges {@code CMD} and {@code ESTOP}, follows {@code HB} heartbeats,
+ * applies {@code MODE} and {@code DRIVE}, and
+ * streams {@code SENS} lines to whichever app last said {@code HELLO 1}.
+ * Needs no network beyond loopback or the local subnet.
+ */
+final class UdpBackend implements Backend {
+
+    /** The app stops counting as a listener after this long without a HELLO. */
+    private static final long CLIENT_TIMEOUT_MS = 2000;
+
+    private final DatagramSocket socket;
+    private volatile SocketAddress client;
+    private volatile long lastHelloMillis;
+    private volatile boolean streaming;
+    private Thread receiver;
+
+    UdpBackend(int port) throws SocketException {
+        socket = new DatagramSocket(new InetSocketAddress(port));
+    }
+
+    int getLocalPort() {
+        return socket.getLocalPort();
+    }
+
+    @Override
+    public void start(RoverModel model) {
+        receiver = new Thread(() -> receive(model), "sim-udp-receive");
+        receiver.setDaemon(true);
+        receiver.start();
+    }
+
+    private void receive(RoverModel model) {
+        byte[] buffer = new byte[LanProtocol.MAX_DATAGRAM];
+        DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+        while (!socket.isClosed()) {
+            try {
+                packet.setLength(buffer.length);
+                socket.receive(packet);
+                String[] fields = new String(buffer, 0, packet.getLength(), StandardCharsets.US_ASCII).trim().split(" ");
+                SocketAddress sender = packet.getSocketAddress();
+                switch (fields[0]) {
+                    case "HELLO":
+                        client = sender;
+                        lastHelloMillis = System.currentTimeMillis();
+                        streaming = fields.length > 1 && "1".equals(fields[1]);
+                        model.onTelemetryRates(rates(fields));
+                        send(LanProtocol.pong(), sender);
+                        break;
+                    case "CMD":
+                        if (fields.length == 3) {
+                            int sequence = Integer.parseInt(fields[2]);
+                            model.onCommand(fields[1]);
+                            send(LanProtocol.ack(sequence), sender);
+                        }
+                        break;
+                    case "ESTOP":
+                        if (fields.length == 2) {
+                            int sequence = Integer.parseInt(fields[1]);
+                            model.onEmergencyStop();
+                            send(LanProtocol.ack(sequence), sender);
+                        }
+                        break;
+                    case "HB":
+                        if (fields.length == 3) {
+                            model.onHeartbeat(Long.parseLong(fields[2]));
+                        }
+                        break;
+                    case "MODE":
+                        if (fields.length == 2) {
+                            model.onControlMode(fields[1]);
+                        }
+                        break;
+                    case "DRIVE":
+                        if (fields.length == 4) {
+                            model.onDrive(Integer.parseInt(fields[1]),
+                                    Double.parseDouble(fields[2]), Double.parseDouble(fields[3]));
+                        }
+                        break;
+                    default:
+                        break;
+                }
+            } catch (NumberFormatException e) {
+                // A malformed datagram; the real firmware ignores these too
+            } catch (IOException e) {
+                if (!socket.isClosed()) {
+                    System.err.println("UDP receive failed: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    @Override
+    public void publishClimate(double temperature, double humidity) throws IOException {
+        sendTelemetry(LanProtocol.climate(temperature, humidity));
+    }
+
+    @Override
+    public void publishGps(double latitude, double longitude) throws IOException {
+        sendTelemetry(LanProtocol.gps(latitude, longitude));
+    }
+
+    @Override
+    public void publishRain(boolean raining) throws IOException {
+        sendTelemetry(LanProtocol.rain(raining));
+    }
+
+    @Override
+    public void publishMoisture(int moisture) throws IOException {
+        sendTelemetry(LanProtocol.moisture(moisture));
+    }
+
+    @Override
+    public void publishObstacle(double distanceCm, boolean left, boolean right) throws IOException {
+        sendTelemetry(LanProtocol.obstacle(distanceCm, left, right));
+    }
+
+    @Override
+    public void publishImu(double yawRate, double heading) throws IOException {
+        sendTelemetry(LanProtocol.imu(yawRate, heading));
+    }
+
+    @Override
+    public void publishPacked(String frame) {
+        // The LAN link is already one small datagram per reading; batching is a database concern
+    }
+
+    /** Channel limits from the {@code key=hz} fields after {@code HELLO <0|1>}; the rest is unlimited. */
+    private static double[] rates(String[] fields) {
+        double[] hz = RoverModel.unlimitedRates();
+        for (int i = 2; i < fields.length; i++) {
+            int equals = fields[i].indexOf('=');
+            if (equals < 0) {
+                continue;
+            }
+            try {
+                SimConfig.Channel channel = SimConfig.Channel.fromKey(fields[i].substring(0, equals));
+                hz[channel.ordinal()] = Double.parseDouble(fields[i].substring(equals + 1));
+            } catch (IllegalArgumentException e) {
+                // Unknown channel or malformed rate: leave it unlimited
+            }
+        }
+        return hz;
+    }
+
+    @Override
+    public void publishSummary(String frame) {
+        // Fleets share a database; a LAN rover is on its own
+    }
+
+    private void sendTelemetry(byte[] message) throws IOException {
+        SocketAddress target = client;
+        if (target == null || !streaming || System.currentTimeMillis() - lastHelloMillis > CLIENT_TIMEOUT_MS) {
+            return;
+        }
+        send(message, target);
+    }
+
+    private void send(byte[] message, SocketAddress target) throws IOException {
+        socket.send(new DatagramPacket(message, message.length, target));
+    }
+
+    @Override
+    public void close() {
+        socket.close();
+        if (receiver != null) {
+            receiver.interrupt();
+        }
+    }
+}
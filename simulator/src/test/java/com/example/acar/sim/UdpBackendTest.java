@@ -0,0 +1,140 @@
+package com.example.acar.sim;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Drives the simulator's UDP side the way the app's UdpTransport does,
+ * over loopback.
+ */
+public class UdpBackendTest {
+
+    private RoverModel model;
+    private UdpBackend backend;
+    private DatagramSocket app;
+
+    @Before
+    public void setUp() throws Exception {
+        model = new RoverModel(7, 15.0, 76.0);
+        backend = new UdpBackend(0);
+        backend.start(model);
+        app = new DatagramSocket();
+        app.setSoTimeout(2000);
+    }
+
+    @After
+    public void tearDown() {
+        app.close();
+        backend.close();
+    }
+
+    @Test
+    public void acknowledgesCommandsAndStreamsAfterHello() throws Exception {
+        send("HELLO 1");
+        assertEquals("PONG", receive());
+
+        send("CMD forward 7");
+        assertEquals("ACK 7", receive());
+        assertEquals("forward", model.lastCommand());
+
+        backend.publishMoisture(42);
+        assertEquals("SENS moisture 42", receive());
+    }
+
+    @Test
+    public void ignoresStaleDriveTuples() throws Exception {
+        send("HELLO 0");
+        receive();
+        send("DRIVE 5 0.5 -0.25");
+        send("DRIVE 4 1.0 1.0");
+        // A round trip through the same socket guarantees both datagrams were handled
+        send("HELLO 0");
+        receive();
+        assertEquals(0.5, model.throttle(), 1e-9);
+        assertEquals(-0.25, model.steer(), 1e-9);
+    }
+
+    @Test
+    public void stopsWhenHeartbeatsStopAndOnEmergencyStop() throws Exception {
+        send("HB 1 1000");
+        send("DRIVE 1 1.0 0.0");
+        send("HELLO 0");
+        receive();
+        // Beats keep it going; a missed deadline stops it
+        model.step(0.6);
+        send("HB 2 1000");
+        send("HELLO 0");
+        receive();
+        model.step(0.6);
+        assertEquals(1.0, model.throttle(), 1e-9);
+        model.step(0.5);
+        assertEquals(0.0, model.throttle(), 1e-9);
+        assertEquals(1, model.heartbeatStops());
+
+        send("DRIVE 2 0.5 0.0");
+        send("ESTOP 8");
+        assertEquals("ACK 8", receive());
+        assertEquals(0.0, model.throttle(), 1e-9);
+        assertEquals("stop", model.lastCommand());
+    }
+
+    @Test
+    public void helloCarriesTheRatesTheAppWants() throws Exception {
+        send("HELLO 1 dht22=0.0 gps=0.2 obstacle=0.2");
+        receive();
+        assertEquals(0, model.telemetryRate(SimConfig.Channel.CLIMATE), 0);
+        assertEquals(0.2, model.telemetryRate(SimConfig.Channel.GPS), 1e-9);
+        assertEquals(Double.POSITIVE_INFINITY, model.telemetryRate(SimConfig.Channel.IMU), 0);
+
+        // A plain HELLO lifts every limit again
+        send("HELLO 1");
+        receive();
+        assertEquals(Double.POSITIVE_INFINITY, model.telemetryRate(SimConfig.Channel.CLIMATE), 0);
+    }
+
+    @Test
+    public void sameSeedProducesSameReadings() {
+        RoverModel a = new RoverModel(99, 15.0, 76.0);
+        RoverModel b = new RoverModel(99, 15.0, 76.0);
+        a.onCommand("forward");
+        b.onCommand("forward");
+        for (int i = 0; i < 1000; i++) {
+            a.step(0.05);
+            b.step(0.05);
+        }
+        assertEquals(a.temperature(), b.temperature(), 0);
+        assertEquals(a.latitude(), b.latitude(), 0);
+        assertEquals(a.moisture(), b.moisture());
+    }
+
+    @Test
+    public void readsFieldsOutOfStreamEvents() {
+        String payload = "{\"path\":\"/\",\"data\":{\"seq\":3,\"steer\":-0.5,\"throttle\":0.25}}";
+        String data = SimJson.field(payload, "data");
+        assertEquals(3, SimJson.number(data, "seq"), 0);
+        assertEquals(0.25, SimJson.number(data, "throttle"), 0);
+        assertEquals("/", SimJson.string(payload, "path"));
+    }
+
+    private void send(String message) throws Exception {
+        byte[] data = message.getBytes(StandardCharsets.US_ASCII);
+        app.send(new DatagramPacket(data, data.length,
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), backend.getLocalPort())));
+    }
+
+    private String receive() throws Exception {
+        byte[] buffer = new byte[512];
+        DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+        app.receive(packet);
+        return new String(buffer, 0, packet.getLength(), StandardCharsets.US_ASCII);
+    }
+}